@@ -0,0 +1,63 @@
+import sbt._
+
+/**
+ * Generates the arities of StreamReads.obj, from a single field up to 22 fields, each taking a typed field per
+ * parameter of the constructor it is given. Generated rather than written out, like the function and tuple types of
+ * the standard library, so a reader declared with the wrong type or order of fields fails to compile.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+object StreamReadsBoilerplate {
+
+  /** The largest arity generated, being that of the largest function type **/
+  val MaxArity = 22
+
+  /**
+   * Writes the arities to the given directory of managed sources.
+   *
+   * @param sourceManaged the directory of managed sources
+   * @return the generated sources
+   */
+  def generate(sourceManaged: File): Seq[File] = {
+    val file = sourceManaged / "org" / "talares" / "api" / "datatypes" / "ObjectStreamReadsArities.scala"
+    IO.write(file, source)
+    Seq(file)
+  }
+
+  /** The source of the arities **/
+  def source: String =
+    s"""package org.talares.api.datatypes
+       |
+       |import org.talares.api.datatypes.StreamReads.{Field, ObjectStreamReads}
+       |
+       |/**
+       | * The arities of [[StreamReads.obj]], generated by project/StreamReadsBoilerplate.scala.
+       | *
+       | * @author Dennis Vis
+       | * @since 0.1.1
+       | */
+       |trait ObjectStreamReadsArities {
+       |
+       |${(1 to MaxArity) map arity mkString "\n"}}
+       |""".stripMargin
+
+  private def arity(n: Int): String = {
+
+    val types = (1 to n) map (i => s"A$i")
+    val fields = (1 to n) map (i => s"f$i: Field[A$i]")
+    val values = (1 to n) map (i => s"values.get[A$i](${i - 1})")
+    val function = if (n == 1) "A1 => T" else types.mkString("(", ", ", ") => T")
+    val noun = if (n == 1) "field" else "fields"
+
+    s"""  /**
+       |   * Creates the reader of a Json object from $n $noun, in the order of the parameters of the given
+       |   * constructor, see [[StreamReads.field]]. Fields of the object which are not listed are skipped.
+       |   */
+       |  def obj[${types mkString ", "}, T](${fields mkString ", "})(construct: $function): ObjectStreamReads[T] =
+       |    new ObjectStreamReads[T](List(${(1 to n) map (i => s"f$i") mkString ", "}), values => construct(
+       |      ${values mkString ", "}
+       |    ))
+       |""".stripMargin
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares;
+
+/**
+ * The priority of a request, which decides the lane it travels in through the library.
+ * <p>
+ * Requests are interactive unless issued within {@link Talares#withPriority(Priority, java.util.concurrent.Callable)}.
+ *
+ * @author Dennis Vis
+ * @see org.talares.api.Priority
+ * @since 0.1.1
+ */
+public enum Priority {
+
+  /**
+   * Requests a client, for instance the rendering of a page, is waiting for.
+   */
+  INTERACTIVE,
+
+  /**
+   * Requests for items which are likely to be needed shortly.
+   */
+  PREFETCH,
+
+  /**
+   * Bulk work, such as crawls and exports.
+   */
+  BACKGROUND;
+
+  /**
+   * The Scala representation of this priority.
+   *
+   * @return the {@link org.talares.api.Priority} of the same lane
+   */
+  public org.talares.api.Priority asScala() {
+    return org.talares.api.Priority.lanes().apply(ordinal());
+  }
+}
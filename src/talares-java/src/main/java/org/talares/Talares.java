@@ -15,9 +15,20 @@
  */
 package org.talares;
 
+import akka.actor.ActorSystem;
+import akka.dispatch.ExecutionContexts;
+import com.typesafe.config.ConfigFactory;
+import org.talares.api.Settings;
+import org.talares.api.cache.ItemKey;
 import org.talares.api.exceptions.TalaresException;
+import org.talares.api.invalidation.InvalidationSource;
+import org.talares.api.mirror.Mirror;
+import org.talares.api.mirror.MirrorSnapshot;
+import org.talares.cache.AsyncCache;
 import org.talares.cache.Cache;
 import org.talares.cache.CacheHelpers;
+import org.talares.cache.ItemChange;
+import org.talares.cache.ItemChangeListener;
 import org.talares.cache.NoCache;
 import org.talares.datatypes.items.Binary;
 import org.talares.datatypes.items.BinaryContent;
@@ -34,14 +45,28 @@ import org.talares.datatypes.items.Schema;
 import org.talares.datatypes.items.StructureGroup;
 import org.talares.datatypes.items.Template;
 import play.libs.F;
+import play.libs.HttpExecution;
 import play.libs.Scala;
+import scala.Function1;
+import scala.Tuple2;
 import scala.collection.Seq;
+import scala.concurrent.ExecutionContextExecutor;
 import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+import scala.runtime.AbstractFunction0;
+import scala.runtime.AbstractFunction1;
+import scala.runtime.BoxedUnit;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static org.talares.utils.Utils.await;
 
@@ -61,6 +86,9 @@ import static org.talares.utils.Utils.await;
  * Talares talares = new Talares(cache);
  * F.Promise&amp;lt;Page&amp;gt; pagePromise = talares.getPage(1, 2);
  * </pre>
+ * <p>
+ * Every instance is independent of the others. By default an instance runs on an actor system of its own; within an
+ * application which has an actor system already, an instance may be built on that instead.
  *
  * @author Dennis Vis
  * @see Cache
@@ -70,20 +98,273 @@ public class Talares {
 
   private final org.talares.api.Talares api;
   private final long defaultTimeout;
+  private final ConcurrentMap<ItemChangeListener, Function1<org.talares.api.cache.ItemChange, BoxedUnit>>
+      changeListeners = new ConcurrentHashMap<>();
 
   public Talares() {
-    this.api = getApi(new NoCache());
-    this.defaultTimeout = api.settings().timeout();
+    this(new NoCache());
   }
 
   public Talares(final Cache cache) {
-    this.api = getApi(cache);
+    this.api = getApi(CacheHelpers.asScala(cache));
+    this.defaultTimeout = api.settings().timeout();
+  }
+
+  public Talares(final AsyncCache cache) {
+    this.api = getApi(CacheHelpers.asScala(cache));
+    this.defaultTimeout = api.settings().timeout();
+  }
+
+  public Talares(final Cache cache, final ActorSystem system) {
+    this.api = getApi(CacheHelpers.asScala(cache), system);
+    this.defaultTimeout = api.settings().timeout();
+  }
+
+  public Talares(final AsyncCache cache, final ActorSystem system) {
+    this.api = getApi(CacheHelpers.asScala(cache), system);
     this.defaultTimeout = api.settings().timeout();
   }
 
-  protected org.talares.api.Talares getApi(final Cache cache) {
-    org.talares.api.cache.Cache scalaCache = CacheHelpers.asScala(cache);
-    return new org.talares.api.Talares(scalaCache);
+  protected org.talares.api.Talares getApi(final org.talares.api.cache.Cache scalaCache) {
+    return org.talares.api.Talares.apply(scalaCache, new Settings(ConfigFactory.load()));
+  }
+
+  protected org.talares.api.Talares getApi(final org.talares.api.cache.Cache scalaCache, final ActorSystem system) {
+    return org.talares.api.Talares.apply(scalaCache, system);
+  }
+
+  /**
+   * Evicts the given item from the cache, together with every cached entry which depends on it directly or
+   * transitively. For instance, invalidating a {@link Component} also evicts the {@link ComponentPresentation}'s
+   * showing it and the {@link Page}'s holding those.
+   *
+   * @param item the item to invalidate
+   */
+  public final void invalidate(final Item item) {
+    api.invalidate(ItemKey.fromURI(item.getMetadata().getUri()));
+  }
+
+  /**
+   * Evicts the item identified by the given collection and ID's from the cache, together with every cached entry which
+   * depends on it directly or transitively.
+   * <p>
+   * Example:
+   * <pre>
+   * talares.invalidate("Components", "PublicationId", 1, "ItemId", 123);
+   * </pre>
+   *
+   * @param collection the name of the webservice collection the item belongs to, for instance "Pages"
+   * @param namesAndValues alternating names and values of the ID's identifying the item
+   * @throws IllegalArgumentException if a name is not followed by a value
+   */
+  public final void invalidate(final String collection, final Object... namesAndValues) {
+
+    if (namesAndValues.length % 2 != 0) {
+      throw new IllegalArgumentException("Expected alternating names and values, got " + namesAndValues.length +
+          " arguments");
+    }
+
+    final List<Tuple2<String, Object>> ids = new ArrayList<>();
+
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      ids.add(new Tuple2<>(String.valueOf(namesAndValues[i]), namesAndValues[i + 1]));
+    }
+
+    api.invalidate(ItemKey.apply(collection, Scala.toSeq(ids)));
+  }
+
+  /**
+   * Invalidates all cached entries of the given publication at once, for instance after it has been republished.
+   * Stale entries are evicted lazily, as they are accessed.
+   *
+   * @param publicationId the ID of the publication to invalidate
+   */
+  public final void invalidatePublication(final int publicationId) {
+    api.invalidatePublication(publicationId);
+  }
+
+  /**
+   * Starts the given {@link InvalidationSource}, evicting the cached entries concerned by every event it receives. The
+   * source is stopped when the library is terminated.
+   * <p>
+   * Example:
+   * <pre>
+   * talares.listen(new HttpInvalidationSource(8081, "a shared token"));
+   * </pre>
+   *
+   * @param source the {@link InvalidationSource} to listen to
+   */
+  public final void listen(final InvalidationSource source) {
+    api.listen(source);
+  }
+
+  /**
+   * Adds a listener to changes of cached items. Whenever a refresh of a cached entry changes an item, the listener
+   * receives an {@link ItemChange} holding the item before and after the refresh.
+   * <p>
+   * Changes are only detected by the cache strategies which refresh entries themselves, being
+   * {@link org.talares.cache.AutoUpdateCache}, {@link org.talares.cache.RefreshAheadCache} and their Async
+   * counterparts.
+   *
+   * @param listener the {@link ItemChangeListener} to add
+   */
+  public final void addChangeListener(final ItemChangeListener listener) {
+
+    final Function1<org.talares.api.cache.ItemChange, BoxedUnit> function =
+        new AbstractFunction1<org.talares.api.cache.ItemChange, BoxedUnit>() {
+
+          @Override
+          public BoxedUnit apply(final org.talares.api.cache.ItemChange change) {
+            listener.onChange(new ItemChange(change.itemKey(), asJava(change.oldValue()), asJava(change.newValue())));
+            return BoxedUnit.UNIT;
+          }
+        };
+
+    if (changeListeners.putIfAbsent(listener, function) == null) {
+      api.subscribe(function);
+    }
+  }
+
+  /**
+   * Removes a listener added by {@link #addChangeListener(ItemChangeListener)}.
+   *
+   * @param listener the {@link ItemChangeListener} to remove
+   */
+  public final void removeChangeListener(final ItemChangeListener listener) {
+
+    final Function1<org.talares.api.cache.ItemChange, BoxedUnit> function = changeListeners.remove(listener);
+
+    if (function != null) {
+      api.unsubscribe(function);
+    }
+  }
+
+  /**
+   * Mirrors the given publications into the given directory and serves requests from the mirror from now on. Requests
+   * for items the mirror does not hold are handled as usual.
+   * <p>
+   * A mirror restored from an earlier run is served from immediately. Events received through
+   * {@link #listen(InvalidationSource)} keep the mirror up to date.
+   *
+   * @param directory the directory to keep the mirror in
+   * @param publicationIds the ID's of the publications to mirror
+   * @return a promise which is redeemed once the initial crawl of the publications has completed
+   */
+  public final F.Promise<Void> mirror(final File directory, final List<Integer> publicationIds) {
+
+    final List<Object> ids = new ArrayList<Object>(publicationIds);
+    final Mirror mirror = new Mirror(api, directory, Scala.toSeq(ids));
+
+    api.serveFrom(mirror);
+
+    return F.Promise.wrap(mirror.crawl()).map(new F.Function<MirrorSnapshot, Void>() {
+
+      @Override
+      public Void apply(final MirrorSnapshot snapshot) {
+        return null;
+      }
+    }, HttpExecution.defaultContext());
+  }
+
+  /**
+   * Handles the requests issued by the given block with the given {@link Priority}, so bulk work does not hold up
+   * interactive requests. Only requests issued while the block runs are affected, not those issued by functions mapped
+   * over the promises it returns.
+   * <p>
+   * Example:
+   * <pre>
+   * List&lt;Page&gt; pages = talares.withPriority(Priority.BACKGROUND, new Callable&lt;List&lt;Page&gt;&gt;() {
+   *   public List&lt;Page&gt; call() throws TalaresException {
+   *     return talares.getPage_("/index.html");
+   *   }
+   * });
+   * </pre>
+   *
+   * @param priority the {@link Priority} to handle the requests with
+   * @param block    the block issuing the requests
+   * @param <A>      the type of the outcome of the block
+   * @return the outcome of the block
+   * @throws Exception the exception thrown by the block, if any
+   */
+  public final <A> A withPriority(final Priority priority, final Callable<A> block) throws Exception {
+
+    final Exception[] thrown = new Exception[1];
+
+    final A outcome = api.withPriority(priority.asScala(), new AbstractFunction0<A>() {
+
+      @Override
+      public A apply() {
+        try {
+          return block.call();
+        } catch (final Exception e) {
+          thrown[0] = e;
+          return null;
+        }
+      }
+    });
+
+    if (thrown[0] != null) {
+      throw thrown[0];
+    }
+    return outcome;
+  }
+
+  /**
+   * Completes the promises returned by this instance on the given executor, rather than on the thread which handled the
+   * outcome of the request within the library, which is the default. Functions mapped over the promises with
+   * {@link #sameThread()} then run on the given executor without any further context switch, as does the conversion of
+   * the outcome into its Java representation. Until an executor is given, that conversion runs on the default
+   * execution context of Play.
+   * <p>
+   * Example:
+   * <pre>
+   * talares.deliverOn(executor);
+   * talares.getPage(1, 2).map(function, Talares.sameThread());
+   * </pre>
+   *
+   * @param executor the executor to complete the promises on
+   */
+  public final void deliverOn(final Executor executor) {
+    api.deliverOn(ExecutionContexts.fromExecutor(executor));
+  }
+
+  /**
+   * An execution context running functions on the thread redeeming the promise, without a context switch. Suits
+   * cheap functions only, such as converting the value of a promise.
+   *
+   * @return the execution context
+   */
+  public static ExecutionContextExecutor sameThread() {
+    return org.talares.api.Talares.sameThread();
+  }
+
+  /**
+   * Drains the library and terminates it thereafter, for instance before the application is redeployed. Requests
+   * issued from now on are rejected, while the requests in flight are awaited together with the storing of their
+   * outcome in the cache, for at most the configured talares.draintimeout.
+   *
+   * @return a promise which is redeemed once the library has been terminated
+   */
+  public final F.Promise<Void> drain() {
+    return drain(api.settings().drainTimeout());
+  }
+
+  /**
+   * Drains the library and terminates it thereafter, as {@link #drain()} does, waiting at most the given time.
+   *
+   * @param timeoutMillis the time in milliseconds the drain may take at most
+   * @return a promise which is redeemed once the library has been terminated
+   */
+  public final F.Promise<Void> drain(final long timeoutMillis) {
+
+    return F.Promise.wrap(api.drain(Duration.create(timeoutMillis, TimeUnit.MILLISECONDS))).map(
+        new F.Function<BoxedUnit, Void>() {
+
+          @Override
+          public Void apply(final BoxedUnit unit) {
+            return null;
+          }
+        }, HttpExecution.defaultContext());
   }
 
   /**
@@ -94,6 +375,24 @@ public class Talares {
     api.terminate();
   }
 
+  /**
+   * Wraps a Scala item in it's Java representation, which is the class of the same name in the package of
+   * {@link Item}.
+   *
+   * @param item the Scala item to wrap
+   * @return the Java representation of the item
+   */
+  private Item asJava(final org.talares.api.datatypes.items.Item item) {
+    try {
+      final String className = Item.class.getPackage().getName() + "." + item.getClass().getSimpleName();
+      final Constructor<?> constructor =
+          Class.forName(className).getConstructor(org.talares.api.Talares.class, item.getClass());
+      return (Item) constructor.newInstance(api, item);
+    } catch (final ReflectiveOperationException e) {
+      throw new IllegalStateException("No Java representation available for " + item.getClass(), e);
+    }
+  }
+
   private <A extends org.talares.api.datatypes.items.Item, B extends Item> F.Promise<B> get(final Future<A> itemFuture,
                                                                                             final Class<B> clazz) {
 
@@ -109,7 +408,7 @@ public class Talares {
         final Constructor<B> constructor = clazz.getConstructor(apiClass, item.getClass());
         return constructor.newInstance(api, item);
       }
-    });
+    }, api.conversionContext(HttpExecution.defaultContext()));
   }
 
   private <A extends org.talares.api.datatypes.items.Item, B extends Item> F.Promise<List<B>> getL(final Future<Seq<A>> itemFuture,
@@ -134,7 +433,7 @@ public class Talares {
 
         return items;
       }
-    });
+    }, api.conversionContext(HttpExecution.defaultContext()));
   }
 
   /**
@@ -0,0 +1,13 @@
+package org.talares.cache;
+
+/**
+ * Leverages the given {@link AsyncCache} methods to either retrieve or store objects from and into the cache
+ * respectively.
+ * <p>
+ * Applies the same strategy as {@link AutoUpdateCache}.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+public interface AsyncAutoUpdateCache extends AsyncCache {
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.cache;
+
+import play.libs.F;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface whose implementations allow the library to make use of a cache without blocking on it.
+ * <p>
+ * All methods return a {@link play.libs.F.Promise} so a cache backed by a remote or otherwise I/O bound store never
+ * blocks the library's threads. The bulk methods allow an implementation to serve a batch of keys in a single round
+ * trip.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+public interface AsyncCache {
+
+  /**
+   * Method with which objects can be retrieved from cache with a given key.
+   *
+   * @param key the key to use
+   * @return a {@link play.libs.F.Promise} of the cached item, or of null when absent
+   */
+  F.Promise<Object> get(final Object key);
+
+  /**
+   * Method with which objects can be retrieved from cache with the given keys.
+   *
+   * @param keys the keys to use
+   * @return a {@link play.libs.F.Promise} of a {@link Map} holding an entry for every key present in the cache
+   */
+  F.Promise<Map<Object, Object>> getAll(final List<Object> keys);
+
+  /**
+   * Method with which objects can be stored in cache with a given key.
+   *
+   * @param key   the key to use
+   * @param value the item to store
+   * @return a {@link play.libs.F.Promise} which is redeemed once the item has been stored
+   */
+  F.Promise<Void> put(final Object key, final Object value);
+
+  /**
+   * Method with which objects can be stored in cache with their respective keys.
+   *
+   * @param entries the keys and items to store
+   * @return a {@link play.libs.F.Promise} which is redeemed once all items have been stored
+   */
+  F.Promise<Void> putAll(final Map<Object, Object> entries);
+
+  /**
+   * Method with which objects can be removed from cache with a given key.
+   *
+   * @param key the key to use
+   * @return a {@link play.libs.F.Promise} which is redeemed once the item has been removed
+   */
+  F.Promise<Void> invalidate(final Object key);
+}
@@ -0,0 +1,13 @@
+package org.talares.cache;
+
+/**
+ * Leverages the given {@link AsyncCache} methods to either retrieve or store objects from and into the cache
+ * respectively.
+ * <p>
+ * Does not add any additional caching logic and as such honors the given cache's configuration.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+public interface AsyncSimpleCache extends AsyncCache {
+}
@@ -1,12 +1,19 @@
 package org.talares.cache;
 
+import play.libs.F;
+import play.libs.Scala;
+import scala.Function0;
 import scala.Function1;
 import scala.Function2;
 import scala.Option;
+import scala.collection.Seq;
+import scala.concurrent.Future;
 import scala.runtime.AbstractFunction1;
 import scala.runtime.AbstractFunction2;
 import scala.runtime.BoxedUnit;
 
+import java.util.Map;
+
 /**
  * Holds utility methods for converting a given {@link Cache} instance into it's Scala counterpart for use within the
  * API.
@@ -27,11 +34,34 @@ public abstract class CacheHelpers {
       return new org.talares.api.cache.NoCache();
     } else if (cache instanceof AutoUpdateCache) {
       return new org.talares.api.cache.AutoUpdateCache(getFunc(cache), putFunc(cache));
+    } else if (cache instanceof RefreshAheadCache) {
+      return new org.talares.api.cache.RefreshAheadCache(getFunc(cache), putFunc(cache));
     } else {
       return new org.talares.api.cache.SimpleCache(getFunc(cache), putFunc(cache));
     }
   }
 
+  /**
+   * Transforms a given {@link AsyncCache} instance into it's Scala counterpart for use within the API.
+   *
+   * @param cache an instance of {@link AsyncCache}
+   * @return an instance of {@link org.talares.api.cache.Cache}
+   */
+  public static org.talares.api.cache.Cache asScala(final AsyncCache cache) {
+
+    final org.talares.api.cache.AsyncCache scalaCache = cache instanceof LoadingCache
+        ? new ScalaLoadingCache((LoadingCache) cache)
+        : new ScalaAsyncCache(cache);
+
+    if (cache instanceof AsyncAutoUpdateCache) {
+      return new org.talares.api.cache.AsyncAutoUpdateCache(scalaCache);
+    } else if (cache instanceof AsyncRefreshAheadCache) {
+      return new org.talares.api.cache.AsyncRefreshAheadCache(scalaCache);
+    } else {
+      return new org.talares.api.cache.AsyncSimpleCache(scalaCache);
+    }
+  }
+
   /**
    * Transforms a {@link Cache#get} method into a Scala {@link scala.Function1}.
    *
@@ -66,4 +96,99 @@ public abstract class CacheHelpers {
       }
     };
   }
-}
\ No newline at end of file
+
+  /**
+   * Transforms a {@link play.libs.F.Promise} of {@link Void} into a Scala {@link scala.concurrent.Future} of Unit.
+   *
+   * @param promise the {@link play.libs.F.Promise} to transform
+   * @return a {@link scala.concurrent.Future} which completes along with the given {@link play.libs.F.Promise}
+   */
+  private static Future<BoxedUnit> asUnitFuture(final F.Promise<Void> promise) {
+
+    return promise.map(new F.Function<Void, BoxedUnit>() {
+
+      @Override
+      public BoxedUnit apply(final Void nothing) {
+        return BoxedUnit.UNIT;
+      }
+    }).wrapped();
+  }
+
+  /**
+   * Exposes an {@link AsyncCache} through the Scala {@link org.talares.api.cache.AsyncCache} interface.
+   */
+  private static class ScalaAsyncCache implements org.talares.api.cache.AsyncCache {
+
+    private final AsyncCache cache;
+
+    private ScalaAsyncCache(final AsyncCache cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public Future<Option<Object>> get(final Object key) {
+
+      return cache.get(key).map(new F.Function<Object, Option<Object>>() {
+
+        @Override
+        public Option<Object> apply(final Object value) {
+          return Option.apply(value);
+        }
+      }).wrapped();
+    }
+
+    @Override
+    public Future<scala.collection.immutable.Map<Object, Object>> getAll(final Seq<Object> keys) {
+
+      final F.Promise<Map<Object, Object>> promise = cache.getAll(Scala.asJava(keys));
+
+      return promise.map(new F.Function<Map<Object, Object>, scala.collection.immutable.Map<Object, Object>>() {
+
+        @Override
+        public scala.collection.immutable.Map<Object, Object> apply(final Map<Object, Object> found) {
+          return Scala.asScala(found);
+        }
+      }).wrapped();
+    }
+
+    @Override
+    public Future<BoxedUnit> put(final Object key, final Object value) {
+      return asUnitFuture(cache.put(key, value));
+    }
+
+    @Override
+    public Future<BoxedUnit> putAll(final scala.collection.immutable.Map<Object, Object> entries) {
+      return asUnitFuture(cache.putAll(Scala.asJava(entries)));
+    }
+
+    @Override
+    public Future<BoxedUnit> invalidate(final Object key) {
+      return asUnitFuture(cache.invalidate(key));
+    }
+  }
+
+  /**
+   * Exposes a {@link LoadingCache} through the Scala {@link org.talares.api.cache.LoadingCache} interface.
+   */
+  private static final class ScalaLoadingCache extends ScalaAsyncCache implements org.talares.api.cache.LoadingCache {
+
+    private final LoadingCache cache;
+
+    private ScalaLoadingCache(final LoadingCache cache) {
+      super(cache);
+      this.cache = cache;
+    }
+
+    @Override
+    public Future<Object> get(final Object key, final Function0<Future<Object>> loader) {
+
+      return cache.get(key, new F.Function0<F.Promise<Object>>() {
+
+        @Override
+        public F.Promise<Object> apply() {
+          return F.Promise.wrap(loader.apply());
+        }
+      }).wrapped();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.cache;
+
+import org.talares.api.cache.ItemKey;
+import org.talares.datatypes.items.Item;
+
+/**
+ * Event emitted when a refresh of a cached entry changed an item.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+public final class ItemChange {
+
+  private final ItemKey itemKey;
+  private final Item oldValue;
+  private final Item newValue;
+
+  public ItemChange(final ItemKey itemKey, final Item oldValue, final Item newValue) {
+    this.itemKey = itemKey;
+    this.oldValue = oldValue;
+    this.newValue = newValue;
+  }
+
+  /**
+   * @return the {@link ItemKey} of the changed item
+   */
+  public ItemKey getItemKey() {
+    return itemKey;
+  }
+
+  /**
+   * @return the item as it was cached before the refresh
+   */
+  public Item getOldValue() {
+    return oldValue;
+  }
+
+  /**
+   * @return the item as it is cached after the refresh
+   */
+  public Item getNewValue() {
+    return newValue;
+  }
+}
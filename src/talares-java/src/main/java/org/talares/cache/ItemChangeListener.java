@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.cache;
+
+/**
+ * Listener to changes of cached items, see {@link org.talares.Talares#addChangeListener(ItemChangeListener)}.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+public interface ItemChangeListener {
+
+  /**
+   * Called whenever a refresh of a cached entry changed an item. Called asynchronously; should not block.
+   *
+   * @param change the {@link ItemChange} describing the item before and after the refresh
+   */
+  void onChange(ItemChange change);
+}
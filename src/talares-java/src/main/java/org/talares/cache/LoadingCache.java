@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.cache;
+
+import play.libs.F;
+
+/**
+ * An {@link AsyncCache} which is able to load absent entries itself.
+ * <p>
+ * When the library is given an instance of this interface, it no longer performs a separate lookup, fetch and store
+ * for a cache miss. Instead it hands the cache a loader which fetches the value from the webservice. The
+ * implementation decides when to invoke the loader and is expected to invoke it at most once per absent key, letting
+ * concurrent requests for that key share the outcome.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+public interface LoadingCache extends AsyncCache {
+
+  /**
+   * Method with which objects can be retrieved from cache with a given key, using the loader to obtain and store them
+   * when absent.
+   * <p>
+   * A failed {@link play.libs.F.Promise} returned by the loader should be passed on as is and not be stored.
+   *
+   * @param key    the key to use
+   * @param loader function which fetches the object to store under the given key
+   * @return a {@link play.libs.F.Promise} of the cached or loaded item
+   */
+  F.Promise<Object> get(final Object key, final F.Function0<F.Promise<Object>> loader);
+}
@@ -0,0 +1,13 @@
+package org.talares.cache;
+
+/**
+ * Leverages the given functions get and set to either retrieve or store objects from and into the cache respectively.
+ * <p>
+ * Refreshes frequently read items in the background before they expire from the cache, more often for item types
+ * whose items change often than for those whose items rarely change.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+public interface RefreshAheadCache extends Cache {
+}
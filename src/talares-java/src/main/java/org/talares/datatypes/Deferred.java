@@ -20,6 +20,7 @@ import org.talares.api.datatypes.items.Item;
 import org.talares.api.exceptions.TalaresException;
 import org.talares.exceptions.TransformException;
 import play.libs.F;
+import play.libs.HttpExecution;
 import scala.Option;
 
 import static org.talares.utils.Utils.await;
@@ -74,7 +75,7 @@ public class Deferred<A extends Item, B> {
         }
         return null;
       }
-    });
+    }, api.conversionContext(HttpExecution.defaultContext()));
   }
 
   /**
@@ -21,6 +21,7 @@ import org.talares.api.datatypes.items.Item;
 import org.talares.api.exceptions.TalaresException;
 import org.talares.exceptions.TransformException;
 import play.libs.F;
+import play.libs.HttpExecution;
 import scala.collection.Seq;
 
 import java.util.ArrayList;
@@ -84,7 +85,7 @@ public class DeferredList<A extends Item, B> {
 
         return itemList;
       }
-    });
+    }, api.conversionContext(HttpExecution.defaultContext()));
   }
 
   /**
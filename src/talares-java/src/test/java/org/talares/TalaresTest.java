@@ -38,6 +38,7 @@ import org.talares.datatypes.items.StructureGroup;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -217,6 +218,39 @@ public class TalaresTest {
     assertTrue(template.getItemId() == 123);
   }
 
+  @Test
+  public void testWithPriority() throws Exception {
+
+    final Page page = TALARES.withPriority(Priority.BACKGROUND, new Callable<Page>() {
+
+      @Override
+      public Page call() throws TalaresException {
+        return TALARES.getPage_(1, 2);
+      }
+    });
+
+    assertFalse(page == null);
+    assertTrue(page.getTemplateId() == 123);
+  }
+
+  @Test(expected = TalaresException.class)
+  public void testWithPriorityRethrows() throws Exception {
+
+    TALARES.withPriority(Priority.BACKGROUND, new Callable<Page>() {
+
+      @Override
+      public Page call() throws TalaresException {
+        throw new TalaresException("thrown by the block");
+      }
+    });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidateRejectsNameWithoutValue() {
+
+    TALARES.invalidate("Pages", "PublicationId", 1, "ItemId");
+  }
+
   @AfterClass
   public static void shutDown() {
     TALARES.terminate();
@@ -16,10 +16,17 @@
 package org.talares.cache;
 
 import org.junit.Test;
+import org.talares.api.cache.AsyncSimpleCache;
 import org.talares.api.cache.AutoUpdateCache;
 import org.talares.api.cache.NoCache;
+import org.talares.api.cache.RefreshAheadCache;
 import org.talares.api.cache.SimpleCache;
 
+import play.libs.F;
+
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -42,4 +49,56 @@ public class CacheHelpersTest extends CachesTest {
   public void testAutoUpdateCacheAsScala() {
     assertTrue(CacheHelpers.asScala(TEST_AUTO_UPDATE_CACHE) instanceof AutoUpdateCache);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testRefreshAheadCacheAsScala() {
+    assertTrue(CacheHelpers.asScala(MOCK_REFRESH_AHEAD_CACHE) instanceof RefreshAheadCache);
+  }
+
+  @Test
+  public void testAsyncSimpleCacheAsScala() {
+    assertTrue(CacheHelpers.asScala(MOCK_ASYNC_SIMPLE_CACHE) instanceof AsyncSimpleCache);
+  }
+
+  @Test
+  public void testLoadingCacheAsScala() {
+
+    final LoadingCache loadingCache = new LoadingCache() {
+
+      @Override
+      public F.Promise<Object> get(Object key, F.Function0<F.Promise<Object>> loader) {
+        return MOCK_ASYNC_SIMPLE_CACHE.get(key);
+      }
+
+      @Override
+      public F.Promise<Object> get(Object key) {
+        return MOCK_ASYNC_SIMPLE_CACHE.get(key);
+      }
+
+      @Override
+      public F.Promise<Map<Object, Object>> getAll(List<Object> keys) {
+        return MOCK_ASYNC_SIMPLE_CACHE.getAll(keys);
+      }
+
+      @Override
+      public F.Promise<Void> put(Object key, Object value) {
+        return MOCK_ASYNC_SIMPLE_CACHE.put(key, value);
+      }
+
+      @Override
+      public F.Promise<Void> putAll(Map<Object, Object> entries) {
+        return MOCK_ASYNC_SIMPLE_CACHE.putAll(entries);
+      }
+
+      @Override
+      public F.Promise<Void> invalidate(Object key) {
+        return MOCK_ASYNC_SIMPLE_CACHE.invalidate(key);
+      }
+    };
+
+    final org.talares.api.cache.Cache scalaCache = CacheHelpers.asScala(loadingCache);
+
+    assertTrue(scalaCache instanceof AsyncSimpleCache);
+    assertTrue(((AsyncSimpleCache) scalaCache).cache() instanceof org.talares.api.cache.LoadingCache);
+  }
+}
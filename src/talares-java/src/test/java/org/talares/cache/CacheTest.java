@@ -46,4 +46,10 @@ public class CacheTest extends CachesTest {
     TEST_AUTO_UPDATE_CACHE.put(KEY_STUB, VALUE_STUB);
     assertTrue(TEST_AUTO_UPDATE_CACHE.get(KEY_STUB).equals(VALUE_STUB));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testAsyncSimpleCacheGetAndPut() throws Exception {
+    MOCK_ASYNC_SIMPLE_CACHE.put(KEY_STUB, VALUE_STUB).get(1000);
+    assertTrue(MOCK_ASYNC_SIMPLE_CACHE.get(KEY_STUB).get(1000).equals(VALUE_STUB));
+  }
+}
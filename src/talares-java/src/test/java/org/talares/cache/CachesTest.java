@@ -15,7 +15,10 @@
  */
 package org.talares.cache;
 
+import play.libs.F;
+
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -55,4 +58,52 @@ public abstract class CachesTest {
       MOCK_CACHE.put(key, value);
     }
   };
-}
\ No newline at end of file
+
+  protected static final RefreshAheadCache MOCK_REFRESH_AHEAD_CACHE = new RefreshAheadCache() {
+
+    @Override
+    public Object get(Object key) {
+      return MOCK_CACHE.get(key);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+      MOCK_CACHE.put(key, value);
+    }
+  };
+
+  protected static final AsyncSimpleCache MOCK_ASYNC_SIMPLE_CACHE = new AsyncSimpleCache() {
+
+    @Override
+    public F.Promise<Object> get(Object key) {
+      return F.Promise.pure(MOCK_CACHE.get(key));
+    }
+
+    @Override
+    public F.Promise<Map<Object, Object>> getAll(List<Object> keys) {
+      final Map<Object, Object> found = new HashMap<>();
+      for (final Object key : keys) {
+        if (MOCK_CACHE.containsKey(key)) found.put(key, MOCK_CACHE.get(key));
+      }
+      return F.Promise.pure(found);
+    }
+
+    @Override
+    public F.Promise<Void> put(Object key, Object value) {
+      MOCK_CACHE.put(key, value);
+      return F.Promise.pure(null);
+    }
+
+    @Override
+    public F.Promise<Void> putAll(Map<Object, Object> entries) {
+      MOCK_CACHE.putAll(entries);
+      return F.Promise.pure(null);
+    }
+
+    @Override
+    public F.Promise<Void> invalidate(Object key) {
+      MOCK_CACHE.remove(key);
+      return F.Promise.pure(null);
+    }
+  };
+}
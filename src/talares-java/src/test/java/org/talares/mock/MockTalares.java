@@ -16,8 +16,8 @@
 package org.talares.mock;
 
 import org.talares.Talares;
+import org.talares.cache.AsyncCache;
 import org.talares.cache.Cache;
-import org.talares.cache.CacheHelpers;
 
 /**
  * @author Dennis Vis
@@ -29,13 +29,16 @@ public class MockTalares extends Talares {
     super(cache);
   }
 
+  public MockTalares(final AsyncCache cache) {
+    super(cache);
+  }
+
   public MockTalares() {
     super();
   }
 
   @Override
-  protected org.talares.api.Talares getApi(final Cache cache) {
-    org.talares.api.cache.Cache scalaCache = CacheHelpers.asScala(cache);
+  protected org.talares.api.Talares getApi(final org.talares.api.cache.Cache scalaCache) {
     return new org.talares.api.mock.MockTalares(scalaCache);
   }
 }
\ No newline at end of file
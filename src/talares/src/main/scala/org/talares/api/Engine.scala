@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api
+
+import akka.actor.Scheduler
+import akka.event.LoggingAdapter
+import org.talares.api.actors.ActorEngine
+import org.talares.api.actors.messages.{Client, MediatorMessages}
+import org.talares.api.cache.ItemKey
+import org.talares.api.datatypes.items.Item
+import org.talares.api.direct.DirectEngine
+import org.talares.api.mirror.Mirror
+
+import scala.concurrent.{ExecutionContext, Future}
+
+/**
+ * Runs the pipeline turning requests into items: looking them up in the cache, calling the webservice, parsing the
+ * responses and storing the outcome. [[Talares]] hands every request to the engine chosen by the talares.engine
+ * setting, see [[Engine.apply]].
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait Engine {
+
+  /** The execution context the engine, and the futures of the library, run on **/
+  implicit def executionContext: ExecutionContext
+
+  /** Schedules the periodic work of the library, like expiring requests **/
+  def scheduler: Scheduler
+
+  /** The log of the library **/
+  def log: LoggingAdapter
+
+  /**
+   * Handles a [[org.talares.api.actors.messages.MediatorMessages.Request]], delivering the outcome to the given
+   * [[org.talares.api.actors.messages.Client]].
+   *
+   * @param request the [[org.talares.api.actors.messages.MediatorMessages.Request]] to handle
+   * @param client the [[org.talares.api.actors.messages.Client]] to deliver the outcome to
+   */
+  def submit(request: MediatorMessages.Request[_ <: Item], client: Client): Unit
+
+  /**
+   * Evicts the item identified by the given [[org.talares.api.cache.ItemKey]] from the cache, together with every
+   * cached entry which depends on it directly or transitively.
+   *
+   * @param itemKey the [[org.talares.api.cache.ItemKey]] of the item to invalidate
+   */
+  def invalidate(itemKey: ItemKey): Unit
+
+  /**
+   * Serves requests from the given [[org.talares.api.mirror.Mirror]] from now on.
+   *
+   * @param mirror the [[org.talares.api.mirror.Mirror]] to serve from
+   */
+  def serveFrom(mirror: Mirror): Unit
+
+  /**
+   * Awaits the tasks the engine runs, such as fetches, loads and background refreshes, and then the writes to the cache
+   * in progress, and flushes a [[org.talares.api.cache.FlushingCache]], as part of [[Talares.drain]]. A task may still
+   * run, and store it's outcome, after the client it was issued for stopped waiting.
+   *
+   * @return a Future which completes once the tasks and writes have completed and the cache has been flushed
+   */
+  def flush(): Future[Unit]
+
+  /**
+   * Stops the engine, releasing it's threads.
+   */
+  def shutdown(): Unit
+}
+
+object Engine {
+
+  /**
+   * Creates the engine configured by the talares.engine setting:
+   *
+   *  - actors: an [[org.talares.api.actors.ActorEngine]], running the pipeline on an actor system, with priority lanes,
+   *    bulkheads and the refreshing cache strategies
+   *  - direct: a [[org.talares.api.direct.DirectEngine]], running the pipeline on futures and a small thread pool,
+   *    which starts faster and has a smaller footprint
+   *
+   * @param app the [[Talares]] instance the engine serves
+   * @return the configured engine
+   */
+  def apply(app: Talares): Engine = app.settings.engine match {
+    case "actors" => new ActorEngine(app)
+    case "direct" => new DirectEngine(app)
+    case other => throw new IllegalArgumentException(s"Unknown engine: $other, expected actors or direct")
+  }
+}
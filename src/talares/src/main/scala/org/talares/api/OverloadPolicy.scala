@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api
+
+/**
+ * The way a request is shed when the queue it should wait in is full, see the overload settings.
+ *
+ * Shed requests fail fast with a [[org.talares.api.exceptions.RequestRejectedException]], so the caller can degrade
+ * gracefully instead of waiting for it's timeout.
+ *
+ * @param name the name of the policy in the configuration
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+sealed abstract class OverloadPolicy(val name: String)
+
+object OverloadPolicy {
+
+  /** The arriving request is rejected **/
+  case object RejectNew extends OverloadPolicy("reject-new")
+
+  /**
+   * The request waiting longest in the lowest lane is rejected to make room for the arriving request, unless that lane
+   * is above the lane of the arriving request, in which case the arriving request is rejected
+   */
+  case object DropOldest extends OverloadPolicy("drop-oldest")
+
+  /**
+   * The arriving request is answered from the mirror or the cache only, however old the item held there, and rejected
+   * when neither holds it
+   */
+  case object ServeStale extends OverloadPolicy("serve-stale")
+
+  /** All policies **/
+  val policies: Seq[OverloadPolicy] = Seq(RejectNew, DropOldest, ServeStale)
+
+  /**
+   * The policy of the given name.
+   *
+   * @param name the name of the policy in the configuration
+   * @return the [[OverloadPolicy]] of the given name
+   */
+  def apply(name: String): OverloadPolicy = policies find (_.name == name) getOrElse {
+    throw new IllegalArgumentException(
+      s"Unknown overload policy: $name, expected one of ${policies.map(_.name).mkString(", ")}"
+    )
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api
+
+/**
+ * The priority of a request, which decides the lane it travels in through the library.
+ *
+ * Every lane is served before the lanes below it, both when messages are taken from the mailboxes of the
+ * [[org.talares.api.actors.Mediator]] and the [[org.talares.api.actors.Fetcher]]'s and when waiting webservice calls are
+ * started. A lane may also only use it's configured share of the webservice calls a fetcher is allowed in flight, so
+ * the lower lanes only use capacity the higher lanes leave spare.
+ *
+ * Requests are interactive unless issued within [[Talares.withPriority]].
+ *
+ * @param lane the index of the lane, the lower the index the higher the priority
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+sealed abstract class Priority(val lane: Int)
+
+object Priority {
+
+  /** Requests a client, for instance the rendering of a page, is waiting for **/
+  case object Interactive extends Priority(0)
+
+  /** Requests for items which are likely to be needed shortly **/
+  case object Prefetch extends Priority(1)
+
+  /** Bulk work, such as crawls, exports and background refreshes of cached items **/
+  case object Background extends Priority(2)
+
+  /** All priorities, ordered by their lane **/
+  val lanes: Seq[Priority] = Seq(Interactive, Prefetch, Background)
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api
+
+import scala.collection.mutable
+import scala.concurrent.{ExecutionContext, ExecutionContextExecutor}
+import scala.util.control.NonFatal
+
+/**
+ * An execution context running tasks on the thread submitting them, for callbacks cheap enough not to warrant a
+ * context switch, such as converting the outcome of a request. Available as [[Talares.sameThread]].
+ *
+ * Tasks submitted while a task runs are queued and run once it completes, so chains of callbacks do not grow the stack.
+ * Callbacks run this way hold up the thread completing the future, so they should neither block nor take long.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+object SameThreadExecutionContext extends ExecutionContextExecutor {
+
+  /** The tasks queued on the current thread while a task runs, null if no task runs **/
+  private val queued = new ThreadLocal[mutable.Queue[Runnable]]
+
+  override def execute(runnable: Runnable): Unit = queued.get match {
+    case null =>
+      val tasks = mutable.Queue(runnable)
+      queued.set(tasks)
+      try while (tasks.nonEmpty) run(tasks.dequeue())
+      finally queued.remove()
+    case tasks => tasks.enqueue(runnable)
+  }
+
+  private def run(runnable: Runnable): Unit =
+    try runnable.run() catch {
+      case NonFatal(throwable) => reportFailure(throwable)
+    }
+
+  override def reportFailure(cause: Throwable): Unit = ExecutionContext.defaultReporter(cause)
+}
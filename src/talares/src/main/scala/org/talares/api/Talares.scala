@@ -15,22 +15,28 @@
  */
 package org.talares.api
 
-import akka.actor.{ActorSystem, Props}
-import akka.pattern.ask
+import java.util.concurrent.atomic.AtomicInteger
+
+import akka.actor.{ActorSystem, Props, Scheduler}
+import akka.event.LoggingAdapter
 import akka.util.Timeout
-import com.typesafe.config.ConfigFactory
-import org.talares.api.actors.Mediator
+import com.typesafe.config.{Config, ConfigFactory, ConfigValueType}
+import org.talares.api.actors._
 import org.talares.api.actors.messages.MediatorMessages
-import org.talares.api.cache.{Cache, NoCache}
+import org.talares.api.cache.{Cache, ItemChange, ItemChanges, ItemKey, NoCache, PublicationGenerations}
 import org.talares.api.datatypes.JsonReadable
 import org.talares.api.datatypes.items._
-import org.talares.api.exceptions.{TalaresException, UnexpectedResultException}
+import org.talares.api.exceptions.{RequestRejectedException, TalaresException, UnexpectedResultException}
+import org.talares.api.invalidation.{InvalidationEvent, InvalidationSource}
+import org.talares.api.mirror.Mirror
 import org.talares.api.queries.Query
 
+import scala.collection.JavaConverters._
+import scala.collection.mutable
 import scala.concurrent.duration._
-import scala.concurrent.{Future, Promise}
+import scala.concurrent.{ExecutionContext, ExecutionContextExecutor, Future, Promise}
 import scala.reflect.ClassTag
-import scala.util.{Failure, Success}
+import scala.util.control.NonFatal
 
 /**
  * Class holding the main client facing API.
@@ -45,42 +51,265 @@ import scala.util.{Failure, Success}
  *   import org.talares.api.datatypes.items.Page
  *   import scala.concurrent.Future
  *
- *   val talares = Talares(cache)
- *   Future[Page] pageFuture = talares.getPage(1, 2)
+ *   implicit val talares = Talares(cache)
+ *   val pageFuture: Future[Page] = talares.getPage(1, 2)
+ * }}}
+ *
+ * Every instance is independent of the others, so several instances, for instance with caches of their own, may be
+ * used side by side. By default an instance runs on resources of it's own. Within an application which has an actor
+ * system or execution context already, an instance may be built on those instead:
+ * {{{
+ *   val talares = Talares(cache, actorSystem)
  * }}}
  *
  * @author Dennis Vis
  * @since 0.1.0
  * @see org.talares.api.cache.Cache
  */
-class Talares private[api](val cache: Cache = NoCache()) {
+class Talares private[api](val cache: Cache = NoCache(),
+                           val settings: Settings = Settings(),
+                           private[talares] val hostSystem: Option[ActorSystem] = None,
+                           private[talares] val hostContext: Option[ExecutionContext] = None) {
+
+  /** The name of this instance, unique within the JVM, prefixing the names of the actors it creates **/
+  val name = Talares.nextName()
+
+  /** The generations of all publications, see [[org.talares.api.cache.PublicationGenerations]] **/
+  val generations = new PublicationGenerations
 
-  /** Reference to the configured settings **/
-  val settings = Settings()
+  /** The listeners to changes of cached items, see [[org.talares.api.cache.ItemChanges]] **/
+  val changes = new ItemChanges
 
   /**
-   * The Talares actor system.
+   * The actor system the [[org.talares.api.actors.ActorEngine]] runs on.
    *
-   * Created once by the library. Can and should be terminated by the terminate() function.
+   * Either the actor system of the host application, or one created by the library the first time it is needed, on
+   * the execution context of the host application if one was given. Only the latter is shut down by the terminate()
+   * function.
    */
-  private[talares] val system = ActorSystem("talares-actor-system")
+  private[talares] lazy val system = hostSystem getOrElse
+    ActorSystem("talares-actor-system", Some(settings.config), Some(getClass.getClassLoader), hostContext)
 
-  import system.dispatcher
+  /** The execution context of the host application the library runs on, if any **/
+  private[talares] def hostExecutionContext: Option[ExecutionContext] = hostContext orElse hostSystem.map(_.dispatcher)
+
+  /** The engine running the requests, see [[Engine]] **/
+  private[api] lazy val engine: Engine = Engine(this)
+
+  /** The execution context the futures of the library run on **/
+  private[talares] implicit def executionContext: ExecutionContext = engine.executionContext
+
+  /** Schedules the periodic work of the library **/
+  private[talares] def scheduler: Scheduler = engine.scheduler
+
+  /** The log of the library **/
+  private[talares] def log: LoggingAdapter = engine.log
 
   /** Timeout used by Akka when leveraging the aks pattern **/
   implicit val timeout = Timeout(settings.timeout millis)
 
-  /** The [[org.talares.api.actors.Mediator]] for use within the library. **/
-  lazy val mediator = system.actorOf(Props(new Mediator(this, cache)), "mediator")
+  /** The [[org.talares.api.invalidation.InvalidationSource]]'s listened to, stopped on termination **/
+  private val invalidationSources = mutable.Buffer[InvalidationSource]()
+
+  /** The [[org.talares.api.mirror.Mirror]] requests are served from, if any **/
+  @volatile private var mirror: Option[Mirror] = None
+
+  /** Expires requests which are not answered within the configured timeout, and aborts calls passing their deadline **/
+  private[api] val timeouts = new TimeoutWheel(scheduler)
+
+  /**
+   * The webservice deployments requests are routed to, each with it's own connection pool and limits, see
+   * [[org.talares.api.actors.Route]]
+   */
+  lazy val routes = Routes(settings, timeouts)
+
+  /** The circuit breakers guarding the endpoints of the webservice, see [[org.talares.api.actors.CircuitBreaker]] **/
+  lazy val circuitBreakers = new CircuitBreakers(name, log)(circuit => new CircuitBreaker(
+    circuit,
+    settings.circuitBreakerFailures,
+    settings.circuitBreakerErrorRate,
+    settings.circuitBreakerWindow,
+    settings.circuitBreakerResetTimeout,
+    settings.circuitBreakerHalfOpenCalls
+  ))
+
+  /** The priority requests issued on the current thread are handled with, see [[withPriority]] **/
+  private val currentPriority = new ThreadLocal[Priority] {
+    override def initialValue(): Priority = Priority.Interactive
+  }
+
+  /** The execution context the futures of the requests of the current thread are completed on, see [[withDelivery]] **/
+  private val currentDelivery = new ThreadLocal[Option[ExecutionContext]] {
+    override def initialValue(): Option[ExecutionContext] = None
+  }
+
+  /** The execution context the futures of requests are completed on by default, see [[deliverOn]] **/
+  @volatile private var defaultDelivery: Option[ExecutionContext] = None
+
+  /** The number of requests whose future has not completed yet, awaited by [[drain]] **/
+  private val inFlight = new AtomicInteger
+
+  /** Whether this instance drains, rejecting the requests issued, see [[drain]] **/
+  @volatile private var draining = false
+
+  /** Completed once this instance drains and no requests are in flight anymore **/
+  private val idle = Promise[Unit]()
+
+  /** The outcome of [[drain]], once started **/
+  private var drained: Option[Future[Unit]] = None
+
+  /** The Props of a single [[org.talares.api.actors.Mediator]] shard **/
+  def mediatorProps: Props = Props(new Mediator(this, cache)).withMailbox(LaneMailbox.Id)
+
+  /** The name of the [[org.talares.api.actors.Mediator]], unique among the instances **/
+  def mediatorName: String = s"$name-mediator"
+
+  /**
+   * The [[org.talares.api.actors.Mediator]] for use within the library, split into the configured shards. The settings
+   * of this instance are registered with the [[org.talares.api.actors.LaneMailbox]] first, so the mailboxes of the
+   * mediator and it's fetchers are bounded by them rather than by the configuration of the actor system.
+   */
+  lazy val mediator = {
+    LaneMailbox.register(mediatorName, settings)
+    system.actorOf(Mediator.sharded(mediatorProps, settings.mediatorShards), mediatorName)
+  }
+
+  /**
+   * Handles the requests issued by the given block with the given [[org.talares.api.Priority]], so bulk work does not
+   * hold up interactive requests. For instance:
+   * {{{
+   *   talares.withPriority(Priority.Background) {
+   *     page.componentPresentations.value
+   *   }
+   * }}}
+   * Only requests issued while the block runs are affected, not those issued by callbacks of the futures it returns.
+   *
+   * @param priority the [[org.talares.api.Priority]] to handle the requests with
+   * @param block the block issuing the requests
+   * @tparam A the type of the outcome of the block
+   * @return the outcome of the block
+   */
+  def withPriority[A](priority: Priority)(block: => A): A = {
+    val previous = currentPriority.get
+    currentPriority.set(priority)
+    try block finally currentPriority.set(previous)
+  }
+
+  /**
+   * Completes the futures returned by this instance on the given execution context, rather than on the thread which
+   * handled the outcome of the request within the library, which is the default. Callbacks registered on the futures
+   * with [[Talares.sameThread]] then run on the given execution context without any further context switch, while
+   * the threads of the library are kept free of them. For instance, within a Play application:
+   * {{{
+   *   talares.deliverOn(play.api.libs.concurrent.Execution.defaultContext)
+   *   talares.getPage(1, 2).map(page => Ok(page.url))(Talares.sameThread)
+   * }}}
+   *
+   * @param executionContext the execution context to complete the futures on, [[Talares.sameThread]] to complete them
+   *                         on the thread handling the outcome again
+   */
+  def deliverOn(executionContext: ExecutionContext): Unit =
+    defaultDelivery = if (executionContext eq Talares.sameThread) None else Some(executionContext)
+
+  /**
+   * Completes the futures of the requests issued by the given block on the given execution context, overriding the
+   * one set by [[deliverOn]]. Only requests issued while the block runs are affected, as with [[withPriority]].
+   *
+   * @param executionContext the execution context to complete the futures on, [[Talares.sameThread]] to complete them
+   *                         on the thread handling the outcome
+   * @param block the block issuing the requests
+   * @tparam A the type of the outcome of the block
+   * @return the outcome of the block
+   */
+  def withDelivery[A](executionContext: ExecutionContext)(block: => A): A = {
+    val previous = currentDelivery.get
+    currentDelivery.set(Some(executionContext))
+    try block finally currentDelivery.set(previous)
+  }
+
+  /**
+   * The execution context a wrapper of this API, such as the Java API, should convert the outcome of a request issued
+   * on the current thread on. When the caller chose where futures are completed, see [[deliverOn]] and
+   * [[withDelivery]], that is [[Talares.sameThread]], so the conversion costs no further context switch. Otherwise it
+   * is the given default, which keeps the conversion off the threads of the library.
+   *
+   * @param default the execution context of the wrapper to use when the caller chose none
+   * @return the execution context to convert the outcome on
+   */
+  def conversionContext(default: ExecutionContext): ExecutionContext =
+    if ((currentDelivery.get orElse defaultDelivery).isDefined) Talares.sameThread else default
+
+  /**
+   * Passes a [[org.talares.api.actors.messages.MediatorMessages.Request]] to the [[Engine]] together with a
+   * [[org.talares.api.actors.PromiseClient]], which completes the returned future directly with the outcome. Unlike
+   * the ask pattern, this creates no temporary actor and no scheduler task per request; the request is expired by a
+   * shared [[org.talares.api.actors.TimeoutWheel]] instead.
+   *
+   * Values the accept function is not defined for fail the future with an
+   * [[org.talares.api.exceptions.UnexpectedResultException]], failures are passed on as
+   * [[org.talares.api.exceptions.TalaresException]]'s. Requests issued while this instance drains fail with a
+   * [[org.talares.api.exceptions.RequestRejectedException]], see [[drain]].
+   *
+   * @param request the [[org.talares.api.actors.messages.MediatorMessages.Request]] to pass on
+   * @param location the location requested, for reporting unexpected results
+   * @param priority the [[org.talares.api.Priority]] to handle the request with, by default the one set by
+   *                 [[withPriority]]
+   * @param delivery the execution context to complete the future on, by default the one set by [[withDelivery]] or
+   *                 [[deliverOn]], None to complete it on the thread handling the outcome
+   * @param accept converts the values which may complete the future
+   * @tparam T the type of value expected in return
+   * @return a future of 'T'
+   */
+  private[api] def submit[T](request: MediatorMessages.Request[_ <: Item],
+                             location: => String,
+                             priority: Priority = currentPriority.get,
+                             delivery: Option[ExecutionContext] = currentDelivery.get orElse defaultDelivery)
+                            (accept: PartialFunction[Any, T]): Future[T] =
+    if (!admit()) Future.failed(new RequestRejectedException(location, "the library is terminating"))
+    else {
+
+      val promise = Promise[T]()
+
+      val unexpected = (value: Any) =>
+        new UnexpectedResultException(location, classOf[MediatorMessages.Response], MediatorMessages.Response(value))
+
+      val client = new PromiseClient[T](promise, accept, unexpected, System.nanoTime + timeout.duration.toNanos,
+        settings.timeout, priority, delivery filterNot (_ eq Talares.sameThread))
+
+      promise.future.onComplete(_ => settle())(Talares.sameThread)
+
+      timeouts.register(client)
+      engine.submit(request, client)
+
+      promise.future
+    }
+
+  /**
+   * Counts a request as in flight, unless this instance drains.
+   *
+   * @return true if the request may be handled, false if it should be rejected
+   */
+  private def admit(): Boolean = {
+    inFlight.incrementAndGet()
+    !draining || {
+      settle()
+      false
+    }
+  }
+
+  /**
+   * Counts a request in flight as completed, completing the drain of the requests once none remain.
+   */
+  private def settle(): Unit = if (inFlight.decrementAndGet() == 0 && draining) idle.trySuccess(())
 
   /**
    * Fetches a 'T' by it's ID's.
    *
    * First composes a [[org.talares.api.actors.messages.MediatorMessages.IDRequest]] from the given ID's and the
    * configured web service location. Then passes this to the [[org.talares.api.actors.Mediator]] for further handling.
-   * It does this using the ask pattern.
+   * It does this using [[submit]].
    *
-   * Once complete, the result of the ask is inspected. If the result contains a value or a [[scala.collection.Seq]] of
+   * Once complete, the result is inspected. If the result contains a value or a [[scala.collection.Seq]] of
    * the expected type 'T', a promise is completed successfully and it's future returned.
    * Otherwise the promise is failed with a [[org.talares.api.exceptions.TalaresException]], either directly from the
    * Future's result, or by wrapping a unknown Throwable in a [[org.talares.api.exceptions.TalaresException]].
@@ -95,23 +324,15 @@ class Talares private[api](val cache: Cache = NoCache()) {
   private def getIDResponse[T <: Item](IDs: (String, Any)*)
                                       (implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]): Future[T] = {
 
-    val p = Promise[T]()
-
     val request = MediatorMessages.IDRequest[T](settings.webserviceLocation, IDs: _*)
 
-    (mediator ? request) onComplete {
-      case Success(MediatorMessages.Response(value)) if classTag.runtimeClass.isInstance(value) =>
-        p.success(value.asInstanceOf[T])
-      case Success(other) =>
-        val location = IDs.foldLeft("") {
-          case (acc, (name, value)) => s"$acc|$name=$value"
-        }
-        p.failure(new UnexpectedResultException(location, classOf[MediatorMessages.Response], other))
-      case Failure(exception: TalaresException) => p.failure(exception)
-      case Failure(throwable) => p.failure(TalaresException(throwable))
+    val location = IDs.foldLeft("") {
+      case (acc, (name, value)) => s"$acc|$name=$value"
     }
 
-    p.future
+    submit(request, location) {
+      case value if classTag.runtimeClass.isInstance(value) => value.asInstanceOf[T]
+    }
   }
 
   /**
@@ -119,9 +340,9 @@ class Talares private[api](val cache: Cache = NoCache()) {
    *
    * First composes a [[org.talares.api.actors.messages.MediatorMessages.SearchRequest]] from the given search
    * parameters and the configured web service location. Then passes this to the [[org.talares.api.actors.Mediator]]
-   * for further handling. It does this using the ask pattern.
+   * for further handling. It does this using [[submit]].
    *
-   * Once complete, the result of the ask is inspected. If the result contains a value or a [[scala.collection.Seq]] of
+   * Once complete, the result is inspected. If the result contains a value or a [[scala.collection.Seq]] of
    * the expected type 'T', a promise is completed successfully and it's future returned.
    * Otherwise the promise is failed with a [[org.talares.api.exceptions.TalaresException]], either directly from the
    * Future's result, or by wrapping a unknown Throwable in a [[org.talares.api.exceptions.TalaresException]].
@@ -139,21 +360,11 @@ class Talares private[api](val cache: Cache = NoCache()) {
                                            classTag: ClassTag[T],
                                            seqClassTag: ClassTag[Seq[T]]): Future[Seq[T]] = {
 
-    val p = Promise[Seq[T]]()
-
     val request = MediatorMessages.SearchRequest[Page](settings.webserviceLocation, searchParams: _*)
 
-    (mediator ? request) onComplete {
-      case Success(MediatorMessages.Response(value)) if seqClassTag.runtimeClass.isInstance(value) =>
-        p.success(value.asInstanceOf[Seq[T]])
-      case Success(other) => p.failure(
-        new UnexpectedResultException(searchParams.toString(), classOf[MediatorMessages.Response], other)
-      )
-      case Failure(exception: TalaresException) => p.failure(exception)
-      case Failure(throwable) => p.failure(TalaresException(throwable))
+    submit(request, searchParams.toString()) {
+      case value if seqClassTag.runtimeClass.isInstance(value) => value.asInstanceOf[Seq[T]]
     }
-
-    p.future
   }
 
   /**
@@ -161,9 +372,9 @@ class Talares private[api](val cache: Cache = NoCache()) {
    *
    * First composes a [[org.talares.api.actors.messages.MediatorMessages.QueryRequest]] from the given
    * [[org.talares.api.queries.Query]] and the configured web service location. Then passes this to the
-   * [[org.talares.api.actors.Mediator]] for further handling. It does this using the ask pattern.
+   * [[org.talares.api.actors.Mediator]] for further handling. It does this using [[submit]].
    *
-   * Once complete, the result of the ask is inspected. If the result contains a value or a Seq of the expected type
+   * Once complete, the result is inspected. If the result contains a value or a Seq of the expected type
    * 'T', a promise is completed successfully and it's future returned.
    * Otherwise the promise is failed with a [[org.talares.api.exceptions.TalaresException]], either directly from the
    * Future's result, or by wrapping a unknown Throwable in a [[org.talares.api.exceptions.TalaresException]].
@@ -178,33 +389,171 @@ class Talares private[api](val cache: Cache = NoCache()) {
    */
   def executeQuery[T <: Item](query: Query)(implicit jsonReadable: JsonReadable[T],
                                             classTag: ClassTag[T],
-                                            seqClassTag: ClassTag[Seq[T]]): Future[Seq[T]] = {
+                                            seqClassTag: ClassTag[Seq[T]]): Future[Seq[T]] =
+    getQueryResponse[T](query, cached = true)
 
-    val p = Promise[Seq[T]]()
+  /**
+   * Fetches a Seq of 'T' by a [[org.talares.api.queries.Query]], as [[executeQuery]] does, optionally bypassing the
+   * cache. A query which is not cached is always executed by the webservice and it's result is not stored.
+   *
+   * @param query the [[org.talares.api.queries.Query]] to execute
+   * @param cached whether the cache may be used
+   * @tparam T the type of item that is expected in return
+   * @return a future of a Seq of 'T'
+   */
+  private[api] def getQueryResponse[T <: Item](query: Query, cached: Boolean)
+                                              (implicit jsonReadable: JsonReadable[T],
+                                               classTag: ClassTag[T],
+                                               seqClassTag: ClassTag[Seq[T]]): Future[Seq[T]] = {
 
-    val request = MediatorMessages.QueryRequest[T](settings.webserviceLocation, query)
+    val request = MediatorMessages.QueryRequest[T](settings.webserviceLocation, query, cached)
 
-    (mediator ? request) onComplete {
-      case Success(MediatorMessages.Response(value: T)) if classTag.runtimeClass.isInstance(value) => Seq(value)
-      case Success(MediatorMessages.Response(value)) if seqClassTag.runtimeClass.isInstance(value) =>
-        value.asInstanceOf[Seq[T]]
-      case Success(other) => p.failure(
-        new UnexpectedResultException(query.toString(), classOf[MediatorMessages.Response], other)
-      )
-      case Failure(exception: TalaresException) => p.failure(exception)
-      case Failure(throwable) => p.failure(TalaresException(throwable))
+    submit(request, query.toString()) {
+      case value if classTag.runtimeClass.isInstance(value) => Seq(value.asInstanceOf[T])
+      case value if seqClassTag.runtimeClass.isInstance(value) => value.asInstanceOf[Seq[T]]
     }
+  }
 
-    p.future
+  /**
+   * Evicts the given item from the cache, together with every cached entry which depends on it directly or
+   * transitively. For instance, invalidating a [[org.talares.api.datatypes.items.Component]] also evicts the
+   * [[org.talares.api.datatypes.items.ComponentPresentation]]'s showing it and the
+   * [[org.talares.api.datatypes.items.Page]]'s holding those.
+   *
+   * Only dependencies of items which passed through this instance are known.
+   *
+   * @param item the item to invalidate
+   */
+  def invalidate(item: Item): Unit = invalidate(ItemKey(item))
+
+  /**
+   * Evicts the item identified by the given [[org.talares.api.cache.ItemKey]] from the cache, together with every
+   * cached entry which depends on it directly or transitively.
+   *
+   * @param itemKey the [[org.talares.api.cache.ItemKey]] of the item to invalidate
+   */
+  def invalidate(itemKey: ItemKey): Unit = engine.invalidate(itemKey)
+
+  /**
+   * Invalidates all cached entries of the given publication at once, for instance after it has been republished.
+   *
+   * Bumps the generation of the publication, which makes every entry stored for it so far stale. Stale entries are
+   * evicted lazily, as they are accessed.
+   *
+   * @param publicationId the ID of the publication to invalidate
+   */
+  def invalidatePublication(publicationId: Int): Unit = generations.bump(publicationId)
+
+  /**
+   * Evicts the cached entries concerned by the given [[org.talares.api.invalidation.InvalidationEvent]]: either the
+   * item and everything depending on it, or a whole publication.
+   *
+   * @param event the [[org.talares.api.invalidation.InvalidationEvent]] to handle
+   */
+  def invalidate(event: InvalidationEvent): Unit = {
+
+    def evict(): Unit = event.itemKey.fold(invalidatePublication(event.publicationId))(itemKey => invalidate(itemKey))
+
+    mirror.fold(evict())(_.refresh(event) onComplete (_ => evict()))
+  }
+
+  /**
+   * Serves requests from the given [[org.talares.api.mirror.Mirror]] from now on. Requests for items by their ID's, by
+   * their URI or for pages by their URL are answered by the mirror when it holds the item. All other requests, and
+   * requests for items the mirror does not hold, are handled as usual.
+   *
+   * Events received by [[listen]] are passed on to the mirror before the cache is invalidated, keeping the mirror up
+   * to date. The mirror is closed when the library is terminated.
+   *
+   * @param mirror the [[org.talares.api.mirror.Mirror]] to serve from
+   */
+  def serveFrom(mirror: Mirror): Unit = {
+    this.mirror = Some(mirror)
+    engine.serveFrom(mirror)
+  }
+
+  /**
+   * Starts the given [[org.talares.api.invalidation.InvalidationSource]], handling every event it receives by
+   * evicting the cached entries concerned. The source is stopped when the library is terminated.
+   *
+   * @param source the [[org.talares.api.invalidation.InvalidationSource]] to listen to
+   */
+  def listen(source: InvalidationSource): Unit = {
+    source.start(event => invalidate(event))
+    invalidationSources.synchronized(invalidationSources += source)
   }
 
   /**
-   * Terminates the library which implies shutting down the actor system.
-   * Should be used when the API will no longer be accesses and only then.
+   * Subscribes the given listener to changes of cached items. Whenever a refresh of a cached entry changes an item, the
+   * listener receives an [[org.talares.api.cache.ItemChange]] holding the item before and after the refresh.
+   *
+   * Changes are only detected by the cache strategies which refresh entries themselves, being
+   * [[org.talares.api.cache.AutoUpdateCache]], [[org.talares.api.cache.RefreshAheadCache]] and their Async
+   * counterparts. Listeners are notified asynchronously and should not block.
+   *
+   * @param listener the listener to subscribe
+   */
+  def subscribe(listener: ItemChange => Unit): Unit = changes.subscribe(listener)
+
+  /**
+   * Unsubscribes a listener subscribed by [[subscribe]].
+   *
+   * @param listener the same listener instance that was subscribed
+   */
+  def unsubscribe(listener: ItemChange => Unit): Unit = changes.unsubscribe(listener)
+
+  /**
+   * Drains this instance and terminates it thereafter, for instance before the application is redeployed, so neither
+   * the requests in flight fail nor their outcome is lost.
+   *
+   * Requests issued from now on fail with a [[org.talares.api.exceptions.RequestRejectedException]]. The requests in
+   * flight are awaited, after which the tasks the engine still runs, see [[Engine.flush]], and the writes to the cache
+   * in progress are awaited and a [[org.talares.api.cache.FlushingCache]] is flushed. Then this instance is terminated,
+   * see [[terminate]], which also happens once the given timeout passes before the drain completes. Calling this
+   * function again returns the outcome of the first call.
+   *
+   * @param timeout the time the drain may take at most, by default the configured talares.draintimeout
+   * @return a Future which completes once this instance has been terminated
+   */
+  def drain(timeout: FiniteDuration = settings.drainTimeout millis): Future[Unit] = synchronized {
+    drained getOrElse {
+
+      draining = true
+      if (inFlight.get == 0) idle.trySuccess(())
+
+      val expired = Promise[Unit]()
+      val expiry = scheduler.scheduleOnce(timeout)(expired.trySuccess(()))
+
+      val flushed = idle.future flatMap (_ => engine.flush()) recover {
+        case NonFatal(throwable) => log.warning(s"Flushing the cache failed: $throwable")
+      }
+
+      val drain = Future.firstCompletedOf(Seq(flushed, expired.future)) map { _ =>
+        expiry.cancel()
+        terminate()
+      }
+
+      drained = Some(drain)
+      drain
+    }
+  }
+
+  /**
+   * Terminates this instance which implies shutting down the engine, and with it the actor system unless it belongs to
+   * the host application. Other instances are not affected.
+   * Should be used when the API will no longer be accesses and only then. Requests in flight are not awaited, use
+   * [[drain]] for that.
    */
   def terminate(): Unit = {
-    system.shutdown()
-    Talares._currentApp = null
+    mirror foreach (_.close())
+    invalidationSources.synchronized {
+      invalidationSources foreach (_.stop())
+      invalidationSources.clear()
+    }
+    timeouts.stop()
+    circuitBreakers.close()
+    routes.close()
+    engine.shutdown()
   }
 
   /**
@@ -431,48 +780,182 @@ class Talares private[api](val cache: Cache = NoCache()) {
 
 object Talares {
 
-  @volatile private[Talares] var _currentApp: Talares = _
+  /** The number of instances created, used to name them **/
+  private val instances = new AtomicInteger
 
   /**
-   * Returns an Option of the Talares instance that may or may not have been created.
+   * Returns a name for a new instance, unique within the JVM.
    */
-  private[Talares] def maybeApplication: Option[Talares] = Option(_currentApp)
+  private def nextName(): String = s"talares-${instances.incrementAndGet()}"
 
   /**
-   * Implicitly import the previously created Talares instance.
+   * An execution context running callbacks on the thread completing the future, without a context switch. Suits cheap
+   * callbacks only, see [[SameThreadExecutionContext]].
    */
-  implicit def current: Talares = maybeApplication.getOrElse(sys.error("There is no Talares instance available"))
+  val sameThread: ExecutionContextExecutor = SameThreadExecutionContext
 
   /**
-   * Either create a new or return the previously created Talares instance.
+   * Creates a new Talares instance, running on an actor system or thread pool of it's own.
    *
    * @param cache the [[org.talares.api.cache.Cache]] instance to use
+   * @param settings the [[Settings]] to use, by default those configured on the class path
    * @return an instance of [[Talares]]
    */
-  def apply(cache: Cache = NoCache()): Talares = maybeApplication getOrElse {
-    _currentApp = new Talares(cache)
-    _currentApp
-  }
+  def apply(cache: Cache = NoCache(), settings: Settings = Settings()): Talares = new Talares(cache, settings)
+
+  /**
+   * Creates a new Talares instance on the actor system of the host application, configured by the configuration of
+   * that actor system. The actors of the instance are created within the given actor system and run on it's
+   * dispatchers. Terminating the instance stops it's actors but leaves the actor system running.
+   *
+   * @param cache the [[org.talares.api.cache.Cache]] instance to use
+   * @param system the actor system to run on
+   * @return an instance of [[Talares]]
+   */
+  def apply(cache: Cache, system: ActorSystem): Talares = apply(cache, system, Settings(system.settings.config))
+
+  /**
+   * Creates a new Talares instance on the actor system of the host application, see apply(Cache, ActorSystem).
+   *
+   * @param cache the [[org.talares.api.cache.Cache]] instance to use
+   * @param system the actor system to run on
+   * @param settings the [[Settings]] to use
+   * @return an instance of [[Talares]]
+   */
+  def apply(cache: Cache, system: ActorSystem, settings: Settings): Talares =
+    new Talares(cache, settings, hostSystem = Some(system))
+
+  /**
+   * Creates a new Talares instance on the execution context of the host application, configured by the configuration
+   * on the class path, see apply(Cache, ExecutionContext, Settings).
+   *
+   * @param cache the [[org.talares.api.cache.Cache]] instance to use
+   * @param executionContext the execution context to run on
+   * @return an instance of [[Talares]]
+   */
+  def apply(cache: Cache, executionContext: ExecutionContext): Talares = apply(cache, executionContext, Settings())
+
+  /**
+   * Creates a new Talares instance on the execution context of the host application. The actor system the instance
+   * creates, if any, runs it's default dispatcher on the given execution context. Terminating the instance leaves the
+   * execution context running.
+   *
+   * @param cache the [[org.talares.api.cache.Cache]] instance to use
+   * @param executionContext the execution context to run on
+   * @param settings the [[Settings]] to use
+   * @return an instance of [[Talares]]
+   */
+  def apply(cache: Cache, executionContext: ExecutionContext, settings: Settings): Talares =
+    new Talares(cache, settings, hostContext = Some(executionContext))
 }
 
 /**
  * Convenience class holding all configuration values the library could need.
  *
- * The settings are parsed from an .conf file present in the class path. Essential settings are checked for their
- * presence and an IllegalArgumentException will be thrown if they are not.
+ * The settings are parsed from an .conf file present in the class path, unless another configuration is given.
+ * Essential settings are checked for their presence and an IllegalArgumentException will be thrown if they are not.
+ *
+ * @param config the configuration to parse the settings from
  *
  * @see com.typesafe.config.ConfigFactory
  */
-sealed case class Settings() {
-  val config = ConfigFactory.load()
+sealed case class Settings(config: Config = ConfigFactory.load()) {
   val cacheOnFailure = config.getBoolean("talares.cache.storefailure")
   val cacheRefreshRatio = config.getInt("talares.cache.refreshratio")
+  val trackedEntries = config.getInt("talares.cache.trackedentries")
+  val refreshAheadInterval = config.getLong("talares.cache.refreshahead.interval")
+  val refreshAheadMinInterval = config.getLong("talares.cache.refreshahead.mininterval")
+  val refreshAheadMaxInterval = config.getLong("talares.cache.refreshahead.maxinterval")
+  val refreshAheadHotPeriod = config.getLong("talares.cache.refreshahead.hotperiod")
+  val refreshAheadExpiry = config.getLong("talares.cache.refreshahead.expiry")
+  val refreshAheadLead = config.getLong("talares.cache.refreshahead.lead")
   val retries = config.getInt("talares.retries")
   val timeout = config.getLong("talares.timeout")
-  val webserviceLocation = config.getString("talares.webservicelocation")
-  require(
-    webserviceLocation.toString.startsWith("http://") || webserviceLocation.toString.startsWith("https://"),
-    "The webservice location must include the appropriate protocol"
-  )
-  require(webserviceLocation.toString.endsWith("odata.svc"), "The webservice location must end with odata.svc")
-}
\ No newline at end of file
+  val drainTimeout = config.getLong("talares.draintimeout")
+  val mediatorShards = config.getInt("talares.shards")
+  val engine = config.getString("talares.engine")
+  val directThreads = config.getInt("talares.direct.threads")
+  val directCapacity = config.getInt("talares.direct.capacity")
+  val concurrencyLimitInitial = config.getInt("talares.concurrencylimit.initial")
+  val concurrencyLimitMin = config.getInt("talares.concurrencylimit.min")
+  val concurrencyLimitMax = config.getInt("talares.concurrencylimit.max")
+  val concurrencyLimitQueueSize = config.getInt("talares.concurrencylimit.queuesize")
+  val concurrencyLimitMaxWait = config.getLong("talares.concurrencylimit.maxwait")
+  val concurrencyLimitTolerance = config.getDouble("talares.concurrencylimit.tolerance")
+  val concurrencyLimitWindow = config.getInt("talares.concurrencylimit.window")
+  val circuitBreakerFailures = config.getInt("talares.circuitbreaker.failures")
+  val circuitBreakerErrorRate = config.getDouble("talares.circuitbreaker.errorrate")
+  val circuitBreakerWindow = config.getInt("talares.circuitbreaker.window")
+  val circuitBreakerResetTimeout = config.getLong("talares.circuitbreaker.resettimeout")
+  val circuitBreakerHalfOpenCalls = config.getInt("talares.circuitbreaker.halfopencalls")
+  val bulkheadMaxInFlight = config.getInt("talares.bulkhead.maxinflight")
+  val bulkheadEndpoints = config.getConfig("talares.bulkhead.endpoints").root.keySet.asScala.map { endpoint =>
+    endpoint -> config.getInt(s"talares.bulkhead.endpoints.$endpoint")
+  }.toMap
+  val overloadPolicy = OverloadPolicy(config.getString("talares.overload.policy"))
+  val overloadMediatorCapacity = config.getInt("talares.overload.mediatorcapacity")
+  val overloadFetcherCapacity = config.getInt("talares.overload.fetchercapacity")
+  val laneShares = Priority.lanes map (priority => config.getDouble(s"talares.lanes.${priority.toString.toLowerCase}"))
+  val deltaSyncInterval = config.getLong("talares.deltasync.interval")
+  val deltaSyncConcurrency = config.getInt("talares.deltasync.concurrency")
+  val deltaSyncPageSize = config.getInt("talares.deltasync.pagesize")
+  val mirrorConcurrency = config.getInt("talares.mirror.concurrency")
+  val mirrorPageSize = config.getInt("talares.mirror.pagesize")
+  val replicaErrorRate = config.getDouble("talares.replicas.errorrate")
+  val replicaLatencyFactor = config.getDouble("talares.replicas.latencyfactor")
+  val replicaMinimumCalls = config.getInt("talares.replicas.minimumcalls")
+  val replicaEjectTime = config.getLong("talares.replicas.ejecttime")
+  val maxConnections = config.getInt("talares.connectionpool.maxconnections")
+  val webserviceLocations = locations("talares")
+  val webserviceLocation = webserviceLocations.head
+  val routes = config.getConfig("talares.routes").root.keySet.asScala.toList.sorted map { name =>
+    val path = s"talares.routes.$name"
+    val publications = config.getList(s"$path.publications").unwrapped.asScala.toList map {
+      case id: Number => (id.intValue, id.intValue)
+      case range => range.toString.split('-') match {
+        case Array(from, to) => (from.trim.toInt, to.trim.toInt)
+        case _ => throw new IllegalArgumentException(s"Route $name holds an invalid publication range: $range")
+      }
+    }
+    val maxConnections =
+      if (config.hasPath(s"$path.maxconnections")) config.getInt(s"$path.maxconnections") else this.maxConnections
+    RouteSettings(name, publications, locations(path), maxConnections)
+  }
+
+  /**
+   * Reads the webservice location, or the list of locations of it's replicas, configured under the given path.
+   *
+   * @param path the path holding the webservicelocation setting
+   * @return the webservice locations
+   */
+  private def locations(path: String): List[String] = {
+
+    val locations = config.getValue(s"$path.webservicelocation").valueType match {
+      case ConfigValueType.LIST => config.getStringList(s"$path.webservicelocation").asScala.toList
+      case _ => List(config.getString(s"$path.webservicelocation"))
+    }
+
+    require(locations.nonEmpty, "At least one webservice location must be given")
+    locations foreach { location =>
+      require(
+        location.startsWith("http://") || location.startsWith("https://"),
+        "The webservice location must include the appropriate protocol"
+      )
+      require(location.endsWith("odata.svc"), "The webservice location must end with odata.svc")
+    }
+    locations
+  }
+}
+
+/**
+ * The settings of a route of publications to a webservice other than the configured webservice location.
+ *
+ * @param name the name of the route
+ * @param publications the ranges of ID's of the publications routed, both bounds inclusive
+ * @param webserviceLocations the location of the webservice, or of it's replicas
+ * @param maxConnections the maximum number of connections to the webservice
+ */
+case class RouteSettings(name: String,
+                         publications: Seq[(Int, Int)],
+                         webserviceLocations: Seq[String],
+                         maxConnections: Int)
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import akka.event.LoggingAdapter
+import akka.routing.Broadcast
+import org.talares.api.{Engine, Talares}
+import org.talares.api.actors.messages.{Client, MediatorMessages}
+import org.talares.api.cache.ItemKey
+import org.talares.api.datatypes.items.Item
+import org.talares.api.mirror.Mirror
+
+import scala.collection.JavaConverters._
+import scala.concurrent.{ExecutionContext, Future, Promise}
+
+/**
+ * The [[org.talares.api.Engine]] passing requests to the [[Mediator]] of the instance, on the actor system of either
+ * the library or the host application.
+ *
+ * @param app the [[org.talares.api.Talares]] instance the engine serves
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class ActorEngine(app: Talares) extends Engine {
+
+  override implicit def executionContext: ExecutionContext = app.system.dispatcher
+
+  override def scheduler = app.system.scheduler
+
+  override def log: LoggingAdapter = app.system.log
+
+  override def submit(request: MediatorMessages.Request[_ <: Item], client: Client): Unit =
+    app.mediator ! MediatorMessages.Submit(request, client)
+
+  override def invalidate(itemKey: ItemKey): Unit = app.mediator ! Broadcast(MediatorMessages.Invalidate(itemKey))
+
+  override def serveFrom(mirror: Mirror): Unit = app.mediator ! Broadcast(MediatorMessages.UseMirror(mirror))
+
+  /**
+   * Has every [[Mediator]] shard flush it's caching actor, each taking one of the promises broadcast, see
+   * [[org.talares.api.cache.actors.CachingActor.handleFlush]].
+   */
+  override def flush(): Future[Unit] = {
+    val flushes = Seq.fill(app.settings.mediatorShards)(Promise[Unit]())
+    app.mediator ! Broadcast(MediatorMessages.Flush(new ConcurrentLinkedQueue(flushes.asJava)))
+    Future.sequence(flushes map (_.future)) map (_ => ())
+  }
+
+  /**
+   * Shuts down the actor system, or only stops the [[Mediator]], and with it all other actors of the instance, when the
+   * actor system belongs to the host application.
+   */
+  override def shutdown(): Unit = {
+    if (app.hostSystem.isEmpty) app.system.shutdown()
+    else app.system.stop(app.mediator)
+    LaneMailbox.unregister(app.mediatorName)
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.lang.management.ManagementFactory
+import java.util.concurrent.ConcurrentHashMap
+import javax.management.ObjectName
+
+import akka.event.LoggingAdapter
+import org.talares.api.exceptions.{CircuitOpenException, ServiceOverloadedException}
+
+import scala.collection.JavaConverters._
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.control.NonFatal
+
+/**
+ * Guards the calls to a single endpoint of the webservice, failing them fast while the endpoint appears to be down.
+ *
+ * The circuit starts out closed, passing every call. It opens when the given number of calls fails in a row, or when
+ * the share of failures among the most recent calls reaches the error rate threshold. While open, calls fail at once
+ * with a [[org.talares.api.exceptions.CircuitOpenException]]. After the reset timeout the circuit is half open and
+ * lets a limited number of probing calls through: when all of them succeed the circuit closes, when any of them fails
+ * it opens again.
+ *
+ * A call counts only towards the state it was admitted in. Every change of state starts a new period, and calls
+ * completing in a later period than the one they were admitted in are not counted, so a call admitted while closed
+ * but completing while half open is not taken for a probe.
+ *
+ * Failures which do not signal the webservice being unavailable, such as client errors and calls shed by the
+ * [[ConcurrencyLimiter]], count as successes.
+ *
+ * Thread safe.
+ *
+ * @param name the name of the circuit, for reporting
+ * @param failureThreshold the number of failures in a row which opens the circuit
+ * @param errorRateThreshold the share of failures among the most recent calls which opens the circuit
+ * @param window the number of most recent calls the share of failures is determined over
+ * @param resetTimeout the time in milliseconds after which an open circuit lets probing calls through
+ * @param halfOpenCalls the number of probing calls let through while half open
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class CircuitBreaker(val name: String,
+                     failureThreshold: Int,
+                     errorRateThreshold: Double,
+                     window: Int,
+                     resetTimeout: Long,
+                     halfOpenCalls: Int) extends CircuitBreakerMXBean {
+
+  require(window > 0 && halfOpenCalls > 0, "The window and the number of half open calls must be positive")
+
+  private var state: CircuitBreaker.State = CircuitBreaker.Closed
+
+  /** The outcomes of the most recent calls, true for a failure **/
+  private val outcomes = new Array[Boolean](window)
+  private var outcomeIndex = 0
+  private var outcomeCount = 0
+  private var failureCount = 0
+
+  private var consecutiveFailures = 0
+  private var openedAt = 0L
+  private var probesLeft = 0
+  private var probesSucceeded = 0
+  private var timesOpened = 0L
+  private var callsRejected = 0L
+
+  /** The period the circuit is in, which every change of state starts anew **/
+  private var period = 0L
+
+  /**
+   * Makes a call, unless the circuit is open.
+   *
+   * @param location the location called, for reporting
+   * @param call makes the call
+   * @tparam A the type of the outcome of the call
+   * @return a future of the outcome of the call, or failed with a
+   *         [[org.talares.api.exceptions.CircuitOpenException]] if the circuit is open
+   */
+  def apply[A](location: String)(call: => Future[A])(implicit executionContext: ExecutionContext): Future[A] = {
+
+    val admittedIn = admit()
+
+    if (admittedIn < 0) Future.failed(new CircuitOpenException(location, name))
+    else {
+
+      val result = try call catch {
+        case NonFatal(throwable) => Future.failed(throwable)
+      }
+
+      result andThen {
+        case outcome => record(outcome.failed.toOption exists CircuitBreaker.signalsUnavailable, admittedIn)
+      }
+    }
+  }
+
+  /**
+   * Admits a call if the state of the circuit allows it.
+   *
+   * @return the period the call was admitted in, -1 if it was rejected
+   */
+  private def admit(): Long = synchronized {
+    state match {
+      case CircuitBreaker.Closed => period
+      case CircuitBreaker.Open if System.currentTimeMillis - openedAt >= resetTimeout =>
+        state = CircuitBreaker.HalfOpen
+        period += 1
+        probesLeft = halfOpenCalls - 1
+        probesSucceeded = 0
+        period
+      case CircuitBreaker.HalfOpen if probesLeft > 0 =>
+        probesLeft -= 1
+        period
+      case _ =>
+        callsRejected += 1
+        -1L
+    }
+  }
+
+  private def record(failed: Boolean, admittedIn: Long): Unit = synchronized {
+    if (admittedIn == period) state match {
+      case CircuitBreaker.HalfOpen =>
+        if (failed) open()
+        else {
+          probesSucceeded += 1
+          if (probesSucceeded >= halfOpenCalls) close()
+        }
+      case CircuitBreaker.Closed =>
+        if (outcomeCount == window && outcomes(outcomeIndex)) failureCount -= 1
+        outcomes(outcomeIndex) = failed
+        outcomeIndex = (outcomeIndex + 1) % window
+        outcomeCount = math.min(window, outcomeCount + 1)
+        if (failed) failureCount += 1
+
+        consecutiveFailures = if (failed) consecutiveFailures + 1 else 0
+
+        if (consecutiveFailures >= failureThreshold || (outcomeCount == window && failureRate >= errorRateThreshold))
+          open()
+      case CircuitBreaker.Open =>
+    }
+  }
+
+  private def failureRate: Double = if (outcomeCount == 0) 0.0 else failureCount.toDouble / outcomeCount
+
+  private def open(): Unit = {
+    state = CircuitBreaker.Open
+    period += 1
+    openedAt = System.currentTimeMillis
+    timesOpened += 1
+  }
+
+  private def close(): Unit = {
+    state = CircuitBreaker.Closed
+    period += 1
+    consecutiveFailures = 0
+    outcomeIndex = 0
+    outcomeCount = 0
+    failureCount = 0
+  }
+
+  override def getState: String = synchronized(state.toString)
+
+  override def getConsecutiveFailures: Int = synchronized(consecutiveFailures)
+
+  override def getFailureRate: Double = synchronized(failureRate)
+
+  override def getTimesOpened: Long = synchronized(timesOpened)
+
+  override def getCallsRejected: Long = synchronized(callsRejected)
+
+  override def reset(): Unit = synchronized(close())
+}
+
+object CircuitBreaker {
+
+  sealed trait State
+
+  case object Closed extends State
+
+  case object Open extends State
+
+  case object HalfOpen extends State
+
+  /**
+   * Whether a failed call signals the webservice being unavailable, which is the case for any failure which signals
+   * overload to the [[ConcurrencyLimiter]], except the limiter shedding the call itself.
+   *
+   * @param throwable the failure of the call
+   * @return true if the failure signals the webservice being unavailable
+   */
+  def signalsUnavailable(throwable: Throwable): Boolean = throwable match {
+    case _: ServiceOverloadedException => false
+    case _ => ConcurrencyLimiter.signalsOverload(throwable)
+  }
+
+  /**
+   * The circuit a location belongs to: the webservice location, up to and including odata.svc, together with the
+   * collection addressed last, which is the endpoint serving the response.
+   *
+   * @param location the location called
+   * @return the webservice location and the endpoint
+   */
+  def circuit(location: String): (String, String) = {
+
+    val path = location.takeWhile(_ != '?')
+    val serviceEnd = path.indexOf("odata.svc") match {
+      case -1 => path.lastIndexOf('/')
+      case index => index + "odata.svc".length
+    }
+
+    val endpoint = path.substring(serviceEnd).split('/').filter(_.nonEmpty).lastOption.fold("")(_.takeWhile(_ != '('))
+
+    (path.substring(0, serviceEnd), endpoint)
+  }
+}
+
+/**
+ * The [[CircuitBreaker]]'s of the library, one per webservice location and endpoint, each registered with the platform
+ * MBean server under org.talares:type=CircuitBreaker, with the name of the instance of the library they belong to, so
+ * the breakers of several instances within one JVM do not replace one another.
+ *
+ * Thread safe.
+ *
+ * @param instance the name of the [[org.talares.api.Talares]] instance the breakers belong to
+ * @param log the log to report failures to register the breakers to
+ * @param create creates the [[CircuitBreaker]] with the given name
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class CircuitBreakers(instance: String, log: LoggingAdapter)(create: String => CircuitBreaker) {
+
+  private val breakers = new ConcurrentHashMap[(String, String), CircuitBreaker]()
+
+  private lazy val mbeanServer = ManagementFactory.getPlatformMBeanServer
+
+  /**
+   * The [[CircuitBreaker]] guarding the given location.
+   *
+   * @param location the location to be called
+   * @return the [[CircuitBreaker]] of the circuit the location belongs to
+   */
+  def apply(location: String): CircuitBreaker = {
+
+    val circuit = CircuitBreaker.circuit(location)
+
+    Option(breakers.get(circuit)) getOrElse {
+      val breaker = create(s"${circuit._1}/${circuit._2}")
+      Option(breakers.putIfAbsent(circuit, breaker)) getOrElse {
+        register(circuit, breaker)
+        breaker
+      }
+    }
+  }
+
+  /**
+   * All [[CircuitBreaker]]'s created so far.
+   */
+  def all: Seq[CircuitBreaker] = breakers.values.asScala.toList
+
+  /**
+   * Unregisters all [[CircuitBreaker]]'s from the MBean server.
+   */
+  def close(): Unit = breakers.keySet.asScala foreach { circuit =>
+    try {
+      val name = objectName(circuit)
+      if (mbeanServer.isRegistered(name)) mbeanServer.unregisterMBean(name)
+    } catch {
+      case NonFatal(throwable) => log.warning(s"Could not unregister the circuit breaker of $circuit: $throwable")
+    }
+  }
+
+  private def register(circuit: (String, String), breaker: CircuitBreaker): Unit = try {
+    val name = objectName(circuit)
+    if (mbeanServer.isRegistered(name)) mbeanServer.unregisterMBean(name)
+    mbeanServer.registerMBean(breaker, name)
+  } catch {
+    case NonFatal(throwable) => log.warning(s"Could not register the circuit breaker of $circuit: $throwable")
+  }
+
+  private def objectName(circuit: (String, String)): ObjectName = new ObjectName(
+    s"org.talares:type=CircuitBreaker,instance=${ObjectName.quote(instance)}," +
+      s"location=${ObjectName.quote(circuit._1)},endpoint=${ObjectName.quote(circuit._2)}"
+  )
+}
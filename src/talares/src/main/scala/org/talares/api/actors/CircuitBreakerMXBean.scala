@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+/**
+ * The management interface of a [[CircuitBreaker]], through which it's state is visible over JMX.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait CircuitBreakerMXBean {
+
+  /** The state of the circuit: Closed, Open or HalfOpen **/
+  def getState: String
+
+  /** The number of failures in a row since the last success **/
+  def getConsecutiveFailures: Int
+
+  /** The share of failed calls among the most recent calls **/
+  def getFailureRate: Double
+
+  /** The number of times the circuit has opened **/
+  def getTimesOpened: Long
+
+  /** The number of calls failed fast while the circuit was open **/
+  def getCallsRejected: Long
+
+  /** Closes the circuit, regardless of it's state **/
+  def reset(): Unit
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.util
+
+import org.talares.api.exceptions.ServiceOverloadedException
+
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.util.control.NonFatal
+
+/**
+ * Limits the number of concurrent calls to the webservice to a limit which adapts to the capacity the webservice shows.
+ *
+ * The limit follows the latency gradient of the webservice, judged per window of calls rather than per call, so a
+ * single slow call does not move it. The minimum latency seen over the last windows stands for the latency of an
+ * unloaded webservice. Once a window of calls completes, the limit is moved towards it's current value times the
+ * gradient, which is the tolerance times that minimum latency over the median latency of the window, capped at 1 and
+ * at least a half. When the limit was actually being used, the square root of the limit is added as headroom to probe
+ * for more capacity. So the limit grows while latency stays within the tolerance of the minimum, and shrinks in
+ * proportion once calls queue up in the webservice. Latency differences within [[ConcurrencyLimiter.NoiseFloor]] are
+ * taken to be noise. Every call failing in a way which signals overload lowers the limit by a tenth at once.
+ *
+ * Calls beyond the limit wait for a call in flight to complete, for no longer than the maximum wait. When the maximum
+ * number of calls is already waiting, a call is failed at once with a
+ * [[org.talares.api.exceptions.ServiceOverloadedException]], as is a call which waited too long.
+ *
+ * Thread safe.
+ *
+ * @param initialLimit the limit to start out with
+ * @param minLimit the lower bound of the limit
+ * @param maxLimit the upper bound of the limit
+ * @param queueSize the maximum number of calls waiting for a free slot
+ * @param maxWait the maximum time in milliseconds a call waits for a free slot
+ * @param tolerance the factor of the minimum latency beyond which the average latency of a window signals overload
+ * @param window the number of calls per window the latency is judged by
+ * @param timeouts the [[TimeoutWheel]] expiring calls which waited too long
+ * @param signalsOverload whether a failed call signals overload of the webservice
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class ConcurrencyLimiter(initialLimit: Int,
+                         minLimit: Int,
+                         maxLimit: Int,
+                         queueSize: Int,
+                         maxWait: Long,
+                         tolerance: Double,
+                         window: Int,
+                         timeouts: TimeoutWheel,
+                         signalsOverload: Throwable => Boolean = ConcurrencyLimiter.signalsOverload)
+                        (implicit executionContext: ExecutionContext) {
+
+  require(minLimit > 0 && minLimit <= maxLimit, "The concurrency limit bounds must be positive and ordered")
+  require(window > 0, "The concurrency limit window must be positive")
+
+  private class Waiting(val location: String, deadline: Long) extends TimeoutWheel.Expirable(deadline) {
+
+    val permit = Promise[Unit]()
+
+    override def isCompleted: Boolean = permit.isCompleted
+
+    override def expire(): Unit = if (ConcurrencyLimiter.this.synchronized(waiting.remove(this))) {
+      permit.tryFailure(new ServiceOverloadedException(location, s"No free slot within $maxWait milliseconds"))
+    }
+  }
+
+  private var limit: Double = math.min(maxLimit, math.max(minLimit, initialLimit)).toDouble
+
+  private var inFlight = 0
+
+  /** The latency samples of the current window in nanoseconds, their number and whether the limit was used **/
+  private val windowSamples = new Array[Long](window)
+  private var windowCount = 0
+  private var windowUsed = false
+
+  /** The minimum latency in nanoseconds of the current and the previous windows, the current one at windowIndex **/
+  private val windowMinima = Array.fill(ConcurrencyLimiter.MinimumWindows)(Long.MaxValue)
+  private var windowIndex = 0
+
+  private val waiting = new util.ArrayDeque[Waiting]()
+
+  /**
+   * The current limit.
+   */
+  def currentLimit: Int = synchronized(limit.toInt)
+
+  /**
+   * The number of calls currently in flight.
+   */
+  def inFlightCount: Int = synchronized(inFlight)
+
+  /**
+   * The number of calls currently waiting for a free slot.
+   */
+  def waitingCount: Int = synchronized(waiting.size)
+
+  /**
+   * Makes a call as soon as the limit allows it.
+   *
+   * @param location the location called, for reporting
+   * @param call makes the call
+   * @tparam A the type of the outcome of the call
+   * @return a future of the outcome of the call, or failed with a
+   *         [[org.talares.api.exceptions.ServiceOverloadedException]] if the call was shed
+   */
+  def apply[A](location: String)(call: => Future[A]): Future[A] = {
+
+    val admission = synchronized {
+      if (inFlight < limit.toInt) {
+        inFlight += 1
+        None
+      } else if (waiting.size < queueSize) {
+        val entry = new Waiting(location, System.nanoTime + maxWait * 1000000L)
+        waiting.add(entry)
+        Some(Some(entry))
+      } else Some(None)
+    }
+
+    admission match {
+      case None => run(call)
+      case Some(Some(entry)) =>
+        timeouts.register(entry)
+        entry.permit.future flatMap (_ => run(call))
+      case Some(None) =>
+        Future.failed(new ServiceOverloadedException(location, s"$queueSize calls are already waiting for a free slot"))
+    }
+  }
+
+  private def run[A](call: => Future[A]): Future[A] = {
+
+    val start = System.nanoTime
+
+    val result = try call catch {
+      case NonFatal(throwable) => Future.failed(throwable)
+    }
+
+    result onComplete { outcome =>
+      release(System.nanoTime - start, outcome.failed.toOption exists signalsOverload)
+    }
+
+    result
+  }
+
+  private def release(latency: Long, failed: Boolean): Unit = {
+
+    val granted = synchronized {
+
+      adapt(latency, failed)
+      inFlight -= 1
+
+      var entries = List[Waiting]()
+      while (inFlight < limit.toInt && !waiting.isEmpty) {
+        inFlight += 1
+        entries ::= waiting.poll()
+      }
+      entries
+    }
+
+    granted foreach (_.permit.trySuccess(()))
+  }
+
+  private def adapt(latency: Long, failed: Boolean): Unit =
+    if (failed) limit = bounded(limit * ConcurrencyLimiter.Backoff)
+    else {
+
+      windowSamples(windowCount) = latency
+      windowCount += 1
+      windowUsed ||= inFlight * 2 >= limit
+      windowMinima(windowIndex) = math.min(windowMinima(windowIndex), latency)
+
+      if (windowCount >= window) {
+
+        util.Arrays.sort(windowSamples)
+
+        val minimum = windowMinima.min + ConcurrencyLimiter.NoiseFloor
+        val median = windowSamples(window / 2).toDouble
+        val gradient = math.max(ConcurrencyLimiter.MinGradient, math.min(1.0, tolerance * minimum / median))
+        val headroom = if (windowUsed) math.sqrt(limit) else 0.0
+
+        limit = bounded(limit + (limit * gradient + headroom - limit) * ConcurrencyLimiter.Smoothing)
+
+        windowCount = 0
+        windowUsed = false
+        windowIndex = (windowIndex + 1) % windowMinima.length
+        windowMinima(windowIndex) = Long.MaxValue
+      }
+    }
+
+  private def bounded(value: Double): Double = math.min(maxLimit.toDouble, math.max(minLimit.toDouble, value))
+}
+
+object ConcurrencyLimiter {
+
+  /** The factor the limit is multiplied with on a failure signalling overload **/
+  val Backoff = 0.9
+
+  /** The share of the way to it's target the limit moves per window **/
+  val Smoothing = 0.2
+
+  /** The lowest gradient, which bounds how far the limit is lowered per window **/
+  val MinGradient = 0.5
+
+  /** The number of windows the minimum latency is taken over **/
+  val MinimumWindows = 10
+
+  /** The latency in nanoseconds added to the minimum latency, as differences below it are noise rather than load **/
+  val NoiseFloor = 1000000L
+
+  /**
+   * Whether a failed call signals overload of the webservice, which is the case for any failure except a response
+   * with a client error status code.
+   *
+   * @param throwable the failure of the call
+   * @return true if the failure signals overload
+   */
+  def signalsOverload(throwable: Throwable): Boolean = throwable match {
+    case dispatch.StatusCode(code) => code >= 500
+    case _ => true
+  }
+}
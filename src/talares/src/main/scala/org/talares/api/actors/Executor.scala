@@ -16,18 +16,22 @@
 package org.talares.api.actors
 
 import akka.event.LoggingReceive
-import dispatch.{Http, enrichFuture, url}
 import org.talares.api.Talares
-import org.talares.api.actors.messages.ExecutorMessages.{Result, Execute}
-import org.talares.api.actors.messages.FetcherMessages
-import org.talares.api.as
-import org.talares.api.exceptions.ServiceErrorException
-import play.api.libs.json.{JsArray, JsValue}
+import org.talares.api.actors.messages.ExecutorMessages.{Execute, Result, Revalidate}
+import org.talares.api.actors.messages.{ExecutorMessages, FetcherMessages}
+import org.talares.api.cache.ContentHash
+import org.talares.api.datatypes.JsonReadable
+import org.talares.api.exceptions._
+import play.api.libs.json.JsValue
 
 import scala.concurrent.Future
+import scala.util.control.NonFatal
 
 /**
- * Responsible for calling a webservice and parsing it's response into an instance of JsValue.
+ * Responsible for calling a webservice and reading the items from it's response.
+ *
+ * The executor and the handling of webservice responses run on the I/O dispatcher, whereas reading the items from the
+ * responses runs on the dispatcher of the [[Fetcher]]'s, so large responses do not hold up the handling of other calls.
  *
  * @author Dennis Vis
  * @since 0.1.0
@@ -36,34 +40,29 @@ class Executor[T](val app: Talares) extends BaseActor {
 
   import context.parent
 
+  override implicit lazy val executionContext = system.dispatchers.lookup(Executor.Dispatcher)
+
+  /** The dispatcher responses are parsed on **/
+  lazy val parseContext = system.dispatchers.lookup(Fetcher.Dispatcher)
+
+  /** Calls the webservice, see [[Webservice]] **/
+  lazy val webservice = new Webservice(app, log)(executionContext)
+
   /**
    * Adds a parameter to the query string which should ensure the webservice will respond in Json format.
    *
    * @param url the URL to append the parameter to
    * @return the mutated URL
    */
-  def addJsonParam(url: String): String =
-    if (url.contains("?$")) url + "&$format=json"
-    else url + "?$format=json"
+  def addJsonParam(url: String): String = webservice.addJsonParam(url)
 
   /**
-   * Parses the appropriate parts from a JsValue.
-   *
-   * In practice this means whenever multiple values are detected within a 'result' node, a JsArray is returned
-   * containing said values.
-   * Otherwise the single value from the 'd' node is returned as a single JsValue.
+   * Parses the appropriate parts from a JsValue, see [[Webservice]].
    *
    * @param node the JsValue to parse
    * @return the parsed JsValue
    */
-  def parseJsonResult(node: JsValue): JsValue = {
-    val d = node \ "d"
-    val results = d \ "results"
-    results match {
-      case results: JsArray => results
-      case _ => d
-    }
-  }
+  def parseJsonResult(node: JsValue): JsValue = webservice.parseJsonResult(node)
 
   /**
    * Responsible for calling the webservice.
@@ -74,47 +73,104 @@ class Executor[T](val app: Talares) extends BaseActor {
    *                 parameter)
    * @return a Future of the fetched and parsed JsValue
    */
-  def callService(location: String): Future[Either[Throwable, JsValue]] = {
-
-    val timeout = Settings.timeout.toInt
-
-    val request = url(location)
-    val client = Http.configure(_
-      .setConnectionTimeoutInMs(timeout)
-      .setIdleConnectionTimeoutInMs(timeout)
-    )
-    val response = client(request OK as.Json).either
-
-    response map {
-      case Left(error) => Left(ServiceErrorException(location, error))
-      case Right(result) =>
-        log.debug( s"""
-          |Received response from service:
-          |Location: $location
-          |Body:
-          |$result
-          |""".stripMargin)
-        Right(parseJsonResult(result))
-    }
-  }
+  def callService(location: String): Future[Either[Throwable, JsValue]] =
+    fetchContent(location).map(_.right flatMap (content => readContent(location, content)))(parseContext)
+
+  /**
+   * Calls the webservice and returns the raw body of it's response, see [[Webservice]].
+   *
+   * @param location the complete URL from which the response should be fetched (should include the json format
+   *                 parameter)
+   * @param deadline the System.nanoTime after which the call is aborted, Long.MaxValue if it should not be
+   * @return a Future of the raw response body
+   */
+  def fetchContent(location: String, deadline: => Long = Long.MaxValue): Future[Either[Throwable, Array[Byte]]] =
+    webservice.fetchContent(location, deadline)
+
+  /**
+   * Parses a raw response body into a JsValue, see [[Webservice]].
+   *
+   * @param location the URL the response was fetched from, used for reporting
+   * @param content the raw response body
+   * @return the parsed JsValue, or a ServiceErrorException if the body is not valid Json
+   */
+  def readContent(location: String, content: Array[Byte]): Either[Throwable, JsValue] =
+    webservice.readContent(location, content)
+
+  /**
+   * Reads the items from a raw response body, see [[Webservice]].
+   *
+   * @param location the URL the response was fetched from, used for reporting
+   * @param content the raw response body
+   * @param jsonReadable the [[org.talares.api.datatypes.JsonReadable]] of the type to read
+   * @return a 'T' or a Seq of 'T', or the reason the body could not be read
+   */
+  def readItems(location: String, content: Array[Byte], jsonReadable: JsonReadable[_]): Either[Throwable, Any] =
+    webservice.readItems(location, content, jsonReadable)
 
   /**
    * Executes a [[org.talares.api.actors.messages.FetcherMessages.Task]].
    *
    * Takes a complete URL without the Json format parameter, adds this parameter by means of addJsonParam(), calls
-   * the webservice by means of callService() and parses the desired Json node(s) from the result using
-   * parseJsonResult(). This results in a Future of JsValue which is sent back to the parent.
+   * the webservice by means of fetchContent() and reads the desired item(s) from the result using readItems(). The
+   * outcome is sent back to the parent, which is captured before the call, as the context of the executor can no longer
+   * be read once it stopped.
+   *
+   * Work on a task whose client no longer waits is dropped, both before the call and before parsing it's response,
+   * and the call itself is aborted once the deadline of the task passes. The parent is sent a
+   * [[org.talares.api.exceptions.DeadlineExceededException]] instead.
    *
    * @param url the complete URL including parameters, excluding the json format parameter
    */
   def execute(fetcherTask: FetcherMessages.Task[_], url: String): Unit = {
     val modifiedUrl = addJsonParam(url)
-    callService(modifiedUrl) map { serviceResult =>
-      parent ! Result(fetcherTask, serviceResult)
+    val replyTo = parent
+    if (fetcherTask.abandoned) replyTo ! Result(fetcherTask, Left(new DeadlineExceededException(modifiedUrl)))
+    else fetchContent(modifiedUrl, fetcherTask.deadline).map { content =>
+      if (fetcherTask.abandoned) Left(new DeadlineExceededException(modifiedUrl))
+      else content.right flatMap (readItems(modifiedUrl, _, fetcherTask.jsonReadable))
+    }(parseContext) recover {
+      case NonFatal(throwable) => Left(ServiceErrorException(modifiedUrl, throwable))
+    } map { serviceResult =>
+      replyTo ! Result(fetcherTask, serviceResult)
+    }
+  }
+
+  /**
+   * Executes a [[org.talares.api.actors.messages.FetcherMessages.Task]] on behalf of a refresh.
+   *
+   * The raw response is hashed before it is read. When the hash equals the hash of the response the cached item was
+   * read from, the response is not read and an [[org.talares.api.actors.messages.ExecutorMessages.Unchanged]] is
+   * sent back to the parent instead.
+   *
+   * @param url the complete URL including parameters, excluding the json format parameter
+   * @param contentHash the hash of the response the cached item was parsed from, if known
+   */
+  def revalidate(fetcherTask: FetcherMessages.Task[_], url: String, contentHash: Option[Long]): Unit = {
+    val modifiedUrl = addJsonParam(url)
+    val replyTo = parent
+    fetchContent(modifiedUrl).map {
+      case Left(throwable) => replyTo ! ExecutorMessages.Failure(fetcherTask, throwable)
+      case Right(content) =>
+        val hash = ContentHash(content)
+        if (contentHash == Some(hash)) replyTo ! ExecutorMessages.Unchanged(fetcherTask, hash)
+        else readItems(modifiedUrl, content, fetcherTask.jsonReadable) match {
+          case Right(result) => replyTo ! ExecutorMessages.Refreshed(fetcherTask, result, hash)
+          case Left(throwable) => replyTo ! ExecutorMessages.Failure(fetcherTask, throwable)
+        }
+    }(parseContext) onFailure {
+      case NonFatal(throwable) => replyTo ! ExecutorMessages.Failure(fetcherTask, throwable)
     }
   }
 
   def receive: Receive = LoggingReceive {
     case Execute(fetcherTask, url) => execute(fetcherTask, url)
+    case Revalidate(fetcherTask, url, contentHash) => revalidate(fetcherTask, url, contentHash)
   }
-}
\ No newline at end of file
+}
+
+object Executor {
+
+  /** The id of the dispatcher executors, and the handling of webservice responses, run on **/
+  val Dispatcher = "talares.io-dispatcher"
+}
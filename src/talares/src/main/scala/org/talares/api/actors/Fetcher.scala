@@ -17,21 +17,30 @@ package org.talares.api.actors
 
 import akka.actor.Props
 import akka.event.LoggingReceive
-import org.talares.api.Talares
+import org.talares.api.{OverloadPolicy, Priority, Talares}
 import org.talares.api.actors.messages.ExecutorMessages
 import org.talares.api.actors.messages.FetcherMessages._
 import org.talares.api.datatypes.JsonReadable
-import org.talares.api.exceptions.UnexpectedResultException
+import org.talares.api.exceptions.{DeadlineExceededException, RequestRejectedException}
 import org.talares.api.queries._
-import play.api.libs.json.{JsArray, JsObject}
 
+import scala.collection.mutable
 import scala.reflect.ClassTag
 
 /**
  * Holds all functionality to compose an URL that designates where Json representations of 'T' might be found.
  *
  * Passes these locations to instances of [[Executor]] to receive the Json representations.
- * Is able to parse the Json into an instance of 'T' and send this to it's parent.
+ * Sends the instances of 'T' read from these representations to it's parent.
+ *
+ * Acts as a bulkhead for it's endpoint: no more than maxInFlight webservice calls are passed to the [[Executor]] at
+ * once. Further calls wait until one completes, so one slow item type cannot occupy all connections and threads.
+ *
+ * Calls wait in a queue per [[org.talares.api.Priority]] lane and are started highest lane first. A lane may only use
+ * it's configured share of maxInFlight, so background work only runs while interactive calls leave capacity spare.
+ * The number of calls waiting is bounded by the configured fetcher capacity. A call arriving when it is reached is shed
+ * according to the configured [[org.talares.api.OverloadPolicy]], failing it's task with a
+ * [[org.talares.api.exceptions.RequestRejectedException]].
  *
  * @author Dennis Vis
  * @since 0.1.0
@@ -43,22 +52,40 @@ class Fetcher[T](val app: Talares)(implicit jsonReadable: JsonReadable[T], class
   type ID = (String, Any)
   type SearchParam = (String, Any)
 
-  implicit val reads = jsonReadable.reads
-
   /**
    * Endpoint from which the Json representations of 'T' can be found within the webservice.
    *
    * The plural of the runtime class name of 'T' is used to find the endpoint. For instance a Fetcher[Page] will have
    * endpoint Pages.
    */
-  val endpoint = {
-    val name = classTag.runtimeClass.getSimpleName
-    if (name.endsWith("y")) name.substring(0, name.length - 1) + "ies"
-    else name.substring(0, name.length) + "s"
-  }
+  val endpoint = Fetcher.endpoint(classTag)
 
   /** [[Executor]] for use within this [[Fetcher]]. **/
-  lazy val executor = context.actorOf(Props(new Executor[T](app)), "executor")
+  lazy val executor = context.actorOf(Props(new Executor[T](app)).withDispatcher(Executor.Dispatcher), "executor")
+
+  /** The maximum number of webservice calls in flight for the endpoint of this [[Fetcher]] **/
+  val maxInFlight = Settings.bulkheadEndpoints.getOrElse(endpoint, Settings.bulkheadMaxInFlight)
+
+  /** The number of webservice calls currently in flight **/
+  private var inFlight = 0
+
+  /** Calls waiting for a call in flight to complete, per [[org.talares.api.Priority]] lane **/
+  private val waiting = Array.fill(Priority.lanes.size)(mutable.Queue[Any]())
+
+  /** The maximum number of calls waiting, 0 for no maximum **/
+  val capacity = Settings.overloadFetcherCapacity
+
+  /** The number of calls waiting **/
+  private var queued = 0
+
+  /**
+   * The maximum number of webservice calls in flight at which calls of the given priority may still be started.
+   *
+   * @param priority the [[org.talares.api.Priority]] of the call
+   * @return the configured share of maxInFlight for it's lane, at least 1
+   */
+  def laneLimit(priority: Priority): Int =
+    math.min(maxInFlight, math.max(1, math.ceil(maxInFlight * Settings.laneShares(priority.lane)).toInt))
 
   /**
    * Creates a [[org.talares.api.queries.Query]] consisting of the endpoint for type 'T' and the ID's given.
@@ -66,12 +93,7 @@ class Fetcher[T](val app: Talares)(implicit jsonReadable: JsonReadable[T], class
    * @param IDs the ID's to include in the query
    * @return an instance of [[org.talares.api.queries.Query]]
    */
-  def createIDQuery(IDs: Seq[ID]): Query = {
-    val formattedIds: Seq[(String, String)] = IDs.foldLeft(Seq[(String, String)]()) {
-      case (acc, id) => acc :+(id._1, id._2.toString)
-    }
-    Query / endpoint % (formattedIds: _*)
-  }
+  def createIDQuery(IDs: Seq[ID]): Query = Fetcher.idQuery(endpoint, IDs)
 
   /**
    * Creates a [[org.talares.api.queries.Query]] consisting of the endpoint for type 'T' as well as a specific filter
@@ -80,12 +102,7 @@ class Fetcher[T](val app: Talares)(implicit jsonReadable: JsonReadable[T], class
    * @param searchParams a arbitrary number of key/value pairs to be 'and'ed into a filter
    * @return an instance of [[org.talares.api.queries.]]
    */
-  def createSearchQuery(searchParams: Seq[SearchParam]): Query = {
-    val formattedParams = searchParams.foldLeft(Seq[QueryOption]()) {
-      case (acc, param) => acc :+ Filter(Operation(param._1, Operator.Eq, param._2))
-    }
-    Query / endpoint $ (formattedParams: _*)
-  }
+  def createSearchQuery(searchParams: Seq[SearchParam]): Query = Fetcher.searchQuery(endpoint, searchParams)
 
   /**
    * Composes a complete URL consisting of a webservice URL and a [[org.talares.api.queries.Query]]'s value.
@@ -155,56 +172,232 @@ class Fetcher[T](val app: Talares)(implicit jsonReadable: JsonReadable[T], class
    *
    * Depending on the type of task a function is used to turn this task into a complete URL where Json representations 
    * of 'T' might be found. This URL is then wrapped in a [[org.talares.api.actors.messages.ExecutorMessages.Execute]]
-   * message and passed to an [[Executor]] for execution.
+   * message and passed to an [[Executor]] for execution. A task whose client no longer waits is failed with a
+   * [[org.talares.api.exceptions.DeadlineExceededException]] instead.
    *
    * @param task the task to handle
    * @see [[Executor]]
    */
-  def handleTask(task: Task[T]): Unit = {
-    val message = task match {
+  def handleTask(task: Task[T]): Unit =
+    if (task.abandoned) parent ! Failure(task, new DeadlineExceededException(endpoint))
+    else execute(createTask(task), task.priority)
+
+  /**
+   * Passes a webservice call to the [[Executor]] if it's lane has room, see laneLimit(), and no calls of the same lane
+   * are waiting. Otherwise queues it, unless the queue is at capacity, in which case either the call is rejected or,
+   * under the [[org.talares.api.OverloadPolicy.DropOldest]] policy, the oldest call of the lowest lane makes room.
+   *
+   * @param message the [[org.talares.api.actors.messages.ExecutorMessages]] message describing the call
+   * @param priority the [[org.talares.api.Priority]] of the call
+   */
+  def execute(message: Any, priority: Priority): Unit =
+    if (inFlight < laneLimit(priority) && waiting(priority.lane).isEmpty) {
+      inFlight += 1
+      executor ! message
+    } else if (capacity == 0 || queued < capacity) enqueue(message, priority)
+    else if (Settings.overloadPolicy == OverloadPolicy.DropOldest && dropOldest(priority)) enqueue(message, priority)
+    else reject(message)
+
+  private def enqueue(message: Any, priority: Priority): Unit = {
+    waiting(priority.lane).enqueue(message)
+    queued += 1
+  }
+
+  /**
+   * Rejects the call waiting longest in the lowest lane holding any, provided that lane is not above the given
+   * priority.
+   *
+   * @param arriving the [[org.talares.api.Priority]] of the call to make room for
+   * @return true if a call was rejected
+   */
+  private def dropOldest(arriving: Priority): Boolean =
+    Priority.lanes.reverse find (priority => priority.lane >= arriving.lane && waiting(priority.lane).nonEmpty) match {
+      case Some(priority) =>
+        queued -= 1
+        reject(waiting(priority.lane).dequeue())
+        true
+      case None => false
+    }
+
+  /**
+   * Fails the task of a webservice call which is shed rather than made.
+   *
+   * @param message the [[org.talares.api.actors.messages.ExecutorMessages]] message describing the call
+   */
+  private def reject(message: Any): Unit = message match {
+    case ExecutorMessages.Execute(task, url) =>
+      parent ! Failure(task, new RequestRejectedException(url, s"the $endpoint fetcher is at capacity"))
+    case ExecutorMessages.Revalidate(task, url, _) =>
+      parent ! Failure(task, new RequestRejectedException(url, s"the $endpoint fetcher is at capacity"))
+  }
+
+  /**
+   * Registers the completion of a webservice call and admits the waiting calls there is now room for.
+   */
+  private def completed(): Unit = {
+    inFlight -= 1
+    admit()
+  }
+
+  /**
+   * Passes waiting calls to the [[Executor]], highest lane first, for as long as their lane has room. Waiting calls for
+   * tasks whose client no longer waits are dropped on the way.
+   */
+  private def admit(): Unit =
+    Priority.lanes find (priority => waiting(priority.lane).nonEmpty && inFlight < laneLimit(priority)) foreach {
+      priority =>
+        queued -= 1
+        waiting(priority.lane).dequeue() match {
+          case ExecutorMessages.Execute(task, url) if task.abandoned =>
+            parent ! Failure(task, new DeadlineExceededException(url))
+          case message =>
+            inFlight += 1
+            executor ! message
+        }
+        admit()
+    }
+
+  /**
+   * Creates the [[org.talares.api.actors.messages.ExecutorMessages.Execute]] for a
+   * [[org.talares.api.actors.messages.FetcherMessages.Task]], depending on the type of task.
+   *
+   * @param task the task to create an [[org.talares.api.actors.messages.ExecutorMessages.Execute]] for
+   * @return an [[org.talares.api.actors.messages.ExecutorMessages.Execute]]
+   */
+  def createTask(task: Task[T]): ExecutorMessages.Execute[T] = task match {
       case FetchByID(client, webserviceLocation, ids@_*) =>
         createIDTask(task, webserviceLocation, ids: _*)
       case FetchBySearch(client, webserviceLocation, searchParams) =>
         createSearchTask(task, webserviceLocation, searchParams)
       case FetchByURI(client, uri) =>
         createURLTask(task, uri)
-      case FetchByQuery(client, webserviceLocation, query) =>
+      case FetchByQuery(client, webserviceLocation, query, _) =>
         createQueryTask(task, webserviceLocation, query)
-    }
-    executor ! message
   }
 
+  /**
+   * Handles messages of the type [[org.talares.api.actors.messages.FetcherMessages.Refresh]].
+   *
+   * Like a regular task, but in the background lane, and the [[Executor]] is handed the hash of the response the
+   * cached item was parsed from, so an identical response does not need to be parsed again.
+   *
+   * @param refresh the refresh to handle
+   */
+  def handleRefresh(refresh: Refresh[T]): Unit =
+    execute(ExecutorMessages.Revalidate(refresh.task, createTask(refresh.task).url, refresh.contentHash),
+      Priority.Background)
+
   /**
    * Handles messages of the type [[org.talares.api.actors.messages.ExecutorMessages.Result]].
    *
    * This function handles four different situations, all of which result in a
    * [[org.talares.api.actors.messages.FetcherMessages.Result]] sent to the parent.
    *
-   * 1. The result contains a JsArray; it is parsed as a Seq of 'T'
-   * 2. The result contains a JsObject; it is parsed as a 'T'
-   * 3. The result contains an unknown element; a UnexpectedResultException is propagated
-   * 4. The result contains an Throwable; the Throwable is propagated
+   * 1. The result contains a Seq of 'T'; it is propagated as a MultiResult
+   * 2. The result contains a 'T'; it is propagated as a SingleResult
+   * 3. The result contains a Throwable; the Throwable is propagated
+   * 4. The result reports an unchanged response; this is propagated as is
+   *
+   * The items are read from the response by the [[Executor]] already, see
+   * [[org.talares.api.datatypes.StreamReads]]. The result of a refresh is handled the same way. The result of a task
+   * whose client no longer waits is dropped; a [[org.talares.api.exceptions.DeadlineExceededException]] is propagated
+   * instead.
    *
    * @param result the [[org.talares.api.actors.messages.ExecutorMessages.Result]] to handle
    * @see [[Executor]]
-   * @see play.api.libs.json.JsValue
-   * @see play.api.libs.json.JsArray
-   * @see play.api.libs.json.JsObject
    */
   def handleExecutorResult(result: ExecutorMessages.Result[T]): Unit = {
+    completed()
     val message = result match {
-      case ExecutorMessages.Success(fetchTask, json: JsArray) => MultiResult(fetchTask, json.as[Seq[T]])
-      case ExecutorMessages.Success(fetcherTask, json: JsObject) => SingleResult(fetcherTask, json.as[T])
-      case ExecutorMessages.Success(fetcherTask, unknown) =>
-        val exception = new UnexpectedResultException(endpoint, Seq(classOf[JsObject], classOf[JsArray]), unknown)
-        Failure(fetcherTask, exception)
+      case ExecutorMessages.Success(fetcherTask, _) if fetcherTask.abandoned =>
+        Failure(fetcherTask, new DeadlineExceededException(endpoint))
+      case ExecutorMessages.Success(fetcherTask, items) => toResult(fetcherTask, items)
       case ExecutorMessages.Failure(fetcherTask, throwable) => Failure(fetcherTask, throwable)
+      case ExecutorMessages.Refreshed(fetcherTask, items, contentHash) => Refreshed(fetcherTask, items, contentHash)
+      case ExecutorMessages.Unchanged(fetcherTask, contentHash) => Unchanged(fetcherTask, contentHash)
     }
     parent ! message
   }
 
+  /**
+   * Wraps the items read from a webservice response in a [[org.talares.api.actors.messages.FetcherMessages.Result]].
+   *
+   * @param fetcherTask the task the items were fetched for
+   * @param items a 'T' or a Seq of 'T'
+   * @return a [[org.talares.api.actors.messages.FetcherMessages.MultiResult]] for a Seq of 'T', a
+   *         [[org.talares.api.actors.messages.FetcherMessages.SingleResult]] otherwise
+   */
+  def toResult(fetcherTask: Task[T], items: Any): Result[T] = items match {
+    case items: Seq[_] => MultiResult(fetcherTask, items.asInstanceOf[Seq[T]])
+    case item => SingleResult(fetcherTask, item)
+  }
+
   def receive: Receive = LoggingReceive {
     case task: Task[T] => handleTask(task)
+    case refresh: Refresh[T] => handleRefresh(refresh)
     case result: ExecutorMessages.Result[T] => handleExecutorResult(result)
   }
-}
\ No newline at end of file
+}
+
+object Fetcher {
+
+  /** The id of the dispatcher fetchers, and the parsing of webservice responses, run on **/
+  val Dispatcher = "talares.parse-dispatcher"
+
+  /**
+   * The endpoint from which the Json representations of the given type can be found within the webservice.
+   *
+   * @param classTag the class tag of the type
+   * @return the plural of the runtime class name of the type
+   */
+  def endpoint(classTag: ClassTag[_]): String = {
+    val name = classTag.runtimeClass.getSimpleName
+    if (name.endsWith("y")) name.substring(0, name.length - 1) + "ies"
+    else name.substring(0, name.length) + "s"
+  }
+
+  /**
+   * Creates a [[org.talares.api.queries.Query]] consisting of the given endpoint and the ID's given.
+   *
+   * @param endpoint the endpoint to query
+   * @param IDs the ID's to include in the query
+   * @return an instance of [[org.talares.api.queries.Query]]
+   */
+  def idQuery(endpoint: String, IDs: Seq[(String, Any)]): Query = {
+    val formattedIds: Seq[(String, String)] = IDs.foldLeft(Seq[(String, String)]()) {
+      case (acc, id) => acc :+(id._1, id._2.toString)
+    }
+    Query / endpoint % (formattedIds: _*)
+  }
+
+  /**
+   * Creates a [[org.talares.api.queries.Query]] consisting of the given endpoint as well as a specific filter composed
+   * of the given search parameters.
+   *
+   * @param endpoint the endpoint to query
+   * @param searchParams a arbitrary number of key/value pairs to be 'and'ed into a filter
+   * @return an instance of [[org.talares.api.queries.Query]]
+   */
+  def searchQuery(endpoint: String, searchParams: Seq[(String, Any)]): Query = {
+    val formattedParams = searchParams.foldLeft(Seq[QueryOption]()) {
+      case (acc, param) => acc :+ Filter(Operation(param._1, Operator.Eq, param._2))
+    }
+    Query / endpoint $ (formattedParams: _*)
+  }
+
+  /**
+   * The complete URL, excluding the json format parameter, at which the Json representation of the outcome of the
+   * given [[org.talares.api.actors.messages.FetcherMessages.Task]] can be found.
+   *
+   * @param task the task to compose the URL for
+   * @return a complete URL in String form
+   */
+  def url(task: Task[_]): String = task match {
+    case FetchByID(_, webserviceLocation, ids@_*) =>
+      webserviceLocation + idQuery(endpoint(task.classTag), ids).value
+    case FetchBySearch(_, webserviceLocation, searchParams@_*) =>
+      webserviceLocation + searchQuery(endpoint(task.classTag), searchParams).value
+    case FetchByURI(_, uri) => uri
+    case FetchByQuery(_, webserviceLocation, query, _) => webserviceLocation + query.value
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.util.concurrent.{ConcurrentHashMap, ConcurrentLinkedQueue}
+import java.util.concurrent.atomic.AtomicInteger
+
+import akka.actor.{ActorRef, ActorSystem}
+import akka.dispatch.{Envelope, MailboxType, MessageQueue, ProducesMessageQueue, UnboundedMessageQueueSemantics}
+import com.typesafe.config.Config
+import org.talares.api.{OverloadPolicy, Priority, Settings}
+import org.talares.api.actors.messages.{ExecutorMessages, FetcherMessages, MediatorMessages}
+import org.talares.api.cache.actors.messages.CachingActorMessages
+import org.talares.api.exceptions.RequestRejectedException
+
+import scala.collection.JavaConverters._
+
+/**
+ * A mailbox holding a queue per [[org.talares.api.Priority]] lane. Messages are taken from the highest lane holding
+ * any, and in the order they arrived within a lane, so interactive requests overtake bulk work waiting in the same
+ * mailbox. The lane of a message is decided by [[LaneMailbox.priority]].
+ *
+ * The number of [[org.talares.api.actors.messages.MediatorMessages.Submit]]'s waiting is bounded by the mediator
+ * capacity of the [[org.talares.api.Talares]] instance the owner of the mailbox belongs to. A request arriving at a
+ * full mailbox is shed according to the [[org.talares.api.OverloadPolicy]] of that instance, see
+ * [[LaneMailbox.LaneQueue]]. Other messages are never shed, as they concern requests already admitted. An instance
+ * makes it's settings known by [[LaneMailbox.register]], the mailbox of an actor outside any registered instance falls
+ * back to the configuration of the actor system.
+ *
+ * Used by the [[Mediator]] and the [[Fetcher]]'s, configured under the id [[LaneMailbox.Id]].
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class LaneMailbox(settings: ActorSystem.Settings, config: Config)
+  extends MailboxType with ProducesMessageQueue[LaneMailbox.LaneQueue] {
+
+  /** The maximum number of requests waiting, 0 for no maximum, unless the owner belongs to a registered instance **/
+  val capacity = settings.config.getInt("talares.overload.mediatorcapacity")
+
+  /** The way requests arriving at a full mailbox are shed, unless the owner belongs to a registered instance **/
+  val policy = OverloadPolicy(settings.config.getString("talares.overload.policy"))
+
+  override def create(owner: Option[ActorRef], system: Option[ActorSystem]): MessageQueue =
+    owner flatMap LaneMailbox.settingsOf match {
+      case Some(instance) => new LaneMailbox.LaneQueue(instance.overloadMediatorCapacity, instance.overloadPolicy)
+      case None => new LaneMailbox.LaneQueue(capacity, policy)
+    }
+}
+
+object LaneMailbox {
+
+  /** The id of the mailbox in the configuration **/
+  val Id = "talares.lane-mailbox"
+
+  /** The [[org.talares.api.Settings]] of the registered instances, by the name of their mediator **/
+  private val registered = new ConcurrentHashMap[String, Settings]()
+
+  /**
+   * Makes the settings of a [[org.talares.api.Talares]] instance known to the mailboxes of it's actors, which all live
+   * below it's mediator. Registered before the mediator is created, as it's mailbox is created along with it.
+   *
+   * @param mediatorName the name of the mediator of the instance
+   * @param settings the [[org.talares.api.Settings]] of the instance
+   */
+  def register(mediatorName: String, settings: Settings): Unit = registered.put(mediatorName, settings)
+
+  /**
+   * Forgets the settings of a terminated instance, see [[register]].
+   *
+   * @param mediatorName the name of the mediator of the instance
+   */
+  def unregister(mediatorName: String): Unit = registered.remove(mediatorName)
+
+  /**
+   * The settings of the instance the given actor belongs to, if that instance registered.
+   *
+   * @param actorRef the owner of a mailbox
+   * @return the [[org.talares.api.Settings]] of the instance, None if the actor is not below a registered mediator
+   */
+  def settingsOf(actorRef: ActorRef): Option[Settings] =
+    actorRef.path.elements collectFirst { case element if registered.containsKey(element) => registered.get(element) }
+
+  /**
+   * The lane a message travels in. Messages concerning a task take the priority of it's client, background refreshes
+   * and their outcome take the background lane. Any other message, such as an invalidation, takes the interactive
+   * lane.
+   *
+   * @param message the message to decide the lane of
+   * @return the [[org.talares.api.Priority]] of the message
+   */
+  def priority(message: Any): Priority = message match {
+    case MediatorMessages.Submit(_, client) => client.priority
+    case task: FetcherMessages.Task[_] => task.priority
+    case _: FetcherMessages.Refresh[_] | _: FetcherMessages.Refreshed[_] | _: FetcherMessages.Unchanged[_] =>
+      Priority.Background
+    case result: FetcherMessages.Result[_] => result.task.priority
+    case _: ExecutorMessages.Refreshed[_] | _: ExecutorMessages.Unchanged[_] => Priority.Background
+    case result: ExecutorMessages.Result[_] => result.fetcherTask.priority
+    case _: CachingActorMessages.Refresh => Priority.Background
+    case CachingActorMessages.Found(task, _) => task.priority
+    case CachingActorMessages.NotFound(task) => task.priority
+    case CachingActorMessages.Load(task, _) => task.priority
+    case _ => Priority.Interactive
+  }
+
+  /**
+   * The queue behind a [[LaneMailbox]]. May be enqueued to from any thread, and is dequeued from by one at a time.
+   *
+   * When the number of requests waiting reaches the capacity, an arriving request is either rejected, or makes room by
+   * rejecting the request waiting longest in the lowest lane, or, under the
+   * [[org.talares.api.OverloadPolicy.ServeStale]] policy, is handed to the owner ahead of all other messages as a
+   * [[org.talares.api.actors.messages.MediatorMessages.Shed]], to be answered without calling the webservice. Shed
+   * requests are bounded by the capacity as well; beyond it they are rejected.
+   *
+   * @param capacity the maximum number of requests waiting, 0 for no maximum
+   * @param policy the way requests arriving at a full queue are shed
+   */
+  class LaneQueue(capacity: Int = 0, policy: OverloadPolicy = OverloadPolicy.RejectNew)
+    extends MessageQueue with UnboundedMessageQueueSemantics {
+
+    private val lanes = Array.fill(Priority.lanes.size)(new ConcurrentLinkedQueue[Envelope]())
+
+    /** Requests shed under the serve-stale policy, taken before the lanes **/
+    private val shed = new ConcurrentLinkedQueue[Envelope]()
+
+    /** The number of requests waiting in the lanes **/
+    private val requests = new AtomicInteger
+
+    /** The number of requests waiting in the shed queue **/
+    private val shedRequests = new AtomicInteger
+
+    override def enqueue(receiver: ActorRef, handle: Envelope): Unit = handle.message match {
+      case submit: MediatorMessages.Submit if capacity > 0 =>
+        if (requests.incrementAndGet() <= capacity) add(handle)
+        else if (policy == OverloadPolicy.DropOldest && dropOldest(priority(submit))) add(handle)
+        else {
+          requests.decrementAndGet()
+          overflow(handle, submit)
+        }
+      case _ => add(handle)
+    }
+
+    private def add(handle: Envelope): Unit = lanes(priority(handle.message).lane).add(handle)
+
+    /**
+     * Rejects the request waiting longest in the lowest lane holding any, provided that lane is not above the given
+     * priority.
+     *
+     * @param arriving the priority of the request to make room for
+     * @return true if a request was rejected, in which case the room it took is handed over
+     */
+    private def dropOldest(arriving: Priority): Boolean =
+      (lanes.length - 1 to arriving.lane by -1).iterator map { lane =>
+        val oldest = lanes(lane).iterator.asScala find (_.message.isInstanceOf[MediatorMessages.Submit])
+        oldest filter (envelope => lanes(lane).remove(envelope))
+      } collectFirst {
+        case Some(envelope) =>
+          reject(envelope.message.asInstanceOf[MediatorMessages.Submit])
+          true
+      } getOrElse false
+
+    /**
+     * Sheds a request arriving at a full queue.
+     *
+     * @param handle the envelope of the request
+     * @param submit the request
+     */
+    private def overflow(handle: Envelope, submit: MediatorMessages.Submit): Unit =
+      if (policy == OverloadPolicy.ServeStale && shedRequests.incrementAndGet() <= capacity)
+        shed.add(handle.copy(message = MediatorMessages.Shed(submit.request, submit.client)))
+      else {
+        if (policy == OverloadPolicy.ServeStale) shedRequests.decrementAndGet()
+        reject(submit)
+      }
+
+    private def reject(submit: MediatorMessages.Submit): Unit =
+      submit.client.fail(new RequestRejectedException(submit.request.toString, "the mediator is at capacity"))
+
+    override def dequeue(): Envelope = {
+      var envelope = shed.poll()
+      if (envelope != null) shedRequests.decrementAndGet()
+      var lane = 0
+      while (envelope == null && lane < lanes.length) {
+        envelope = lanes(lane).poll()
+        lane += 1
+      }
+      if (envelope != null && capacity > 0 && envelope.message.isInstanceOf[MediatorMessages.Submit])
+        requests.decrementAndGet()
+      envelope
+    }
+
+    override def numberOfMessages: Int = lanes.map(_.size).sum + shed.size
+
+    override def hasMessages: Boolean = !shed.isEmpty || lanes.exists(!_.isEmpty)
+
+    override def cleanUp(owner: ActorRef, deadLetters: MessageQueue): Unit = {
+      var envelope = dequeue()
+      while (envelope != null) {
+        deadLetters.enqueue(owner, envelope)
+        envelope = dequeue()
+      }
+    }
+  }
+}
@@ -15,18 +15,24 @@
  */
 package org.talares.api.actors
 
-import akka.actor.{ActorRef, Props, Status}
+import akka.actor.{ActorRef, Props, SupervisorStrategy}
 import akka.event.LoggingReceive
-import org.talares.api.Talares
-import org.talares.api.actors.messages.FetcherMessages
+import akka.routing.ConsistentHashingRouter.ConsistentHashMapping
+import akka.routing.{Broadcast, ConsistentHashingPool}
+import org.talares.api.{Priority, Talares}
+import org.talares.api.actors.messages.{ActorClient, Client, FetcherMessages}
 import org.talares.api.actors.messages.MediatorMessages._
-import org.talares.api.cache.Cache
+import org.talares.api.cache.{Cache, DependencyIndex, ItemKey, PublicationGenerations}
 import org.talares.api.cache.actors.messages.CachingActorMessages
-import org.talares.api.datatypes.JsonReadable
-import org.talares.api.datatypes.items.Item
+import org.talares.api.datatypes.{JsonReadable, StreamReads}
+import org.talares.api.datatypes.items.{Item, Page}
+import org.talares.api.exceptions.{DeadlineExceededException, RequestRejectedException}
+import org.talares.api.mirror.Mirror
 
 import scala.collection.mutable
+import scala.concurrent.{Future, Promise}
 import scala.reflect.ClassTag
+import scala.util.Success
 
 /**
  * Functions as a conduit between the public API and the other actors needed to turn a
@@ -37,6 +43,11 @@ import scala.reflect.ClassTag
  * [[org.talares.api.actors.messages.MediatorMessages.Request]]. Also leverages the chosen
  * [[org.talares.api.cache.actors.CachingActor]].
  *
+ * The mediator may be split into shards, see [[Mediator.sharded]], each with it's own caching actor and fetchers.
+ * The mediator and it's fetchers use a [[LaneMailbox]], taking messages concerning requests by their
+ * [[org.talares.api.Priority]]. The mailbox bounds the number of requests waiting, shedding requests according to the
+ * configured [[org.talares.api.OverloadPolicy]].
+ *
  * @author Dennis Vis
  * @since 0.1.0
  */
@@ -47,6 +58,33 @@ class Mediator(val app: Talares, cache: Cache) extends BaseActor {
   /** Cache which prevents duplicate creation of [[org.talares.api.actors.Fetcher]]'s of a specific type **/
   val fetcherCache = mutable.Map[String, ActorRef]()
 
+  /** Loads requested by a [[org.talares.api.cache.LoadingCache]] which are in progress, by cache key **/
+  val pendingLoads = mutable.Map[Any, CachingActorMessages.Load]()
+
+  /**
+   * Background refreshes requested by the [[org.talares.api.cache.actors.CachingActor]] which are in progress, with
+   * the moment each was issued
+   */
+  val pendingRefreshes = mutable.Map[FetcherMessages.Task[_], Long]()
+
+  /**
+   * The number of tasks passed to the fetchers whose result has not arrived yet: loads, background refreshes and the
+   * fetches of requests, whether their client still waits or not.
+   */
+  var fetching = 0
+
+  /** The flushes of the caching actor awaiting the tasks in progress, see [[handleFlush]] **/
+  var awaitingFlush = List.empty[Promise[Unit]]
+
+  /** Dependencies between the items which passed through this mediator, used for invalidation **/
+  val dependencies = new DependencyIndex(Settings.trackedEntries)
+
+  /** The [[org.talares.api.mirror.Mirror]] to serve requests from, if any **/
+  var mirror: Option[Mirror] = None
+
+  /** The dispatcher mirror lookups run on, as they read the snapshot from disk **/
+  lazy val ioExecutionContext = system.dispatchers.lookup(Executor.Dispatcher)
+
   /**
    * Either creates a [[org.talares.api.actors.Fetcher]] of the correct type or fetches it from the fetcherCache if one
    * is already present.
@@ -56,49 +94,122 @@ class Mediator(val app: Talares, cache: Cache) extends BaseActor {
    * @tparam T the specific item type for which to create a [[org.talares.api.actors.Fetcher]]
    * @return a [[org.talares.api.actors.Fetcher]] of the given type
    */
-  def fetcher[T](implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]): ActorRef = {
+  def fetcher[T](implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]): ActorRef =
+    fetcher[T](s"${classTag.runtimeClass.getSimpleName.toLowerCase}-fetcher")
+
+  /**
+   * Either creates a [[org.talares.api.actors.Fetcher]] of the correct type for the given [[Route]] or fetches it from
+   * the fetcherCache if one is already present. The default route is served by the fetchers created by fetcher(), the
+   * others each get fetchers of their own, so their in-flight limits are not shared.
+   *
+   * @param route the [[Route]] the fetcher serves
+   * @param jsonReadable implicit proof that the specified type can be read from a Json representation.
+   * @param classTag the class tag of the specified type injected by the compiler, used for naming the fetcher
+   * @tparam T the specific item type for which to create a [[org.talares.api.actors.Fetcher]]
+   * @return a [[org.talares.api.actors.Fetcher]] of the given type for the given route
+   */
+  def fetcher[T](route: Route)(implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]): ActorRef =
+    if (route eq app.routes.default) fetcher[T]
+    else fetcher[T](s"${classTag.runtimeClass.getSimpleName.toLowerCase}-${route.name}-fetcher")
 
-    val fetcherName = s"${classTag.runtimeClass.getSimpleName.toLowerCase}-fetcher"
+  private def fetcher[T](fetcherName: String)
+                        (implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]): ActorRef = {
 
     fetcherCache.get(fetcherName).fold {
 
-      val newFetcher = context.actorOf(Props(new Fetcher[T](app)), fetcherName)
+      val props = Props(new Fetcher[T](app)).withDispatcher(Fetcher.Dispatcher).withMailbox(LaneMailbox.Id)
+      val newFetcher = context.actorOf(props, fetcherName)
       fetcherCache.put(fetcherName, newFetcher)
       newFetcher
 
     }(aFetcher => aFetcher)
   }
 
+  /**
+   * Passes the given [[org.talares.api.actors.messages.FetcherMessages.Task]] to the
+   * [[org.talares.api.actors.Fetcher]] of the corresponding type.
+   *
+   * A task shed under the serve-stale policy is not fetched, but fails with a
+   * [[org.talares.api.exceptions.RequestRejectedException]] instead, see [[Mediator.CacheOnlyClient]].
+   *
+   * @param task the [[org.talares.api.actors.messages.FetcherMessages.Task]] to fetch
+   * @tparam T the specific item type the task fetches
+   */
+  def fetch[T](task: FetcherMessages.Task[T]): Unit = task.client match {
+    case _: Mediator.CacheOnlyClient =>
+      handleResult(FetcherMessages.Failure(task, new RequestRejectedException(task.location,
+        "the mediator is at capacity and neither the mirror nor the cache holds the item")))
+    case _ =>
+      fetching += 1
+      fetcherFor(task) ! task
+  }
+
+  /**
+   * The [[org.talares.api.actors.Fetcher]] of the type of the given task, serving the [[Route]] the task is fetched
+   * from. Without configured routes, that is always the default route.
+   *
+   * @param task the [[org.talares.api.actors.messages.FetcherMessages.Task]] to find the fetcher of
+   * @tparam T the specific item type the task fetches
+   * @return the [[org.talares.api.actors.Fetcher]] to pass the task to
+   */
+  def fetcherFor[T](task: FetcherMessages.Task[T]): ActorRef =
+    if (Settings.routes.isEmpty) fetcher[T](task.jsonReadable, task.classTag)
+    else fetcher[T](app.routes(task.location))(task.jsonReadable, task.classTag)
+
+  /**
+   * Refreshes the item fetched by the given [[org.talares.api.actors.messages.FetcherMessages.Task]] in the
+   * background. The outcome is stored in the cache, but not sent to the client of the task.
+   *
+   * The refresh travels in the background lane of this mediator and the fetchers, so it only uses call capacity client
+   * requests leave spare. Once a fetcher passes the call on, it shares the executors and connections with those.
+   *
+   * @param task the [[org.talares.api.actors.messages.FetcherMessages.Task]] to refresh
+   * @param contentHash the hash of the response the cached item was parsed from, if known
+   * @tparam T the specific item type the task fetches
+   */
+  def refresh[T](task: FetcherMessages.Task[T], contentHash: Option[Long]): Unit =
+    if (!pendingRefreshes.contains(task)) {
+      pendingRefreshes.put(task, PublicationGenerations.now)
+      fetching += 1
+      fetcherFor(task) ! FetcherMessages.Refresh(task, contentHash)
+    }
+
   /**
    * Takes a [[org.talares.api.actors.messages.MediatorMessages.Request]] and morphs it into the correct
-   * [[org.talares.api.actors.messages.FetcherMessages.Task]].
+   * [[org.talares.api.actors.messages.FetcherMessages.Task]], fetched from the [[Route]] the request is routed to.
    * Then sends a [[org.talares.api.cache.actors.messages.CachingActorMessages.RetrieveFromCache]] to a
    * [[org.talares.api.cache.actors.CachingActor]] holding  a reference to the created message.
    *
    * @param request a [[org.talares.api.actors.messages.MediatorMessages.Request]] holding the information needed to
    *                create a proper [[org.talares.api.actors.messages.FetcherMessages.Task]]
+   * @param client the [[org.talares.api.actors.messages.Client]] to deliver the outcome to
    */
-  def handleRequest[T <: Item](request: Request[T]): Unit = {
+  def handleRequest[T <: Item](request: Request[T], client: Client): Unit = {
 
-    implicit val jsonReadable = request.jsonReadable
-    implicit val classTag = request.classTag
+    val message = Mediator.task(app, request, client)
 
-    val client = sender()
-
-    val message = request match {
-      case request: URIRequest[T] =>
-        FetcherMessages.FetchByURI(client, request.uri)
-      case request: IDRequest[T] =>
-        FetcherMessages.FetchByID(client, request.webserviceLocation, request.IDs: _*)
-      case request: SearchRequest[T] =>
-        FetcherMessages.FetchBySearch(client, request.webserviceLocation, request.searchParams: _*)
-      case request: QueryRequest[T] =>
-        FetcherMessages.FetchByQuery(client, request.webserviceLocation, request.query)
+    if (!message.cacheable) fetch(message)
+    else mirrorLookup(request) match {
+      case Some(lookup) =>
+        Future(lookup())(ioExecutionContext) onComplete {
+          case Success(Some(value)) => client.respond(value)
+          case _ => cachingActor ! CachingActorMessages.RetrieveFromCache(message)
+        }
+      case None => cachingActor ! CachingActorMessages.RetrieveFromCache(message)
     }
-
-    cachingActor ! CachingActorMessages.RetrieveFromCache(message)
   }
 
+  /**
+   * Composes a lookup of the value requested by the given [[org.talares.api.actors.messages.MediatorMessages.Request]]
+   * in the [[org.talares.api.mirror.Mirror]], if one is in use and is able to answer the request. The lookup reads from
+   * disk, so it should not be run by the actor itself.
+   *
+   * @param request the [[org.talares.api.actors.messages.MediatorMessages.Request]] to look up
+   * @return Some lookup yielding Some value if the mirror holds it, None if the mirror cannot answer the request
+   */
+  def mirrorLookup[T <: Item](request: Request[T]): Option[() => Option[Any]] =
+    mirror flatMap (Mediator.mirrorLookup(_, request))
+
   /**
    * Takes a [[org.talares.api.actors.messages.FetcherMessages.Result]] and sends a
    * [[org.talares.api.actors.messages.MediatorMessages.Response]] back to the client.
@@ -110,28 +221,292 @@ class Mediator(val app: Talares, cache: Cache) extends BaseActor {
 
     val client = result.task.client
 
-    result match {
-      case FetcherMessages.Success(request, value) =>
-        client ! Response(value)
-        cachingActor ! CachingActorMessages.StoreInCache(request, value)
-      case FetcherMessages.Failure(request, throwable) =>
-        client ! Status.Failure(throwable)
-        if (Settings.cacheOnFailure) cachingActor ! CachingActorMessages.StoreInCache(request, throwable)
+    pendingRefreshes.remove(result.task) match {
+      case Some(issued) => result match {
+        case FetcherMessages.Refreshed(request, value, contentHash) =>
+          record(request.cacheKey, value)
+          cachingActor ! CachingActorMessages.StoreRefreshed(request, value, contentHash, issued)
+        case FetcherMessages.Unchanged(request, _) =>
+          cachingActor ! CachingActorMessages.Renew(request)
+        case FetcherMessages.Failure(request, throwable) =>
+          log.warning(s"Background refresh of ${request.cacheKey} failed: $throwable")
+          cachingActor ! CachingActorMessages.RefreshFailed(request)
+        case _ =>
+      }
+      case None => pendingLoads.get(result.task.cacheKey) match {
+        case Some(load) if load.fetcherTask eq result.task =>
+          pendingLoads.remove(result.task.cacheKey)
+          completeLoad(load.promise, result)
+        case _ => result match {
+          case FetcherMessages.Success(request, value) =>
+            client.respond(value)
+            if (request.cacheable) {
+              record(request.cacheKey, value)
+              cachingActor ! CachingActorMessages.StoreInCache(request, value)
+            }
+          case FetcherMessages.Failure(request, throwable) =>
+            client.fail(throwable)
+            if (request.cacheable && cacheFailure(throwable))
+              cachingActor ! CachingActorMessages.StoreInCache(request, throwable)
+        }
+      }
+    }
+  }
+
+  /**
+   * Handles a [[org.talares.api.cache.actors.messages.CachingActorMessages.Load]] by fetching the requested item,
+   * unless a load for the same cache key is already in progress, in which case the outcome of that load is shared. The
+   * client of the load then joins the task in progress, so the fetch is only dropped once none of it's clients waits.
+   *
+   * @param load the [[org.talares.api.cache.actors.messages.CachingActorMessages.Load]] to handle
+   */
+  def handleLoad(load: CachingActorMessages.Load): Unit = {
+
+    val request = load.fetcherTask
+
+    pendingLoads.get(request.cacheKey) match {
+      case Some(pending) =>
+        pending.fetcherTask.join(request.client)
+        load.promise.completeWith(pending.promise.future)
+      case None =>
+        pendingLoads.put(request.cacheKey, load)
+        fetch(request)
     }
   }
 
+  /**
+   * Completes the promise of a load with the outcome of a [[org.talares.api.actors.messages.FetcherMessages.Result]].
+   *
+   * The client is not replied to directly; it receives the loaded value by way of the
+   * [[org.talares.api.cache.actors.CachingActor]].
+   *
+   * @param promise the promise of the load
+   * @param result the outcome of the fetch
+   */
+  def completeLoad(promise: Promise[Any], result: FetcherMessages.Result[_]): Unit = result match {
+    case FetcherMessages.Success(request, value) =>
+      record(request.cacheKey, value)
+      promise.success(value)
+    case FetcherMessages.Failure(_, throwable) =>
+      if (cacheFailure(throwable)) promise.success(throwable)
+      else promise.failure(throwable)
+  }
+
+  /**
+   * Whether the given failure of a fetch should be cached. Failures are only cached when configured to, and never when
+   * the webservice was not called, as with a request which passed it's deadline or was shed.
+   *
+   * @param throwable the failure of the fetch
+   * @return true if the failure should be cached
+   */
+  def cacheFailure(throwable: Throwable): Boolean = Settings.cacheOnFailure && (throwable match {
+    case _: DeadlineExceededException | _: RequestRejectedException => false
+    case _ => true
+  })
+
+  /**
+   * Has the [[org.talares.api.cache.actors.CachingActor]] flush once the tasks passed to the fetchers have completed,
+   * as part of [[org.talares.api.Talares.drain]]. The outcome of a task is stored after it's client may have been
+   * answered, or may have stopped waiting, so awaiting the clients alone would flush before those writes are issued.
+   *
+   * @param flushed the promise to complete once the writes have completed and the cache has been flushed
+   */
+  def handleFlush(flushed: Promise[Unit]): Unit =
+    if (fetching == 0) cachingActor ! CachingActorMessages.Flush(flushed)
+    else awaitingFlush ::= flushed
+
+  /**
+   * Takes the [[org.talares.api.actors.messages.FetcherMessages.Result]] of a task passed to a fetcher, passing the
+   * flushes awaiting the tasks in progress on once it was the last.
+   *
+   * @param result the outcome of the task
+   */
+  def handleFetched(result: FetcherMessages.Result[_]): Unit = {
+    fetching -= 1
+    handleResult(result)
+    if (fetching == 0 && awaitingFlush.nonEmpty) {
+      awaitingFlush foreach (cachingActor ! CachingActorMessages.Flush(_))
+      awaitingFlush = Nil
+    }
+  }
+
+  /**
+   * Evicts the item identified by the given [[org.talares.api.cache.ItemKey]] from the cache, together with every
+   * cached entry depending on it, directly or transitively.
+   *
+   * @param invalidate the [[org.talares.api.actors.messages.MediatorMessages.Invalidate]] to handle
+   */
+  def handleInvalidate(invalidate: Invalidate): Unit = evict(dependencies.remove(invalidate.itemKey))
+
+  /**
+   * Evicts the cached entries depending on the given nodes of the dependency index, which were evicted by another
+   * shard.
+   *
+   * @param invalidate the [[org.talares.api.actors.messages.MediatorMessages.InvalidateNodes]] to handle
+   */
+  def handleInvalidateNodes(invalidate: InvalidateNodes): Unit =
+    evict((invalidate.nodes flatMap dependencies.remove).distinct)
+
+  /**
+   * Records the dependencies of a value in the dependency index. The entries the index drops to stay within it's
+   * bounds are evicted from the cache, as their invalidation could no longer be traced. Nothing depends on them being
+   * evicted, so other shards are not told.
+   *
+   * @param cacheKey the cache key the value is stored under
+   * @param value the value
+   */
+  private def record(cacheKey: Any, value: Any): Unit = {
+    val dropped = dependencies.record(cacheKey, value)
+    if (dropped.nonEmpty) cachingActor ! CachingActorMessages.Invalidate(dropped)
+  }
+
+  /**
+   * Evicts the given cache keys from the cache. When sharded, the evicted keys are passed on to all shards, as entries
+   * held by other shards may depend on them.
+   *
+   * @param cacheKeys the cache keys to evict
+   */
+  private def evict(cacheKeys: Seq[Any]): Unit = if (cacheKeys.nonEmpty) {
+    cachingActor ! CachingActorMessages.Invalidate(cacheKeys)
+    if (Settings.mediatorShards > 1) context.parent ! Broadcast(InvalidateNodes(cacheKeys))
+  }
+
   override def receive: Receive = LoggingReceive {
-    case request: Request[_] => handleRequest(request)
-    case result: FetcherMessages.Result[_] => handleResult(result)
+    case Submit(request, client) => handleRequest(request, client)
+    case Shed(request, client) => handleRequest(request, Mediator.CacheOnlyClient(client))
+    case request: Request[_] =>
+      handleRequest(request, ActorClient(sender(), System.nanoTime + Settings.timeout * 1000000L))
+    case result: FetcherMessages.Result[_] => handleFetched(result)
+    case load: CachingActorMessages.Load => handleLoad(load)
+    case invalidate: Invalidate => handleInvalidate(invalidate)
+    case invalidate: InvalidateNodes => handleInvalidateNodes(invalidate)
+    case CachingActorMessages.Refresh(request, contentHash) => refresh(request, contentHash)
+    case UseMirror(aMirror) => mirror = Some(aMirror)
+    case Flush(flushes) => Option(flushes.poll()) foreach handleFlush
     case CachingActorMessages.Found(request, value) => value match {
-      case throwable: Throwable => request.client ! Status.Failure(throwable)
-      case _ => request.client ! Response(value)
+      case throwable: Throwable => request.client.fail(throwable)
+      case _ =>
+        request.client.respond(value)
+        record(request.cacheKey, value)
+    }
+    case CachingActorMessages.NotFound(request: FetcherMessages.Task[_]) if request.abandoned =>
+      log.debug(s"Dropped fetching ${request.cacheKey}, as it's client no longer waits")
+    case CachingActorMessages.NotFound(request: FetcherMessages.Task[_]) => fetch(request)
+  }
+}
+
+object Mediator {
+
+  /**
+   * Wraps the client of a request shed under the serve-stale policy, see [[LaneMailbox]]. The request is answered from
+   * the mirror or the cache as usual, but a task of such a client is never fetched from the webservice.
+   *
+   * @param client the client of the shed request
+   */
+  case class CacheOnlyClient(client: Client) extends Client {
+
+    override def respond(value: Any): Unit = client.respond(value)
+
+    override def fail(throwable: Throwable): Unit = client.fail(throwable)
+
+    override def deadline: Long = client.deadline
+
+    override def waiting: Boolean = client.waiting
+
+    override def priority: Priority = client.priority
+  }
+
+  /**
+   * Assigns requests to a shard by the cache key of the task they are turned into. Requests for the same cache key
+   * thereby always land on the same shard, which keeps the deduplication of loads and refreshes correct.
+   */
+  val shardKey: ConsistentHashMapping = {
+    case Submit(request, _) => request.cacheKey
+    case request: Request[_] => request.cacheKey
+  }
+
+  /**
+   * Creates the Props of a router spreading requests over the given number of mediator shards, using consistent
+   * hashing on [[shardKey]]. Messages addressed to every shard, such as
+   * [[org.talares.api.actors.messages.MediatorMessages.Invalidate]], should be wrapped in a Broadcast.
+   *
+   * A failing shard is restarted on it's own.
+   *
+   * @param props the Props of a single [[Mediator]]
+   * @param shards the number of shards
+   * @return the Props of the router
+   */
+  def sharded(props: Props, shards: Int): Props =
+    ConsistentHashingPool(shards, hashMapping = shardKey, supervisorStrategy = SupervisorStrategy.defaultStrategy)
+      .props(props)
+
+  /**
+   * Takes a [[org.talares.api.actors.messages.MediatorMessages.Request]] and morphs it into the correct
+   * [[org.talares.api.actors.messages.FetcherMessages.Task]], fetched from the [[Route]] the request is routed to.
+   *
+   * @param app the [[org.talares.api.Talares]] instance whose routes to use
+   * @param request a [[org.talares.api.actors.messages.MediatorMessages.Request]] holding the information needed to
+   *                create a proper [[org.talares.api.actors.messages.FetcherMessages.Task]]
+   * @param client the [[org.talares.api.actors.messages.Client]] to deliver the outcome to
+   * @return the [[org.talares.api.actors.messages.FetcherMessages.Task]]
+   */
+  def task[T <: Item](app: Talares, request: Request[T], client: Client): FetcherMessages.Task[T] = {
+
+    implicit val jsonReadable = request.jsonReadable
+    implicit val classTag = request.classTag
+
+    request match {
+      case request: URIRequest[T] =>
+        FetcherMessages.FetchByURI(client, request.uri)
+      case request: IDRequest[T] =>
+        FetcherMessages.FetchByID(client, route(app, request, request.webserviceLocation), request.IDs: _*)
+      case request: SearchRequest[T] =>
+        FetcherMessages.FetchBySearch(client, route(app, request, request.webserviceLocation), request.searchParams: _*)
+      case request: QueryRequest[T] =>
+        FetcherMessages.FetchByQuery(client, route(app, request, request.webserviceLocation), request.query,
+          request.cached)
     }
-    case CachingActorMessages.NotFound(request: FetcherMessages.Task[_]) =>
+  }
+
+  /**
+   * The webservice location a [[org.talares.api.actors.messages.MediatorMessages.Request]] is fetched from. A request
+   * addressed to the configured webservice location is routed to the [[Route]] serving the publication it concerns,
+   * a request addressed elsewhere explicitly is left as is.
+   *
+   * @param app the [[org.talares.api.Talares]] instance whose routes to use
+   * @param request the [[org.talares.api.actors.messages.MediatorMessages.Request]] to route
+   * @param webserviceLocation the webservice location the request is addressed to
+   * @return the webservice location to fetch from
+   */
+  def route(app: Talares, request: Request[_ <: Item], webserviceLocation: String): String =
+    if (app.settings.routes.isEmpty || webserviceLocation != app.settings.webserviceLocation) webserviceLocation
+    else Routes.publicationId(request).fold(webserviceLocation)(app.routes.forPublication(_).location)
+
+  /**
+   * Composes a lookup of the value requested by the given [[org.talares.api.actors.messages.MediatorMessages.Request]]
+   * in the given [[org.talares.api.mirror.Mirror]], if it is able to answer the request. The lookup reads from disk,
+   * so it should not be run by an actor itself.
+   *
+   * @param mirror the [[org.talares.api.mirror.Mirror]] to look up in
+   * @param request the [[org.talares.api.actors.messages.MediatorMessages.Request]] to look up
+   * @return Some lookup yielding Some value if the mirror holds it, None if the mirror cannot answer the request
+   */
+  def mirrorLookup[T <: Item](mirror: Mirror, request: Request[T]): Option[() => Option[Any]] = {
 
-      implicit val jsonReadable = request.jsonReadable
-      implicit val classTag = request.classTag
+    implicit val reads = StreamReads.of(request.jsonReadable)
 
-      fetcher ! request
+    val pageClass = classOf[Page]
+
+    request match {
+      case request: IDRequest[T] =>
+        val itemKey = ItemKey(Fetcher.endpoint(request.classTag), request.IDs: _*)
+        Some(() => mirror.get(itemKey) map (json => StreamReads.parse[T](json)))
+      case request: URIRequest[T] =>
+        val itemKey = ItemKey.fromURI(request.uri)
+        Some(() => mirror.get(itemKey) map (json => StreamReads.parse[T](json)))
+      case SearchRequest(_, ("Url", pageURL)) if request.classTag.runtimeClass == pageClass =>
+        Some(() => mirror.getPage(pageURL.toString) map (json => Seq(StreamReads.parse[T](json))))
+      case _ => None
+    }
   }
-}
\ No newline at end of file
+}
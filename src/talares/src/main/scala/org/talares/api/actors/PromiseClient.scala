@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.util.concurrent.RejectedExecutionException
+
+import org.talares.api.Priority
+import org.talares.api.actors.messages.Client
+import org.talares.api.exceptions.TalaresException
+
+import scala.concurrent.{ExecutionContext, Promise}
+
+/**
+ * A [[org.talares.api.actors.messages.Client]] which completes a promise directly with the outcome of a request,
+ * taking the place of the ask pattern.
+ *
+ * The value responded with is checked and converted by the accept function, so the promise can be handed out as is.
+ * Failures are passed on as [[org.talares.api.exceptions.TalaresException]]'s.
+ *
+ * The promise is completed on the thread delivering the outcome, unless an execution context to deliver on is given.
+ *
+ * @param promise the promise to complete
+ * @param accept converts the values which may complete the promise
+ * @param unexpected creates the failure for a value the accept function is not defined for
+ * @param deadline the System.nanoTime after which the request is failed by the [[TimeoutWheel]]
+ * @param timeoutMillis the timeout in milliseconds, for reporting
+ * @param priority the priority the request is handled with
+ * @param delivery the execution context to complete the promise on, if any
+ * @tparam T the type of value the promise is completed with
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class PromiseClient[T](promise: Promise[T],
+                       accept: PartialFunction[Any, T],
+                       unexpected: Any => Throwable,
+                       deadline: Long,
+                       timeoutMillis: Long,
+                       override val priority: Priority = Priority.Interactive,
+                       delivery: Option[ExecutionContext] = None)
+  extends TimeoutWheel.Expirable(deadline) with Client {
+
+  /**
+   * Completes the promise by way of the given function, on the execution context to deliver on if any. Should that
+   * execution context reject the task, for instance as it is shut down, the promise is completed on the current thread,
+   * so it is never left incomplete.
+   *
+   * @param complete the function completing the promise
+   */
+  private def deliver(complete: => Unit): Unit = delivery match {
+    case Some(executionContext) =>
+      try executionContext.execute(new Runnable {
+        override def run(): Unit = complete
+      }) catch {
+        case _: RejectedExecutionException => complete
+      }
+    case None => complete
+  }
+
+  override def respond(value: Any): Unit = deliver {
+    if (accept.isDefinedAt(value)) promise.trySuccess(accept(value))
+    else promise.tryFailure(unexpected(value))
+  }
+
+  override def fail(throwable: Throwable): Unit = deliver(promise.tryFailure(throwable match {
+    case exception: TalaresException => exception
+    case _ => TalaresException(throwable)
+  }))
+
+  override def isCompleted: Boolean = promise.isCompleted
+
+  override def waiting: Boolean = !promise.isCompleted && super.waiting
+
+  override def expire(): Unit =
+    deliver(promise.tryFailure(new TalaresException(s"No response was received within $timeoutMillis milliseconds")))
+}
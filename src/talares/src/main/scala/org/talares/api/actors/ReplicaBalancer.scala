@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import org.talares.api.exceptions.{CircuitOpenException, DeadlineExceededException}
+
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.Random
+import scala.util.control.NonFatal
+
+/**
+ * Balances calls over the replicas of the webservice and keeps unhealthy replicas out of rotation.
+ *
+ * Every call goes to the better of two replicas picked at random: the one with the fewest calls outstanding or, when
+ * equal, the one with the lowest average latency. This spreads calls by the load they actually cause, without the
+ * herding of always picking the least loaded replica.
+ *
+ * A replica is ejected once, after at least the minimum number of calls, the average share of it's calls failing
+ * exceeds the error rate, or it's average latency exceeds the latency factor times the average latency of the other
+ * replicas. It is re-admitted with a clean record after the eject time. The last replica in rotation is never ejected,
+ * and when every replica not yet tried for a call is ejected, one of those is used regardless.
+ *
+ * Thread safe.
+ *
+ * @param locations the locations of the replicas, up to and including the odata.svc part
+ * @param errorRate the average share of failing calls beyond which a replica is ejected
+ * @param latencyFactor the factor of the average latency of the other replicas beyond which a replica is ejected
+ * @param minimumCalls the number of calls a replica must have handled since it's admission before it may be ejected
+ * @param ejectTime the time in milliseconds a replica stays ejected
+ * @param signalsUnavailable whether a failed call counts against the replica
+ * @param random the source of the random picks
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class ReplicaBalancer(locations: Seq[String],
+                      errorRate: Double,
+                      latencyFactor: Double,
+                      minimumCalls: Int,
+                      ejectTime: Long,
+                      signalsUnavailable: Throwable => Boolean = ReplicaBalancer.signalsUnavailable,
+                      random: Random = new Random) {
+
+  import ReplicaBalancer.{Replica, Smoothing}
+
+  require(locations.nonEmpty, "At least one webservice location is required")
+
+  /** The replicas balanced over, in the order their locations were given **/
+  val replicas: Seq[Replica] = locations.distinct map (new Replica(_))
+
+  /**
+   * The path of a location relative to the replica it addresses, if it addresses any.
+   *
+   * @param location the location to find the path of
+   * @return the part of the location following the location of the replica
+   */
+  def path(location: String): Option[String] =
+    replicas find (replica => location.startsWith(replica.location)) map (_.location.length) map location.substring
+
+  /**
+   * Picks the replica to send a call to.
+   *
+   * @param tried the replicas already tried for the call, which are only picked when there is no other
+   * @return the [[ReplicaBalancer.Replica]] to call
+   */
+  def choose(tried: Set[Replica] = Set()): Replica = synchronized {
+
+    val now = System.nanoTime
+    replicas foreach { replica =>
+      if (replica.ejected && now - replica.ejectedUntil >= 0) replica.readmit()
+    }
+
+    val untried = replicas filterNot tried.contains match {
+      case Seq() => replicas
+      case others => others
+    }
+    val candidates = untried filterNot (_.ejected) match {
+      case Seq() => untried
+      case admitted => admitted
+    }
+
+    candidates match {
+      case Seq(only) => only
+      case _ =>
+        val first = random.nextInt(candidates.size)
+        val second = (first + 1 + random.nextInt(candidates.size - 1)) % candidates.size
+        Seq(candidates(first), candidates(second)) minBy (replica => (replica.outstanding, replica.latency))
+    }
+  }
+
+  /**
+   * Makes a call to the given replica, recording it's outcome.
+   *
+   * @param replica the [[ReplicaBalancer.Replica]] called
+   * @param call makes the call
+   * @tparam A the type of the outcome of the call
+   * @return a future of the outcome of the call
+   */
+  def apply[A](replica: Replica)(call: => Future[A])(implicit executionContext: ExecutionContext): Future[A] = {
+
+    synchronized(replica.outstanding += 1)
+    val start = System.nanoTime
+
+    val result = try call catch {
+      case NonFatal(throwable) => Future.failed(throwable)
+    }
+
+    result andThen {
+      case outcome => record(replica, System.nanoTime - start, outcome.failed.toOption exists signalsUnavailable)
+    }
+  }
+
+  private def record(replica: Replica, latency: Long, failed: Boolean): Unit = synchronized {
+
+    replica.outstanding -= 1
+    replica.calls += 1
+    replica.errors += ((if (failed) 1.0 else 0.0) - replica.errors) * Smoothing
+    if (!failed) {
+      replica.latency =
+        if (replica.latency == 0) latency.toDouble
+        else replica.latency + (latency - replica.latency) * Smoothing
+    }
+
+    if (!replica.ejected && replica.calls >= minimumCalls && unhealthy(replica) && replicas.count(!_.ejected) > 1) {
+      replica.eject(System.nanoTime + ejectTime * 1000000L)
+    }
+  }
+
+  private def unhealthy(replica: Replica): Boolean = replica.errors > errorRate || {
+    val others = replicas filter (other => (other ne replica) && !other.ejected && other.latency > 0)
+    others.nonEmpty && replica.latency > latencyFactor * (others.map(_.latency).sum / others.size)
+  }
+}
+
+object ReplicaBalancer {
+
+  /** The weight of a single call in the average error rate and latency of a replica **/
+  val Smoothing = 0.1
+
+  /**
+   * A replica of the webservice, together with the record used to balance calls and to judge it's health. The record
+   * is guarded by the [[ReplicaBalancer]] holding the replica.
+   *
+   * @param location the location of the replica, up to and including the odata.svc part
+   */
+  class Replica private[ReplicaBalancer](val location: String) {
+
+    private[ReplicaBalancer] var outstanding = 0
+    private[ReplicaBalancer] var calls = 0
+    private[ReplicaBalancer] var errors = 0.0
+    private[ReplicaBalancer] var latency = 0.0
+
+    @volatile private var out = false
+
+    /** The System.nanoTime until which the replica is out of rotation **/
+    private[ReplicaBalancer] var ejectedUntil = 0L
+
+    /** Whether the replica is currently out of rotation **/
+    def ejected: Boolean = out
+
+    private[ReplicaBalancer] def eject(until: Long): Unit = {
+      out = true
+      ejectedUntil = until
+    }
+
+    private[ReplicaBalancer] def readmit(): Unit = {
+      out = false
+      calls = 0
+      errors = 0.0
+      latency = 0.0
+    }
+
+    override def toString: String = location
+  }
+
+  /**
+   * Whether a failed call counts against the replica called, which is the case for any failure signalling the
+   * webservice is unavailable, except an open circuit and an exceeded deadline, which say nothing new about the
+   * replica.
+   *
+   * @param throwable the failure of the call
+   * @return true if the failure counts against the replica
+   */
+  def signalsUnavailable(throwable: Throwable): Boolean = throwable match {
+    case _: CircuitOpenException | _: DeadlineExceededException => false
+    case _ => CircuitBreaker.signalsUnavailable(throwable)
+  }
+
+  /**
+   * Whether a failed call may be retried on another replica, which is the case for any failure signalling the
+   * webservice is unavailable, including an open circuit, but not for an exceeded deadline.
+   *
+   * @param throwable the failure of the call
+   * @return true if the call may be retried
+   */
+  def retriable(throwable: Throwable): Boolean = throwable match {
+    case _: DeadlineExceededException => false
+    case _ => CircuitBreaker.signalsUnavailable(throwable)
+  }
+}
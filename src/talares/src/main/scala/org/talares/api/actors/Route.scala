@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.util.concurrent.ConcurrentHashMap
+
+import com.ning.http.client.{AsyncHttpClient, AsyncHttpClientConfig}
+import dispatch.Http
+import org.talares.api.Settings
+import org.talares.api.actors.messages.MediatorMessages
+import org.talares.api.datatypes.items.Item
+import org.talares.api.queries.{Filter, Operation, Operator, Query}
+
+import scala.concurrent.ExecutionContext
+import scala.util.Try
+
+/**
+ * A webservice deployment requests are routed to, holding it's own connection pool, [[ConcurrencyLimiter]]'s and
+ * [[ReplicaBalancer]], so a deployment which slows down does not hold up requests routed to the others.
+ *
+ * @param name the name of the route
+ * @param publications the ranges of ID's of the publications routed here, both bounds inclusive
+ * @param locations the location of the webservice, or of it's replicas
+ * @param maxConnections the maximum number of connections to the webservice
+ * @param settings the settings of the library, holding the limits of the route
+ * @param timeouts the [[TimeoutWheel]] expiring calls waiting for the [[ConcurrencyLimiter]]
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class Route(val name: String,
+            publications: Seq[(Int, Int)],
+            locations: Seq[String],
+            maxConnections: Int,
+            settings: Settings,
+            timeouts: TimeoutWheel)
+           (implicit executionContext: ExecutionContext) {
+
+  /** The location requests routed here are addressed to **/
+  val location = locations.head
+
+  /** Balances calls over the replicas of the webservice, see [[ReplicaBalancer]] **/
+  lazy val replicas = new ReplicaBalancer(
+    locations,
+    settings.replicaErrorRate,
+    settings.replicaLatencyFactor,
+    settings.replicaMinimumCalls,
+    settings.replicaEjectTime
+  )
+
+  /** The [[ConcurrencyLimiter]]'s of the endpoints called so far, by endpoint **/
+  private val concurrencyLimiters = new ConcurrentHashMap[String, ConcurrencyLimiter]()
+
+  /**
+   * The [[ConcurrencyLimiter]] of the endpoint the given location addresses, see [[CircuitBreaker.circuit]]. Every
+   * endpoint is limited on it's own, as the latencies of endpoints differ too much to be judged against one another.
+   *
+   * @param location the location called
+   * @return the [[ConcurrencyLimiter]] of it's endpoint
+   */
+  def concurrencyLimiter(location: String): ConcurrencyLimiter = {
+
+    val endpoint = CircuitBreaker.circuit(location)._2
+
+    Option(concurrencyLimiters.get(endpoint)) getOrElse {
+      val limiter = new ConcurrencyLimiter(
+        settings.concurrencyLimitInitial,
+        settings.concurrencyLimitMin,
+        settings.concurrencyLimitMax,
+        settings.concurrencyLimitQueueSize,
+        settings.concurrencyLimitMaxWait,
+        settings.concurrencyLimitTolerance,
+        settings.concurrencyLimitWindow,
+        timeouts
+      )
+      Option(concurrencyLimiters.putIfAbsent(endpoint, limiter)) getOrElse limiter
+    }
+  }
+
+  @volatile private var connected = false
+
+  /**
+   * The client calls to the webservice are made with, pooling it's connections. The client is built from scratch
+   * rather than configured from the default client, so it owns it's threads and closing it leaves other clients be.
+   */
+  lazy val http: Http = {
+    val timeout = settings.timeout.toInt
+    connected = true
+    Http(new AsyncHttpClient(new AsyncHttpClientConfig.Builder()
+      .setConnectionTimeoutInMs(timeout)
+      .setIdleConnectionTimeoutInMs(timeout)
+      .setMaximumConnectionsTotal(maxConnections)
+      .build()
+    ))
+  }
+
+  /**
+   * Whether requests concerning the given publication are routed here.
+   *
+   * @param publicationId the ID of the publication
+   * @return true if the publication lies within one of the ranges of the route
+   */
+  def serves(publicationId: Int): Boolean = publications exists {
+    case (from, to) => publicationId >= from && publicationId <= to
+  }
+
+  /**
+   * Closes the connections of the route.
+   */
+  def close(): Unit = if (connected) http.shutdown()
+
+  override def toString: String = name
+}
+
+/**
+ * The [[Route]]'s of the library: the configured routes, and the default route to the configured webservice location,
+ * serving all publications not routed elsewhere.
+ *
+ * @param default the default [[Route]]
+ * @param routes the configured [[Route]]'s
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class Routes(val default: Route, val routes: Seq[Route]) {
+
+  private val all = routes :+ default
+
+  /**
+   * The route requests concerning the given publication are routed to.
+   *
+   * @param publicationId the ID of the publication
+   * @return the first configured [[Route]] serving the publication, the default route if there is none
+   */
+  def forPublication(publicationId: Int): Route = routes find (_.serves(publicationId)) getOrElse default
+
+  /**
+   * The route a location addresses, together with the path of the location relative to the replica addressed.
+   *
+   * @param location the location to resolve
+   * @return the [[Route]] and path, None if the location addresses none of the routes
+   */
+  def resolve(location: String): Option[(Route, String)] =
+    all.view.flatMap(route => route.replicas.path(location) map (route -> _)).headOption
+
+  /**
+   * The route a location addresses.
+   *
+   * @param location the location to resolve
+   * @return the [[Route]] addressed, the default route if the location addresses none
+   */
+  def apply(location: String): Route = resolve(location).fold(default)(_._1)
+
+  /**
+   * Closes the connections of all routes.
+   */
+  def close(): Unit = all foreach (_.close())
+}
+
+object Routes {
+
+  /**
+   * Creates the [[Routes]] configured in the given settings.
+   *
+   * @param settings the settings of the library
+   * @param timeouts the [[TimeoutWheel]] of the library
+   * @return the [[Routes]]
+   */
+  def apply(settings: Settings, timeouts: TimeoutWheel)(implicit executionContext: ExecutionContext): Routes =
+    new Routes(
+      new Route("default", Seq(), settings.webserviceLocations, settings.maxConnections, settings, timeouts),
+      settings.routes map { route =>
+        new Route(route.name, route.publications, route.webserviceLocations, route.maxConnections, settings, timeouts)
+      }
+    )
+
+  /**
+   * The publication a request concerns: the PublicationId it asks for or, for a request for a publication itself, the
+   * Id it asks for. A query concerns the publication it filters on, if any, see queried().
+   *
+   * @param request the [[org.talares.api.actors.messages.MediatorMessages.Request]] to find the publication of
+   * @return the ID of the publication, if the request concerns a single one
+   */
+  def publicationId(request: MediatorMessages.Request[_ <: Item]): Option[Int] = {
+
+    def find(params: Seq[(String, Any)]): Option[Int] = params collectFirst {
+      case ("PublicationId", id) => id
+      case ("Id", id) if Fetcher.endpoint(request.classTag) == "Publications" => id
+    } flatMap (id => Try(id.toString.toInt).toOption)
+
+    request match {
+      case request: MediatorMessages.IDRequest[_] => find(request.IDs)
+      case request: MediatorMessages.SearchRequest[_] => find(request.searchParams)
+      case request: MediatorMessages.QueryRequest[_] => queried(request.query)
+      case _ => None
+    }
+  }
+
+  /**
+   * The publication a query is restricted to: the PublicationId it, or the query it is a child of, asks for, or the
+   * PublicationId a filter requires equality with. Only a filter of a single operation or of operations which are all
+   * required to hold counts, as a filter which OR's it's operations may well match items of other publications.
+   *
+   * @param query the [[org.talares.api.queries.Query]] to find the publication of
+   * @return the ID of the publication, if the query is restricted to a single one
+   */
+  def queried(query: Query): Option[Int] = {
+
+    val asked = query.args collectFirst {
+      case ("PublicationId", id) => id
+    }
+
+    val filtered = query.options.view flatMap {
+      case Filter(andOr, operations) if andOr == Filter.And || operations.size == 1 =>
+        operations collectFirst {
+          case Operation("PublicationId", Operator.Eq, id) => id.toString
+        }
+      case _ => None
+    }
+
+    (asked orElse filtered.headOption).fold(query.parent flatMap queried)(id => Try(id.toInt).toOption)
+  }
+}
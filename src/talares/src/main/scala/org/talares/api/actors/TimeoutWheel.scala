@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantReadWriteLock
+
+import akka.actor.{Cancellable, Scheduler}
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.duration._
+
+/**
+ * Expires pending requests which have not been answered before their deadline, using a single timer for all of them.
+ *
+ * Requests are placed in the bucket of a wheel corresponding to their deadline. A single task, scheduled at a fixed
+ * rate, sweeps the buckets whose time has come, dropping answered requests and expiring the others. Registering a
+ * request thereby costs one queue node, rather than a task on the scheduler per request.
+ *
+ * Thread safe.
+ *
+ * @param scheduler the scheduler driving the wheel
+ * @param tick the time each bucket spans, which is the precision of the expiry
+ * @param size the number of buckets; requests due beyond one revolution simply remain until their bucket comes round
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class TimeoutWheel(scheduler: Scheduler, tick: FiniteDuration = 10.millis, size: Int = 512)
+                  (implicit executionContext: ExecutionContext) {
+
+  private val tickNanos = tick.toNanos
+
+  private val start = System.nanoTime
+
+  private val buckets = Array.fill(size)(new ConcurrentLinkedQueue[TimeoutWheel.Expirable]())
+
+  /** The last tick whose bucket has been or is being swept **/
+  private val swept = new AtomicLong(0L)
+
+  /**
+   * Held shared by registrations while they pick and fill their bucket, and exclusively by the sweep while it moves on
+   * to the next bucket, so a request is never added to a bucket after the sweep of it started.
+   */
+  private val cursor = new ReentrantReadWriteLock()
+
+  private val sweeper: Cancellable = scheduler.schedule(tick, tick)(sweep())
+
+  /**
+   * Registers a pending request, which will be expired if it has not been completed by it's deadline.
+   *
+   * @param expirable the request to register
+   */
+  def register(expirable: TimeoutWheel.Expirable): Unit = {
+    val lock = cursor.readLock
+    lock.lock()
+    try {
+      buckets(bucket(expirable.deadline, swept.get)).add(expirable)
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  /**
+   * Stops the wheel. Requests which are still pending will not be expired.
+   */
+  def stop(): Unit = sweeper.cancel()
+
+  private def ticks(nanos: Long): Long = (nanos - start + tickNanos - 1) / tickNanos
+
+  private def bucket(deadline: Long, after: Long): Int = (math.max(ticks(deadline), after + 1) % size).toInt
+
+  private def sweep(): Unit = {
+
+    val now = System.nanoTime
+    val target = (now - start) / tickNanos
+
+    var current = swept.get
+    while (current < target) {
+      current += 1
+      advance(current)
+      val index = (current % size).toInt
+      val iterator = buckets(index).iterator
+      while (iterator.hasNext) {
+        val expirable = iterator.next()
+        if (expirable.isCompleted) iterator.remove()
+        else if (expirable.deadline <= now) {
+          iterator.remove()
+          expirable.expire()
+        } else if (bucket(expirable.deadline, current) != index) {
+          iterator.remove()
+          buckets(bucket(expirable.deadline, current)).add(expirable)
+        }
+      }
+    }
+  }
+
+  private def advance(tick: Long): Unit = {
+    val lock = cursor.writeLock
+    lock.lock()
+    try swept.set(tick) finally lock.unlock()
+  }
+}
+
+object TimeoutWheel {
+
+  /**
+   * A pending request which can be expired by a [[TimeoutWheel]].
+   *
+   * @param initialDeadline the System.nanoTime by which the request should be completed
+   */
+  abstract class Expirable(initialDeadline: Long) {
+
+    /**
+     * The System.nanoTime by which the request should be completed. It may be postponed, in which case the request is
+     * moved on to the bucket of the new deadline when it's bucket comes round.
+     */
+    def deadline: Long = initialDeadline
+
+    /** Whether the request has been completed, in which case it will not be expired **/
+    def isCompleted: Boolean
+
+    /** Completes the request with a timeout failure **/
+    def expire(): Unit
+  }
+}
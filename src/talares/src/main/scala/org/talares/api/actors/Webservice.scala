@@ -0,0 +1,303 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors
+
+import java.util.concurrent.{ExecutionException, Executor => JavaExecutor}
+
+import akka.event.LoggingAdapter
+import com.fasterxml.jackson.core.{JsonParser, JsonToken}
+import com.ning.http.client.{AsyncHandler, Request}
+import dispatch.{Http, enrichFuture, url}
+import org.talares.api.Talares
+import org.talares.api.datatypes.StreamReads.ObjectStreamReads
+import org.talares.api.datatypes.{JsonReadable, StreamReads}
+import org.talares.api.exceptions._
+import play.api.libs.json._
+
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.util.{Failure, Success, Try}
+
+/**
+ * Calls the webservice on behalf of an engine: by way of the [[Route]] a location addresses, subject to it's
+ * [[ConcurrencyLimiter]], [[ReplicaBalancer]] and [[CircuitBreaker]]'s, and aborting calls once their deadline passes.
+ *
+ * Used by the [[Executor]] of the [[ActorEngine]] as well as by the [[org.talares.api.direct.DirectEngine]].
+ *
+ * @param app the [[org.talares.api.Talares]] instance whose settings, routes and circuit breakers to use
+ * @param log the log to report to
+ * @param executionContext the execution context responses are handled on
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class Webservice(app: Talares, log: LoggingAdapter)(implicit executionContext: ExecutionContext) {
+
+  /** Runs the listeners of the HTTP client on the execution context responses are handled on **/
+  private val listenerExecutor = new JavaExecutor {
+    override def execute(command: Runnable): Unit = executionContext.execute(command)
+  }
+
+  /**
+   * Adds a parameter to the query string which should ensure the webservice will respond in Json format.
+   *
+   * @param url the URL to append the parameter to
+   * @return the mutated URL
+   */
+  def addJsonParam(url: String): String =
+    if (url.contains("?$")) url + "&$format=json"
+    else url + "?$format=json"
+
+  /**
+   * Parses the appropriate parts from a JsValue.
+   *
+   * In practice this means whenever multiple values are detected within a 'result' node, a JsArray is returned
+   * containing said values.
+   * Otherwise the single value from the 'd' node is returned as a single JsValue.
+   *
+   * @param node the JsValue to parse
+   * @return the parsed JsValue
+   */
+  def parseJsonResult(node: JsValue): JsValue = {
+    val d = node \ "d"
+    val results = d \ "results"
+    results match {
+      case results: JsArray => results
+      case _ => d
+    }
+  }
+
+  /**
+   * Parses a raw response body into a JsValue by means of parseJsonResult().
+   *
+   * @param location the URL the response was fetched from, used for reporting
+   * @param content the raw response body
+   * @return the parsed JsValue, or a ServiceErrorException if the body is not valid Json
+   */
+  def readContent(location: String, content: Array[Byte]): Either[Throwable, JsValue] =
+    Try(parseJsonResult(Json.parse(content))) match {
+      case Success(result) => Right(result)
+      case Failure(throwable) => Left(ServiceErrorException(location, throwable))
+    }
+
+  /**
+   * Reads the items from a raw response body in a single pass, by means of the
+   * [[org.talares.api.datatypes.StreamReads]] of their type.
+   *
+   * The response is read the way parseJsonResult() reads it: multiple values within a 'results' node, or a 'd' node
+   * holding an array, are read as a Seq of 'T'. Otherwise the single value of the 'd' node is read as a 'T'. A type
+   * whose reader is not an object reader is read from the JsValue of the response by it's Reads instead.
+   *
+   * @param location the URL the response was fetched from, used for reporting
+   * @param content the raw response body
+   * @param jsonReadable the [[org.talares.api.datatypes.JsonReadable]] of the type to read
+   * @tparam T the type to read
+   * @return a 'T' or a Seq of 'T', a ServiceErrorException if the body could not be read or an
+   *         UnexpectedResultException if it holds neither
+   */
+  def readItems[T](location: String, content: Array[Byte], jsonReadable: JsonReadable[T]): Either[Throwable, Any] =
+    Try(StreamReads.of(jsonReadable) match {
+      case reads: ObjectStreamReads[T] => readEnvelope(location, StreamReads.factory.createParser(content), reads)
+      case _ => readContent(location, content).right flatMap { json =>
+        implicit val reads = jsonReadable.reads
+        json match {
+          case json: JsArray => Right(json.as[Seq[T]])
+          case json: JsObject => Right(json.as[T])
+          case unknown => Left(unexpectedResult(location, unknown))
+        }
+      }
+    }) match {
+      case Success(result) => result
+      case Failure(throwable) => Left(ServiceErrorException(location, throwable))
+    }
+
+  private def readEnvelope[T](location: String,
+                              parser: JsonParser,
+                              reads: ObjectStreamReads[T]): Either[Throwable, Any] =
+    try {
+      var result: Either[Throwable, Any] = Left(unexpectedResult(location, new JsUndefined("'d' is undefined")))
+      if (parser.nextToken() != JsonToken.START_OBJECT) StreamReads.failure("error.expected.jsobject")
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        val name = parser.getCurrentName
+        parser.nextToken()
+        if (name == "d") result = parser.getCurrentToken match {
+          case JsonToken.START_ARRAY => Right(StreamReads.seq(reads).read(parser))
+          case JsonToken.START_OBJECT =>
+            var results: Option[Seq[T]] = None
+            val fields = reads.readFields(parser, {
+              case ("results", _) if parser.getCurrentToken == JsonToken.START_ARRAY =>
+                results = Some(StreamReads.seq(reads).read(parser))
+                true
+              case _ => false
+            })
+            Right(results getOrElse reads.construct(fields))
+          case _ => Left(unexpectedResult(location, StreamReads.JsValueStreamReads.read(parser)))
+        }
+        else parser.skipChildren()
+      }
+      result
+    } finally {
+      parser.close()
+    }
+
+  private def unexpectedResult(location: String, received: JsValue): UnexpectedResultException =
+    new UnexpectedResultException(location, Seq(classOf[JsObject], classOf[JsArray]), received)
+
+  /**
+   * Calls the webservice and returns the raw body of it's response.
+   *
+   * The call is made on the [[Route]] the location addresses, or on the default route if it addresses none. It is
+   * subject to the [[ConcurrencyLimiter]] of it's endpoint on the route and fails with a
+   * [[org.talares.api.exceptions.ServiceOverloadedException]] when it is shed. It is guarded by the [[CircuitBreaker]]
+   * of it's endpoint and fails with a [[org.talares.api.exceptions.CircuitOpenException]] while that is open.
+   *
+   * When a deadline is given, the call is aborted with a [[org.talares.api.exceptions.DeadlineExceededException]]
+   * once it passes, as no client waits for the response any longer. The deadline is read again when it seems to have
+   * passed, so a call whose deadline is postponed meanwhile, as when another client joins it's task, is kept.
+   *
+   * A location addressing a route is called on the replica the [[ReplicaBalancer]] of the route chooses, see
+   * callReplica().
+   *
+   * The body is returned as is. The readers decode it as Json does, detecting UTF-8, UTF-16 or UTF-32 from it's first
+   * bytes, so a charset named by the Content-Type header of the response is not used.
+   *
+   * @param location the complete URL from which the response should be fetched (should include the json format
+   *                 parameter)
+   * @param deadline the System.nanoTime after which the call is aborted, Long.MaxValue if it should not be; read
+   *                 whenever it is checked
+   * @return a Future of the raw response body
+   */
+  def fetchContent(location: String, deadline: => Long = Long.MaxValue): Future[Either[Throwable, Array[Byte]]] =
+    fetch(location, deadline).either map {
+      case Left(overloaded: ServiceOverloadedException) => Left(overloaded)
+      case Left(open: CircuitOpenException) => Left(open)
+      case Left(exceeded: DeadlineExceededException) => Left(exceeded)
+      case Left(error) => Left(ServiceErrorException(location, error))
+      case Right(content) =>
+        if (log.isDebugEnabled) log.debug( s"""
+          |Received response from service:
+          |Location: $location
+          |Body:
+          |${new String(content, "UTF-8")}
+          |""".stripMargin)
+        Right(content)
+    }
+
+  /**
+   * Calls the webservice as fetchContent() does, but fails with the cause of a failure as is, so a caller can tell the
+   * status of an erroneous response, for instance.
+   *
+   * @param location the complete URL from which the response should be fetched (should include the json format
+   *                 parameter)
+   * @param deadline the System.nanoTime after which the call is aborted, Long.MaxValue if it should not be; read
+   *                 whenever it is checked
+   * @return a Future of the raw response body, failed with the cause of the failure if the call fails
+   */
+  def fetch(location: String, deadline: => Long = Long.MaxValue): Future[Array[Byte]] = {
+    val routes = app.routes
+    routes.resolve(location).fold(call(routes.default, location, deadline)) {
+      case (route, path) => callReplica(route, path, deadline, app.settings.retries, Set())
+    }
+  }
+
+  /**
+   * Calls the given path on a replica chosen by the [[ReplicaBalancer]] of the given route. A failure signalling the
+   * replica is unavailable is retried on a replica not tried yet, as long as retries remain and the deadline has not
+   * passed.
+   *
+   * @param route the [[Route]] to call
+   * @param path the path to call, relative to the location of the replica
+   * @param deadline the System.nanoTime after which the call is aborted, Long.MaxValue if it should not be; read
+   *                 whenever it is checked
+   * @param retries the number of retries remaining
+   * @param tried the replicas tried already
+   * @return a Future of the raw response body
+   */
+  def callReplica(route: Route,
+                  path: String,
+                  deadline: => Long,
+                  retries: Int,
+                  tried: Set[ReplicaBalancer.Replica]): Future[Array[Byte]] = {
+
+    val balancer = route.replicas
+    val replica = balancer.choose(tried)
+
+    balancer(replica)(call(route, replica.location + path, deadline)) recoverWith {
+      case throwable if retries > 0 && tried.size + 1 < balancer.replicas.size && System.nanoTime < deadline &&
+        ReplicaBalancer.retriable(throwable) =>
+        log.debug(s"Retrying $path on another replica, as $replica failed: $throwable")
+        callReplica(route, path, deadline, retries - 1, tried + replica)
+    }
+  }
+
+  /**
+   * Calls the given location with the connection pool of the given route, subject to the [[ConcurrencyLimiter]] and the
+   * [[CircuitBreaker]] of it's endpoint.
+   *
+   * @param route the [[Route]] to call
+   * @param location the complete URL to call
+   * @param deadline the System.nanoTime after which the call is aborted, Long.MaxValue if it should not be; read
+   *                 whenever it is checked
+   * @return a Future of the raw response body, failed with the cause of the failure if the call fails
+   */
+  def call(route: Route, location: String, deadline: => Long): Future[Array[Byte]] = {
+
+    val (request, handler) = url(location) OK dispatch.as.Bytes
+
+    val breaker = app.circuitBreakers(location)
+    val limiter = route.concurrencyLimiter(location)
+
+    breaker(location)(limiter(location)(send(route.http, request, handler, location, deadline)))
+  }
+
+  /**
+   * Sends a request to the webservice, registering it with the [[TimeoutWheel]] of the library to be aborted once the
+   * deadline passes.
+   *
+   * @param client the client to send the request with
+   * @param request the request to send
+   * @param handler the handler of the response
+   * @param location the URL requested, used for reporting
+   * @param deadline the System.nanoTime after which the request is aborted, Long.MaxValue if it should not be; read
+   *                 whenever it is checked
+   * @tparam A the type the handler turns the response into
+   * @return a Future of the handled response, failed with the cause of the failure if the request fails
+   */
+  def send[A](client: Http,
+              request: Request,
+              handler: AsyncHandler[A],
+              location: String,
+              deadline: => Long): Future[A] = {
+
+    val pending = client.client.executeRequest(request, handler)
+    val promise = Promise[A]()
+
+    pending.addListener(new Runnable {
+      override def run(): Unit = promise.complete(Try(pending.get()) recoverWith {
+        case exception: ExecutionException if exception.getCause != null => Failure(exception.getCause)
+      })
+    }, listenerExecutor)
+
+    val latestDeadline = () => deadline
+
+    if (deadline != Long.MaxValue) app.timeouts.register(new TimeoutWheel.Expirable(deadline) {
+      override def deadline: Long = latestDeadline()
+      override def isCompleted: Boolean = promise.isCompleted
+      override def expire(): Unit = pending.abort(new DeadlineExceededException(location))
+    })
+
+    promise.future
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.actors.messages
+
+import akka.actor.{ActorRef, Status}
+import org.talares.api.Priority
+
+/**
+ * The party a request is handled for, which receives it's outcome.
+ *
+ * Any ActorRef can act as a client, receiving either a [[MediatorMessages.Response]] or a Status.Failure. The public
+ * API uses a client which completes a promise directly instead, avoiding the temporary actor of the ask pattern.
+ *
+ * Implementations may be called from any thread.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait Client {
+
+  /**
+   * Delivers the value requested.
+   *
+   * @param value the value requested
+   */
+  def respond(value: Any): Unit
+
+  /**
+   * Delivers the failure which kept the request from being handled.
+   *
+   * @param throwable the cause of the failure
+   */
+  def fail(throwable: Throwable): Unit
+
+  /** The System.nanoTime after which the client no longer waits for the outcome, Long.MaxValue if it always waits **/
+  def deadline: Long
+
+  /** Whether the client still waits for the outcome **/
+  def waiting: Boolean = System.nanoTime < deadline
+
+  /** The priority the request is handled with **/
+  def priority: Priority = Priority.Interactive
+}
+
+object Client {
+
+  implicit def apply(actorRef: ActorRef): Client = ActorClient(actorRef)
+}
+
+/**
+ * A [[Client]] which is sent the outcome as a message.
+ *
+ * @param actorRef the actor to send the outcome to
+ * @param deadline the System.nanoTime after which the actor no longer waits for the outcome
+ * @param priority the priority the request is handled with
+ */
+case class ActorClient(actorRef: ActorRef,
+                       deadline: Long = Long.MaxValue,
+                       override val priority: Priority = Priority.Interactive) extends Client {
+
+  override def respond(value: Any): Unit = actorRef ! MediatorMessages.Response(value)
+
+  override def fail(throwable: Throwable): Unit = actorRef ! Status.Failure(throwable)
+}
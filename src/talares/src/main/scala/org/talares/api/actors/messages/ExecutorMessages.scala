@@ -1,7 +1,5 @@
 package org.talares.api.actors.messages
 
-import play.api.libs.json.JsValue
-
 /**
  * Object holding messages in use by [[org.talares.api.actors.Executor]]'s.
  *
@@ -12,17 +10,23 @@ object ExecutorMessages {
 
   case class Execute[T](fetcherTask: FetcherMessages.Task[T], url: String)
 
+  case class Revalidate[T](fetcherTask: FetcherMessages.Task[T], url: String, contentHash: Option[Long])
+
   trait Result[T] {
     val fetcherTask: FetcherMessages.Task[T]
   }
 
-  case class Success[T](fetcherTask: FetcherMessages.Task[T], result: JsValue) extends Result[T]
+  case class Success[T](fetcherTask: FetcherMessages.Task[T], result: Any) extends Result[T]
 
   case class Failure[T](fetcherTask: FetcherMessages.Task[T], throwable: Throwable) extends Result[T]
 
+  case class Refreshed[T](fetcherTask: FetcherMessages.Task[T], result: Any, contentHash: Long) extends Result[T]
+
+  case class Unchanged[T](fetcherTask: FetcherMessages.Task[T], contentHash: Long) extends Result[T]
+
   object Result {
 
-    def apply[T](fetcherTask: FetcherMessages.Task[T], serviceResult: Either[Throwable, JsValue]): Result[T] = {
+    def apply[T](fetcherTask: FetcherMessages.Task[T], serviceResult: Either[Throwable, Any]): Result[T] = {
       serviceResult match {
         case Left(throwable) => Failure(fetcherTask, throwable)
         case Right(result) => Success(fetcherTask, result)
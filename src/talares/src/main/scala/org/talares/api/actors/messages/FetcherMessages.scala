@@ -1,9 +1,13 @@
 package org.talares.api.actors.messages
 
-import akka.actor.ActorRef
+import java.util.concurrent.atomic.AtomicReference
+
+import org.talares.api.Priority
+import org.talares.api.cache.PublicationGenerations
 import org.talares.api.datatypes.JsonReadable
 import org.talares.api.queries.Query
 
+import scala.annotation.tailrec
 import scala.reflect.ClassTag
 
 /**
@@ -16,37 +20,94 @@ object FetcherMessages {
 
   trait Task[T] {
 
-    val client: ActorRef
+    val client: Client
     val cacheKey: Any
 
+    /** The location the task is fetched from, which decides the route it takes. **/
+    def location: String
+
+    /** The clients of tasks for the same item which joined this one, sharing it's outcome. **/
+    private val joined = new AtomicReference[List[Client]](Nil)
+
+    /**
+     * Lets the client of another task for the same item share the outcome of this task, which is then only abandoned
+     * once that client no longer waits either.
+     *
+     * @param other the client joining this task
+     */
+    @tailrec
+    final def join(other: Client): Unit = {
+      val clients = joined.get
+      if (!joined.compareAndSet(clients, other :: clients)) join(other)
+    }
+
+    /** The System.nanoTime after which neither the client nor any client joined waits for the outcome. **/
+    def deadline: Long = (client.deadline /: joined.get)(_ max _.deadline)
+
+    /** Whether no client of this task still waits for the outcome, in which case work on it may be dropped. **/
+    def abandoned: Boolean = !client.waiting && !joined.get.exists(_.waiting)
+
+    /** The priority the task is handled with. **/
+    def priority: Priority = client.priority
+
+    /** Whether the result may be retrieved from and stored in the cache. **/
+    def cacheable: Boolean = true
+
+    /** The moment the task was issued, against which the generations of the result are stamped when it is stored. **/
+    val issued: Long = PublicationGenerations.now
+
     implicit val jsonReadable: JsonReadable[T]
     implicit val classTag: ClassTag[T]
   }
 
-  case class FetchByURI[T](client: ActorRef, uri: String)
+  case class FetchByURI[T](client: Client, uri: String)
                           (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T]) extends Task[T] {
 
-    lazy val cacheKey = uri.hashCode
+    lazy val cacheKey = FetchByURI.cacheKey(uri)
+
+    override def location: String = uri
   }
 
-  case class FetchByID[T](client: ActorRef, webserviceLocation: String, IDs: (String, Any)*)
+  object FetchByURI {
+
+    /**
+     * The cache key of the content found at the given URI, for instance the deferred content of an item.
+     *
+     * @param uri the URI of the content
+     * @return the key the content is cached under
+     */
+    def cacheKey(uri: String): Int = uri.hashCode
+  }
+
+  case class FetchByID[T](client: Client, webserviceLocation: String, IDs: (String, Any)*)
                          (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T]) extends Task[T] {
 
     lazy val cacheKey = IDs.toList.sortBy(_._1).toString().hashCode
+
+    override def location: String = webserviceLocation
   }
 
-  case class FetchBySearch[T](client: ActorRef, webserviceLocation: String, searchParams: (String, Any)*)
+  case class FetchBySearch[T](client: Client, webserviceLocation: String, searchParams: (String, Any)*)
                              (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T]) extends Task[T] {
 
     lazy val cacheKey = searchParams.sortBy(_._1).toString().hashCode
+
+    override def location: String = webserviceLocation
   }
 
-  case class FetchByQuery[T](client: ActorRef, webserviceLocation: String, query: Query)
+  case class FetchByQuery[T](client: Client,
+                             webserviceLocation: String,
+                             query: Query,
+                             override val cacheable: Boolean = true)
                             (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T]) extends Task[T] {
 
     lazy val cacheKey = query.toString.hashCode
+
+    override def location: String = webserviceLocation
   }
 
+  case class Refresh[T](task: Task[T], contentHash: Option[Long])
+
   trait Result[A] {
     val task: Task[A]
   }
@@ -61,6 +122,10 @@ object FetcherMessages {
 
   case class Failure[T](task: Task[T], throwable: Throwable) extends Result[T]
 
+  case class Refreshed[T](task: Task[T], value: Any, contentHash: Long) extends Result[T]
+
+  case class Unchanged[T](task: Task[T], contentHash: Long) extends Result[T]
+
   object Success {
 
     def unapply[A, B](success: Success[A, B]): Option[(Task[A], B)] = success match {
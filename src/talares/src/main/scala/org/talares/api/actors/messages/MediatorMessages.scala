@@ -1,9 +1,12 @@
 package org.talares.api.actors.messages
 
+import org.talares.api.cache.ItemKey
 import org.talares.api.datatypes.JsonReadable
+import org.talares.api.mirror.Mirror
 import org.talares.api.datatypes.items.Item
 import org.talares.api.queries.Query
 
+import scala.concurrent.Promise
 import scala.reflect.ClassTag
 
 /**
@@ -16,26 +19,53 @@ object MediatorMessages {
 
   trait Request[T <: Item] {
 
+    /** The cache key of the task the request is turned into, by which it is assigned to a shard **/
+    def cacheKey: Any
+
     implicit val jsonReadable: JsonReadable[T]
     implicit val classTag: ClassTag[T]
   }
 
   case class URIRequest[T <: Item](uri: String)
                                   (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T])
-    extends Request[T]
+    extends Request[T] {
+
+    lazy val cacheKey = uri.hashCode
+  }
 
   case class IDRequest[T <: Item](webserviceLocation: String, IDs: (String, Any)*)
                                  (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T])
-    extends Request[T]
+    extends Request[T] {
+
+    lazy val cacheKey = IDs.toList.sortBy(_._1).toString().hashCode
+  }
 
   case class SearchRequest[T <: Item](webserviceLocation: String, searchParams: (String, Any)*)
                                      (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T])
-    extends Request[T]
+    extends Request[T] {
+
+    lazy val cacheKey = searchParams.sortBy(_._1).toString().hashCode
+  }
 
-  case class QueryRequest[T <: Item](webserviceLocation: String, query: Query)
+  case class QueryRequest[T <: Item](webserviceLocation: String, query: Query, cached: Boolean = true)
                                     (implicit val jsonReadable: JsonReadable[T], val classTag: ClassTag[T])
-    extends Request[T]
+    extends Request[T] {
+
+    lazy val cacheKey = query.toString.hashCode
+  }
+
+  case class Submit(request: Request[_ <: Item], client: Client)
+
+  case class Shed(request: Request[_ <: Item], client: Client)
 
   case class Response(value: Any)
 
+  case class Invalidate(itemKey: ItemKey)
+
+  case class InvalidateNodes(nodes: Seq[Any])
+
+  case class UseMirror(mirror: Mirror)
+
+  case class Flush(flushes: java.util.Queue[Promise[Unit]])
+
 }
\ No newline at end of file
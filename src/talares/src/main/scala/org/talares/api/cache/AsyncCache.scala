@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import java.util.concurrent.TimeoutException
+
+import org.talares.api.Settings
+import org.talares.api.exceptions.CacheTimeoutException
+
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future}
+import scala.util.control.NonFatal
+
+/**
+ * Asynchronous service provider interface for cache implementations.
+ *
+ * All operations return a Future so a cache backed by a remote or otherwise I/O bound store never blocks the thread of
+ * the [[org.talares.api.cache.actors.CachingActor]] using it. The bulk operations allow an implementation to serve a
+ * batch of keys in a single round trip.
+ *
+ * This trait deliberately holds no implemented members so it can be implemented from Java as well.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait AsyncCache {
+
+  /**
+   * Retrieves the object stored under the given key.
+   *
+   * @param key the key to use
+   * @return a Future of Some object if present, None otherwise
+   */
+  def get(key: Any): Future[Option[Any]]
+
+  /**
+   * Retrieves the objects stored under the given keys.
+   *
+   * @param keys the keys to use
+   * @return a Future of a Map holding an entry for every key which was present in the cache
+   */
+  def getAll(keys: Seq[Any]): Future[Map[Any, Any]]
+
+  /**
+   * Stores an object under the given key.
+   *
+   * @param key the key to use
+   * @param value the object to store
+   * @return a Future which completes once the object has been stored
+   */
+  def put(key: Any, value: Any): Future[Unit]
+
+  /**
+   * Stores all given objects under their respective keys.
+   *
+   * @param entries the key/object pairs to store
+   * @return a Future which completes once all objects have been stored
+   */
+  def putAll(entries: Map[Any, Any]): Future[Unit]
+
+  /**
+   * Removes the object stored under the given key, if any.
+   *
+   * @param key the key to use
+   * @return a Future which completes once the object has been removed
+   */
+  def invalidate(key: Any): Future[Unit]
+}
+
+object AsyncCache {
+
+  /**
+   * Adapts a pair of synchronous get and put functions to the [[AsyncCache]] interface.
+   *
+   * @param get function which can be used to retrieve object from the cache with a given key
+   * @param put function which can be used to store objects in the cache with a given key
+   * @return an [[AsyncCache]] delegating to the given functions
+   */
+  def apply(get: Any => Option[Any], put: (Any, Any) => Unit): AsyncCache = new FunctionsAsyncCache(get, put)
+
+  /** The time a synchronous get or put waits at most, the configured talares.timeout **/
+  lazy val awaitTimeout: FiniteDuration = Settings().timeout millis
+
+  /**
+   * Adapts the get of an [[AsyncCache]] to a synchronous function, blocking the calling thread until it completes.
+   * Serves the get member of the [[Cache]] strategies which take an [[AsyncCache]].
+   *
+   * @param cache the [[AsyncCache]] to delegate to
+   * @param timeout the time to wait at most, after which the get fails with a
+   *                [[org.talares.api.exceptions.CacheTimeoutException]]
+   * @return a function retrieving objects from the given cache
+   */
+  def awaitGet(cache: AsyncCache, timeout: FiniteDuration = awaitTimeout): Any => Option[Any] =
+    key => await("get", key, timeout)(cache.get(key))
+
+  /**
+   * Adapts the put of an [[AsyncCache]] to a synchronous function, blocking the calling thread until it completes.
+   * Serves the put member of the [[Cache]] strategies which take an [[AsyncCache]].
+   *
+   * @param cache the [[AsyncCache]] to delegate to
+   * @param timeout the time to wait at most, after which the put fails with a
+   *                [[org.talares.api.exceptions.CacheTimeoutException]]
+   * @return a function storing objects in the given cache
+   */
+  def awaitPut(cache: AsyncCache, timeout: FiniteDuration = awaitTimeout): (Any, Any) => Unit =
+    (key, value) => await("put", key, timeout)(cache.put(key, value))
+
+  private def await[T](operation: String, key: Any, timeout: FiniteDuration)(future: Future[T]): T =
+    try Await.result(future, timeout) catch {
+      case _: TimeoutException => throw new CacheTimeoutException(operation, key, timeout)
+    }
+}
+
+/**
+ * Marker stored by [[FunctionsAsyncCache]] in place of an invalidated object, as a put function offers no way of
+ * removing entries. Caching actors only recognise [[CacheItem]]'s, so the marker is treated as a miss.
+ */
+private[cache] case object Invalidated
+
+/**
+ * An [[AsyncCache]] which delegates to synchronous get and put functions.
+ *
+ * The functions are invoked on the calling thread and their outcome is wrapped in an already completed Future.
+ */
+private[cache] class FunctionsAsyncCache(getFunc: Any => Option[Any], putFunc: (Any, Any) => Unit)
+  extends AsyncCache {
+
+  private def attempt[T](f: => T): Future[T] =
+    try Future.successful(f) catch {
+      case NonFatal(throwable) => Future.failed(throwable)
+    }
+
+  override def get(key: Any): Future[Option[Any]] = attempt(getFunc(key))
+
+  override def getAll(keys: Seq[Any]): Future[Map[Any, Any]] = attempt {
+    keys.foldLeft(Map[Any, Any]()) {
+      case (acc, key) => getFunc(key).fold(acc)(value => acc + (key -> value))
+    }
+  }
+
+  override def put(key: Any, value: Any): Future[Unit] = attempt(putFunc(key, value))
+
+  override def putAll(entries: Map[Any, Any]): Future[Unit] = attempt(entries foreach putFunc.tupled)
+
+  override def invalidate(key: Any): Future[Unit] = attempt(putFunc(key, Invalidated))
+}
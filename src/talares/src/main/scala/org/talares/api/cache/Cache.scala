@@ -17,7 +17,7 @@ package org.talares.api.cache
 
 import akka.actor.{ActorContext, ActorRef, Props}
 import org.talares.api.Talares
-import org.talares.api.cache.actors.{NoCachingActor, SimpleCachingActor, AutoUpdateCachingActor}
+import org.talares.api.cache.actors._
 
 /**
  * Trait whose instances allow the library to make use of a given cache implementation. This leaves the user free
@@ -26,6 +26,9 @@ import org.talares.api.cache.actors.{NoCachingActor, SimpleCachingActor, AutoUpd
  * An instance of one of the implementing types should be provided at library instantiation. When no cache instance is
  * provided the [[NoCache]] strategy is assumed.
  *
+ * The strategies taking a pair of get and put functions call these synchronously. When the backing store performs I/O
+ * the corresponding Async strategy, which takes an [[AsyncCache]], should be preferred.
+ *
  * @author Dennis Vis
  * @since 0.1.0
  */
@@ -48,7 +51,7 @@ case class NoCache() extends Cache {
   lazy val put: (Any, Any) => Unit = throw new UnsupportedOperationException
 
   override def toCachingActor(app: Talares, context: ActorContext): ActorRef =
-    context.actorOf(Props(new NoCachingActor(app)), "no-cache")
+    context.actorOf(Props(new NoCachingActor(app)).withDispatcher(CachingActor.Dispatcher), "no-cache")
 }
 
 /**
@@ -62,7 +65,7 @@ case class NoCache() extends Cache {
 case class SimpleCache(get: Any => Option[Any], put: (Any, Any) => Unit) extends Cache {
 
   override def toCachingActor(app: Talares, context: ActorContext): ActorRef =
-    context.actorOf(Props(new SimpleCachingActor(app, this)), "simple-cache")
+    AsyncSimpleCache(AsyncCache(get, put)).toCachingActor(app, context)
 }
 
 /**
@@ -79,5 +82,88 @@ case class SimpleCache(get: Any => Option[Any], put: (Any, Any) => Unit) extends
 case class AutoUpdateCache(get: Any => Option[Any], put: (Any, Any) => Unit) extends Cache {
 
   override def toCachingActor(app: Talares, context: ActorContext): ActorRef =
-    context.actorOf(Props(new AutoUpdateCachingActor(app, this)), "auto-update-cache")
-}
\ No newline at end of file
+    AsyncAutoUpdateCache(AsyncCache(get, put)).toCachingActor(app, context)
+}
+
+/**
+ * Leverages the given functions get and set to either retrieve or store objects from and into the cache respectively.
+ *
+ * Refreshes frequently read items in the background before they expire from the cache, more often for item types
+ * whose items change often than for those whose items rarely change. The refresh intervals and the expiry of the
+ * cache are configured under talares.cache.refreshahead.
+ *
+ * Refreshes travel in the background lane of the mediator and the fetchers, so they only take the share of the
+ * concurrent webservice calls client requests leave spare. The lanes stop there: the caching actor, the executors and
+ * the connections of a route are shared with client requests.
+ *
+ * @param get function which can be used to retrieve object from the cache with a given key
+ * @param put function which can be used to store objects in the cache with a given key
+ */
+case class RefreshAheadCache(get: Any => Option[Any], put: (Any, Any) => Unit) extends Cache {
+
+  override def toCachingActor(app: Talares, context: ActorContext): ActorRef =
+    AsyncRefreshAheadCache(AsyncCache(get, put)).toCachingActor(app, context)
+}
+
+/**
+ * Leverages the given [[AsyncCache]] to either retrieve or store objects from and into the cache respectively.
+ *
+ * Does not add any additional caching logic and as such honors the given cache's configuration.
+ *
+ * When the given cache is a [[LoadingCache]], absent items are loaded through the cache itself.
+ *
+ * @param cache the [[AsyncCache]] to use
+ */
+case class AsyncSimpleCache(cache: AsyncCache) extends Cache {
+
+  lazy val get: Any => Option[Any] = AsyncCache.awaitGet(cache)
+
+  lazy val put: (Any, Any) => Unit = AsyncCache.awaitPut(cache)
+
+  override def toCachingActor(app: Talares, context: ActorContext): ActorRef = cache match {
+    case loadingCache: LoadingCache =>
+      context.actorOf(
+        Props(new LoadingCachingActor(app, loadingCache)).withDispatcher(CachingActor.Dispatcher), "loading-cache"
+      )
+    case _ =>
+      context.actorOf(Props(new SimpleCachingActor(app, cache)).withDispatcher(CachingActor.Dispatcher), "simple-cache")
+  }
+}
+
+/**
+ * Leverages the given [[AsyncCache]] to either retrieve or store objects from and into the cache respectively.
+ *
+ * Applies the same strategy as [[AutoUpdateCache]].
+ *
+ * @param cache the [[AsyncCache]] to use
+ */
+case class AsyncAutoUpdateCache(cache: AsyncCache) extends Cache {
+
+  lazy val get: Any => Option[Any] = AsyncCache.awaitGet(cache)
+
+  lazy val put: (Any, Any) => Unit = AsyncCache.awaitPut(cache)
+
+  override def toCachingActor(app: Talares, context: ActorContext): ActorRef =
+    context.actorOf(
+      Props(new AutoUpdateCachingActor(app, cache)).withDispatcher(CachingActor.Dispatcher), "auto-update-cache"
+    )
+}
+
+/**
+ * Leverages the given [[AsyncCache]] to either retrieve or store objects from and into the cache respectively.
+ *
+ * Applies the same strategy as [[RefreshAheadCache]].
+ *
+ * @param cache the [[AsyncCache]] to use
+ */
+case class AsyncRefreshAheadCache(cache: AsyncCache) extends Cache {
+
+  lazy val get: Any => Option[Any] = AsyncCache.awaitGet(cache)
+
+  lazy val put: (Any, Any) => Unit = AsyncCache.awaitPut(cache)
+
+  override def toCachingActor(app: Talares, context: ActorContext): ActorRef =
+    context.actorOf(
+      Props(new RefreshAheadCachingActor(app, cache)).withDispatcher(CachingActor.Dispatcher), "refresh-ahead-cache"
+    )
+}
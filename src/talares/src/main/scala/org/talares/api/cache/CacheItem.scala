@@ -18,8 +18,13 @@ package org.talares.api.cache
 /**
  * Container class holding values to be cached.
  * These values are accompanied by meta data, supplying additional information about an item in regards to the cache.
+ * The publication and it's generation at the time of storing are used to detect entries made stale by
+ * [[PublicationGenerations.bump]].
  *
  * @author Dennis Vis
  * @since 0.1.0
  */
-case class CacheItem(value: Any, timesAccessed: Int = 0)
\ No newline at end of file
+case class CacheItem(value: Any,
+                     timesAccessed: Int = 0,
+                     publicationId: Option[Int] = None,
+                     generation: Long = 0L)
\ No newline at end of file
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+/**
+ * Computes the 64-bit xxHash (XXH64) of raw webservice responses.
+ *
+ * The hash is kept alongside cached items, so a refresh returning the exact same response can be recognised without
+ * parsing it.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+object ContentHash {
+
+  private val Prime1 = 0x9E3779B185EBCA87L
+  private val Prime2 = 0xC2B2AE3D27D4EB4FL
+  private val Prime3 = 0x165667B19E3779F9L
+  private val Prime4 = 0x85EBCA77C2B2AE63L
+  private val Prime5 = 0x27D4EB2F165667C5L
+
+  /**
+   * Computes the hash of the given bytes.
+   *
+   * @param input the bytes to hash
+   * @param seed the seed of the hash
+   * @return the 64-bit hash
+   */
+  def apply(input: Array[Byte], seed: Long = 0L): Long = {
+
+    val length = input.length
+    var offset = 0
+    var hash = 0L
+
+    if (length >= 32) {
+
+      var v1 = seed + Prime1 + Prime2
+      var v2 = seed + Prime2
+      var v3 = seed
+      var v4 = seed - Prime1
+
+      while (offset <= length - 32) {
+        v1 = round(v1, readLong(input, offset))
+        v2 = round(v2, readLong(input, offset + 8))
+        v3 = round(v3, readLong(input, offset + 16))
+        v4 = round(v4, readLong(input, offset + 24))
+        offset += 32
+      }
+
+      hash = rotateLeft(v1, 1) + rotateLeft(v2, 7) + rotateLeft(v3, 12) + rotateLeft(v4, 18)
+      hash = mergeRound(hash, v1)
+      hash = mergeRound(hash, v2)
+      hash = mergeRound(hash, v3)
+      hash = mergeRound(hash, v4)
+
+    } else hash = seed + Prime5
+
+    hash += length
+
+    while (offset <= length - 8) {
+      hash ^= round(0L, readLong(input, offset))
+      hash = rotateLeft(hash, 27) * Prime1 + Prime4
+      offset += 8
+    }
+
+    if (offset <= length - 4) {
+      hash ^= (readInt(input, offset) & 0xFFFFFFFFL) * Prime1
+      hash = rotateLeft(hash, 23) * Prime2 + Prime3
+      offset += 4
+    }
+
+    while (offset < length) {
+      hash ^= (input(offset) & 0xFFL) * Prime5
+      hash = rotateLeft(hash, 11) * Prime1
+      offset += 1
+    }
+
+    hash ^= hash >>> 33
+    hash *= Prime2
+    hash ^= hash >>> 29
+    hash *= Prime3
+    hash ^ (hash >>> 32)
+  }
+
+  private def round(accumulator: Long, input: Long): Long = rotateLeft(accumulator + input * Prime2, 31) * Prime1
+
+  private def mergeRound(accumulator: Long, value: Long): Long = (accumulator ^ round(0L, value)) * Prime1 + Prime4
+
+  private def rotateLeft(value: Long, distance: Int): Long = java.lang.Long.rotateLeft(value, distance)
+
+  private def readLong(input: Array[Byte], offset: Int): Long =
+    (readInt(input, offset) & 0xFFFFFFFFL) | (readInt(input, offset + 4).toLong << 32)
+
+  private def readInt(input: Array[Byte], offset: Int): Int =
+    (input(offset) & 0xFF) |
+      ((input(offset + 1) & 0xFF) << 8) |
+      ((input(offset + 2) & 0xFF) << 16) |
+      ((input(offset + 3) & 0xFF) << 24)
+}
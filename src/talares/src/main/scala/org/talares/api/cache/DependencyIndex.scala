@@ -0,0 +1,285 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import org.talares.api.actors.messages.FetcherMessages
+import org.talares.api.datatypes.items._
+
+import scala.collection.mutable
+
+/**
+ * Keeps track of which cached entries depend on which items, so that invalidating an item also evicts everything
+ * which was assembled from it.
+ *
+ * Nodes are keyed on their full identity: the cache keys of entries and the [[ItemKey]]'s of items. Deferred content
+ * (for instance the component presentations of a page) is represented by the cache key it is fetched under, see
+ * [[org.talares.api.actors.messages.FetcherMessages.FetchByURI]]. An edge runs from a dependency to it's dependent.
+ * Edges are recorded as results pass by:
+ *  - an item to the cache key of the request which returned it
+ *  - deferred content to the item holding it
+ *  - a referenced item (for instance the component and template of a component presentation) to the item referring
+ *    to it
+ *
+ * The index knows nothing of entries the cache evicts or expires by itself. It therefore tracks at most maxEntries
+ * entries; recording more drops the entries recorded longest ago, which are returned to be evicted from the cache as
+ * well, as their invalidation could no longer be traced. Nodes from which no tracked entry can be reached any more,
+ * after an invalidation or after dropping entries, are collected once their number has doubled.
+ *
+ * The adjacency lists are held in primitive arrays, indexed by the number given to every node, avoiding an object
+ * per edge.
+ *
+ * Not thread safe; an instance is confined to the [[org.talares.api.actors.Mediator]] owning it.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class DependencyIndex(maxEntries: Int = Int.MaxValue, initialCapacity: Int = 64) {
+
+  /** The number of every node, by it's key **/
+  private val numbers = new java.util.HashMap[Any, Integer]()
+
+  private var keys = new Array[Any](math.max(initialCapacity, 4))
+  private var dependents = new Array[Array[Int]](keys.length)
+  private var degrees = new Array[Int](keys.length)
+  private var nodeCount = 0
+  private var edges = 0
+
+  /** The node count at which unreachable nodes are collected next **/
+  private var collectAt = keys.length
+
+  /** The cache keys of the tracked entries, recorded longest ago first **/
+  private val entries = new java.util.LinkedHashSet[Any]()
+
+  /** The amount of edges currently held. **/
+  def size: Int = edges
+
+  /** The amount of nodes currently held, including those not yet collected. **/
+  def nodes: Int = nodeCount
+
+  /**
+   * Records the dependencies of a value which has been fetched or found in the cache under the given key.
+   *
+   * @param cacheKey the cache key the value is stored under
+   * @param value the value, either an item or a Seq of items
+   * @return the cache keys of the entries dropped to stay within maxEntries, which should be evicted from the cache
+   */
+  def record(cacheKey: Any, value: Any): Seq[Any] = {
+
+    entries.remove(cacheKey)
+    entries.add(cacheKey)
+    number(cacheKey)
+
+    value match {
+      case item: Item => recordItem(cacheKey, item)
+      case items: Seq[_] => items foreach {
+        case item: Item => recordItem(cacheKey, item)
+        case _ =>
+      }
+      case _ =>
+    }
+
+    val dropped = mutable.ListBuffer[Any]()
+    val oldest = entries.iterator
+    while (entries.size > maxEntries) {
+      dropped += oldest.next()
+      oldest.remove()
+    }
+
+    if (nodeCount >= collectAt) collect()
+
+    dropped.toList
+  }
+
+  private def recordItem(cacheKey: Any, item: Item): Unit = {
+
+    val itemKey = ItemKey(item)
+    addEdge(itemKey, cacheKey)
+
+    val (deferredURIs, references) = item match {
+      case page: Page =>
+        (Seq(page.pageContent.uri, page.componentPresentations.uri, page.keywords.uri, page.customMetas.uri),
+          page.templateId.toSeq map (id => ItemKey("Templates", "PublicationId" -> page.publicationId, "ItemId" -> id)))
+      case componentPresentation: ComponentPresentation =>
+        (Seq(componentPresentation.component.uri, componentPresentation.template.uri), Seq(
+          ItemKey("Components",
+            "PublicationId" -> componentPresentation.publicationId, "ItemId" -> componentPresentation.componentId),
+          ItemKey("Templates",
+            "PublicationId" -> componentPresentation.publicationId, "ItemId" -> componentPresentation.templateId)
+        ))
+      case component: Component =>
+        (Seq(component.schema.uri, component.keywords.uri, component.customMetas.uri),
+          Seq(ItemKey("Schemas", "PublicationId" -> component.publicationId, "SchemaId" -> component.schemaId)))
+      case binary: Binary => (Seq(binary.binaryVariants.uri), Nil)
+      case _ => (Nil, Nil)
+    }
+
+    deferredURIs foreach (uri => addEdge(FetcherMessages.FetchByURI.cacheKey(uri), itemKey))
+    references foreach (reference => addEdge(reference, itemKey))
+  }
+
+  /**
+   * Removes the given node and everything depending on it, directly or transitively, from the index.
+   *
+   * @param node the node to remove: the [[ItemKey]] of an item or the cache key of an entry
+   * @return the cache keys of all removed entries which should be evicted from the cache
+   */
+  def remove(node: Any): Seq[Any] = {
+
+    val evicted = mutable.LinkedHashSet[Any]()
+    val pending = mutable.Stack[Any](node)
+
+    while (pending.nonEmpty) {
+
+      val key = pending.pop()
+      val found = numbers.get(key)
+
+      if (entries.remove(key)) evicted += key
+
+      if (found != null) {
+
+        val index = found.intValue
+
+        var i = 0
+        while (i < degrees(index)) {
+          pending.push(keys(dependents(index)(i)))
+          i += 1
+        }
+
+        edges -= degrees(index)
+        degrees(index) = 0
+        dependents(index) = null
+      }
+    }
+
+    evicted.toList
+  }
+
+  /**
+   * Adds an edge from a dependency to it's dependent, unless already present.
+   *
+   * @param from the node depended upon
+   * @param to the dependent node
+   */
+  def addEdge(from: Any, to: Any): Unit = if (from != to) {
+
+    val target = number(to)
+    val index = number(from)
+    val degree = degrees(index)
+    val adjacent = dependents(index)
+
+    var i = 0
+    while (i < degree) {
+      if (adjacent(i) == target) return
+      i += 1
+    }
+
+    if (adjacent == null) dependents(index) = new Array[Int](4)
+    else if (degree == adjacent.length) dependents(index) = java.util.Arrays.copyOf(adjacent, degree * 2)
+
+    dependents(index)(degree) = target
+    degrees(index) = degree + 1
+    edges += 1
+  }
+
+  /** The number of the given node, numbering it when new. **/
+  private def number(key: Any): Int = {
+
+    val existing = numbers.get(key)
+
+    if (existing != null) existing.intValue
+    else {
+
+      if (nodeCount == keys.length) {
+        keys = java.util.Arrays.copyOf(keys.asInstanceOf[Array[AnyRef]], nodeCount * 2).asInstanceOf[Array[Any]]
+        dependents = java.util.Arrays.copyOf(dependents, nodeCount * 2)
+        degrees = java.util.Arrays.copyOf(degrees, nodeCount * 2)
+      }
+
+      keys(nodeCount) = key
+      numbers.put(key, nodeCount)
+      nodeCount += 1
+      nodeCount - 1
+    }
+  }
+
+  /**
+   * Drops the nodes from which no tracked entry can be reached, together with the edges leading to them, and numbers
+   * the remaining nodes anew.
+   */
+  private def collect(): Unit = {
+
+    val dependencyCounts = new Array[Int](nodeCount + 1)
+    for (index <- 0 until nodeCount; i <- 0 until degrees(index)) dependencyCounts(dependents(index)(i) + 1) += 1
+    for (index <- 1 to nodeCount) dependencyCounts(index) += dependencyCounts(index - 1)
+
+    val dependencies = new Array[Int](edges)
+    val filled = java.util.Arrays.copyOf(dependencyCounts, nodeCount)
+    for (index <- 0 until nodeCount; i <- 0 until degrees(index)) {
+      val target = dependents(index)(i)
+      dependencies(filled(target)) = index
+      filled(target) += 1
+    }
+
+    val live = new Array[Boolean](nodeCount)
+    val pending = mutable.Stack[Int]()
+    val tracked = entries.iterator
+    while (tracked.hasNext) {
+      val index = numbers.get(tracked.next()).intValue
+      live(index) = true
+      pending.push(index)
+    }
+
+    while (pending.nonEmpty) {
+      val index = pending.pop()
+      for (i <- dependencyCounts(index) until dependencyCounts(index + 1) if !live(dependencies(i))) {
+        live(dependencies(i)) = true
+        pending.push(dependencies(i))
+      }
+    }
+
+    val renumbered = new Array[Int](nodeCount)
+    var liveCount = 0
+    for (index <- 0 until nodeCount) {
+      renumbered(index) = if (live(index)) liveCount else -1
+      if (live(index)) liveCount += 1
+    }
+
+    val capacity = math.max(math.max(keys.length / 2, liveCount * 2), 4)
+    val (oldKeys, oldDependents, oldDegrees) = (keys, dependents, degrees)
+    keys = new Array[Any](capacity)
+    dependents = new Array[Array[Int]](capacity)
+    degrees = new Array[Int](capacity)
+    numbers.clear()
+    edges = 0
+
+    for (index <- 0 until nodeCount if live(index)) {
+
+      val newIndex = renumbered(index)
+      keys(newIndex) = oldKeys(index)
+      numbers.put(oldKeys(index), newIndex)
+
+      val kept = (0 until oldDegrees(index)) map (i => renumbered(oldDependents(index)(i))) filter (_ >= 0)
+      if (kept.nonEmpty) {
+        dependents(newIndex) = kept.toArray
+        degrees(newIndex) = kept.length
+        edges += kept.length
+      }
+    }
+
+    nodeCount = liveCount
+    collectAt = math.max(liveCount * 2, 64)
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import scala.concurrent.Future
+
+/**
+ * An [[AsyncCache]] which holds back writes, for instance to persist them in batches, and is able to write them out
+ * on demand.
+ *
+ * When an [[AsyncSimpleCache]], [[AsyncAutoUpdateCache]] or [[AsyncRefreshAheadCache]] is given an instance of this
+ * trait, the library flushes it while draining, after the writes issued by the library have completed, see
+ * [[org.talares.api.Talares.drain]].
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait FlushingCache extends AsyncCache {
+
+  /**
+   * Writes out every write held back.
+   *
+   * @return a Future which completes once the writes held back have been written out
+   */
+  def flush(): Future[Unit]
+}
+
+object FlushingCache {
+
+  /**
+   * Flushes the given cache if it is a [[FlushingCache]].
+   *
+   * @param cache the [[AsyncCache]] to flush
+   * @return a Future which completes once the cache has been flushed, or a completed Future if it holds nothing back
+   */
+  def flush(cache: AsyncCache): Future[Unit] = cache match {
+    case flushingCache: FlushingCache => flushingCache.flush()
+    case _ => Future.successful(())
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import org.talares.api.datatypes.items.Item
+
+/**
+ * Event emitted when a refresh of a cached entry changed an item.
+ *
+ * @param itemKey the [[ItemKey]] of the changed item
+ * @param oldValue the item as it was cached before the refresh
+ * @param newValue the item as it is cached after the refresh
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+case class ItemChange(itemKey: ItemKey, oldValue: Item, newValue: Item)
+
+object ItemChange {
+
+  /**
+   * Determines the changes between the value of a cached entry before and after a refresh.
+   *
+   * The items held by both values are matched by their [[ItemKey]]. A change is reported for every item which is held
+   * by both values but differs. Items which only one of the values holds, for instance when a search yields an
+   * additional page, are not reported.
+   *
+   * @param oldValue the value before the refresh
+   * @param newValue the value after the refresh
+   * @return the changes between the values
+   */
+  def between(oldValue: Any, newValue: Any): Seq[ItemChange] = {
+
+    val oldItems = items(oldValue).toMap
+
+    items(newValue) flatMap {
+      case (itemKey, newItem) => oldItems.get(itemKey) collect {
+        case oldItem if oldItem != newItem => ItemChange(itemKey, oldItem, newItem)
+      }
+    }
+  }
+
+  private def items(value: Any): Seq[(ItemKey, Item)] = value match {
+    case item: Item => Seq(ItemKey(item) -> item)
+    case values: Seq[_] => values flatMap items
+    case _ => Nil
+  }
+}
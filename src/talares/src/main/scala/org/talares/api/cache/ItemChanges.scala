@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+import scala.collection.JavaConverters._
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.control.NonFatal
+
+/**
+ * Holds the listeners to be notified of [[ItemChange]]'s.
+ *
+ * Listeners are notified asynchronously, in the order in which they subscribed. A failing listener does not keep the
+ * other listeners from being notified.
+ *
+ * Thread safe.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class ItemChanges {
+
+  private val listeners = new CopyOnWriteArrayList[ItemChange => Unit]()
+
+  /**
+   * Subscribes the given listener to all [[ItemChange]]'s from now on.
+   *
+   * @param listener the listener to subscribe
+   */
+  def subscribe(listener: ItemChange => Unit): Unit = listeners.add(listener)
+
+  /**
+   * Unsubscribes the given listener, which should be the same instance that was subscribed.
+   *
+   * @param listener the listener to unsubscribe
+   */
+  def unsubscribe(listener: ItemChange => Unit): Unit = listeners.remove(listener)
+
+  /**
+   * Whether any listeners are subscribed, allowing the work of determining changes to be skipped when there are none.
+   */
+  def hasListeners: Boolean = !listeners.isEmpty
+
+  /**
+   * Notifies all listeners of the given [[ItemChange]].
+   *
+   * @param change the [[ItemChange]] to notify the listeners of
+   * @param executionContext the execution context to notify the listeners on
+   * @return a Future which completes once all listeners have been notified, failing if any of them failed
+   */
+  def publish(change: ItemChange)(implicit executionContext: ExecutionContext): Future[Unit] = Future {
+
+    val failures = listeners.asScala flatMap { listener =>
+      try {
+        listener(change)
+        None
+      } catch {
+        case NonFatal(throwable) => Some(throwable)
+      }
+    }
+
+    failures.headOption foreach (throwable => throw throwable)
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import org.talares.api.datatypes.items.Item
+
+/**
+ * Canonical identity of an item as exposed by the webservice, for instance "Pages(ItemId=2,PublicationId=1)".
+ *
+ * The ID's are ordered by name and stripped of quotes, so two keys describing the same item are equal regardless of
+ * the order in which their ID's were given.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+final class ItemKey private(val value: String) {
+
+  /** The node representing this key in a [[DependencyIndex]]. **/
+  def node: Int = value.hashCode
+
+  override def equals(other: Any): Boolean = other match {
+    case that: ItemKey => value == that.value
+    case _ => false
+  }
+
+  override def hashCode: Int = value.hashCode
+
+  override def toString: String = value
+}
+
+object ItemKey {
+
+  /**
+   * Composes an [[ItemKey]] from the name of the collection an item belongs to and the ID's identifying it.
+   *
+   * Example:
+   * {{{
+   *   ItemKey("Components", "PublicationId" -> 1, "ItemId" -> 123)
+   * }}}
+   *
+   * @param collection the name of the webservice collection, for instance "Pages"
+   * @param IDs the ID's identifying the item within the collection
+   * @return the corresponding [[ItemKey]]
+   */
+  def apply(collection: String, IDs: (String, Any)*): ItemKey = {
+
+    val canonicalIDs = IDs map {
+      case (name, value) => s"$name=${value.toString.stripPrefix("'").stripSuffix("'")}"
+    }
+
+    new ItemKey(canonicalIDs.sorted.mkString(s"$collection(", ",", ")"))
+  }
+
+  /**
+   * Composes the [[ItemKey]] of the given item from the URI in it's metadata.
+   *
+   * @param item the item to compose the key for
+   * @return the corresponding [[ItemKey]]
+   */
+  def apply(item: Item): ItemKey = fromURI(item.metadata.uri)
+
+  /**
+   * Composes an [[ItemKey]] from the URI of an item, for instance
+   * "http://localhost:8080/odata.svc/Pages(ItemId=2,PublicationId=1)".
+   *
+   * A single unnamed ID, as in "Publications(1)", is taken to be named "Id".
+   *
+   * @param uri the URI of the item
+   * @return the corresponding [[ItemKey]]
+   */
+  def fromURI(uri: String): ItemKey = {
+
+    val resource = uri.takeWhile(_ != '?').split('/').last
+    val open = resource.indexOf('(')
+
+    if (open < 0 || !resource.endsWith(")")) new ItemKey(resource)
+    else {
+
+      val IDs = resource.substring(open + 1, resource.length - 1).split(',').toSeq filter (_.nonEmpty) map { id =>
+        id.split("=", 2) match {
+          case Array(name, value) => name.trim -> value.trim
+          case Array(value) => "Id" -> value.trim
+        }
+      }
+
+      apply(resource.substring(0, open), IDs: _*)
+    }
+  }
+}
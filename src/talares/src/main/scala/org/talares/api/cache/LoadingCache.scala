@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import scala.concurrent.Future
+
+/**
+ * An [[AsyncCache]] which is able to load absent entries itself.
+ *
+ * When an [[AsyncSimpleCache]] is given an instance of this trait, the library no longer performs a separate lookup,
+ * fetch and store for a cache miss. Instead it hands the cache a loader which fetches the value from the webservice.
+ * The implementation decides when to invoke the loader and is expected to invoke it at most once per absent key,
+ * letting concurrent requests for that key share the outcome.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait LoadingCache extends AsyncCache {
+
+  /**
+   * Retrieves the object stored under the given key, using the loader to obtain and store it when absent.
+   *
+   * A failed Future returned by the loader should be passed on as is and not be stored.
+   *
+   * @param key the key to use
+   * @param loader function which fetches the object to store under the given key
+   * @return a Future of the cached or loaded object
+   */
+  def get(key: Any, loader: () => Future[Any]): Future[Any]
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+
+import scala.collection.JavaConverters._
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.control.NonFatal
+
+/**
+ * Keeps track of the writes to a cache which are in progress, so they can be awaited before the library terminates,
+ * see [[org.talares.api.Talares.drain]]. The [[org.talares.api.direct.DirectEngine]] tracks it's requests in progress
+ * the same way.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class PendingWrites {
+
+  /** The writes which have not completed yet **/
+  private val writes = Collections.newSetFromMap(new ConcurrentHashMap[Future[Unit], java.lang.Boolean]())
+
+  /**
+   * Keeps track of the given write until it completes.
+   *
+   * @param write the Future of the write
+   * @return the given Future
+   */
+  def track(write: Future[Unit])(implicit executionContext: ExecutionContext): Future[Unit] = {
+    if (!write.isCompleted) {
+      writes.add(write)
+      write onComplete (_ => writes.remove(write))
+    }
+    write
+  }
+
+  /**
+   * @return a Future which completes once every write in progress has completed, whether successfully or not
+   */
+  def completed(implicit executionContext: ExecutionContext): Future[Unit] =
+    Future.sequence(writes.asScala.toList map (_ recover { case NonFatal(_) => () })) map (_ => ())
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+import org.talares.api.datatypes.items.Item
+
+/**
+ * Holds a generation number per publication, allowing all cached entries of a publication to be invalidated at once.
+ *
+ * Every [[CacheItem]] holding items of a publication is stamped with the generation of that publication as of the
+ * moment the fetch of it's value was issued, so a value fetched before a bump but stored after it is stale. Bumping
+ * the generation of a publication makes all entries carrying an older generation stale, without visiting any of them.
+ * Stale entries are treated as a miss and evicted once they are accessed.
+ *
+ * A bumped generation is at least the current time in milliseconds, so entries which were stored in a persistent cache
+ * by an earlier run of the library are also considered stale after a bump. Publications which were never bumped are
+ * at generation 0.
+ *
+ * Thread safe.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class PublicationGenerations {
+
+  private val generations = new ConcurrentHashMap[Int, AtomicLong]()
+  private val bumpedAt = new ConcurrentHashMap[Int, AtomicLong]()
+
+  /**
+   * The current generation of the given publication.
+   *
+   * @param publicationId the ID of the publication
+   * @return the current generation
+   */
+  def apply(publicationId: Int): Long = {
+    val generation = generations.get(publicationId)
+    if (generation == null) 0L else generation.get
+  }
+
+  /**
+   * Bumps the generation of the given publication, making all entries stored for it so far stale.
+   *
+   * @param publicationId the ID of the publication
+   * @return the new generation
+   */
+  def bump(publicationId: Int): Long = {
+
+    raise(counter(bumpedAt, publicationId), PublicationGenerations.clock.incrementAndGet)
+
+    val generation = counter(generations, publicationId)
+
+    var current = generation.get
+    var next = math.max(current + 1, System.currentTimeMillis)
+
+    while (!generation.compareAndSet(current, next)) {
+      current = generation.get
+      next = math.max(current + 1, System.currentTimeMillis)
+    }
+
+    next
+  }
+
+  /**
+   * Stamps the given [[CacheItem]] with the publication and current generation of the item(s) it holds.
+   * Values holding no items are left as is.
+   *
+   * @param cacheItem the [[CacheItem]] to stamp
+   * @return the stamped [[CacheItem]]
+   */
+  def stamp(cacheItem: CacheItem): CacheItem = stamp(cacheItem, PublicationGenerations.now)
+
+  /**
+   * Stamps the given [[CacheItem]] with the publication of the item(s) it holds and the generation that publication
+   * was at when the fetch of the value was issued. A value whose publication was bumped after it's fetch was issued is
+   * stamped with an older generation, so it is stale as soon as it is stored. Values holding no items are left as is.
+   *
+   * @param cacheItem the [[CacheItem]] to stamp
+   * @param issued the [[PublicationGenerations.now]] at which the fetch of the value was issued
+   * @return the stamped [[CacheItem]]
+   */
+  def stamp(cacheItem: CacheItem, issued: Long): CacheItem = {
+
+    val publicationId = cacheItem.value match {
+      case item: Item => Some(item.publicationId)
+      case items: Seq[_] => items.headOption collect {
+        case item: Item => item.publicationId
+      }
+      case _ => None
+    }
+
+    publicationId.fold(cacheItem)(id => cacheItem.copy(publicationId = Some(id), generation = generationAt(id, issued)))
+  }
+
+  /**
+   * Whether the given [[CacheItem]] was stored in the current generation of it's publication.
+   *
+   * @param cacheItem the [[CacheItem]] to check
+   * @return false if the publication of the item was bumped after it was stored, true otherwise
+   */
+  def isCurrent(cacheItem: CacheItem): Boolean =
+    cacheItem.publicationId forall (id => cacheItem.generation >= apply(id))
+
+  /**
+   * The generation the given publication was at, at the given moment. The generation is read before the moment of the
+   * last bump, which is recorded before the generation is bumped, so a bump in between is never missed.
+   */
+  private def generationAt(publicationId: Int, issued: Long): Long = {
+
+    val generation = apply(publicationId)
+    val bumped = bumpedAt.get(publicationId)
+
+    if (bumped != null && bumped.get > issued) generation - 1 else generation
+  }
+
+  private def counter(counters: ConcurrentHashMap[Int, AtomicLong], publicationId: Int): AtomicLong = {
+    val fresh = new AtomicLong()
+    val existing = counters.putIfAbsent(publicationId, fresh)
+    if (existing == null) fresh else existing
+  }
+
+  private def raise(counter: AtomicLong, value: Long): Unit = {
+    var current = counter.get
+    while (current < value && !counter.compareAndSet(current, value)) current = counter.get
+  }
+}
+
+object PublicationGenerations {
+
+  private val clock = new AtomicLong()
+
+  /**
+   * The current moment on the clock bumps are ordered by, which a
+   * [[org.talares.api.actors.messages.FetcherMessages.Task]] records when it is issued.
+   *
+   * @return the current moment
+   */
+  def now: Long = clock.get
+}
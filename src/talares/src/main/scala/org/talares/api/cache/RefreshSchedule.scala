@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache
+
+import org.talares.api.actors.messages.FetcherMessages
+import org.talares.api.datatypes.items.PublishedItem
+
+import scala.collection.mutable
+
+/**
+ * Decides when hot cache entries should be refreshed.
+ *
+ * An entry is hot when it has been read from the cache within the hot period. Hot entries are refreshed once the
+ * refresh interval of their item type has passed since they were stored, but always the lead time before they expire
+ * from the backing cache. Entries which have not been read for longer than the hot period are forgotten and are left
+ * to expire.
+ *
+ * The refresh interval is kept per item type and adapts to how often the items of that type actually change, judged
+ * by their lastPublishDate. A refresh yielding an unchanged item doubles the interval, a refresh yielding a changed
+ * item halves it, within the configured bounds.
+ *
+ * For every entry the hash of the response it was last refreshed from is kept, which allows a refresh yielding the
+ * exact same response to skip parsing and storing it.
+ *
+ * This class is not thread safe; it is meant to be confined to a single actor.
+ *
+ * @param initialInterval the refresh interval in milliseconds an item type starts out with
+ * @param minInterval the lower bound of the refresh interval in milliseconds
+ * @param maxInterval the upper bound of the refresh interval in milliseconds
+ * @param hotPeriod the time in milliseconds within which an entry must have been read to be considered hot
+ * @param expiry the time in milliseconds after which entries expire from the backing cache, 0 if they do not expire
+ * @param lead the time in milliseconds before their expiry at which entries are refreshed
+ * @param timeout the time in milliseconds after which a refresh which has not completed is given up on
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class RefreshSchedule(initialInterval: Long,
+                      minInterval: Long,
+                      maxInterval: Long,
+                      hotPeriod: Long,
+                      expiry: Long,
+                      lead: Long,
+                      timeout: Long) {
+
+  require(minInterval > 0 && minInterval <= maxInterval, "The refresh interval bounds must be positive and ordered")
+
+  private class Entry(val fetcherTask: FetcherMessages.Task[_],
+                      val itemType: String,
+                      var version: Any,
+                      var storedAt: Long,
+                      var accessedAt: Long,
+                      var refreshedAt: Option[Long] = None,
+                      var contentHash: Option[Long] = None)
+
+  private val entries = mutable.Map[Any, Entry]()
+
+  private val intervals = mutable.Map[String, Long]()
+
+  /**
+   * The current refresh interval of the given item type.
+   *
+   * @param itemType the item type, as returned by [[RefreshSchedule.itemType]]
+   * @return the refresh interval in milliseconds
+   */
+  def interval(itemType: String): Long = intervals.getOrElse(itemType, initialInterval)
+
+  /**
+   * The amount of entries currently tracked.
+   */
+  def size: Int = entries.size
+
+  /**
+   * Registers a read of a cached value. The first read of a value starts tracking it's entry.
+   *
+   * @param fetcherTask the [[org.talares.api.actors.messages.FetcherMessages.Task]] the value was read for
+   * @param value the value read
+   * @param now the current time in milliseconds
+   */
+  def accessed(fetcherTask: FetcherMessages.Task[_], value: Any, now: Long): Unit =
+    entries.get(fetcherTask.cacheKey) match {
+      case Some(entry) => entry.accessedAt = now
+      case None =>
+        val entry = new Entry(fetcherTask, RefreshSchedule.itemType(value), RefreshSchedule.version(value), now, now)
+        entries.put(fetcherTask.cacheKey, entry)
+    }
+
+  /**
+   * Registers the storage of a value. When it completes a refresh, the interval of it's item type is adapted to
+   * whether the value changed.
+   *
+   * @param cacheKey the key the value is stored under
+   * @param value the value stored
+   * @param now the current time in milliseconds
+   * @param contentHash the hash of the response the value was parsed from, if known
+   * @return Some(true) if the value completes a refresh and changed, Some(false) if it completes a refresh and did not
+   *         change, None if it does not complete a refresh
+   */
+  def stored(cacheKey: Any, value: Any, now: Long, contentHash: Option[Long] = None): Option[Boolean] =
+    entries.get(cacheKey) flatMap { entry =>
+
+      val version = RefreshSchedule.version(value)
+      val changed = entry.refreshedAt map (_ => version != entry.version)
+
+      changed foreach (adapt(entry, _))
+
+      entry.version = version
+      entry.contentHash = contentHash
+      entry.storedAt = now
+      entry.refreshedAt = None
+
+      changed
+    }
+
+  /**
+   * Registers a refresh which yielded the exact same response as the one the cached value was parsed from. The entry
+   * counts as fresh again and the interval of it's item type is adapted as for an unchanged value.
+   *
+   * @param cacheKey the key of the entry
+   * @param now the current time in milliseconds
+   * @return true if the entry is tracked, false otherwise
+   */
+  def renewed(cacheKey: Any, now: Long): Boolean = entries.get(cacheKey) exists { entry =>
+    if (entry.refreshedAt.isDefined) adapt(entry, changed = false)
+    entry.storedAt = now
+    entry.refreshedAt = None
+    true
+  }
+
+  /**
+   * The hash of the response the entry stored under the given key was last refreshed from, if known.
+   *
+   * @param cacheKey the key of the entry
+   * @return the hash of the response
+   */
+  def contentHash(cacheKey: Any): Option[Long] = entries.get(cacheKey) flatMap (_.contentHash)
+
+  private def adapt(entry: Entry, changed: Boolean): Unit = {
+    val current = interval(entry.itemType)
+    val adapted = if (changed) current / 2 else current * 2
+    intervals.put(entry.itemType, math.min(maxInterval, math.max(minInterval, adapted)))
+  }
+
+  /**
+   * Stops tracking the entry stored under the given key.
+   *
+   * @param cacheKey the key of the entry
+   */
+  def remove(cacheKey: Any): Unit = entries.remove(cacheKey)
+
+  /**
+   * Collects the entries which are due for a refresh and marks them as being refreshed. Entries which are no longer hot
+   * are forgotten.
+   *
+   * @param now the current time in milliseconds
+   * @return the [[org.talares.api.actors.messages.FetcherMessages.Task]]'s to refresh
+   */
+  def due(now: Long): Seq[FetcherMessages.Task[_]] = {
+
+    entries.retain((_, entry) => now - entry.accessedAt <= hotPeriod)
+
+    entries.values.toList flatMap { entry =>
+      entry.refreshedAt match {
+        case Some(refreshedAt) if now - refreshedAt < timeout => None
+        case Some(_) =>
+          entry.refreshedAt = None
+          entry.storedAt = now
+          None
+        case None if now >= refreshAt(entry) =>
+          entry.refreshedAt = Some(now)
+          Some[FetcherMessages.Task[_]](entry.fetcherTask)
+        case None => None
+      }
+    }
+  }
+
+  private def refreshAt(entry: Entry): Long = {
+    val untilRefresh = interval(entry.itemType)
+    entry.storedAt + (if (expiry > 0) math.min(untilRefresh, expiry - lead) else untilRefresh)
+  }
+}
+
+object RefreshSchedule {
+
+  /**
+   * The item type of a value, which is the simple class name of the value or, for a sequence, of it's first element.
+   *
+   * @param value the value to determine the item type of
+   * @return the item type
+   */
+  def itemType(value: Any): String = value match {
+    case Seq(head, _*) => itemType(head)
+    case _ => value.getClass.getSimpleName
+  }
+
+  /**
+   * The version of a value, used to determine whether it changed. For published items this is the lastPublishDate,
+   * for any other value it is the value itself.
+   *
+   * @param value the value to determine the version of
+   * @return the version
+   */
+  def version(value: Any): Any = value match {
+    case item: PublishedItem => item.lastPublishDate
+    case items: Seq[_] => items map version
+    case _ => value
+  }
+}
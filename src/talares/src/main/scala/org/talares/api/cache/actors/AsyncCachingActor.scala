@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache.actors
+
+import akka.pattern.pipe
+import org.talares.api.actors.messages.FetcherMessages
+import org.talares.api.cache.actors.messages.CachingActorMessages.LookupCompleted
+import org.talares.api.cache.{AsyncCache, CacheItem, FlushingCache}
+
+import scala.collection.mutable
+import scala.concurrent.Promise
+import scala.util.control.NonFatal
+
+/**
+ * Blueprint for caching actors which make use of an [[org.talares.api.cache.AsyncCache]].
+ *
+ * Cache lookups never block the actor. While a lookup is in flight, newly arriving lookups are queued and, once the
+ * running lookup completes, issued together as a single getAll call. This keeps the amount of cache round trips low
+ * under load without delaying lookups when the actor is idle.
+ *
+ * A failing cache is treated as a cache miss. When the library drains, a [[org.talares.api.cache.FlushingCache]] is
+ * flushed once the writes in progress have completed.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait AsyncCachingActor extends CachingActor {
+
+  val cache: AsyncCache
+
+  /** Lookups received while another lookup was in flight. **/
+  private val pendingLookups = mutable.ArrayBuffer[FetcherMessages.Task[_]]()
+
+  private var lookupInFlight = false
+
+  /**
+   * Handles the outcome of a cache lookup for a specific [[org.talares.api.actors.messages.FetcherMessages.Task]].
+   *
+   * @param fetcherTask the [[org.talares.api.actors.messages.FetcherMessages.Task]] the lookup was performed for
+   * @param cacheItem the [[org.talares.api.cache.CacheItem]] found in the cache, if any
+   */
+  def handleLookup(fetcherTask: FetcherMessages.Task[_], cacheItem: Option[CacheItem]): Unit
+
+  override def handleFetch(fetcherTask: FetcherMessages.Task[_]): Unit = {
+    pendingLookups += fetcherTask
+    if (!lookupInFlight) flushLookups()
+  }
+
+  /**
+   * Issues a single cache lookup for all pending tasks. The result is sent back to this actor as a
+   * [[org.talares.api.cache.actors.messages.CachingActorMessages.LookupCompleted]]. Tasks whose client no longer waits
+   * are dropped.
+   */
+  private def flushLookups(): Unit = {
+
+    val fetcherTasks = pendingLookups.toList filterNot (_.abandoned)
+    pendingLookups.clear()
+
+    if (fetcherTasks.nonEmpty) {
+
+      lookupInFlight = true
+
+      val keys = fetcherTasks.map(_.cacheKey).distinct
+      val lookup = keys match {
+        case Seq(key) => cache.get(key) map (_.fold(Map[Any, Any]())(value => Map(key -> value)))
+        case _ => cache.getAll(keys)
+      }
+
+      lookup recover {
+        case NonFatal(throwable) =>
+          log.warning(s"Cache lookup failed, treating as miss: $throwable")
+          Map[Any, Any]()
+      } map (found => LookupCompleted(fetcherTasks, found)) pipeTo self
+    }
+  }
+
+  override def receiveInternal: Receive = {
+    case LookupCompleted(fetcherTasks, found) =>
+      lookupInFlight = false
+      fetcherTasks foreach { fetcherTask =>
+        val cacheItem = found.get(fetcherTask.cacheKey) collect {
+          case cacheItem: CacheItem => cacheItem
+        }
+        handleLookup(fetcherTask, cacheItem filter isCurrent(fetcherTask.cacheKey))
+      }
+      flushLookups()
+  }
+
+  /**
+   * Checks whether a [[org.talares.api.cache.CacheItem]] belongs to the current generation of it's publication.
+   * A stale item is evicted, so it will not be encountered again.
+   *
+   * @param key the key the item is stored under
+   * @param cacheItem the [[org.talares.api.cache.CacheItem]] to check
+   * @return true if the item is current, false if it is stale
+   */
+  private def isCurrent(key: Any)(cacheItem: CacheItem): Boolean =
+    generations.isCurrent(cacheItem) || {
+      handleInvalidate(Seq(key))
+      false
+    }
+
+  override def handleInvalidate(cacheKeys: Seq[Any]): Unit = cacheKeys foreach { key =>
+    cache.invalidate(key) onFailure {
+      case NonFatal(throwable) => log.warning(s"Cache invalidation failed for key $key: $throwable")
+    }
+  }
+
+  override def handleFlush(flushed: Promise[Unit]): Unit =
+    flushed completeWith (pendingWrites.completed flatMap (_ => FlushingCache.flush(cache)))
+
+  /**
+   * Stores a value in the cache without awaiting the result, logging a failure should one occur.
+   *
+   * @param key the key to store the value under
+   * @param value the value to store
+   */
+  def store(key: Any, value: Any): Unit =
+    pendingWrites.track(cache.put(key, value)) onFailure {
+      case NonFatal(throwable) => log.warning(s"Cache store failed for key $key: $throwable")
+    }
+}
@@ -17,20 +17,24 @@ package org.talares.api.cache.actors
 
 import org.talares.api.Talares
 import org.talares.api.actors.messages.FetcherMessages
-import org.talares.api.cache.actors.messages.CachingActorMessages.{Found, NotFound}
-import org.talares.api.cache.{Cache, CacheItem}
+import org.talares.api.cache.actors.messages.CachingActorMessages._
+import org.talares.api.cache.{AsyncCache, CacheItem}
+
+import scala.collection.mutable
 
 /**
  * A [[CachingActor]] which, after caching an item once, will always return a cached instance of this item.
  *
  * To do this it keeps the item updated asynchronously by sending a
- * [[org.talares.api.cache.actors.messages.CachingActorMessages.NotFound]] message to it's parent after a specified
- * amount of accesses to the cached item.
+ * [[org.talares.api.cache.actors.messages.CachingActorMessages.Refresh]] message to it's parent after a specified
+ * amount of accesses to the cached item. The parent fetches the item in the background lane and sends it back as a
+ * [[org.talares.api.cache.actors.messages.CachingActorMessages.StoreRefreshed]]. Listeners subscribed to
+ * [[org.talares.api.cache.ItemChanges]] are notified of the items an update changed.
  *
  * @author Dennis Vis
  * @since 0.1.0
  */
-class AutoUpdateCachingActor(val app: Talares, cache: Cache) extends CachingActor {
+class AutoUpdateCachingActor(val app: Talares, val cache: AsyncCache) extends AsyncCachingActor {
 
   import context.parent
 
@@ -39,24 +43,42 @@ class AutoUpdateCachingActor(val app: Talares, cache: Cache) extends CachingActo
    */
   val timesAccessedTrigger = Settings.cacheRefreshRatio
 
-  override def handleFetch(fetcherTask: FetcherMessages.Task[_]): Unit = {
-
-    val cacheKey = fetcherTask.cacheKey
+  /** The values of entries for which an update was issued, by cache key, used to determine what the update changed **/
+  private val pendingUpdates = mutable.Map[Any, Any]()
 
-    cache.get(cacheKey) match {
-      case Some(cacheItem: CacheItem) =>
+  override def handleLookup(fetcherTask: FetcherMessages.Task[_], cacheItem: Option[CacheItem]): Unit =
+    cacheItem match {
+      case Some(item) =>
 
-        parent ! Found(fetcherTask, cacheItem.value)
+        parent ! Found(fetcherTask, item.value)
 
-        val copy = cacheItem.copy(timesAccessed = cacheItem.timesAccessed + 1)
-        cache.put(cacheKey, copy)
+        val copy = item.copy(timesAccessed = item.timesAccessed + 1)
+        store(fetcherTask.cacheKey, copy)
 
-        if (cacheItem.timesAccessed >= timesAccessedTrigger) parent ! NotFound(fetcherTask)
+        if (item.timesAccessed >= timesAccessedTrigger) {
+          if (changes.hasListeners) pendingUpdates.put(fetcherTask.cacheKey, item.value)
+          parent ! Refresh(fetcherTask, None)
+        }
 
       case _ => parent ! NotFound(fetcherTask)
     }
-  }
 
   override def handleStore(fetcherTask: FetcherMessages.Task[_], value: Any): Unit =
-    cache.put(fetcherTask.cacheKey, CacheItem(value))
-}
\ No newline at end of file
+    storeUpdate(fetcherTask.cacheKey, value, fetcherTask.issued)
+
+  override def receiveInternal: Receive = super.receiveInternal orElse {
+    case StoreRefreshed(fetcherTask, value, _, issued) => storeUpdate(fetcherTask.cacheKey, value, issued)
+    case Renew(fetcherTask) => pendingUpdates.remove(fetcherTask.cacheKey)
+    case RefreshFailed(fetcherTask) => pendingUpdates.remove(fetcherTask.cacheKey)
+  }
+
+  override def handleInvalidate(cacheKeys: Seq[Any]): Unit = {
+    cacheKeys foreach pendingUpdates.remove
+    super.handleInvalidate(cacheKeys)
+  }
+
+  private def storeUpdate(key: Any, value: Any, issued: Long): Unit = {
+    store(key, cacheItem(value, issued))
+    pendingUpdates.remove(key) foreach (publishChanges(_, value))
+  }
+}
@@ -19,16 +19,56 @@ import akka.actor.ActorLogging
 import akka.event.LoggingReceive
 import org.talares.api.actors.BaseActor
 import org.talares.api.actors.messages.FetcherMessages
-import org.talares.api.cache.actors.messages.CachingActorMessages.{RetrieveFromCache, StoreInCache}
+import org.talares.api.cache.{CacheItem, ItemChange, PendingWrites}
+import org.talares.api.cache.actors.messages.CachingActorMessages.{Flush, Invalidate, RetrieveFromCache, StoreInCache}
+
+import scala.concurrent.Promise
+import scala.util.control.NonFatal
 
 /**
  * Blueprint for caching actors.
  *
+ * Caching actors run on their own dispatcher, together with the callbacks of the futures they create, so a slow cache
+ * does not hold up the other actors.
+ *
  * @author Dennis Vis
  * @since 0.1.0
  */
 trait CachingActor extends BaseActor with ActorLogging {
 
+  override implicit lazy val executionContext = system.dispatchers.lookup(CachingActor.Dispatcher)
+
+  /** The generations of publications, used to recognise entries made stale by a publication wide invalidation **/
+  lazy val generations = app.generations
+
+  /**
+   * Wraps a value in a [[org.talares.api.cache.CacheItem]] stamped with the generation it's publication was at when
+   * the fetch of the value was issued.
+   *
+   * @param value the value to wrap
+   * @param issued the moment the fetch of the value was issued
+   * @return the [[org.talares.api.cache.CacheItem]] to store
+   */
+  def cacheItem(value: Any, issued: Long): CacheItem = generations.stamp(CacheItem(value), issued)
+
+  /** The writes to the cache in progress, awaited when the library drains **/
+  val pendingWrites = new PendingWrites
+
+  /** The listeners to notify when a refresh changes a cached item **/
+  lazy val changes = app.changes
+
+  /**
+   * Notifies the subscribed listeners of every item which differs between the old and new value of a refreshed entry.
+   *
+   * @param oldValue the value of the entry before the refresh
+   * @param newValue the value of the entry after the refresh
+   */
+  def publishChanges(oldValue: Any, newValue: Any): Unit = ItemChange.between(oldValue, newValue) foreach { change =>
+    changes.publish(change) onFailure {
+      case NonFatal(throwable) => log.warning(s"A listener failed to handle the change of ${change.itemKey}: $throwable")
+    }
+  }
+
   /**
    * Handles messages of the type [[org.talares.api.cache.actors.messages.CachingActorMessages.RetrieveFromCache]].
    *
@@ -49,8 +89,44 @@ trait CachingActor extends BaseActor with ActorLogging {
    */
   def handleStore(fetcherTask: FetcherMessages.Task[_], value: Any): Unit
 
+  /**
+   * Handles messages of the type [[org.talares.api.cache.actors.messages.CachingActorMessages.Invalidate]].
+   *
+   * These messages indicate a request for evicting the entries stored under the given keys. Does nothing by default.
+   *
+   * @param cacheKeys the keys of the entries to evict
+   */
+  def handleInvalidate(cacheKeys: Seq[Any]): Unit = {}
+
+  /**
+   * Handles messages of the type [[org.talares.api.cache.actors.messages.CachingActorMessages.Flush]].
+   *
+   * These messages are sent when the library drains, after every request has been answered. The given promise is
+   * completed once the writes to the cache in progress have completed. As the stores requested before are handled
+   * before this message, those writes include the outcome of every request.
+   *
+   * @param flushed the promise to complete once the writes have completed
+   */
+  def handleFlush(flushed: Promise[Unit]): Unit = flushed completeWith pendingWrites.completed
+
+  /**
+   * Handles any messages an implementation sends to itself, for instance to process the completion of an asynchronous
+   * cache operation. Handles no messages by default.
+   */
+  def receiveInternal: Receive = PartialFunction.empty
+
   override final def receive: Receive = LoggingReceive {
-    case RetrieveFromCache(request) => handleFetch(request)
-    case StoreInCache(request, value) => handleStore(request, value)
+    ({
+      case RetrieveFromCache(request) => handleFetch(request)
+      case StoreInCache(request, value) => handleStore(request, value)
+      case Invalidate(cacheKeys) => handleInvalidate(cacheKeys)
+      case Flush(flushed) => handleFlush(flushed)
+    }: Receive) orElse receiveInternal
   }
-}
\ No newline at end of file
+}
+
+object CachingActor {
+
+  /** The id of the dispatcher caching actors run on **/
+  val Dispatcher = "talares.cache-dispatcher"
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache.actors
+
+import org.talares.api.Talares
+import org.talares.api.actors.messages.FetcherMessages
+import org.talares.api.cache.actors.messages.CachingActorMessages.{Found, Load, NotFound}
+import org.talares.api.cache.{CacheItem, FlushingCache, LoadingCache}
+
+import scala.concurrent.{Future, Promise}
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success}
+
+/**
+ * A [[CachingActor]] which uses the supplied [[org.talares.api.cache.LoadingCache]].
+ *
+ * Rather than reporting a miss to it's parent, it hands the cache a loader. When invoked, the loader sends a
+ * [[org.talares.api.cache.actors.messages.CachingActorMessages.Load]] to the parent, which completes the enclosed
+ * promise once the item has been fetched. The cache implementation thereby controls locking per key.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class LoadingCachingActor(val app: Talares, cache: LoadingCache) extends CachingActor {
+
+  import context.parent
+
+  override def handleFetch(fetcherTask: FetcherMessages.Task[_]): Unit = {
+
+    val mediator = parent
+
+    val loader = () => {
+      val promise = Promise[Any]()
+      mediator ! Load(fetcherTask, promise)
+      promise.future map (cacheItem(_, fetcherTask.issued))
+    }
+
+    val key = fetcherTask.cacheKey
+
+    val lookup = cache.get(key, loader) flatMap {
+      case stale: CacheItem if !generations.isCurrent(stale) =>
+        cache.invalidate(key) flatMap (_ => cache.get(key, loader))
+      case value => Future.successful(value)
+    }
+
+    lookup onComplete {
+      case Success(item: CacheItem) => mediator ! Found(fetcherTask, item.value)
+      case Success(_) => mediator ! NotFound(fetcherTask)
+      case Failure(throwable) => mediator ! Found(fetcherTask, throwable)
+    }
+  }
+
+  override def handleStore(fetcherTask: FetcherMessages.Task[_], value: Any): Unit =
+    pendingWrites.track(cache.put(fetcherTask.cacheKey, cacheItem(value, fetcherTask.issued)))
+
+  override def handleFlush(flushed: Promise[Unit]): Unit =
+    flushed completeWith (pendingWrites.completed flatMap (_ => FlushingCache.flush(cache)))
+
+  override def handleInvalidate(cacheKeys: Seq[Any]): Unit = cacheKeys foreach { key =>
+    cache.invalidate(key) onFailure {
+      case NonFatal(throwable) => log.warning(s"Cache invalidation failed for key $key: $throwable")
+    }
+  }
+}
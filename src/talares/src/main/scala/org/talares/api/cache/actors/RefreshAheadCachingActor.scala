@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.cache.actors
+
+import akka.actor.Cancellable
+import akka.pattern.pipe
+import org.talares.api.Talares
+import org.talares.api.actors.messages.FetcherMessages
+import org.talares.api.cache.actors.messages.CachingActorMessages._
+import org.talares.api.cache.{AsyncCache, CacheItem, RefreshSchedule}
+
+import scala.concurrent.duration._
+import scala.util.control.NonFatal
+
+/**
+ * A [[CachingActor]] which keeps hot items fresh in the background, so they are refreshed before they expire rather
+ * than fetched again once a client misses them.
+ *
+ * When a refresh is due, according to a [[org.talares.api.cache.RefreshSchedule]], a
+ * [[org.talares.api.cache.actors.messages.CachingActorMessages.Refresh]] message is sent to it's parent. The parent
+ * fetches the item on a lane separate from client requests and sends it back as a
+ * [[org.talares.api.cache.actors.messages.CachingActorMessages.StoreRefreshed]]. When the webservice returned the exact
+ * same response as before, the parent sends a [[org.talares.api.cache.actors.messages.CachingActorMessages.Renew]]
+ * instead and the cached item is kept as is. Only when the backing cache expires it's entries, the item is written
+ * again to extend it's life.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class RefreshAheadCachingActor(val app: Talares, val cache: AsyncCache) extends AsyncCachingActor {
+
+  import context.parent
+
+  val schedule = new RefreshSchedule(
+    Settings.refreshAheadInterval,
+    Settings.refreshAheadMinInterval,
+    Settings.refreshAheadMaxInterval,
+    Settings.refreshAheadHotPeriod,
+    Settings.refreshAheadExpiry,
+    Settings.refreshAheadLead,
+    Settings.timeout
+  )
+
+  /** The interval at which is checked for entries due for a refresh **/
+  val tickInterval = math.max(100L, Settings.refreshAheadMinInterval / 2).millis
+
+  private var ticks: Option[Cancellable] = None
+
+  override def preStart(): Unit =
+    ticks = Some(context.system.scheduler.schedule(tickInterval, tickInterval, self, RefreshTick))
+
+  override def postStop(): Unit = ticks foreach (_.cancel())
+
+  override def handleLookup(fetcherTask: FetcherMessages.Task[_], cacheItem: Option[CacheItem]): Unit =
+    cacheItem match {
+      case Some(item) =>
+        parent ! Found(fetcherTask, item.value)
+        if (!item.value.isInstanceOf[Throwable]) schedule.accessed(fetcherTask, item.value, now)
+      case _ => parent ! NotFound(fetcherTask)
+    }
+
+  override def handleStore(fetcherTask: FetcherMessages.Task[_], value: Any): Unit = {
+    store(fetcherTask.cacheKey, cacheItem(value, fetcherTask.issued))
+    value match {
+      case _: Throwable => schedule.remove(fetcherTask.cacheKey)
+      case _ => schedule.stored(fetcherTask.cacheKey, value, now)
+    }
+  }
+
+  override def handleInvalidate(cacheKeys: Seq[Any]): Unit = {
+    cacheKeys foreach schedule.remove
+    super.handleInvalidate(cacheKeys)
+  }
+
+  override def receiveInternal: Receive = super.receiveInternal orElse {
+    case RefreshTick => schedule.due(now) foreach { fetcherTask =>
+      parent ! Refresh(fetcherTask, schedule.contentHash(fetcherTask.cacheKey))
+    }
+    case StoreRefreshed(fetcherTask, value, contentHash, issued) =>
+      storeRefreshed(fetcherTask, value, issued)
+      schedule.stored(fetcherTask.cacheKey, value, now, Some(contentHash))
+    case RefreshedLookupCompleted(fetcherTask, value, issued, previous) =>
+      store(fetcherTask.cacheKey, cacheItem(value, issued))
+      previous foreach {
+        case item: CacheItem => publishChanges(item.value, value)
+        case _ =>
+      }
+    case RefreshFailed(_) =>
+    case Renew(fetcherTask) => if (schedule.renewed(fetcherTask.cacheKey, now) && Settings.refreshAheadExpiry > 0) {
+      cache.get(fetcherTask.cacheKey) recover {
+        case NonFatal(throwable) =>
+          log.warning(s"Cache lookup to renew ${fetcherTask.cacheKey} failed: $throwable")
+          None
+      } map (RenewLookupCompleted(fetcherTask, _)) pipeTo self
+    }
+    case RenewLookupCompleted(fetcherTask, Some(item: CacheItem)) if generations.isCurrent(item) =>
+      store(fetcherTask.cacheKey, item)
+    case RenewLookupCompleted(_, _) =>
+  }
+
+  /**
+   * Stores the refreshed value of an entry. When listeners are subscribed to [[org.talares.api.cache.ItemChanges]],
+   * the previous value is looked up first and the value is stored once the
+   * [[org.talares.api.cache.actors.messages.CachingActorMessages.RefreshedLookupCompleted]] of the lookup arrives, so
+   * the listeners can be notified of the items the refresh changed.
+   *
+   * @param fetcherTask the task refreshed
+   * @param value the refreshed value
+   * @param issued the moment the refresh was issued
+   */
+  private def storeRefreshed(fetcherTask: FetcherMessages.Task[_], value: Any, issued: Long): Unit =
+    if (!changes.hasListeners) store(fetcherTask.cacheKey, cacheItem(value, issued))
+    else cache.get(fetcherTask.cacheKey) recover {
+      case NonFatal(throwable) =>
+        log.warning(s"Cache lookup to publish the changes of ${fetcherTask.cacheKey} failed: $throwable")
+        None
+    } map (RefreshedLookupCompleted(fetcherTask, value, issued, _)) pipeTo self
+
+  private def now: Long = System.currentTimeMillis
+}
@@ -15,11 +15,10 @@
  */
 package org.talares.api.cache.actors
 
-import akka.actor.ActorLogging
 import org.talares.api.Talares
 import org.talares.api.actors.messages.FetcherMessages
 import org.talares.api.cache.actors.messages.CachingActorMessages.{Found, NotFound}
-import org.talares.api.cache.{Cache, CacheItem}
+import org.talares.api.cache.{AsyncCache, CacheItem}
 
 /**
  * A [[CachingActor]] which uses the supplied cache implementation.
@@ -28,17 +27,16 @@ import org.talares.api.cache.{Cache, CacheItem}
  * @author Dennis Vis
  * @since 0.1.0
  */
-class SimpleCachingActor(val app: Talares, cache: Cache) extends CachingActor with ActorLogging {
+class SimpleCachingActor(val app: Talares, val cache: AsyncCache) extends AsyncCachingActor {
 
   import context.parent
 
-  override def handleFetch(fetcherTask: FetcherMessages.Task[_]): Unit = {
-    cache.get(fetcherTask.cacheKey) match {
-      case Some(cacheItem: CacheItem) => parent ! Found(fetcherTask, cacheItem.value)
+  override def handleLookup(fetcherTask: FetcherMessages.Task[_], cacheItem: Option[CacheItem]): Unit =
+    cacheItem match {
+      case Some(item) => parent ! Found(fetcherTask, item.value)
       case _ => parent ! NotFound(fetcherTask)
     }
-  }
 
   override def handleStore(fetcherTask: FetcherMessages.Task[_], value: Any): Unit =
-    cache.put(fetcherTask.cacheKey, CacheItem(value))
+    store(fetcherTask.cacheKey, cacheItem(value, fetcherTask.issued))
 }
\ No newline at end of file
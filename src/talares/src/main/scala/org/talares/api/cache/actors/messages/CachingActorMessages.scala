@@ -2,6 +2,8 @@ package org.talares.api.cache.actors.messages
 
 import org.talares.api.actors.messages.FetcherMessages
 
+import scala.concurrent.Promise
+
 /**
  * Object holding messages in use by [[org.talares.api.cache.actors.CachingActor]]'s.
  *
@@ -19,4 +21,27 @@ object CachingActorMessages {
   case class NotFound(fetcherTask: FetcherMessages.Task[_]) extends Result
 
   case class Found(fetcherTask: FetcherMessages.Task[_], value: Any) extends Result
+
+  case class Load(fetcherTask: FetcherMessages.Task[_], promise: Promise[Any])
+
+  case class LookupCompleted(fetcherTasks: Seq[FetcherMessages.Task[_]], found: Map[Any, Any])
+
+  case class Invalidate(cacheKeys: Seq[Any])
+
+  case class Refresh(fetcherTask: FetcherMessages.Task[_], contentHash: Option[Long])
+
+  case class StoreRefreshed(fetcherTask: FetcherMessages.Task[_], value: Any, contentHash: Long, issued: Long)
+
+  case class Renew(fetcherTask: FetcherMessages.Task[_])
+
+  case class RefreshFailed(fetcherTask: FetcherMessages.Task[_])
+
+  case class RefreshedLookupCompleted(fetcherTask: FetcherMessages.Task[_], value: Any, issued: Long,
+                                      previous: Option[Any])
+
+  case class RenewLookupCompleted(fetcherTask: FetcherMessages.Task[_], found: Option[Any])
+
+  case object RefreshTick
+
+  case class Flush(flushed: Promise[Unit])
 }
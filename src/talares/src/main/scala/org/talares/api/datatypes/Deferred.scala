@@ -15,7 +15,6 @@
  */
 package org.talares.api.datatypes
 
-import akka.pattern.ask
 import org.talares.api.Talares
 import org.talares.api.actors.messages.MediatorMessages
 import org.talares.api.datatypes.items.Item
@@ -38,17 +37,11 @@ import scala.reflect.ClassTag
 case class Deferred[T <: Item](uri: String)(implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]) {
 
   @implicitNotFound(
-    "No implicit value for org.talares.api.Talares found. Try to import org.talares.api.Talares.current."
+    "No implicit value for org.talares.api.Talares found. Declare the Talares instance to use as implicit."
   ) def value(implicit app: Talares): Future[Option[T]] = {
 
-    val system = app.system
-    val mediator = app.mediator
-
-    implicit val executionContext = system.dispatcher
-    implicit val timeout = app.timeout
-
-    (mediator ? MediatorMessages.URIRequest[T](uri)) map {
-      case MediatorMessages.Response(value: T) => Some(value)
+    app.submit(MediatorMessages.URIRequest[T](uri), uri) {
+      case value: T => Some(value)
       case _ => None
     }
   }
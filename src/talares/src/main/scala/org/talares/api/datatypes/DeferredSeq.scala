@@ -15,7 +15,6 @@
  */
 package org.talares.api.datatypes
 
-import akka.pattern.ask
 import org.talares.api.Talares
 import org.talares.api.actors.messages.MediatorMessages
 import org.talares.api.datatypes.items.Item
@@ -39,17 +38,11 @@ import scala.reflect.ClassTag
 case class DeferredSeq[T <: Item](uri: String)(implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]) {
 
   @implicitNotFound(
-    "No implicit value for org.talares.api.Talares found. Try to import org.talares.api.Talares.current."
+    "No implicit value for org.talares.api.Talares found. Declare the Talares instance to use as implicit."
   ) def value(implicit app: Talares): Future[Seq[T]] = {
 
-    val system = app.system
-    val dispatcher = app.mediator
-
-    implicit val executionContext = system.dispatcher
-    implicit val timeout = app.timeout
-
-    (dispatcher ? MediatorMessages.URIRequest[T](uri)) map {
-      case MediatorMessages.Response(value: Seq[T]) => value
+    app.submit(MediatorMessages.URIRequest[T](uri), uri) {
+      case value: Seq[T] => value
       case _ => Seq()
     }
   }
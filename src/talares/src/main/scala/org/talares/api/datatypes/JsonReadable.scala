@@ -27,3 +27,18 @@ trait JsonReadable[T] {
 
   implicit val reads: Reads[T]
 }
+
+/**
+ * A [[JsonReadable]] which also provides a [[StreamReads]] for type 'T'.
+ *
+ * Responses of the webservice are read by the [[StreamReads]] of a type, in a single pass over the tokens of the
+ * Json. Types whose [[JsonReadable]] is not a JsonStreamReadable are read by their Reads instead, from the JsValue
+ * tree of the response, see [[StreamReads.of]].
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait JsonStreamReadable[T] extends JsonReadable[T] {
+
+  val streamReads: StreamReads[T]
+}
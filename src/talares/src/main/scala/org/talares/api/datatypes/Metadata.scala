@@ -15,6 +15,7 @@
  */
 package org.talares.api.datatypes
 
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -37,13 +38,20 @@ case class Metadata(uri: String, `type`: String)
 
 object Metadata {
 
-  implicit object MetadataJsonReadable extends JsonReadable[Metadata] {
+  implicit object MetadataJsonReadable extends JsonStreamReadable[Metadata] {
 
     override implicit val reads = Metadata.reads
+
+    override lazy val streamReads = Metadata.streamReads
   }
 
   implicit lazy val reads = (
     (JsPath \ "uri").read[String]
       and (JsPath \ "type").read[String]
     )(Metadata.apply _)
+
+  implicit lazy val streamReads: StreamReads[Metadata] = StreamReads.obj(
+    field[String]("uri"),
+    field[String]("type")
+  )(Metadata.apply _)
 }
\ No newline at end of file
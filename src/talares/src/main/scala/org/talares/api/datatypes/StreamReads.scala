@@ -0,0 +1,364 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.datatypes
+
+import com.fasterxml.jackson.core.{JsonFactory, JsonParser, JsonToken}
+import org.joda.time.DateTime
+import org.talares.api.datatypes.items.EdmDateTimeReads
+import play.api.data.validation.ValidationError
+import play.api.libs.json._
+
+import scala.collection.mutable
+import scala.reflect.ClassTag
+
+/**
+ * Reads a 'T' directly from the tokens of a streaming Json parser, in a single pass and without building a JsValue
+ * tree first. Unlike a Reads, which looks up every field of an object in a materialized JsObject, the reader of an
+ * object dispatches on the name of each field as it passes by, see [[StreamReads.obj]].
+ *
+ * Values which cannot be read fail with a JsResultException, as they would when read by a Reads.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait StreamReads[T] {
+
+  /**
+   * Reads a 'T' from the parser.
+   *
+   * @param parser the parser, positioned at the first token of the value
+   * @return the 'T' read, leaving the parser at the last token of the value
+   */
+  def read(parser: JsonParser): T
+
+  /** The value of a field which is absent from an object, None if the field is required **/
+  def absent: Option[T] = None
+
+  /**
+   * Creates a reader converting the outcome of this reader.
+   *
+   * @param f the function converting the outcome
+   * @tparam B the type converted to
+   * @return the converting reader
+   */
+  def map[B](f: T => B): StreamReads[B] = {
+    val self = this
+    new StreamReads[B] {
+      override def read(parser: JsonParser): B = f(self.read(parser))
+      override def absent: Option[B] = self.absent map f
+    }
+  }
+}
+
+object StreamReads extends ObjectStreamReadsArities {
+
+  /** Creates the parsers, thread safe and expensive to create, so shared **/
+  val factory = new JsonFactory
+
+  /**
+   * Reads a 'T' from raw Json.
+   *
+   * @param content the raw Json
+   * @param reads the reader to use
+   * @tparam T the type to read
+   * @return the 'T' read
+   */
+  def parse[T](content: Array[Byte])(implicit reads: StreamReads[T]): T =
+    readFully(factory.createParser(content), reads)
+
+  /**
+   * Reads a 'T' from Json held in a String.
+   *
+   * @param content the Json
+   * @param reads the reader to use
+   * @tparam T the type to read
+   * @return the 'T' read
+   */
+  def parse[T](content: String)(implicit reads: StreamReads[T]): T =
+    readFully(factory.createParser(content), reads)
+
+  private def readFully[T](parser: JsonParser, reads: StreamReads[T]): T =
+    try {
+      parser.nextToken()
+      reads.read(parser)
+    } finally {
+      parser.close()
+    }
+
+  /**
+   * Fails reading a value.
+   *
+   * @param error the key of the error, as used by the Reads of play-json
+   * @return nothing, always throws a JsResultException
+   */
+  def failure(error: String): Nothing = throw JsResultException(Seq(JsPath() -> Seq(ValidationError(error))))
+
+  implicit object IntStreamReads extends StreamReads[Int] {
+    override def read(parser: JsonParser): Int = parser.getCurrentToken match {
+      case JsonToken.VALUE_NUMBER_INT => parser.getIntValue
+      case JsonToken.VALUE_NUMBER_FLOAT => parser.getDecimalValue.intValue
+      case _ => failure("error.expected.jsnumber")
+    }
+  }
+
+  implicit object FloatStreamReads extends StreamReads[Float] {
+    override def read(parser: JsonParser): Float = parser.getCurrentToken match {
+      case JsonToken.VALUE_NUMBER_INT | JsonToken.VALUE_NUMBER_FLOAT => parser.getFloatValue
+      case _ => failure("error.expected.jsnumber")
+    }
+  }
+
+  implicit object BooleanStreamReads extends StreamReads[Boolean] {
+    override def read(parser: JsonParser): Boolean = parser.getCurrentToken match {
+      case JsonToken.VALUE_TRUE => true
+      case JsonToken.VALUE_FALSE => false
+      case _ => failure("error.expected.jsboolean")
+    }
+  }
+
+  implicit object StringStreamReads extends StreamReads[String] {
+    override def read(parser: JsonParser): String = parser.getCurrentToken match {
+      case JsonToken.VALUE_STRING => parser.getText
+      case _ => failure("error.expected.jsstring")
+    }
+  }
+
+  /** Reads the Edm.DateTime format of the webservice, see [[org.talares.api.datatypes.items.EdmDateTimeReads]] **/
+  implicit object EdmDateTimeStreamReads extends StreamReads[DateTime] {
+    override def read(parser: JsonParser): DateTime = parser.getCurrentToken match {
+      case JsonToken.VALUE_STRING =>
+        EdmDateTimeReads.parse(parser.getText) getOrElse failure("error.expected.edm.datetime")
+      case _ => failure("error.expected.jsstring")
+    }
+  }
+
+  /** Builds the JsValue tree of a value, for reading values no dedicated reader exists for **/
+  implicit object JsValueStreamReads extends StreamReads[JsValue] {
+    override def read(parser: JsonParser): JsValue = parser.getCurrentToken match {
+      case JsonToken.START_OBJECT =>
+        val fields = mutable.ArrayBuffer[(String, JsValue)]()
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          val name = parser.getCurrentName
+          parser.nextToken()
+          fields += name -> read(parser)
+        }
+        JsObject(fields)
+      case JsonToken.START_ARRAY =>
+        val values = mutable.ArrayBuffer[JsValue]()
+        while (parser.nextToken() != JsonToken.END_ARRAY) values += read(parser)
+        JsArray(values)
+      case JsonToken.VALUE_STRING => JsString(parser.getText)
+      case JsonToken.VALUE_NUMBER_INT | JsonToken.VALUE_NUMBER_FLOAT => JsNumber(parser.getDecimalValue)
+      case JsonToken.VALUE_TRUE => JsBoolean(true)
+      case JsonToken.VALUE_FALSE => JsBoolean(false)
+      case JsonToken.VALUE_NULL => JsNull
+      case token => failure(s"error.unexpected.$token")
+    }
+  }
+
+  /**
+   * Reads an optional value: an absent field or a null value is read as None, like readNullable does.
+   *
+   * @param reads the reader of the value
+   * @tparam T the type of the value
+   * @return the reader of the optional value
+   */
+  implicit def option[T](implicit reads: StreamReads[T]): StreamReads[Option[T]] = new StreamReads[Option[T]] {
+    override def read(parser: JsonParser): Option[T] =
+      if (parser.getCurrentToken == JsonToken.VALUE_NULL) None
+      else Some(reads.read(parser))
+    override val absent: Option[Option[T]] = Some(None)
+  }
+
+  /**
+   * Reads a Json array.
+   *
+   * @param reads the reader of the elements
+   * @tparam T the type of the elements
+   * @return the reader of the array
+   */
+  implicit def seq[T](implicit reads: StreamReads[T]): StreamReads[Seq[T]] = new StreamReads[Seq[T]] {
+    override def read(parser: JsonParser): Seq[T] = {
+      if (parser.getCurrentToken != JsonToken.START_ARRAY) failure("error.expected.jsarray")
+      val values = Vector.newBuilder[T]
+      while (parser.nextToken() != JsonToken.END_ARRAY) values += reads.read(parser)
+      values.result()
+    }
+  }
+
+  /**
+   * The reader of the type a [[JsonReadable]] is for: the [[StreamReads]] of a [[JsonStreamReadable]], otherwise one
+   * applying the Reads.
+   *
+   * @param jsonReadable the [[JsonReadable]] of the type
+   * @tparam T the type to read
+   * @return the reader
+   */
+  def of[T](jsonReadable: JsonReadable[T]): StreamReads[T] = jsonReadable match {
+    case streamReadable: JsonStreamReadable[T] => streamReadable.streamReads
+    case _ => fromReads(jsonReadable.reads)
+  }
+
+  /**
+   * Reads a value by means of a Reads, building the JsValue tree of the value first. Used for types which have no
+   * dedicated reader.
+   *
+   * @param reads the Reads to use
+   * @tparam T the type to read
+   * @return the reader
+   */
+  def fromReads[T](reads: Reads[T]): StreamReads[T] = JsValueStreamReads map (_.as[T](reads))
+
+  /**
+   * Declares a field of an object to read, see [[obj]]. A field of an Option type may be absent or null. The fields
+   * of an object are passed to the constructor of the type read by their position, for instance:
+   * {{{
+   *   StreamReads.obj(
+   *     field[String]("uri"),
+   *     field[String]("type")
+   *   )(Metadata.apply _)
+   * }}}
+   *
+   * @param name the name of the field
+   * @param reads the reader of the value of the field
+   * @tparam A the type of the value of the field
+   * @return the field
+   */
+  def field[A](name: String)(implicit reads: StreamReads[A]): Field[A] = Field(name, reads)
+
+  /**
+   * A field of an object to read, see [[field]].
+   *
+   * @param name the name of the field
+   * @param reads the reader of the value of the field
+   * @tparam A the type of the value of the field
+   */
+  final case class Field[A](name: String, reads: StreamReads[A])
+
+  /**
+   * Reads a [[Deferred]], being an object holding the URI of the item under __deferred.
+   *
+   * @tparam T the type of the deferred item
+   * @return the reader
+   */
+  implicit def deferred[T <: items.Item](implicit jsonReadable: JsonReadable[T],
+                                         classTag: ClassTag[T]): StreamReads[Deferred[T]] =
+    deferredURI map (uri => Deferred[T](uri))
+
+  /**
+   * Reads a [[DeferredSeq]], being an object holding the URI of the items under __deferred.
+   *
+   * @tparam T the type of the deferred items
+   * @return the reader
+   */
+  implicit def deferredSeq[T <: items.Item](implicit jsonReadable: JsonReadable[T],
+                                            classTag: ClassTag[T]): StreamReads[DeferredSeq[T]] =
+    deferredURI map (uri => DeferredSeq[T](uri))
+
+  private lazy val deferredURI: StreamReads[String] =
+    obj(Field("__deferred", obj(field[String]("uri"))(uri => uri)))(uri => uri)
+
+  /**
+   * The values of the fields of an object, by the position of their field in the fields passed to [[obj]].
+   */
+  final class Fields private[StreamReads](values: Array[Any], private[StreamReads] val present: Array[Boolean]) {
+
+    /**
+     * @param index the position of the field
+     * @tparam A the type of the field at that position, which [[obj]] guarantees
+     * @return the value of the field
+     */
+    private[datatypes] def get[A](index: Int): A = values(index).asInstanceOf[A]
+
+    private[StreamReads] def update(index: Int, value: Any): Unit = values(index) = value
+  }
+
+  /**
+   * The reader of a Json object created by [[obj]]. The fields are looked up by name in a table built once, as they
+   * pass by.
+   *
+   * @param fields every field
+   * @param constructor creates the 'T' from the values of the fields
+   * @tparam T the type to read
+   */
+  final class ObjectStreamReads[T] private[datatypes](fields: Seq[Field[_]],
+                                                      constructor: Fields => T) extends StreamReads[T] {
+
+    private val names = fields.map(_.name).toArray
+
+    private val readers = fields.map(_.reads).toArray[StreamReads[_]]
+
+    private val positions = new java.util.HashMap[String, Integer]()
+
+    names.zipWithIndex foreach { case (name, position) => positions.put(name, position) }
+
+    override def read(parser: JsonParser): T = construct(readFields(parser, (_, _) => false))
+
+    /**
+     * Reads the fields of the object, passing the fields which are not listed to the given function. Fields which are
+     * absent are not reported until the values are passed to construct(), so the caller may still decide the object
+     * is not a 'T' after all.
+     *
+     * @param parser the parser, positioned at the start of the object
+     * @param other reads a field which is not listed, positioned at it's value, returning false to skip it
+     * @return the values of the fields
+     */
+    def readFields(parser: JsonParser, other: (String, JsonParser) => Boolean): Fields = {
+
+      if (parser.getCurrentToken != JsonToken.START_OBJECT) failure("error.expected.jsobject")
+
+      val values = new Array[Any](names.length)
+      val present = new Array[Boolean](names.length)
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        val name = parser.getCurrentName
+        parser.nextToken()
+        val position = positions.get(name)
+        if (position != null) {
+          values(position) = readField(name, readers(position), parser)
+          present(position) = true
+        }
+        else if (!other(name, parser)) parser.skipChildren()
+      }
+
+      new Fields(values, present)
+    }
+
+    /**
+     * Constructs the 'T' from the values read by readFields(). An absent field takes the value of it's reader for an
+     * absent field, or fails the construction if it is required.
+     *
+     * @param values the values of the fields
+     * @return the 'T'
+     */
+    def construct(values: Fields): T = {
+      var position = 0
+      while (position < names.length) {
+        if (!values.present(position)) values.update(position, readers(position).absent getOrElse {
+          throw JsResultException(Seq((JsPath \ names(position)) -> Seq(ValidationError("error.path.missing"))))
+        })
+        position += 1
+      }
+      constructor(values)
+    }
+
+    private def readField(name: String, reader: StreamReads[_], parser: JsonParser): Any =
+      try reader.read(parser) catch {
+        case JsResultException(errors) =>
+          throw JsResultException(errors map { case (path, error) => ((JsPath \ name) ++ path) -> error })
+      }
+  }
+}
@@ -15,7 +15,8 @@
  */
 package org.talares.api.datatypes.items
 
-import org.talares.api.datatypes.{Metadata, JsonReadable, Deferred, DeferredSeq}
+import org.talares.api.datatypes.{Metadata, JsonStreamReadable, Deferred, DeferredSeq, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -51,9 +52,11 @@ case class Binary(metadata: Metadata,
 
 object Binary {
 
-  implicit object BinaryJsonReadable extends JsonReadable[Binary] {
+  implicit object BinaryJsonReadable extends JsonStreamReadable[Binary] {
 
     override implicit lazy val reads = Binary.reads
+
+    override lazy val streamReads = Binary.streamReads
   }
 
   implicit lazy val reads = (
@@ -64,6 +67,14 @@ object Binary {
       (JsPath \ "BinaryVariants").read[DeferredSeq[BinaryVariant]]
     )(Binary.apply _)
 
+  implicit lazy val streamReads: StreamReads[Binary] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("BinaryId"),
+    field[String]("Type"),
+    field[DeferredSeq[BinaryVariant]]("BinaryVariants")
+  )(Binary.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[Binary]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[Binary]
@@ -15,7 +15,8 @@
  */
 package org.talares.api.datatypes.items
 
-import org.talares.api.datatypes.{Deferred, DeferredSeq, JsonReadable, Metadata}
+import org.talares.api.datatypes.{Deferred, DeferredSeq, JsonStreamReadable, Metadata, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -42,9 +43,11 @@ case class BinaryContent(metadata: Metadata, publicationId: Int, binaryId: Int,
 
 object BinaryContent {
 
-  implicit object BinaryContentJsonReadable extends JsonReadable[BinaryContent] {
+  implicit object BinaryContentJsonReadable extends JsonStreamReadable[BinaryContent] {
 
     override implicit lazy val reads = BinaryContent.reads
+
+    override lazy val streamReads = BinaryContent.streamReads
   }
 
   implicit lazy val reads = (
@@ -54,6 +57,13 @@ object BinaryContent {
       (JsPath \ "VariantId").read[String]
     )(BinaryContent.apply _)
 
+  implicit lazy val streamReads: StreamReads[BinaryContent] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("BinaryId"),
+    field[String]("VariantId")
+  )(BinaryContent.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[BinaryContent]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[BinaryContent]
@@ -15,7 +15,8 @@
  */
 package org.talares.api.datatypes.items
 
-import org.talares.api.datatypes.{Metadata, JsonReadable, Deferred, DeferredSeq}
+import org.talares.api.datatypes.{Metadata, JsonStreamReadable, Deferred, DeferredSeq, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -61,9 +62,11 @@ case class BinaryVariant(metadata: Metadata,
 
 object BinaryVariant {
 
-  implicit object BinaryVariantJsonReadable extends JsonReadable[BinaryVariant] {
+  implicit object BinaryVariantJsonReadable extends JsonStreamReadable[BinaryVariant] {
 
     override implicit val reads = BinaryVariant.reads
+
+    override lazy val streamReads = BinaryVariant.streamReads
   }
 
   implicit lazy val reads = (
@@ -79,6 +82,19 @@ object BinaryVariant {
       (JsPath \ "Binary").read[Deferred[Binary]]
     )(BinaryVariant.apply _)
 
+  implicit lazy val streamReads: StreamReads[BinaryVariant] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("BinaryId"),
+    field[String]("Type"),
+    field[String]("URLPath"),
+    field[Boolean]("IsComponent"),
+    field[String]("Path"),
+    field[String]("VariantId"),
+    field[Option[String]]("Description"),
+    field[Deferred[Binary]]("Binary")
+  )(BinaryVariant.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[BinaryVariant]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[BinaryVariant]
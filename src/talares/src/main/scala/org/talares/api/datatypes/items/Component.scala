@@ -17,6 +17,7 @@ package org.talares.api.datatypes.items
 
 import org.joda.time.DateTime
 import org.talares.api.datatypes._
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -90,9 +91,11 @@ case class Component(metadata: Metadata,
 
 object Component {
 
-  implicit object ComponentJsonReadable extends JsonReadable[Component] {
+  implicit object ComponentJsonReadable extends JsonStreamReadable[Component] {
 
     override implicit lazy val reads = Component.reads
+
+    override lazy val streamReads = Component.streamReads
   }
 
   implicit lazy val reads = (
@@ -116,6 +119,27 @@ object Component {
       (JsPath \ "CustomMetas").read[DeferredSeq[CustomMeta]]
     )(Component.apply _)
 
+  implicit lazy val streamReads: StreamReads[Component] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("ItemId"),
+    field[Option[String]]("Title"),
+    field[Option[String]]("Author"),
+    field[Option[DateTime]]("CreationDate"),
+    field[Option[DateTime]]("InitialPublishDate"),
+    field[Option[DateTime]]("LastPublishDate"),
+    field[Option[DateTime]]("ModificationDate"),
+    field[Option[Int]]("MajorVersion"),
+    field[Option[Int]]("MinorVersion"),
+    field[Option[Int]]("OwningPublication"),
+    field[Option[Boolean]]("Multimedia"),
+    field[Int]("SchemaId"),
+    field[Deferred[Schema]]("Schema"),
+    field[DeferredSeq[ComponentPresentation]]("ComponentPresentations"),
+    field[DeferredSeq[Keyword]]("Keywords"),
+    field[DeferredSeq[CustomMeta]]("CustomMetas")
+  )(Component.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[Component]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[Component]
@@ -16,6 +16,7 @@
 package org.talares.api.datatypes.items
 
 import org.talares.api.datatypes._
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -67,9 +68,11 @@ case class ComponentPresentation(metadata: Metadata,
 
 object ComponentPresentation {
 
-  implicit object ComponentPresentationJsonReadable extends JsonReadable[ComponentPresentation] {
+  implicit object ComponentPresentationJsonReadable extends JsonStreamReadable[ComponentPresentation] {
 
     override implicit lazy val reads = ComponentPresentation.reads
+
+    override lazy val streamReads = ComponentPresentation.streamReads
   }
 
   implicit lazy val reads = (
@@ -84,6 +87,18 @@ object ComponentPresentation {
       (JsPath \ "Pages").read[DeferredSeq[Page]]
     )(ComponentPresentation.apply _)
 
+  implicit lazy val streamReads: StreamReads[ComponentPresentation] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("ComponentId"),
+    field[Int]("TemplateId"),
+    field[String]("OutputFormat"),
+    field[String]("PresentationContent"),
+    field[Deferred[Component]]("Component"),
+    field[Deferred[Template]]("Template"),
+    field[DeferredSeq[Page]]("Pages")
+  )(ComponentPresentation.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[ComponentPresentation]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[ComponentPresentation]
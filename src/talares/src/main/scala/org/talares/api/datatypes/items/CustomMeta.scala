@@ -17,6 +17,7 @@ package org.talares.api.datatypes.items
 
 import org.joda.time.DateTime
 import org.talares.api.datatypes._
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -74,9 +75,11 @@ case class CustomMeta(metadata: Metadata,
 
 object CustomMeta {
 
-  implicit object CustomMetaJsonReadable extends JsonReadable[CustomMeta] {
+  implicit object CustomMetaJsonReadable extends JsonStreamReadable[CustomMeta] {
 
     override implicit lazy val reads = CustomMeta.reads
+
+    override lazy val streamReads = CustomMeta.streamReads
   }
 
   implicit lazy val reads = (
@@ -94,6 +97,21 @@ object CustomMeta {
       (JsPath \ "Keyword").read[Deferred[Keyword]]
     )(CustomMeta.apply _)
 
+  implicit lazy val streamReads: StreamReads[CustomMeta] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("ItemId"),
+    field[Int]("Id"),
+    field[Int]("ItemType"),
+    field[String]("KeyName"),
+    field[Option[DateTime]]("DateValue"),
+    field[Option[Float]]("FloatValue"),
+    field[Option[String]]("StringValue"),
+    field[Deferred[Component]]("Component"),
+    field[Deferred[Page]]("Page"),
+    field[Deferred[Keyword]]("Keyword")
+  )(CustomMeta.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[CustomMeta]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[CustomMeta]
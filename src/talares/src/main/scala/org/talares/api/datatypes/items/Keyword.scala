@@ -16,6 +16,7 @@
 package org.talares.api.datatypes.items
 
 import org.talares.api.datatypes._
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -93,9 +94,11 @@ case class Keyword(metadata: Metadata,
 
 object Keyword {
 
-  implicit object KeywordJsonReadable extends JsonReadable[Keyword] {
+  implicit object KeywordJsonReadable extends JsonStreamReadable[Keyword] {
 
     override implicit lazy val reads = Keyword.reads
+
+    override lazy val streamReads = Keyword.streamReads
   }
 
   implicit lazy val reads = (
@@ -119,6 +122,27 @@ object Keyword {
       (JsPath \ "Parent").read[Deferred[Keyword]]
     )(Keyword.apply _)
 
+  implicit lazy val streamReads: StreamReads[Keyword] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("Id"),
+    field[Int]("PublicationId"),
+    field[Int]("TaxonomyId"),
+    field[String]("Title"),
+    field[Option[String]]("Description"),
+    field[Boolean]("HasChildren"),
+    field[Boolean]("Abstract"),
+    field[Boolean]("Navigable"),
+    field[Option[String]]("Key"),
+    field[Int]("Depth"),
+    field[Int]("ItemType"),
+    field[Option[Int]]("TotalRelatedItems"),
+    field[DeferredSeq[Component]]("Components"),
+    field[DeferredSeq[Page]]("Pages"),
+    field[DeferredSeq[CustomMeta]]("CustomMetas"),
+    field[DeferredSeq[Keyword]]("Children"),
+    field[Deferred[Keyword]]("Parent")
+  )(Keyword.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[Keyword]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[Keyword]
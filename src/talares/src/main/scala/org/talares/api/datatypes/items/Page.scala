@@ -16,7 +16,8 @@
 package org.talares.api.datatypes.items
 
 import org.joda.time.DateTime
-import org.talares.api.datatypes.{Deferred, DeferredSeq, JsonReadable, Metadata}
+import org.talares.api.datatypes.{Deferred, DeferredSeq, JsonStreamReadable, Metadata, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.{JsPath, Reads}
 
@@ -98,9 +99,11 @@ case class Page(metadata: Metadata,
 
 object Page {
 
-  implicit object PageJsonReadable extends JsonReadable[Page] {
+  implicit object PageJsonReadable extends JsonStreamReadable[Page] {
 
     override implicit lazy val reads = Page.reads
+
+    override lazy val streamReads = Page.streamReads
   }
 
   implicit lazy val reads: Reads[Page] = (
@@ -126,6 +129,29 @@ object Page {
       (JsPath \ "CustomMetas").read[DeferredSeq[CustomMeta]]
     )(Page.apply _)
 
+  implicit lazy val streamReads: StreamReads[Page] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("ItemId"),
+    field[Option[Int]]("TemplateId"),
+    field[Option[String]]("Title"),
+    field[Option[String]]("Author"),
+    field[Option[DateTime]]("CreationDate"),
+    field[Option[DateTime]]("InitialPublishDate"),
+    field[Option[DateTime]]("LastPublishDate"),
+    field[Option[DateTime]]("ModificationDate"),
+    field[Option[Int]]("MajorVersion"),
+    field[Option[Int]]("MinorVersion"),
+    field[Option[Int]]("OwningPublication"),
+    field[Option[String]]("PagePath"),
+    field[Option[String]]("Url"),
+    field[Deferred[PageContent]]("PageContent"),
+    field[Deferred[StructureGroup]]("StructureGroup"),
+    field[DeferredSeq[ComponentPresentation]]("ComponentPresentations"),
+    field[DeferredSeq[Keyword]]("Keywords"),
+    field[DeferredSeq[CustomMeta]]("CustomMetas")
+  )(Page.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[Page]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[Page]
@@ -15,7 +15,8 @@
  */
 package org.talares.api.datatypes.items
 
-import org.talares.api.datatypes.{Metadata, JsonReadable, Deferred, DeferredSeq}
+import org.talares.api.datatypes.{Metadata, JsonStreamReadable, Deferred, DeferredSeq, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -53,9 +54,11 @@ case class PageContent(metadata: Metadata,
 
 object PageContent {
 
-  implicit object PageContentJsonReadable extends JsonReadable[PageContent] {
+  implicit object PageContentJsonReadable extends JsonStreamReadable[PageContent] {
 
     override implicit val reads = PageContent.reads
+
+    override lazy val streamReads = PageContent.streamReads
   }
 
   implicit lazy val reads = (
@@ -67,6 +70,15 @@ object PageContent {
       (JsPath \ "Page").read[Deferred[Page]]
     )(PageContent.apply _)
 
+  implicit lazy val streamReads: StreamReads[PageContent] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("PageId"),
+    field[Option[String]]("CharSet"),
+    field[Option[String]]("Content"),
+    field[Deferred[Page]]("Page")
+  )(PageContent.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[PageContent]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[PageContent]
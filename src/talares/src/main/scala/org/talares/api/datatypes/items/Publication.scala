@@ -16,6 +16,7 @@
 package org.talares.api.datatypes.items
 
 import org.talares.api.datatypes._
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.{JsPath, Reads}
 
@@ -122,9 +123,11 @@ case class Publication(metadata: Metadata,
 
 object Publication {
 
-  implicit object PublicationJsonReadable extends JsonReadable[Publication] {
+  implicit object PublicationJsonReadable extends JsonStreamReadable[Publication] {
 
     override implicit lazy val reads = Publication.reads
+
+    override lazy val streamReads = Publication.streamReads
   }
 
   implicit lazy val reads: Reads[Publication] = (
@@ -149,6 +152,28 @@ object Publication {
       (JsPath \ "Templates").read[DeferredSeq[Template]]
     )(Publication.apply _)
 
+  implicit lazy val streamReads: StreamReads[Publication] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("Id"),
+    field[Option[String]]("Key"),
+    field[Option[String]]("MultimediaPath"),
+    field[Option[String]]("MultimediaUrl"),
+    field[Option[String]]("PublicationPath"),
+    field[Option[String]]("PublicationUrl"),
+    field[Option[String]]("Title"),
+    field[DeferredSeq[Schema]]("Schemas"),
+    field[DeferredSeq[ComponentPresentation]]("ComponentPresentations"),
+    field[DeferredSeq[Keyword]]("Keywords"),
+    field[DeferredSeq[Binary]]("Binaries"),
+    field[DeferredSeq[BinaryVariant]]("BinaryVariants"),
+    field[DeferredSeq[Component]]("Components"),
+    field[DeferredSeq[CustomMeta]]("CustomMetas"),
+    field[DeferredSeq[Page]]("Pages"),
+    field[DeferredSeq[PageContent]]("PageContents"),
+    field[DeferredSeq[StructureGroup]]("StructureGroups"),
+    field[DeferredSeq[Template]]("Templates")
+  )(Publication.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[Publication]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[Publication]
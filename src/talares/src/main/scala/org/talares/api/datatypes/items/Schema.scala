@@ -15,7 +15,8 @@
  */
 package org.talares.api.datatypes.items
 
-import org.talares.api.datatypes.{Metadata, JsonReadable, Deferred, DeferredSeq}
+import org.talares.api.datatypes.{Metadata, JsonStreamReadable, Deferred, DeferredSeq, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -51,9 +52,11 @@ case class Schema(metadata: Metadata,
 
 object Schema {
 
-  implicit object SchemaJsonReadable extends JsonReadable[Schema] {
+  implicit object SchemaJsonReadable extends JsonStreamReadable[Schema] {
 
     override implicit lazy val reads = Schema.reads
+
+    override lazy val streamReads = Schema.streamReads
   }
 
   implicit lazy val reads = (
@@ -64,6 +67,14 @@ object Schema {
       (JsPath \ "Components").read[DeferredSeq[Component]]
     )(Schema.apply _)
 
+  implicit lazy val streamReads: StreamReads[Schema] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("SchemaId"),
+    field[String]("Title"),
+    field[DeferredSeq[Component]]("Components")
+  )(Schema.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[Schema]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[Schema]
@@ -15,7 +15,8 @@
  */
 package org.talares.api.datatypes.items
 
-import org.talares.api.datatypes.{Metadata, JsonReadable, Deferred, DeferredSeq}
+import org.talares.api.datatypes.{Metadata, JsonStreamReadable, Deferred, DeferredSeq, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.JsPath
 
@@ -67,9 +68,11 @@ case class StructureGroup(metadata: Metadata,
 
 object StructureGroup {
 
-  implicit object StructureGroupJsonReadable extends JsonReadable[StructureGroup] {
+  implicit object StructureGroupJsonReadable extends JsonStreamReadable[StructureGroup] {
 
     override implicit lazy val reads = StructureGroup.reads
+
+    override lazy val streamReads = StructureGroup.streamReads
   }
 
   implicit lazy val reads = (
@@ -84,6 +87,18 @@ object StructureGroup {
       (JsPath \ "Children").read[DeferredSeq[StructureGroup]]
     )(StructureGroup.apply _)
 
+  implicit lazy val streamReads: StreamReads[StructureGroup] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("Id"),
+    field[String]("Title"),
+    field[Int]("Depth"),
+    field[Option[String]]("Directory"),
+    field[DeferredSeq[Page]]("Pages"),
+    field[Deferred[StructureGroup]]("Parent"),
+    field[DeferredSeq[StructureGroup]]("Children")
+  )(StructureGroup.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[StructureGroup]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[StructureGroup]
@@ -16,7 +16,8 @@
 package org.talares.api.datatypes.items
 
 import org.joda.time.DateTime
-import org.talares.api.datatypes.{Metadata, JsonReadable, Deferred, DeferredSeq}
+import org.talares.api.datatypes.{Metadata, JsonStreamReadable, Deferred, DeferredSeq, StreamReads}
+import org.talares.api.datatypes.StreamReads.field
 import play.api.libs.functional.syntax._
 import play.api.libs.json.{JsPath, Reads}
 
@@ -72,9 +73,11 @@ case class Template(metadata: Metadata,
 
 object Template {
 
-  implicit object TemplateJsonReadable extends JsonReadable[Template] {
+  implicit object TemplateJsonReadable extends JsonStreamReadable[Template] {
 
     override implicit lazy val reads = Template.reads
+
+    override lazy val streamReads = Template.streamReads
   }
 
   implicit val reads: Reads[Template] = (
@@ -95,6 +98,24 @@ object Template {
       (JsPath \ "ComponentPresentations").read[DeferredSeq[ComponentPresentation]]
     )(Template.apply _)
 
+  implicit lazy val streamReads: StreamReads[Template] = StreamReads.obj(
+    field[Metadata]("__metadata"),
+    field[Int]("PublicationId"),
+    field[Int]("ItemId"),
+    field[Option[String]]("Title"),
+    field[Option[String]]("Author"),
+    field[Option[DateTime]]("CreationDate"),
+    field[Option[DateTime]]("InitialPublishDate"),
+    field[Option[DateTime]]("LastPublishDate"),
+    field[Option[DateTime]]("ModificationDate"),
+    field[Option[Int]]("MajorVersion"),
+    field[Option[Int]]("MinorVersion"),
+    field[Option[Int]]("OwningPublication"),
+    field[String]("OutputFormat"),
+    field[Int]("TemplatePriority"),
+    field[DeferredSeq[ComponentPresentation]]("ComponentPresentations")
+  )(Template.apply _)
+
   implicit lazy val deferredReads = Deferred.reads[Template]
 
   implicit lazy val deferredListReads = DeferredSeq.reads[Template]
@@ -19,7 +19,7 @@ import java.util.regex.Pattern
 
 import org.joda.time.DateTime
 import play.api.data.validation.ValidationError
-import play.api.libs.json.{JsPath, JsError, JsSuccess, JsString, JsValue, Reads}
+import play.api.libs.json.{JsPath, JsError, JsResult, JsSuccess, JsString, JsValue, Reads}
 
 /**
  * @author Dennis Vis
@@ -31,22 +31,32 @@ package object items {
 
     val pattern = Pattern.compile("/Date\\(([0-9]+\\+[0-9]*)\\)/")
 
-    def reads(json: JsValue) = json match {
-      case JsString(s) =>
+    /**
+     * Parses a String in the Edm.DateTime format.
+     *
+     * @param s the String to parse
+     * @return Some DateTime, or None if the String is not in the Edm.DateTime format
+     */
+    def parse(s: String): Option[DateTime] = {
 
-        val matcher = pattern.matcher(s)
+      val matcher = pattern.matcher(s)
 
-        if (matcher.matches) {
+      if (matcher.matches) {
 
-          val split = matcher.group(1).split("\\+")
-          val ticks = split(0).toLong
-          val offset = split(1).toInt
+        val split = matcher.group(1).split("\\+")
+        val ticks = split(0).toLong
+        val offset = split(1).toInt
 
-          JsSuccess(new DateTime(ticks).plusMinutes(offset))
-        }
+        Some(new DateTime(ticks).plusMinutes(offset))
+      }
 
-        else JsError(Seq(JsPath() -> Seq(ValidationError("error.expected.edm.datetime", pattern.toString))))
+      else None
+    }
 
+    def reads(json: JsValue) = json match {
+      case JsString(s) => parse(s).fold[JsResult[DateTime]](
+        JsError(Seq(JsPath() -> Seq(ValidationError("error.expected.edm.datetime", pattern.toString))))
+      )(JsSuccess(_))
       case _ => JsError(Seq(JsPath() -> Seq(ValidationError("error.expected.jsstring"))))
     }
   }
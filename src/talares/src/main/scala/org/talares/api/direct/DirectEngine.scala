@@ -0,0 +1,458 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.direct
+
+import java.util.concurrent._
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.logging.{Level, Logger}
+
+import akka.actor.{Cancellable, Scheduler}
+import akka.event.LoggingAdapter
+import org.talares.api.actors.messages.FetcherMessages.Task
+import org.talares.api.actors.messages.{Client, MediatorMessages}
+import org.talares.api.actors.{Fetcher, Mediator, Webservice}
+import org.talares.api.cache._
+import org.talares.api.datatypes.items.Item
+import org.talares.api.exceptions.{DeadlineExceededException, RequestRejectedException}
+import org.talares.api.mirror.Mirror
+import org.talares.api.{Engine, OverloadPolicy, Priority, Talares}
+
+import scala.concurrent.duration.FiniteDuration
+import scala.concurrent.{ExecutionContext, Future, Promise, blocking}
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success}
+
+/**
+ * The [[org.talares.api.Engine]] running the pipeline directly on futures and a small thread pool, without an actor
+ * system. It starts faster and has a smaller footprint than the [[org.talares.api.actors.ActorEngine]], which suits
+ * command line tools, serverless functions and tests.
+ *
+ * A request is looked up in the cache, and on a miss fetched from the webservice by way of the same routes, limits
+ * and circuit breakers the actor engine uses. Concurrent requests for the same location share a single call. Compared
+ * to the actor engine:
+ *
+ *  - requests share a single lane and are not subject to per endpoint bulkheads
+ *  - [[org.talares.api.cache.AutoUpdateCache]]'s and [[org.talares.api.cache.RefreshAheadCache]]'s, and their Async
+ *    counterparts, are used as simple caches, their entries are not refreshed in the background
+ *  - a [[org.talares.api.cache.Cache]] of an unknown kind is not used at all
+ *  - the requests in progress rather than those waiting are bounded, by the direct capacity, and a request beyond it is
+ *    shed according to the [[org.talares.api.OverloadPolicy]], where drop-oldest degrades to reject-new
+ *
+ * When the [[org.talares.api.Talares]] instance is built on the actor system or execution context of a host
+ * application, the engine runs on those instead of on threads of it's own.
+ *
+ * @param app the [[org.talares.api.Talares]] instance the engine serves
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class DirectEngine(app: Talares) extends Engine {
+
+  /** The threads the engine runs on, unless it runs on the execution context of the host application **/
+  private lazy val threads = Executors.newFixedThreadPool(
+    math.max(app.settings.directThreads, 1), DirectEngine.threadFactory(s"${app.name}-direct")
+  )
+
+  /** The thread running scheduled work, unless it runs on the scheduler of the host actor system **/
+  private lazy val timer =
+    Executors.newSingleThreadScheduledExecutor(DirectEngine.threadFactory(s"${app.name}-direct-timer"))
+
+  override implicit val executionContext: ExecutionContext =
+    app.hostExecutionContext getOrElse ExecutionContext.fromExecutorService(threads)
+
+  override val scheduler: Scheduler =
+    app.hostSystem.fold[Scheduler](new DirectEngine.TimerScheduler(timer))(_.scheduler)
+
+  override val log: LoggingAdapter =
+    app.hostSystem.fold[LoggingAdapter](new DirectEngine.JavaLogging(Logger.getLogger(classOf[Talares].getName)))(_.log)
+
+  /** Calls the webservice, see [[org.talares.api.actors.Webservice]] **/
+  lazy val webservice = new Webservice(app, log)
+
+  /** The cache lookups and stores go to, if the configured cache can be used **/
+  private val cache = DirectEngine.asyncCache(app.cache)
+
+  if (cache.isEmpty && !app.cache.isInstanceOf[NoCache])
+    log.warning(s"${app.cache.getClass.getSimpleName} is not supported by the direct engine, requests are not cached")
+
+  /**
+   * The calls in progress, by location, with the task each is made for. They are shared by concurrent requests for the
+   * same location, whose clients join the task.
+   */
+  private val calls = new ConcurrentHashMap[String, (Task[_], Future[Any])]()
+
+  /** The writes to the cache in progress, awaited when the library drains **/
+  private val pendingWrites = new PendingWrites
+
+  /**
+   * The requests in progress, each completing once the engine answered it's client, after the outcome was stored.
+   * Awaited when the library drains, before the writes, as a request may still be fetched, and it's outcome stored,
+   * after it's client stopped waiting.
+   */
+  private val pendingRequests = new PendingWrites
+
+  /** Dependencies between the items which passed through this engine, used for invalidation **/
+  private val dependencies = new DependencyIndex(app.settings.trackedEntries)
+
+  /** The [[org.talares.api.mirror.Mirror]] to serve requests from, if any **/
+  @volatile private var mirror: Option[Mirror] = None
+
+  /** The maximum number of requests in progress, 0 for no maximum **/
+  private val capacity = app.settings.directCapacity
+
+  /** The number of requests in progress, until their client is answered **/
+  private val requests = new AtomicInteger
+
+  /** The number of requests shed under the serve-stale policy whose lookup is in progress, bounded by the capacity **/
+  private val shedRequests = new AtomicInteger
+
+  override def submit(request: MediatorMessages.Request[_ <: Item], client: Client): Unit =
+    if (requests.incrementAndGet() <= capacity || capacity <= 0) {
+      val answered = Promise[Unit]()
+      pendingRequests.track(answered.future)
+      handle(request, new DirectEngine.CountedClient(client, requests, answered))
+    }
+    else {
+      requests.decrementAndGet()
+      overflow(request, client)
+    }
+
+  private def handle(request: MediatorMessages.Request[_ <: Item], client: Client): Unit = {
+
+    val task = Mediator.task(app, request, client)
+
+    if (!task.cacheable) complete(task, fetch(task))
+    else mirror flatMap (Mediator.mirrorLookup(_, request)) match {
+      case Some(mirrorLookup) =>
+        Future(blocking(mirrorLookup())) onComplete {
+          case Success(Some(value)) => client.respond(value)
+          case _ => lookup(task)
+        }
+      case None => lookup(task)
+    }
+  }
+
+  /**
+   * Sheds a request arriving while the engine is at capacity. Under the serve-stale policy the request is answered from
+   * the mirror or the cache only, however old the entry, and rejected if neither holds the item. Under the other
+   * policies, and once as many shed requests as the capacity are being looked up, it is rejected right away.
+   *
+   * @param request the request to shed
+   * @param client the client of the request
+   */
+  private def overflow(request: MediatorMessages.Request[_ <: Item], client: Client): Unit = {
+
+    def reject(reason: String): Unit =
+      client.fail(new RequestRejectedException(request.toString, s"the direct engine is at capacity$reason"))
+
+    if (app.settings.overloadPolicy != OverloadPolicy.ServeStale) reject("")
+    else if (shedRequests.incrementAndGet() > capacity) {
+      shedRequests.decrementAndGet()
+      reject("")
+    } else {
+      val mirrorLookup = mirror flatMap (Mediator.mirrorLookup(_, request))
+      Future(blocking(mirrorLookup flatMap (_()))) flatMap {
+        case None => cache.fold(Future.successful(Option.empty[Any]))(_.get(request.cacheKey)) map {
+          case Some(item: CacheItem) => Some(item.value)
+          case _ => None
+        }
+        case found => Future.successful(found)
+      } onComplete { outcome =>
+        shedRequests.decrementAndGet()
+        outcome match {
+          case Success(Some(throwable: Throwable)) => client.fail(throwable)
+          case Success(Some(value)) => client.respond(value)
+          case _ => reject(" and neither the mirror nor the cache holds the item")
+        }
+      }
+    }
+  }
+
+  /**
+   * Looks the outcome of a task up in the cache, fetching it from the webservice on a miss. A failing cache and an
+   * entry made stale by a publication wide invalidation count as a miss.
+   *
+   * @param task the task to look up
+   */
+  private def lookup(task: Task[_]): Unit = cache match {
+    case Some(loadingCache: LoadingCache) =>
+      val key = task.cacheKey
+      val loader = () => load(task)
+      loadingCache.get(key, loader) flatMap {
+        case stale: CacheItem if !app.generations.isCurrent(stale) =>
+          loadingCache.invalidate(key) flatMap (_ => loadingCache.get(key, loader))
+        case value => Future.successful(value)
+      } onComplete {
+        case Success(item: CacheItem) => found(task, item.value)
+        case Success(_) => complete(task, fetch(task))
+        case Failure(throwable) => task.client.fail(throwable)
+      }
+    case Some(asyncCache) =>
+      asyncCache.get(task.cacheKey) recover {
+        case NonFatal(throwable) =>
+          log.warning(s"Cache lookup failed, treating as miss: $throwable")
+          None
+      } foreach {
+        case Some(item: CacheItem) if app.generations.isCurrent(item) => found(task, item.value)
+        case Some(_: CacheItem) =>
+          evict(Seq(task.cacheKey))
+          complete(task, fetch(task))
+        case _ => complete(task, fetch(task))
+      }
+    case None => complete(task, fetch(task))
+  }
+
+  /**
+   * Answers a task with a value found in the cache, which may be a failure stored before.
+   *
+   * @param task the task to answer
+   * @param value the value found
+   */
+  private def found(task: Task[_], value: Any): Unit = value match {
+    case throwable: Throwable => task.client.fail(throwable)
+    case _ =>
+      task.client.respond(value)
+      record(task.cacheKey, value)
+  }
+
+  /**
+   * Loads the outcome of a task on behalf of a [[org.talares.api.cache.LoadingCache]], which stores it.
+   *
+   * @param task the task to load
+   * @return a future of the [[org.talares.api.cache.CacheItem]] to store
+   */
+  private def load(task: Task[_]): Future[Any] = fetch(task) map { value =>
+    record(task.cacheKey, value)
+    cacheItem(value, task.issued)
+  } recover {
+    case throwable if app.settings.cacheOnFailure && !throwable.isInstanceOf[DeadlineExceededException] =>
+      cacheItem(throwable, task.issued)
+  }
+
+  /**
+   * Stores the outcome of a fetch in the cache and delivers it to the client of a task. The outcome is stored first,
+   * so a request the client issues next finds it.
+   *
+   * @param task the task fetched
+   * @param outcome the outcome of the fetch
+   */
+  private def complete(task: Task[_], outcome: Future[Any]): Unit = outcome onComplete {
+    case Success(value) =>
+      if (task.cacheable) {
+        record(task.cacheKey, value)
+        store(task.cacheKey, value, task.issued)
+      }
+      task.client.respond(value)
+    case Failure(throwable) =>
+      if (app.settings.cacheOnFailure && task.cacheable && !throwable.isInstanceOf[DeadlineExceededException])
+        store(task.cacheKey, throwable, task.issued)
+      task.client.fail(throwable)
+  }
+
+  /**
+   * Fetches the outcome of a task from the webservice. A call for the same location which is already in progress is
+   * shared instead, the client of the task joining the task the call is made for, so the call is only dropped once
+   * none of it's clients waits.
+   *
+   * @param task the task to fetch
+   * @return a future of the parsed outcome
+   */
+  private def fetch(task: Task[_]): Future[Any] = {
+
+    val location = webservice.addJsonParam(Fetcher.url(task))
+    val promise = Promise[Any]()
+    val pending = (task, promise.future)
+
+    Option(calls.putIfAbsent(location, pending)) match {
+      case Some((shared, sharedCall)) =>
+        shared.join(task.client)
+        sharedCall
+      case None =>
+        promise.completeWith(call(task, location))
+        promise.future onComplete (_ => calls.remove(location, pending))
+        promise.future
+    }
+  }
+
+  /**
+   * Calls the webservice and reads the items from the response, see [[org.talares.api.actors.Webservice]]. A task whose
+   * client no longer waits is failed with a [[org.talares.api.exceptions.DeadlineExceededException]] instead.
+   *
+   * @param task the task to call the webservice for
+   * @param location the complete URL to call
+   * @return a future of the parsed outcome
+   */
+  private def call(task: Task[_], location: String): Future[Any] =
+    if (task.abandoned) Future.failed(new DeadlineExceededException(location))
+    else webservice.fetchContent(location, task.deadline) flatMap { content =>
+      content.right.flatMap(webservice.readItems(location, _, task.jsonReadable)).fold(Future.failed, Future.successful)
+    }
+
+  private def cacheItem(value: Any, issued: Long): CacheItem = app.generations.stamp(CacheItem(value), issued)
+
+  private def record(cacheKey: Any, value: Any): Unit =
+    if (cache.nonEmpty) evict(dependencies.synchronized(dependencies.record(cacheKey, value)))
+
+  private def store(key: Any, value: Any, issued: Long): Unit = cache foreach { aCache =>
+    pendingWrites.track(aCache.put(key, cacheItem(value, issued))) onFailure {
+      case NonFatal(throwable) => log.warning(s"Cache store failed for key $key: $throwable")
+    }
+  }
+
+  private def evict(cacheKeys: Seq[Any]): Unit = cache foreach { aCache =>
+    cacheKeys foreach { key =>
+      aCache.invalidate(key) onFailure {
+        case NonFatal(throwable) => log.warning(s"Cache invalidation failed for key $key: $throwable")
+      }
+    }
+  }
+
+  override def invalidate(itemKey: ItemKey): Unit =
+    if (cache.nonEmpty) evict(dependencies.synchronized(dependencies.remove(itemKey)))
+
+  override def serveFrom(mirror: Mirror): Unit = this.mirror = Some(mirror)
+
+  /**
+   * Awaits the requests in progress and then the writes to the cache in progress, after which a
+   * [[org.talares.api.cache.FlushingCache]] is flushed.
+   */
+  override def flush(): Future[Unit] = for {
+    _ <- pendingRequests.completed
+    _ <- pendingWrites.completed
+    _ <- cache.fold(Future.successful(()))(FlushingCache.flush)
+  } yield ()
+
+  /**
+   * Shuts down the threads of the engine, leaving those of the host application running.
+   */
+  override def shutdown(): Unit = {
+    if (app.hostSystem.isEmpty) timer.shutdownNow()
+    if (app.hostExecutionContext.isEmpty) threads.shutdown()
+  }
+}
+
+object DirectEngine {
+
+  /**
+   * The cache the direct engine can use for the given [[org.talares.api.cache.Cache]] strategy.
+   *
+   * @param cache the configured [[org.talares.api.cache.Cache]]
+   * @return the [[org.talares.api.cache.AsyncCache]] of the strategy, None if it applies no caching or is unknown
+   */
+  def asyncCache(cache: Cache): Option[AsyncCache] = cache match {
+    case SimpleCache(get, put) => Some(AsyncCache(get, put))
+    case AutoUpdateCache(get, put) => Some(AsyncCache(get, put))
+    case RefreshAheadCache(get, put) => Some(AsyncCache(get, put))
+    case AsyncSimpleCache(asyncCache) => Some(asyncCache)
+    case AsyncAutoUpdateCache(asyncCache) => Some(asyncCache)
+    case AsyncRefreshAheadCache(asyncCache) => Some(asyncCache)
+    case _ => None
+  }
+
+  /**
+   * Creates daemon threads with the given name prefix, so the engine does not keep the JVM alive.
+   *
+   * @param name the prefix of the names of the threads
+   * @return the thread factory
+   */
+  def threadFactory(name: String): ThreadFactory = new ThreadFactory {
+
+    private val count = new AtomicInteger()
+
+    override def newThread(runnable: Runnable): Thread = {
+      val thread = new Thread(runnable, s"$name-${count.incrementAndGet()}")
+      thread.setDaemon(true)
+      thread
+    }
+  }
+
+  /**
+   * Wraps the client of a request admitted by the engine, counting the request as in progress until the client is
+   * answered. Room is made before the answer is delivered, so a request the client issues next is admitted.
+   *
+   * @param client the client of the request
+   * @param requests the number of requests in progress, decremented once the client is answered
+   * @param answered completed once the client is answered
+   */
+  class CountedClient(client: Client, requests: AtomicInteger, answered: Promise[Unit]) extends Client {
+
+    override def respond(value: Any): Unit = {
+      release()
+      client.respond(value)
+    }
+
+    override def fail(throwable: Throwable): Unit = {
+      release()
+      client.fail(throwable)
+    }
+
+    override def deadline: Long = client.deadline
+
+    override def waiting: Boolean = client.waiting
+
+    override def priority: Priority = client.priority
+
+    private def release(): Unit = if (answered.trySuccess(())) requests.decrementAndGet()
+  }
+
+  /**
+   * A Scheduler running tasks by way of a ScheduledExecutorService, in place of the scheduler of an actor system.
+   *
+   * @param timer the ScheduledExecutorService to schedule with
+   */
+  class TimerScheduler(timer: ScheduledExecutorService) extends Scheduler {
+
+    override def schedule(initialDelay: FiniteDuration, interval: FiniteDuration, runnable: Runnable)
+                         (implicit executor: ExecutionContext): Cancellable =
+      cancellable(timer.scheduleAtFixedRate(dispatch(runnable), initialDelay.toNanos, interval.toNanos,
+        TimeUnit.NANOSECONDS))
+
+    override def scheduleOnce(delay: FiniteDuration, runnable: Runnable)
+                             (implicit executor: ExecutionContext): Cancellable =
+      cancellable(timer.schedule(dispatch(runnable), delay.toNanos, TimeUnit.NANOSECONDS))
+
+    override def maxFrequency: Double = 1000.0
+
+    private def dispatch(runnable: Runnable)(implicit executor: ExecutionContext): Runnable = new Runnable {
+      override def run(): Unit = executor.execute(runnable)
+    }
+
+    private def cancellable(scheduled: ScheduledFuture[_]): Cancellable = new Cancellable {
+      override def cancel(): Boolean = scheduled.cancel(false)
+      override def isCancelled: Boolean = scheduled.isCancelled
+    }
+  }
+
+  /**
+   * A LoggingAdapter writing to java.util.logging, in place of the log of an actor system.
+   *
+   * @param logger the logger to write to
+   */
+  class JavaLogging(logger: Logger) extends LoggingAdapter {
+
+    override def isErrorEnabled: Boolean = logger.isLoggable(Level.SEVERE)
+    override def isWarningEnabled: Boolean = logger.isLoggable(Level.WARNING)
+    override def isInfoEnabled: Boolean = logger.isLoggable(Level.INFO)
+    override def isDebugEnabled: Boolean = logger.isLoggable(Level.FINE)
+
+    override protected def notifyError(message: String): Unit = logger.log(Level.SEVERE, message)
+    override protected def notifyError(cause: Throwable, message: String): Unit =
+      logger.log(Level.SEVERE, message, cause)
+    override protected def notifyWarning(message: String): Unit = logger.log(Level.WARNING, message)
+    override protected def notifyInfo(message: String): Unit = logger.log(Level.INFO, message)
+    override protected def notifyDebug(message: String): Unit = logger.log(Level.FINE, message)
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.exceptions
+
+import scala.util.control.NoStackTrace
+
+/**
+ * Exception indicating a request was shed before being handled, as the queue it should wait in is full. It carries no
+ * stack trace, so it is cheap to create while the library is overloaded.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class RequestRejectedException(location: String, reason: String) extends TalaresException(
+  s"""|Request was rejected:
+      |Location: $location
+      |Reason: $reason
+      |""".stripMargin
+) with NoStackTrace
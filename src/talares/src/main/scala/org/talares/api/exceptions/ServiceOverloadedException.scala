@@ -0,0 +1,29 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.exceptions
+
+/**
+ * Exception indicating a call to the web service was shed rather than made, as the web service is at capacity.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class ServiceOverloadedException(url: String, reason: String) extends TalaresException(
+  s"""|Service call was shed:
+      |Location: $url
+      |Reason: $reason
+      |""".stripMargin
+)
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.invalidation
+
+import java.io.{File, FileInputStream, FileOutputStream}
+import java.nio.file.{Files, StandardCopyOption}
+import java.util.Properties
+import java.util.concurrent.atomic.AtomicBoolean
+
+import akka.actor.Cancellable
+import org.joda.time.DateTime
+import org.talares.api.{Priority, Talares}
+import org.talares.api.datatypes.JsonReadable
+import org.talares.api.datatypes.items.{Component, Item, Page, Template}
+import org.talares.api.queries._
+
+import scala.concurrent.Future
+import scala.concurrent.duration._
+import scala.reflect.ClassTag
+
+/**
+ * An [[InvalidationSource]] which periodically asks the webservice which items of the given publications changed.
+ *
+ * Every poll queries the Pages, Components and Templates of each publication for items whose LastPublishDate lies
+ * after the watermark of that publication and collection, paging through the result ordered by LastPublishDate. Every
+ * item found is reported as an [[InvalidationEvent]], after which the watermark is advanced to the most recent
+ * LastPublishDate seen.
+ *
+ * Watermarks are persisted in the given properties file, so a restart continues where the previous run left off. A
+ * publication and collection without a watermark starts at the moment the source is started. A failed query leaves
+ * the watermark as is, so the changes are picked up by the next poll.
+ *
+ * The interval, the number of concurrent queries and the page size are configured by the talares.deltasync settings.
+ * A poll is skipped while the previous one is still running. Queries bypass the cache and run in the background lane.
+ *
+ * @param app the [[org.talares.api.Talares]] instance to query the webservice with
+ * @param publicationIds the ID's of the publications to poll
+ * @param watermarkFile the properties file to persist watermarks in
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class DeltaSyncSource(app: Talares, publicationIds: Seq[Int], watermarkFile: File) extends InvalidationSource {
+
+  import app.executionContext
+
+  private val interval = app.settings.deltaSyncInterval.millis
+  private val concurrency = math.max(app.settings.deltaSyncConcurrency, 1)
+  private val pageSize = math.max(app.settings.deltaSyncPageSize, 1)
+
+  /**
+   * A collection which can be queried for changed items.
+   *
+   * @param collection the name of the webservice collection
+   * @param itemType the item type to report in [[InvalidationEvent]]'s
+   * @param change function returning the ID and LastPublishDate of an item
+   */
+  private case class Endpoint[T <: Item](collection: String, itemType: String, change: T => (Int, Option[DateTime]))
+                                        (implicit jsonReadable: JsonReadable[T], classTag: ClassTag[T]) {
+
+    def changes(publicationId: Int, since: DateTime, skip: Int): Future[Seq[(Int, Option[DateTime])]] = {
+
+      val query = Query / collection $ (("PublicationId" ==| publicationId) && ("LastPublishDate" >| since)) $
+        (OrderBy("LastPublishDate"), Top(pageSize), Skip(skip))
+
+      app.withPriority(Priority.Background)(app.getQueryResponse[T](query, cached = false)) map (_ map change)
+    }
+  }
+
+  private val endpoints = Seq(
+    Endpoint[Page]("Pages", "Page", page => page.itemId -> page.lastPublishDate),
+    Endpoint[Component]("Components", "Component", component => component.itemId -> component.lastPublishDate),
+    Endpoint[Template]("Templates", "Template", template => template.itemId -> template.lastPublishDate)
+  )
+
+  private val startedAt = DateTime.now
+
+  private val polling = new AtomicBoolean(false)
+
+  private var schedule: Option[Cancellable] = None
+
+  override def start(listener: InvalidationEvent => Unit): Unit = synchronized {
+    schedule = Some(app.scheduler.schedule(interval, interval)(poll(listener)))
+  }
+
+  override def stop(): Unit = synchronized {
+    schedule foreach (_.cancel())
+    schedule = None
+  }
+
+  /**
+   * Queries all publications and collections for changes once, reporting every changed item to the listener.
+   *
+   * @param listener function to report changed items to
+   * @return a Future which completes once all queries have completed
+   */
+  def poll(listener: InvalidationEvent => Unit): Future[Unit] =
+    if (!polling.compareAndSet(false, true)) Future.successful(())
+    else {
+
+      val targets = for (publicationId <- publicationIds; endpoint <- endpoints) yield publicationId -> endpoint
+
+      val lanes = targets.zipWithIndex.groupBy(_._2 % concurrency).values map (_ map (_._1))
+
+      val done = Future.sequence(lanes map { lane =>
+        lane.foldLeft(Future.successful(())) {
+          case (previous, (publicationId, endpoint)) => previous flatMap (_ => sync(publicationId, endpoint, listener))
+        }
+      }) map (_ => ())
+
+      done onComplete (_ => polling.set(false))
+      done
+    }
+
+  private def sync(publicationId: Int, endpoint: Endpoint[_], listener: InvalidationEvent => Unit): Future[Unit] = {
+
+    val since = watermark(publicationId, endpoint.collection)
+
+    def page(skip: Int, latest: DateTime): Future[DateTime] =
+      endpoint.changes(publicationId, since, skip) flatMap { changes =>
+
+        changes foreach {
+          case (itemId, _) => listener(InvalidationEvent(endpoint.itemType, publicationId, itemId))
+        }
+
+        val newLatest = (latest +: changes.flatMap(_._2)) maxBy (_.getMillis)
+
+        if (changes.size < pageSize) Future.successful(newLatest)
+        else page(skip + pageSize, newLatest)
+      }
+
+    page(0, since) map { latest =>
+      if (latest isAfter since) updateWatermark(publicationId, endpoint.collection, latest)
+    } recover {
+      case throwable =>
+        app.log.warning(s"Delta sync of ${endpoint.collection} of publication $publicationId failed: $throwable")
+    }
+  }
+
+  private def watermark(publicationId: Int, collection: String): DateTime = synchronized {
+    Option(watermarks.getProperty(s"$publicationId.$collection")).fold(startedAt)(DateTime.parse)
+  }
+
+  private def updateWatermark(publicationId: Int, collection: String, latest: DateTime): Unit = synchronized {
+
+    watermarks.setProperty(s"$publicationId.$collection", latest.toString)
+
+    val temporary = new File(watermarkFile.getAbsoluteFile.getParentFile, s".${watermarkFile.getName}.tmp")
+    val out = new FileOutputStream(temporary)
+    try watermarks.store(out, "Talares delta sync watermarks") finally out.close()
+
+    Files.move(
+      temporary.toPath, watermarkFile.toPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+    )
+  }
+
+  private lazy val watermarks: Properties = {
+    val properties = new Properties
+    if (watermarkFile.exists()) {
+      val in = new FileInputStream(watermarkFile)
+      try properties.load(in) finally in.close()
+    }
+    properties
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.invalidation
+
+import java.io.File
+import java.nio.charset.StandardCharsets
+import java.nio.file.StandardWatchEventKinds.{ENTRY_CREATE, OVERFLOW}
+import java.nio.file._
+
+import org.talares.api.Talares
+
+import scala.collection.JavaConversions._
+import scala.util.control.NonFatal
+
+/**
+ * An [[InvalidationSource]] which watches a directory for files holding events.
+ *
+ * Every file holds one event per line, formatted as accepted by [[InvalidationEvent.parse]]. A file is processed once
+ * it appears in the directory and deleted afterwards. Files present when the source is started are processed first, as
+ * are all files present once the watch service reports it lost events. Writers should create files elsewhere and move
+ * them into the directory, as a file is read as soon as it appears. Files whose name starts with a dot are ignored.
+ *
+ * A file which cannot be read, or holding events the listener fails on, is logged and moved into the ".failed"
+ * subdirectory, so the events it holds are not lost and can be moved back once the cause is resolved.
+ *
+ * The directory is watched on a daemon thread of it's own. Failures are logged to the log of the given
+ * [[org.talares.api.Talares]] instance.
+ *
+ * @param app the [[org.talares.api.Talares]] instance to log to
+ * @param directory the directory to watch
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class DirectoryInvalidationSource(app: Talares, directory: File) extends InvalidationSource {
+
+  private var watcher: Option[(WatchService, Thread)] = None
+
+  override def start(listener: InvalidationEvent => Unit): Unit = synchronized {
+
+    val log = app.log
+    val dir = directory.toPath
+    val watchService = dir.getFileSystem.newWatchService()
+    dir.register(watchService, ENTRY_CREATE)
+
+    val thread = new Thread(s"talares-invalidation-${directory.getName}") {
+      override def run(): Unit = try {
+
+        scan()
+
+        while (true) {
+          val key = watchService.take()
+          key.pollEvents() foreach { event =>
+            event.context() match {
+              case _ if event.kind == OVERFLOW => scan()
+              case name: Path => process(dir.resolve(name))
+              case _ =>
+            }
+          }
+          key.reset()
+        }
+      } catch {
+        case _: ClosedWatchServiceException =>
+        case _: InterruptedException =>
+      }
+
+      def scan(): Unit =
+        Option(directory.listFiles()).toSeq.flatten sortBy (_.lastModified) foreach (file => process(file.toPath))
+
+      def process(file: Path): Unit = if (!file.getFileName.toString.startsWith(".") && Files.isRegularFile(file)) {
+        try {
+          Files.readAllLines(file, StandardCharsets.UTF_8) flatMap InvalidationEvent.parse foreach listener
+          Files.deleteIfExists(file)
+        } catch {
+          case NonFatal(throwable) =>
+            log.warning(s"Processing invalidation events from $file failed, moving it to .failed: $throwable")
+            try {
+              val failed = Files.createDirectories(dir.resolve(".failed"))
+              Files.move(file, failed.resolve(file.getFileName), StandardCopyOption.REPLACE_EXISTING)
+            } catch {
+              case NonFatal(moveFailure) => log.warning(s"Moving $file to .failed failed: $moveFailure")
+            }
+        }
+      }
+    }
+
+    thread.setDaemon(true)
+    thread.start()
+    watcher = Some(watchService -> thread)
+  }
+
+  override def stop(): Unit = synchronized {
+    watcher foreach {
+      case (watchService, _) => watchService.close()
+    }
+    watcher = None
+  }
+}
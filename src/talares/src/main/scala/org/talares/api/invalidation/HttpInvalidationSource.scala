@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.invalidation
+
+import java.net.{InetAddress, InetSocketAddress, URLDecoder}
+import java.security.MessageDigest
+
+import com.sun.net.httpserver.{HttpExchange, HttpHandler, HttpServer}
+
+import scala.io.Source
+
+/**
+ * An [[InvalidationSource]] which listens for HTTP requests on the given address, using the HTTP server embedded in
+ * the JDK.
+ *
+ * Events are accepted in two forms:
+ *  - a GET or POST to the path with the query parameters "type", "publicationId" and "itemId", for instance
+ *    "/invalidate?type=Page&publicationId=1&itemId=123"
+ *  - a POST to the path with a body holding one event per line, formatted as accepted by [[InvalidationEvent.parse]]
+ *
+ * Every request must carry the shared token in an "Authorization: Bearer <token>" header, as anyone able to reach the
+ * source can otherwise flush the cache at will. Requests without it are answered with 401 and their events ignored.
+ * The source binds to the loopback address unless another address is given; a source reachable from other hosts
+ * should be put behind TLS, as the token is sent in the clear.
+ *
+ * Responds with 202 when at least one valid event was received, 400 when none was and 405 for other methods.
+ *
+ * @param address the address to bind to; port 0 picks a free port
+ * @param path the path to accept events on
+ * @param token the token requests must carry, which may not be empty
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class HttpInvalidationSource(address: InetSocketAddress, path: String, token: String) extends InvalidationSource {
+
+  require(token.nonEmpty, "An HttpInvalidationSource requires a token")
+
+  def this(port: Int, token: String) =
+    this(new InetSocketAddress(InetAddress.getLoopbackAddress, port), "/invalidate", token)
+
+  private val authorization = s"Bearer $token".getBytes("UTF-8")
+
+  private var server: Option[HttpServer] = None
+
+  /** The port listened on, which differs from the configured port when that was 0. **/
+  def port: Int = synchronized(server.fold(address.getPort)(_.getAddress.getPort))
+
+  override def start(listener: InvalidationEvent => Unit): Unit = synchronized {
+
+    val httpServer = HttpServer.create(address, 0)
+
+    httpServer.createContext(path, new HttpHandler {
+      override def handle(exchange: HttpExchange): Unit = try {
+        exchange.getRequestMethod.toUpperCase match {
+          case _ if !authorized(exchange) =>
+            exchange.getResponseHeaders.add("WWW-Authenticate", "Bearer")
+            respond(exchange, 401, "A valid token is required")
+          case "GET" | "POST" =>
+            val events = read(exchange)
+            events foreach listener
+            respond(exchange, if (events.nonEmpty) 202 else 400, s"${events.size} event(s) accepted")
+          case _ =>
+            respond(exchange, 405, "Only GET and POST are supported")
+        }
+      } finally {
+        exchange.close()
+      }
+    })
+
+    httpServer.start()
+    server = Some(httpServer)
+  }
+
+  override def stop(): Unit = synchronized {
+    server foreach (_.stop(0))
+    server = None
+  }
+
+  /**
+   * Whether the request carries the token, compared in constant time so the token cannot be guessed by timing.
+   */
+  private def authorized(exchange: HttpExchange): Boolean =
+    Option(exchange.getRequestHeaders.getFirst("Authorization")) exists { header =>
+      MessageDigest.isEqual(header.trim.getBytes("UTF-8"), authorization)
+    }
+
+  private def read(exchange: HttpExchange): Seq[InvalidationEvent] = {
+
+    val parameters = Option(exchange.getRequestURI.getRawQuery).toSeq flatMap (_.split('&')) flatMap { parameter =>
+      parameter.split("=", 2) match {
+        case Array(name, value) => Some(URLDecoder.decode(name, "UTF-8") -> URLDecoder.decode(value, "UTF-8"))
+        case _ => None
+      }
+    }
+
+    val fromParameters = parameters.toMap match {
+      case p if Seq("type", "publicationId", "itemId") forall p.contains =>
+        InvalidationEvent(p("type"), p("publicationId"), p("itemId")).toSeq
+      case _ => Nil
+    }
+
+    val fromBody = Source.fromInputStream(exchange.getRequestBody, "UTF-8").getLines().toList flatMap
+      InvalidationEvent.parse
+
+    fromParameters ++ fromBody
+  }
+
+  private def respond(exchange: HttpExchange, status: Int, message: String): Unit = {
+    val body = message.getBytes("UTF-8")
+    exchange.sendResponseHeaders(status, body.length)
+    exchange.getResponseBody.write(body)
+  }
+}
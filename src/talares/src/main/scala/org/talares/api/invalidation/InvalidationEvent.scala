@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.invalidation
+
+import org.talares.api.actors.Fetcher
+import org.talares.api.cache.ItemKey
+import org.talares.api.queries.Query
+
+import scala.util.Try
+
+/**
+ * Notification that an item has been published or unpublished, after which it's cached representation is outdated.
+ *
+ * The item type is the name of the item class or of it's webservice collection, for instance "Page" or "Pages", and
+ * is case insensitive. A "Publication" event concerns the publication as a whole; it's item ID is ignored.
+ *
+ * @param itemType the type of the item
+ * @param publicationId the ID of the publication the item belongs to
+ * @param itemId the ID of the item within it's publication
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+case class InvalidationEvent(itemType: String, publicationId: Int, itemId: Int) {
+
+  require(
+    InvalidationEvent.collections.contains(itemType.toLowerCase),
+    s"Unknown item type $itemType, expected one of ${InvalidationEvent.collections.keys.mkString(", ")}"
+  )
+
+  /**
+   * The [[org.talares.api.cache.ItemKey]] of the item concerned, or None if the event concerns a whole publication.
+   */
+  lazy val itemKey: Option[ItemKey] = InvalidationEvent.collections(itemType.toLowerCase) map {
+    case (collection, idName) => ItemKey(collection, "PublicationId" -> publicationId, idName -> itemId)
+  }
+
+  /**
+   * The [[org.talares.api.queries.Query]] fetching the item concerned, or None if the event concerns a whole
+   * publication.
+   */
+  lazy val query: Option[Query] = InvalidationEvent.collections(itemType.toLowerCase) map {
+    case (collection, idName) => Fetcher.idQuery(collection, Seq("PublicationId" -> publicationId, idName -> itemId))
+  }
+}
+
+object InvalidationEvent {
+
+  /** Webservice collection and name of the item ID by lower case item type; None for a whole publication. **/
+  private[invalidation] val collections: Map[String, Option[(String, String)]] = {
+
+    val byCollection = Map(
+      "Page" -> ("Pages", "ItemId"),
+      "Component" -> ("Components", "ItemId"),
+      "Template" -> ("Templates", "ItemId"),
+      "Schema" -> ("Schemas", "SchemaId"),
+      "PageContent" -> ("PageContents", "PageId"),
+      "Binary" -> ("Binaries", "BinaryId"),
+      "Keyword" -> ("Keywords", "Id"),
+      "StructureGroup" -> ("StructureGroups", "Id")
+    )
+
+    val items = byCollection.toSeq flatMap {
+      case (itemType, target@(collection, _)) => Seq(itemType -> Some(target), collection -> Some(target))
+    }
+
+    (items ++ Seq("Publication" -> None, "Publications" -> None)).map {
+      case (itemType, target) => itemType.toLowerCase -> target
+    }.toMap
+  }
+
+  /**
+   * Parses an event from a line holding the item type, publication ID and item ID separated by commas or whitespace,
+   * for instance "Page,1,123".
+   *
+   * @param line the line to parse
+   * @return Some event if the line is valid, None otherwise
+   */
+  def parse(line: String): Option[InvalidationEvent] = line.trim.split("[,\\s]+") match {
+    case Array(itemType, publicationId, itemId) => apply(itemType, publicationId, itemId)
+    case _ => None
+  }
+
+  /**
+   * Composes an event from it's textual parts.
+   *
+   * @param itemType the type of the item
+   * @param publicationId the ID of the publication the item belongs to
+   * @param itemId the ID of the item within it's publication
+   * @return Some event if all parts are valid, None otherwise
+   */
+  def apply(itemType: String, publicationId: String, itemId: String): Option[InvalidationEvent] =
+    Try(InvalidationEvent(itemType.trim, publicationId.trim.toInt, itemId.trim.toInt)).toOption
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.invalidation
+
+/**
+ * Source of [[InvalidationEvent]]'s, for instance a listener receiving notifications from the publishing system.
+ *
+ * Sources are handed to [[org.talares.api.Talares.listen]], which evicts the cached entries concerned by every event
+ * and stops the source once the library is terminated. This allows the cache to hold entries for a long time without
+ * serving outdated content after a publish.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+trait InvalidationSource {
+
+  /**
+   * Starts receiving events.
+   *
+   * @param listener function to call for every event received; may be called from any thread
+   */
+  def start(listener: InvalidationEvent => Unit): Unit
+
+  /**
+   * Stops receiving events and releases any resources held.
+   */
+  def stop(): Unit
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.mirror
+
+import java.io.{File, FileOutputStream}
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, StandardCopyOption}
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicReference}
+
+import dispatch.StatusCode
+import org.talares.api.actors.Webservice
+import org.talares.api.cache.ItemKey
+import org.talares.api.invalidation.InvalidationEvent
+import org.talares.api.queries._
+import org.talares.api.Talares
+import play.api.libs.json.{JsArray, JsObject, JsValue, Json}
+
+import scala.collection.concurrent.TrieMap
+import scala.concurrent.Future
+import scala.concurrent.duration._
+import scala.io.Source
+import scala.util.control.NonFatal
+
+/**
+ * A local copy of all items of the given publications, from which a [[org.talares.api.Talares]] instance can serve
+ * requests without calling the webservice. See [[org.talares.api.Talares.serveFrom]].
+ *
+ * A crawl fetches the Pages, PageContents, ComponentPresentations, Components, Keywords, StructureGroups, Templates and
+ * Schemas of every publication, paging through each collection ordered by it's key, so no item is skipped or read
+ * twice, and writes them to a new [[MirrorSnapshot]]. Like the requests of the library, each publication is fetched
+ * from the route serving it, see [[org.talares.api.actors.Routes]]. The number of collections crawled concurrently and
+ * the page size are configured by the talares.mirror settings. Once a crawl completes the new snapshot is swapped in
+ * atomically; the previous snapshot is removed after the configured timeout, allowing reads in progress to complete.
+ * The active snapshot is recorded in the directory, so it is restored when a mirror is created for the same directory
+ * again.
+ *
+ * Between crawls the mirror is kept up to date by [[refresh]], which refetches a single changed item into an
+ * in-memory overlay. An event concerning a whole publication triggers a new crawl.
+ *
+ * @param app the [[org.talares.api.Talares]] instance whose settings to use
+ * @param directory the directory to keep snapshots in
+ * @param publicationIds the ID's of the publications to mirror
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class Mirror(app: Talares, directory: File, publicationIds: Seq[Int]) {
+
+  import app.executionContext
+
+  private val concurrency = math.max(app.settings.mirrorConcurrency, 1)
+  private val pageSize = math.max(app.settings.mirrorPageSize, 1)
+
+  /** The collections crawled, with the properties to order each by, which identify it's items. **/
+  private val collections = Seq(
+    "Pages" -> "ItemId",
+    "PageContents" -> "PageId",
+    "ComponentPresentations" -> "ComponentId,TemplateId",
+    "Components" -> "ItemId",
+    "Keywords" -> "TaxonomyId,Id",
+    "StructureGroups" -> "Id",
+    "Templates" -> "ItemId",
+    "Schemas" -> "SchemaId"
+  )
+
+  private val CurrentFile = "CURRENT"
+
+  /**
+   * Calls the webservice on the [[org.talares.api.actors.Route]] of each publication, subject to the same replica
+   * balancing, circuit breakers and concurrency limits as the requests of the library.
+   */
+  private lazy val webservice = new Webservice(app, app.log)
+
+  private val current = new AtomicReference[Option[MirrorSnapshot]](restore())
+
+  /** Items changed since the active snapshot was crawled, with the time of the change; None for removed items. **/
+  private val overlay = TrieMap[ItemKey, (Long, Option[String])]()
+
+  /** URL's of the pages held by the overlay. **/
+  private val overlayURLs = TrieMap[String, ItemKey]()
+
+  private var crawling: Option[Future[MirrorSnapshot]] = None
+
+  /** The active snapshot, if any. **/
+  def snapshot: Option[MirrorSnapshot] = current.get
+
+  /**
+   * Reads the Json representation of the item with the given key.
+   *
+   * @param itemKey the [[org.talares.api.cache.ItemKey]] of the item
+   * @return Some Json String if the item is mirrored, None otherwise
+   */
+  def get(itemKey: ItemKey): Option[String] = overlay.get(itemKey) match {
+    case Some((_, json)) => json
+    case None => current.get flatMap (_.get(itemKey))
+  }
+
+  /**
+   * Reads the Json representation of the page with the given URL.
+   *
+   * @param pageURL the URL of the page
+   * @return Some Json String if the page is mirrored, None otherwise
+   */
+  def getPage(pageURL: String): Option[String] =
+    overlayURLs.get(pageURL) orElse (current.get flatMap (_.pageKey(pageURL))) flatMap get
+
+  /**
+   * Crawls all publications into a new snapshot and swaps it in once complete. While a crawl is in progress, the
+   * Future of that crawl is returned instead of starting another one.
+   *
+   * @return a Future of the new [[MirrorSnapshot]]
+   */
+  def crawl(): Future[MirrorSnapshot] = synchronized {
+    crawling getOrElse {
+
+      val startedAt = System.currentTimeMillis
+      val writer = new MirrorSnapshot.Writer(new File(directory, s"snapshot-$startedAt"))
+
+      val targets = for (publicationId <- publicationIds; collection <- collections) yield publicationId -> collection
+      val lanes = targets.zipWithIndex.groupBy(_._2 % concurrency).values map (_ map (_._1))
+
+      // Once a lane fails the others stop at their next page, and the crawl completes once all lanes have stopped, so
+      // no lane appends to the writer after it is aborted.
+      val failed = new AtomicBoolean(false)
+
+      val crawled = Future.sequence(lanes map { lane =>
+        lane.foldLeft(Future.successful(())) {
+          case (previous, (publicationId, (collection, key))) =>
+            previous flatMap (_ => crawl(writer, failed, publicationId, collection, key, 0))
+        } map (_ => Option.empty[Throwable]) recover {
+          case NonFatal(throwable) =>
+            failed.set(true)
+            Some(throwable)
+        }
+      }) map { failures =>
+        failures.flatten.headOption foreach (throw _)
+        val snapshot = writer.commit()
+        swap(snapshot, startedAt)
+        snapshot
+      } andThen {
+        case result =>
+          if (result.isFailure) writer.abort()
+          synchronized(crawling = None)
+      }
+
+      crawling = Some(crawled)
+      crawled
+    }
+  }
+
+  private def crawl(writer: MirrorSnapshot.Writer, failed: AtomicBoolean, publicationId: Int, collection: String,
+                    key: String, skip: Int): Future[Unit] = {
+
+    val query = Query / collection $ ("PublicationId" ==| publicationId) $ (OrderBy(key), Top(pageSize), Skip(skip))
+
+    if (failed.get) Future.successful(())
+    else callService(location(publicationId) + query.value) flatMap {
+      case JsArray(items) =>
+        items foreach {
+          case item: JsObject =>
+            val itemKey = ItemKey.fromURI((item \ "__metadata" \ "uri").as[String])
+            val pageURL = if (collection == "Pages") (item \ "Url").asOpt[String] else None
+            writer.append(s"$publicationId-$collection", itemKey, pageURL, Json.stringify(item))
+          case _ =>
+        }
+        if (items.size < pageSize) Future.successful(())
+        else crawl(writer, failed, publicationId, collection, key, skip + pageSize)
+      case _ => Future.successful(())
+    }
+  }
+
+  /**
+   * Brings the mirror up to date with the change described by the given event. A changed item is refetched; an item
+   * the webservice no longer holds is no longer served from the mirror. When the item cannot be refetched for another
+   * reason, the mirror keeps serving what it held and the returned Future fails. An event concerning a whole
+   * publication triggers a new crawl.
+   *
+   * @param event the [[org.talares.api.invalidation.InvalidationEvent]] describing the change
+   * @return a Future which completes once the mirror is up to date
+   */
+  def refresh(event: InvalidationEvent): Future[Unit] = (event.itemKey, event.query) match {
+    case (Some(itemKey), Some(query)) =>
+
+      val changedAt = System.currentTimeMillis
+
+      val refreshed: Future[Unit] = callService(location(event.publicationId) + query.value) map {
+        case item: JsObject =>
+          (item \ "Url").asOpt[String] foreach (overlayURLs.put(_, itemKey))
+          Some(Json.stringify(item))
+        case _ => None
+      } recover {
+        case StatusCode(404) => None
+      } map { json =>
+        overlay.put(itemKey, changedAt -> json)
+      }
+
+      refreshed onFailure {
+        case throwable => app.log.warning(s"Refreshing $itemKey in the mirror failed: $throwable")
+      }
+      refreshed
+    case _ => crawl() map (_ => ())
+  }
+
+  /** Releases all resources held. Snapshots are kept on disk. **/
+  def close(): Unit = current.getAndSet(None) foreach (_.close())
+
+  /**
+   * Fetches the given location from the webservice in Json format.
+   *
+   * @param location the complete URL to fetch
+   * @return a Future of either the results array or the single item returned
+   */
+  protected def callService(location: String): Future[JsValue] = {
+    val modifiedLocation = webservice.addJsonParam(location)
+    webservice.fetch(modifiedLocation) flatMap { content =>
+      webservice.readContent(modifiedLocation, content).fold(Future.failed, Future.successful)
+    }
+  }
+
+  /**
+   * The webservice location the given publication is fetched from, see [[org.talares.api.actors.Routes]].
+   *
+   * @param publicationId the ID of the publication
+   * @return the location of the [[org.talares.api.actors.Route]] serving the publication
+   */
+  private def location(publicationId: Int): String = app.routes.forPublication(publicationId).location
+
+  private def swap(snapshot: MirrorSnapshot, startedAt: Long): Unit = {
+
+    val temporary = new File(directory, s".$CurrentFile.tmp")
+    val out = new FileOutputStream(temporary)
+    try out.write(snapshot.directory.getName.getBytes(StandardCharsets.UTF_8)) finally out.close()
+    Files.move(
+      temporary.toPath, new File(directory, CurrentFile).toPath, StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE
+    )
+
+    val previous = current.getAndSet(Some(snapshot))
+
+    overlay foreach {
+      case entry@(itemKey, (changedAt, _)) if changedAt < startedAt => overlay.remove(itemKey, entry._2)
+      case _ =>
+    }
+    overlayURLs foreach {
+      case (pageURL, itemKey) if !overlay.contains(itemKey) => overlayURLs.remove(pageURL, itemKey)
+      case _ =>
+    }
+
+    previous foreach { old =>
+      app.scheduler.scheduleOnce(app.settings.timeout.millis)(old.delete())
+    }
+  }
+
+  private def restore(): Option[MirrorSnapshot] = try {
+    val currentFile = new File(directory, CurrentFile)
+    if (!currentFile.exists()) None
+    else {
+      val source = Source.fromFile(currentFile, "UTF-8")
+      val name = try source.mkString.trim finally source.close()
+      Some(MirrorSnapshot.open(new File(directory, name)))
+    }
+  } catch {
+    case NonFatal(throwable) =>
+      app.log.warning(s"Restoring the mirror in $directory failed, it holds no snapshot until crawled: $throwable")
+      None
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2014 Dennis Vis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.talares.api.mirror
+
+import java.io._
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.StandardOpenOption
+
+import org.talares.api.cache.ItemKey
+
+import scala.collection.mutable
+import scala.io.Source
+
+/**
+ * An immutable, on-disk copy of the items of one or more publications, as created by a crawl of a [[Mirror]].
+ *
+ * A snapshot is a directory holding one data file per publication and collection, to which the Json representations
+ * of the items are appended, and an index file. The index maps the [[org.talares.api.cache.ItemKey]] of every item to
+ * it's location in the data files and the URL of every page to the key of that page. The index is held in memory;
+ * the Json representations are read from disk on demand.
+ *
+ * Thread safe.
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class MirrorSnapshot private(val directory: File,
+                             index: Map[ItemKey, MirrorSnapshot.Location],
+                             urls: Map[String, ItemKey]) {
+
+  private val channels: Map[String, FileChannel] = index.values.map(_.file).toSet.map { (file: String) =>
+    file -> FileChannel.open(new File(directory, file).toPath, StandardOpenOption.READ)
+  }.toMap
+
+  /** The number of items held. **/
+  def size: Int = index.size
+
+  /**
+   * Reads the Json representation of the item with the given key.
+   *
+   * @param itemKey the [[org.talares.api.cache.ItemKey]] of the item
+   * @return Some Json String if the item is held, None otherwise
+   */
+  def get(itemKey: ItemKey): Option[String] = index.get(itemKey) map { location =>
+    val buffer = ByteBuffer.allocate(location.length)
+    val channel = channels(location.file)
+    while (buffer.hasRemaining && channel.read(buffer, location.offset + buffer.position) >= 0) {}
+    new String(buffer.array, 0, buffer.position, StandardCharsets.UTF_8)
+  }
+
+  /**
+   * Looks up the key of the page with the given URL.
+   *
+   * @param url the URL of the page
+   * @return Some [[org.talares.api.cache.ItemKey]] if a page with the URL is held, None otherwise
+   */
+  def pageKey(url: String): Option[ItemKey] = urls.get(url)
+
+  /** Releases the open data files. **/
+  def close(): Unit = channels.values foreach (_.close())
+
+  /** Releases the open data files and removes the snapshot from disk. **/
+  def delete(): Unit = {
+    close()
+    Option(directory.listFiles()).toSeq.flatten foreach (_.delete())
+    directory.delete()
+  }
+}
+
+object MirrorSnapshot {
+
+  private val IndexFile = "index"
+
+  private[mirror] case class Location(file: String, offset: Long, length: Int)
+
+  /**
+   * Opens the snapshot held by the given directory.
+   *
+   * @param directory the directory of the snapshot
+   * @return the [[MirrorSnapshot]]
+   */
+  def open(directory: File): MirrorSnapshot = {
+
+    val index = mutable.Map[ItemKey, Location]()
+    val urls = mutable.Map[String, ItemKey]()
+
+    val source = Source.fromFile(new File(directory, IndexFile), "UTF-8")
+    try {
+      source.getLines() map (_.split('\t')) foreach {
+        case Array("item", key, file, offset, length) =>
+          index.put(ItemKey.fromURI(key), Location(file, offset.toLong, length.toInt))
+        case Array("url", url, key) =>
+          urls.put(url, ItemKey.fromURI(key))
+        case _ =>
+      }
+    } finally {
+      source.close()
+    }
+
+    new MirrorSnapshot(directory, index.toMap, urls.toMap)
+  }
+
+  /**
+   * Writes a new snapshot to the given directory. Items may be appended from multiple threads.
+   *
+   * @param directory the directory to create the snapshot in
+   */
+  private[mirror] class Writer(directory: File) {
+
+    directory.mkdirs()
+
+    private val files = mutable.Map[String, (OutputStream, Long)]()
+    private val index = mutable.Map[ItemKey, Location]()
+    private val urls = mutable.Map[String, ItemKey]()
+
+    /**
+     * Appends the Json representation of an item.
+     *
+     * @param file the name of the data file to append to
+     * @param itemKey the [[org.talares.api.cache.ItemKey]] of the item
+     * @param url the URL of the item if it is a page
+     * @param json the Json representation of the item
+     */
+    def append(file: String, itemKey: ItemKey, url: Option[String], json: String): Unit = synchronized {
+
+      val bytes = json.getBytes(StandardCharsets.UTF_8)
+      val (out, offset) = files.getOrElse(file, {
+        val stream: OutputStream = new BufferedOutputStream(new FileOutputStream(new File(directory, file)))
+        stream -> 0L
+      })
+
+      out.write(bytes)
+      files.put(file, out -> (offset + bytes.length))
+      index.put(itemKey, Location(file, offset, bytes.length))
+      url foreach (urls.put(_, itemKey))
+    }
+
+    /**
+     * Completes the snapshot by writing it's index.
+     *
+     * @return the completed [[MirrorSnapshot]]
+     */
+    def commit(): MirrorSnapshot = synchronized {
+
+      files.values foreach (_._1.close())
+
+      val out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(directory, IndexFile)), "UTF-8"))
+      try {
+        index foreach {
+          case (key, Location(file, offset, length)) => out.print(s"item\t$key\t$file\t$offset\t$length\n")
+        }
+        urls foreach {
+          case (url, key) => out.print(s"url\t$url\t$key\n")
+        }
+      } finally {
+        out.close()
+      }
+
+      new MirrorSnapshot(directory, index.toMap, urls.toMap)
+    }
+
+    /** Abandons the snapshot, removing it from disk. **/
+    def abort(): Unit = synchronized {
+      files.values foreach (_._1.close())
+      Option(directory.listFiles()).toSeq.flatten foreach (_.delete())
+      directory.delete()
+    }
+  }
+}
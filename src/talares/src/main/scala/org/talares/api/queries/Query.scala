@@ -28,8 +28,8 @@ package org.talares.api.queries
  * @since 0.1.0
  */
 case class Query(name: String, args: Seq[(String, String)] = Seq())
-                (parent: Option[Query] = None)
-                (options: Seq[QueryOption] = Seq()) {
+                (val parent: Option[Query] = None)
+                (val options: Seq[QueryOption] = Seq()) {
 
   /** Holds a formatted String containing all main arguments of the query (ID's most likely). **/
   lazy private val argsValue: String =
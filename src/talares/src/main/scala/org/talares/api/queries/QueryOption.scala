@@ -15,6 +15,8 @@
  */
 package org.talares.api.queries
 
+import org.joda.time.{DateTime, DateTimeZone}
+import org.joda.time.format.ISODateTimeFormat
 import org.talares.api.queries.Filter.AndOr
 import org.talares.api.queries.Operator.Operator
 
@@ -52,6 +54,44 @@ case class Filter(andOr: AndOr, args: Seq[Operation]) extends QueryOption {
   def /(operator: Operation): Filter = Filter(andOr, args ++ Seq(operator))
 }
 
+/**
+ * Represents a [[QueryOption]] that limits a result to the given amount of items.
+ *
+ * @param count the maximum amount of items to return
+ */
+case class Top(count: Int) extends QueryOption {
+
+  override val name = "top"
+
+  override val value = count.toString
+}
+
+/**
+ * Represents a [[QueryOption]] that skips the given amount of items of a result, used for paging through it together
+ * with [[Top]].
+ *
+ * @param count the amount of items to skip
+ */
+case class Skip(count: Int) extends QueryOption {
+
+  override val name = "skip"
+
+  override val value = count.toString
+}
+
+/**
+ * Represents a [[QueryOption]] that orders a result by the given key.
+ *
+ * @param key the key to order by
+ * @param descending whether to order descending rather than ascending
+ */
+case class OrderBy(key: String, descending: Boolean = false) extends QueryOption {
+
+  override val name = "orderby"
+
+  override val value = if (descending) s"$key%20desc" else key
+}
+
 /**
  * Represents a specific operation to be included in a [[QueryOption]].
  *
@@ -74,13 +114,24 @@ case class Operation(key: String, operator: Operator, value: Any) {
   }
 
   override def toString: String = {
-    val formattedValue =
-      if (isNumeric(value.toString)) value
-      else s"'$value'"
+    val formattedValue = value match {
+      case dateTime: DateTime => s"datetime'${dateTime.toString(Operation.dateTimeFormat)}'"
+      case _ if isNumeric(value.toString) => value
+      case _ => s"'$value'"
+    }
     s"$key%20$operator%20$formattedValue"
   }
 }
 
+object Operation {
+
+  /**
+   * The format of datetime literals, which carry no zone and so are written in UTC, including milliseconds so a
+   * comparison with a date read from the webservice is exact.
+   */
+  private val dateTimeFormat = ISODateTimeFormat.dateHourMinuteSecondMillis().withZone(DateTimeZone.UTC)
+}
+
 /**
  * Operators for specifying [[Operation]]'s.
  */
@@ -0,0 +1,100 @@
+package org.talares.api
+
+import java.io.File
+import java.lang.management.ManagementFactory
+import java.net.InetSocketAddress
+
+import com.sun.net.httpserver.{HttpExchange, HttpHandler, HttpServer}
+import org.talares.api.datatypes.items.stubs.ItemStubs
+import play.api.libs.json.Json
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+/**
+ * Compares the startup of the actors engine with that of the direct engine. Every round starts a fresh JVM per engine,
+ * which creates a [[Talares]] instance and fetches a page from a local stub of the webservice. Reports the time taken
+ * to create the instance, the time until the page arrives, counted from the start of the JVM, and the heap and threads
+ * in use at that point. The JVM, operating system and number of processors are reported first, as the timings only
+ * compare within one environment.
+ *
+ * Run from the test classpath, optionally passing the amount of rounds:
+ * {{{
+ *   org.talares.api.StartupBenchmark 5
+ * }}}
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+object StartupBenchmark {
+
+  val Engines = Seq("actors", "direct")
+
+  def main(args: Array[String]): Unit = args match {
+    case Array(engine, _) => measure(engine)
+    case _ => compare(args.headOption.fold(5)(_.toInt))
+  }
+
+  def compare(rounds: Int): Unit = {
+
+    val server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+    server.createContext("/", new HttpHandler {
+      override def handle(exchange: HttpExchange): Unit = {
+        val body = Json.stringify(Json.obj("d" -> ItemStubs.pageStub)).getBytes("UTF-8")
+        exchange.sendResponseHeaders(200, body.length)
+        exchange.getResponseBody.write(body)
+        exchange.close()
+      }
+    })
+    server.start()
+
+    val location = s"http://localhost:${server.getAddress.getPort}/odata.svc"
+    val java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath
+
+    println(s"Java ${System.getProperty("java.version")} (${System.getProperty("java.vm.name")}) on " +
+      s"${System.getProperty("os.name")} ${System.getProperty("os.arch")}, " +
+      s"${Runtime.getRuntime.availableProcessors} processors")
+
+    try {
+      (1 to rounds) foreach { round =>
+        println(s"Round $round")
+        Engines foreach { engine =>
+          new ProcessBuilder(
+            java,
+            "-cp", System.getProperty("java.class.path"),
+            s"-Dtalares.engine=$engine",
+            s"-Dtalares.webservicelocation=$location",
+            "-Dakka.loglevel=WARNING",
+            getClass.getName.stripSuffix("$"),
+            engine,
+            location
+          ).inheritIO().start().waitFor()
+        }
+      }
+    } finally {
+      server.stop(0)
+    }
+  }
+
+  def measure(engine: String): Unit = {
+
+    val start = System.nanoTime
+    val app = Talares()
+    val created = System.nanoTime
+
+    try {
+      Await.result(app.getPage(1, 2), 10 seconds)
+
+      val uptime = ManagementFactory.getRuntimeMXBean.getUptime
+      System.gc()
+      val runtime = Runtime.getRuntime
+      val heap = (runtime.totalMemory - runtime.freeMemory) / (1024 * 1024)
+      val threads = ManagementFactory.getThreadMXBean.getThreadCount
+
+      println(f"$engine%-8s ${(created - start) / 1000000}%6d ms to create ${uptime}%6d ms to first page " +
+        f"$heap%4d MB heap $threads%3d threads")
+    } finally {
+      app.terminate()
+    }
+  }
+}
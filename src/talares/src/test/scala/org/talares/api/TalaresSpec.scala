@@ -15,12 +15,19 @@
  */
 package org.talares.api
 
+import java.util.concurrent.{Executors, ThreadFactory}
+
+import akka.actor.ActorSystem
 import org.specs2.mutable.Specification
 import org.specs2.time.NoTimeConversions
-import org.talares.api.cache.mock.MockCaches
+import org.talares.api.cache.{AsyncSimpleCache, NoCache}
+import org.talares.api.cache.mock.{MockCaches, MockFlushingCache, MockLoadingCache}
+import org.talares.api.datatypes.items.Page
+import org.talares.api.exceptions.RequestRejectedException
 import org.talares.api.mock.MockTalares
+import org.talares.api.queries._
 
-import scala.concurrent.Future
+import scala.concurrent.{ExecutionContext, Future}
 import scala.concurrent.duration._
 
 /**
@@ -57,6 +64,134 @@ class TalaresSpec extends Specification with NoTimeConversions with MockCaches {
       result
     }
 
+    "create independent instances" in {
+
+      val app1 = Talares()
+      val app2 = Talares()
+
+      try {
+        (app1 must not be app2) and (app1.name must not be equalTo(app2.name))
+      } finally {
+        app1.terminate()
+        app2.terminate()
+      }
+    }
+
+    "run several instances on a host actor system" in {
+
+      val system = ActorSystem("talares-spec-host")
+      val talaresNoCache = MockTalares(NoCache(), system)
+      val talaresSimpleCache = MockTalares(mockSimpleCache, system)
+
+      val tests = for {
+        result1 <- pageWithComponentPresentations(talaresNoCache)
+        result2 <- pageWithComponentPresentations(talaresSimpleCache)
+        _ = talaresNoCache.terminate()
+        result3 <- pageWithComponentPresentations(talaresSimpleCache)
+      } yield {
+        talaresSimpleCache.terminate()
+        val running = !system.isTerminated
+        system.shutdown()
+        result1 && result2 && result3 && running
+      }
+
+      tests.await(timeout = 30 seconds)
+    }
+
+    "complete the future of an executed query" in {
+
+      implicit val executionContext = Talares.sameThread
+
+      val talares = MockTalares()
+      val pages = talares.executeQuery[Page](Query / "Pages" $ ("PublicationId" ==| 1)) map { pages =>
+        talares.terminate()
+        pages.nonEmpty
+      }
+
+      pages.await(timeout = 30 seconds)
+    }
+
+    "complete futures on the execution context delivered on" in {
+
+      implicit val executionContext = Talares.sameThread
+
+      val threads = Executors.newFixedThreadPool(2, new ThreadFactory {
+        override def newThread(runnable: Runnable): Thread = new Thread(runnable, "talares-spec-delivery")
+      })
+      val talares = MockTalares()
+      talares.deliverOn(ExecutionContext.fromExecutor(threads))
+
+      val delivered = talares.getPublication(1) map (_ => Thread.currentThread.getName)
+      val deliveredPerCall = talares.withDelivery(Talares.sameThread)(talares.getPublication(1)) map { _ =>
+        Thread.currentThread.getName
+      }
+
+      val tests = for {
+        thread <- delivered
+        threadPerCall <- deliveredPerCall
+      } yield {
+        talares.terminate()
+        threads.shutdown()
+        thread == "talares-spec-delivery" && threadPerCall != "talares-spec-delivery"
+      }
+
+      tests.await(timeout = 30 seconds)
+    }
+
+    "complete futures on the current thread when the execution context delivered on rejects them" in {
+
+      implicit val executionContext = Talares.sameThread
+
+      val threads = Executors.newSingleThreadExecutor()
+      threads.shutdown()
+      val talares = MockTalares()
+      talares.deliverOn(ExecutionContext.fromExecutor(threads))
+
+      val publication = talares.getPublication(1) map { publication =>
+        talares.terminate()
+        publication.id == 1
+      }
+
+      publication.await(timeout = 30 seconds)
+    }
+
+    "convert outcomes on the same thread only once an execution context is delivered on" in {
+
+      val talares = MockTalares()
+      val default = ExecutionContext.global
+
+      val before = talares.conversionContext(default)
+      talares.deliverOn(default)
+      val after = talares.conversionContext(default)
+      talares.terminate()
+
+      (before must be(default)) and (after must be(Talares.sameThread))
+    }
+
+    "drain the requests in flight before terminating" in {
+
+      implicit val executionContext = Talares.sameThread
+
+      val mockFlushingCache = new MockFlushingCache
+      val talares = MockTalares(AsyncSimpleCache(mockFlushingCache))
+
+      val inFlight = talares.getPublication(1)
+      val drained = talares.drain(10 seconds)
+      val rejected = talares.getPublication(1) map (_ => false) recover {
+        case _: RequestRejectedException => true
+      }
+
+      val tests = for {
+        publication <- inFlight
+        wasRejected <- rejected
+        _ <- drained
+      } yield {
+        publication.id == 1 && wasRejected && mockFlushingCache.entries.nonEmpty && mockFlushingCache.heldBack.isEmpty
+      }
+
+      tests.await(timeout = 30 seconds)
+    }
+
     "use no cache" in {
 
       val talaresNoCache = MockTalares()
@@ -113,6 +248,82 @@ class TalaresSpec extends Specification with NoTimeConversions with MockCaches {
       tests.await(timeout = 30 seconds)
     }
 
+    "use async simple cache" in {
+
+      val talaresAsyncSimpleCache = MockTalares(mockAsyncSimpleCache)
+
+      lazy val test1 = pageWithComponentPresentations(talaresAsyncSimpleCache)
+      lazy val test2 = pageWithComponentPresentations(talaresAsyncSimpleCache)
+
+      val tests = for {
+        result1 <- test1
+        result2 <- test2
+      } yield {
+        talaresAsyncSimpleCache.terminate()
+        result1 && result2
+      }
+
+      tests.await(timeout = 30 seconds)
+    }
+
+    "use async auto update cache" in {
+
+      val talaresAsyncAutoUpdateCache = MockTalares(mockAsyncAutoUpdateCache)
+
+      lazy val test1 = pageWithComponentPresentations(talaresAsyncAutoUpdateCache)
+      lazy val test2 = pageWithComponentPresentations(talaresAsyncAutoUpdateCache)
+      lazy val test3 = pageWithComponentPresentations(talaresAsyncAutoUpdateCache)
+
+      val tests = for {
+        result1 <- test1
+        result2 <- test2
+        result3 <- test3
+      } yield {
+        talaresAsyncAutoUpdateCache.terminate()
+        result1 && result2 && result3
+      }
+
+      tests.await(timeout = 30 seconds)
+    }
+
+    "use loading cache" in {
+
+      val mockLoadingCache = new MockLoadingCache
+      val talaresLoadingCache = MockTalares(AsyncSimpleCache(mockLoadingCache))
+
+      val test1 = talaresLoadingCache.getPage(1, 2)
+      val test2 = talaresLoadingCache.getPage(1, 2)
+
+      val tests = for {
+        page1 <- test1
+        page2 <- test2
+      } yield {
+        talaresLoadingCache.terminate()
+        page1 == page2 && mockLoadingCache.loads.get == 1
+      }
+
+      tests.await(timeout = 30 seconds)
+    }
+
+    "invalidate a publication" in {
+
+      val mockLoadingCache = new MockLoadingCache
+      val talaresLoadingCache = MockTalares(AsyncSimpleCache(mockLoadingCache))
+
+      val tests = for {
+        _ <- talaresLoadingCache.getPage(1, 2)
+        _ <- talaresLoadingCache.getPage(1, 2)
+        loadsBefore = mockLoadingCache.loads.get
+        _ = talaresLoadingCache.invalidatePublication(1)
+        _ <- talaresLoadingCache.getPage(1, 2)
+      } yield {
+        talaresLoadingCache.terminate()
+        loadsBefore == 1 && mockLoadingCache.loads.get == 2
+      }
+
+      tests.await(timeout = 30 seconds)
+    }
+
     "perform under load with no cache" in {
 
       val talares = MockTalares()
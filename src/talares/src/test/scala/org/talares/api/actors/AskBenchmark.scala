@@ -0,0 +1,95 @@
+package org.talares.api.actors
+
+import java.lang.management.ManagementFactory
+
+import akka.actor.{Actor, ActorSystem, Props}
+import akka.pattern.ask
+import akka.util.Timeout
+import org.talares.api.actors.messages.Client
+
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future, Promise}
+
+/**
+ * Compares the cost per request of the ask pattern with that of a [[PromiseClient]] registered with a
+ * [[TimeoutWheel]], against an actor which replies immediately. Reports the time and the heap allocated, by all
+ * threads, per request.
+ *
+ * Run from the test classpath, optionally passing the amount of requests per round:
+ * {{{
+ *   org.talares.api.actors.AskBenchmark 200000
+ * }}}
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+object AskBenchmark {
+
+  case class Ask(value: Int)
+
+  case class Submit(value: Int, client: Client)
+
+  class Echo extends Actor {
+    override def receive: Receive = {
+      case Ask(value) => sender() ! value
+      case Submit(value, client) => client.respond(value)
+    }
+  }
+
+  def main(args: Array[String]): Unit = {
+
+    val requests = args.headOption.fold(100000)(_.toInt)
+    val batch = 1000
+
+    val system = ActorSystem("ask-benchmark")
+    import system.dispatcher
+
+    implicit val timeout = Timeout(10 seconds)
+
+    val echo = system.actorOf(Props[Echo])
+    val wheel = new TimeoutWheel(system.scheduler)
+
+    def viaAsk(value: Int): Future[Any] = echo ? Ask(value)
+
+    def viaPromise(value: Int): Future[Any] = {
+      val promise = Promise[Any]()
+      val client = new PromiseClient[Any](promise, { case result => result }, _ => new Exception,
+        System.nanoTime + timeout.duration.toNanos, timeout.duration.toMillis)
+      wheel.register(client)
+      echo ! Submit(value, client)
+      promise.future
+    }
+
+    def round(name: String, request: Int => Future[Any]): Unit = {
+
+      val allocatedBefore = allocated
+      val start = System.nanoTime
+
+      (0 until requests by batch) foreach { offset =>
+        Await.ready(Future.sequence((offset until offset + batch) map request), 10 seconds)
+      }
+
+      val nanos = System.nanoTime - start
+      val bytes = allocated - allocatedBefore
+
+      println(f"$name%-8s ${nanos.toDouble / requests}%8.0f ns/request ${bytes.toDouble / requests}%8.0f bytes/request")
+    }
+
+    try {
+      (1 to 5) foreach { iteration =>
+        println(s"Round $iteration")
+        round("ask", viaAsk)
+        round("promise", viaPromise)
+      }
+    } finally {
+      wheel.stop()
+      system.shutdown()
+    }
+  }
+
+  private def allocated: Long = ManagementFactory.getThreadMXBean match {
+    case threads: com.sun.management.ThreadMXBean =>
+      threads.getThreadAllocatedBytes(threads.getAllThreadIds).filter(_ > 0).sum
+    case _ => 0L
+  }
+}
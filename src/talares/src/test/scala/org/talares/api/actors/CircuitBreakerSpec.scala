@@ -0,0 +1,136 @@
+package org.talares.api.actors
+
+import java.lang.management.ManagementFactory
+import javax.management.ObjectName
+
+import akka.event.NoLogging
+import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
+import org.talares.api.exceptions.{CircuitOpenException, ServiceOverloadedException}
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future, Promise}
+import scala.util.Try
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class CircuitBreakerSpec extends Specification with NoTimeConversions {
+
+  val location = "http://www.example.com/cd_webservice/odata.svc/Pages(PublicationId=1,ItemId=2)"
+
+  def breaker(resetTimeout: Long = 60000L): CircuitBreaker = new CircuitBreaker("circuit", 3, 0.5, 4, resetTimeout, 2)
+
+  def call(aBreaker: CircuitBreaker, outcome: Future[String]): Try[String] =
+    Try(Await.result(aBreaker(location)(outcome), 1 second))
+
+  val failed = Future.failed[String](new Exception)
+  val succeeded = Future.successful("value")
+
+  "CircuitBreaker" should {
+
+    "open after consecutive failures and fail fast while open" in {
+
+      val aBreaker = breaker()
+
+      (1 to 3) foreach (_ => call(aBreaker, failed))
+
+      aBreaker.getState must be equalTo "Open"
+      call(aBreaker, succeeded) must beFailedTry.withThrowable[CircuitOpenException]
+      aBreaker.getCallsRejected must be equalTo 1
+    }
+
+    "open when the share of failures in the window reaches the error rate" in {
+
+      val aBreaker = breaker()
+
+      Seq(failed, succeeded, failed, succeeded) foreach (call(aBreaker, _))
+
+      aBreaker.getState must be equalTo "Open"
+    }
+
+    "not count calls shed by the concurrency limiter or client errors as failures" in {
+
+      val aBreaker = breaker()
+
+      (1 to 4) foreach (_ => call(aBreaker, Future.failed(new ServiceOverloadedException(location, "shed"))))
+      (1 to 4) foreach (_ => call(aBreaker, Future.failed(dispatch.StatusCode(404))))
+
+      aBreaker.getState must be equalTo "Closed"
+    }
+
+    "let a limited number of probes through when half open and close when they succeed" in {
+
+      val aBreaker = breaker(resetTimeout = 0L)
+
+      (1 to 3) foreach (_ => call(aBreaker, failed))
+
+      val probes = Seq.fill(2)(aBreaker(location)(Future(Thread.sleep(100))))
+      Try(Await.result(aBreaker(location)(succeeded), 1 second)) must beFailedTry.withThrowable[CircuitOpenException]
+
+      probes foreach (Await.ready(_, 1 second))
+      aBreaker.getState must be equalTo "Closed"
+    }
+
+    "not take a call admitted while closed for a probe" in {
+
+      val aBreaker = breaker(resetTimeout = 0L)
+      val admittedWhileClosed = Promise[String]()
+      val probes = Seq.fill(2)(Promise[String]())
+
+      val slow = aBreaker(location)(admittedWhileClosed.future)
+      (1 to 3) foreach (_ => call(aBreaker, failed))
+      val probing = probes map (probe => aBreaker(location)(probe.future))
+
+      admittedWhileClosed.success("value")
+      probes.head.success("value")
+      (slow +: probing.take(1)) foreach (Await.ready(_, 1 second))
+      val stateAfterOneProbe = aBreaker.getState
+
+      probes.last.success("value")
+      Await.ready(probing.last, 1 second)
+
+      (stateAfterOneProbe, aBreaker.getState) must be equalTo (("HalfOpen", "Closed"))
+    }
+
+    "open again when a probe fails" in {
+
+      val aBreaker = breaker(resetTimeout = 0L)
+
+      (1 to 3) foreach (_ => call(aBreaker, failed))
+      call(aBreaker, failed)
+
+      aBreaker.getState must be equalTo "Open"
+      aBreaker.getTimesOpened must be equalTo 2
+    }
+
+    "assign locations to the circuit of their webservice and endpoint" in {
+      CircuitBreaker.circuit(location) must be equalTo (("http://www.example.com/cd_webservice/odata.svc", "Pages"))
+      CircuitBreaker.circuit(location + "/ComponentPresentations?$format=json") must be equalTo
+        (("http://www.example.com/cd_webservice/odata.svc", "ComponentPresentations"))
+      CircuitBreaker.circuit("http://host/odata.svc/Pages?$filter=Url eq '/a/b'")._2 must be equalTo "Pages"
+    }
+
+    "be visible over JMX" in {
+
+      val breakers = new CircuitBreakers("talares-spec", NoLogging)(name => breaker())
+      val aBreaker = breakers(location)
+
+      val name = new ObjectName(
+        "org.talares:type=CircuitBreaker," +
+          s"instance=${ObjectName.quote("talares-spec")}," +
+          s"location=${ObjectName.quote("http://www.example.com/cd_webservice/odata.svc")}," +
+          s"endpoint=${ObjectName.quote("Pages")}"
+      )
+
+      try {
+        breakers(location) must be(aBreaker)
+        ManagementFactory.getPlatformMBeanServer.getAttribute(name, "State") must be equalTo "Closed"
+      } finally {
+        breakers.close()
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package org.talares.api.actors
+
+import akka.actor.ActorSystem
+import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
+import org.talares.api.exceptions.ServiceOverloadedException
+
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future, Promise}
+import scala.util.Try
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class ConcurrencyLimiterSpec extends Specification with NoTimeConversions {
+
+  sequential
+
+  val system = ActorSystem("concurrency-limiter-spec")
+
+  import system.dispatcher
+
+  val timeouts = new TimeoutWheel(system.scheduler)
+
+  def limiter(initialLimit: Int = 2,
+              queueSize: Int = 1,
+              maxWait: Long = 1000L,
+              window: Int = 10): ConcurrencyLimiter =
+    new ConcurrencyLimiter(initialLimit, 1, 10, queueSize, maxWait, 2.0, window, timeouts)
+
+  def delayed(delay: FiniteDuration): Future[String] = {
+    val call = Promise[String]()
+    system.scheduler.scheduleOnce(delay)(call.success("value"))
+    call.future
+  }
+
+  def await[A](future: Future[A]): Try[A] = Try(Await.result(future, 2 seconds))
+
+  /** The limit once the limiter has adapted to all calls completed, which it does after their outcome is delivered **/
+  def settledLimit(aLimiter: ConcurrencyLimiter): Int = {
+    val deadline = System.nanoTime + 2.seconds.toNanos
+    while (aLimiter.inFlightCount > 0 && System.nanoTime < deadline) Thread.sleep(1)
+    aLimiter.currentLimit
+  }
+
+  "ConcurrencyLimiter" should {
+
+    "hold back calls beyond the limit until a call completes" in {
+
+      val aLimiter = limiter()
+      val calls = Seq.fill(3)(Promise[String]())
+
+      val results = calls map (call => aLimiter("location")(call.future))
+
+      (aLimiter.inFlightCount, aLimiter.waitingCount) must be equalTo ((2, 1))
+
+      calls foreach (_.success("value"))
+
+      (results map (result => await(result).get)) must be equalTo Seq("value", "value", "value")
+    }
+
+    "shed calls at once when the queue is full" in {
+
+      val aLimiter = limiter()
+      val call = Promise[String]()
+
+      val results = Seq.fill(4)(aLimiter("location")(call.future))
+
+      await(results.last) must beFailedTry.withThrowable[ServiceOverloadedException]
+      call.success("value")
+      ok
+    }
+
+    "shed calls which wait longer than the maximum wait" in {
+
+      val aLimiter = limiter(initialLimit = 1, maxWait = 50L)
+      val call = Promise[String]()
+
+      aLimiter("location")(call.future)
+      val waiting = aLimiter("location")(Future.successful("value"))
+
+      await(waiting) must beFailedTry.withThrowable[ServiceOverloadedException]
+      aLimiter.waitingCount must be equalTo 0
+    }
+
+    "lower the limit when calls fail" in {
+
+      val aLimiter = limiter(initialLimit = 5)
+
+      (1 to 5) foreach (_ => await(aLimiter("location")(Future.failed[String](new Exception))))
+
+      settledLimit(aLimiter) must be lessThan 5
+    }
+
+    "raise the limit while it is used and calls succeed" in {
+
+      val aLimiter = limiter(initialLimit = 2, queueSize = 100)
+
+      (1 to 20) foreach { _ =>
+        val calls = Seq.fill(2)(Promise[String]())
+        val results = calls map (call => aLimiter("location")(call.future))
+        calls foreach (_.success("value"))
+        results foreach await
+      }
+
+      settledLimit(aLimiter) must be greaterThan 2
+    }
+
+    "lower the limit when the latency of a window rises above the tolerance" in {
+
+      val aLimiter = limiter(initialLimit = 10, window = 10)
+
+      (1 to 10) foreach (_ => await(aLimiter("location")(Future.successful("value"))))
+      (1 to 2) foreach (_ => Seq.fill(10)(aLimiter("location")(delayed(50 millis))) foreach await)
+
+      settledLimit(aLimiter) must be lessThan 10
+    }
+
+    "not lower the limit for a single slow call" in {
+
+      val aLimiter = limiter(initialLimit = 10, window = 10)
+
+      (1 to 9) foreach (_ => await(aLimiter("location")(Future.successful("value"))))
+      await(aLimiter("location")(delayed(10 millis)))
+
+      settledLimit(aLimiter) must be equalTo 10
+    }
+
+    "not count a client error as a sign of overload" in {
+      ConcurrencyLimiter.signalsOverload(dispatch.StatusCode(404)) must beFalse
+      ConcurrencyLimiter.signalsOverload(dispatch.StatusCode(503)) must beTrue
+    }
+  }
+
+  step {
+    timeouts.stop()
+    system.shutdown()
+  }
+}
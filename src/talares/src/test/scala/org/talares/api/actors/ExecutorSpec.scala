@@ -15,22 +15,31 @@
  */
 package org.talares.api.actors
 
+import java.net.{InetSocketAddress, ServerSocket}
+
+import com.sun.net.httpserver.{HttpExchange, HttpHandler, HttpServer}
+
 import akka.actor.ActorSystem
+import akka.event.NoLogging
 import akka.testkit.TestKit
 import com.typesafe.config.ConfigFactory
+import dispatch.{Http, url}
 import org.specs2.mock.Mockito
 import org.specs2.mutable.SpecificationLike
 import org.specs2.time.NoTimeConversions
-import org.talares.api.Talares
-import org.talares.api.actors.messages.{ExecutorMessages, FetcherMessages}
+import org.talares.api.{Settings, Talares}
+import org.talares.api.actors.messages.{ActorClient, ExecutorMessages, FetcherMessages}
 import org.talares.api.actors.mock.MockExecutor
 import org.talares.api.datatypes.items.Page
 import org.talares.api.datatypes.items.stubs.ItemStubs
 import org.talares.api.datatypes.items.stubs.ItemStubs._
-import play.api.libs.json.Json
+import org.talares.api.exceptions.{DeadlineExceededException, UnexpectedResultException}
+import play.api.libs.json.{JsValue, Json}
 
+import scala.concurrent.Await
 import scala.concurrent.duration._
 import scala.reflect.ClassTag
+import scala.util.Try
 
 /**
  * @author Dennis Vis
@@ -42,6 +51,7 @@ with Mockito
 with SpecificationLike {
 
   implicit val app = mock[Talares]
+  app.settings returns Settings()
 
   val webserviceLocationStub = "http://www.example.com/cd_webservice/odata.svc"
   val locationStub = webserviceLocationStub + "/Pages(PublicationId=1,ItemId=2)"
@@ -80,22 +90,119 @@ with SpecificationLike {
       mockExecutor[Page].parseJsonResult(multiResult) must be equalTo pagesStub
     }
 
+    "read items from a single and a multi Json result" in {
+
+      def readItems(json: JsValue) =
+        mockExecutor[Page].readItems(locationStub, Json.stringify(json).getBytes("UTF-8"), jsonReadable)
+
+      readItems(singleResult) must beRight(pageStub.as[Page])
+      readItems(multiResult) must beRight(pagesStub.as[Seq[Page]])
+      readItems(Json.obj("d" -> pagesStub)) must beRight(pagesStub.as[Seq[Page]])
+      readItems(Json.obj("d" -> 1)) must beLeft.like { case e => e must beAnInstanceOf[UnexpectedResultException] }
+    }
+
     "handle task" in {
 
       val message = ExecutorMessages.Execute[Page](fetcherTaskStub, locationStub)
-      val expected = ExecutorMessages.Success[Page](fetcherTaskStub, ItemStubs.pageStub)
+      val expected = ExecutorMessages.Success[Page](fetcherTaskStub, ItemStubs.pageStub.as[Page])
 
       mockExecutorRef[Page] ! message
 
       receiveOne(1 second) must be equalTo expected
     }
 
+    "skip parsing an unchanged response" in {
+
+      mockExecutorRef[Page] ! ExecutorMessages.Revalidate[Page](fetcherTaskStub, locationStub, None)
+
+      val contentHash = expectMsgPF(1 second) {
+        case ExecutorMessages.Refreshed(_, result, hash) if result == ItemStubs.pageStub.as[Page] => hash
+      }
+
+      mockExecutorRef[Page] ! ExecutorMessages.Revalidate[Page](fetcherTaskStub, locationStub, Some(contentHash))
+
+      receiveOne(1 second) must be equalTo ExecutorMessages.Unchanged[Page](fetcherTaskStub, contentHash)
+    }
+
     "handle failure" in {
 
       failingExecutorRef[Page] ! ExecutorMessages.Execute[Page](fetcherTaskStub, locationStub)
 
       receiveOne(1 second) must beAnInstanceOf[ExecutorMessages.Failure[Page]]
     }
+
+    "drop a task whose client no longer waits" in {
+
+      val abandonedTask = FetcherMessages.FetchByID[Page](
+        ActorClient(testActor, System.nanoTime - 1), webserviceLocationStub, "PublicationId" -> 1, "ItemId" -> 2
+      )
+
+      mockExecutorRef[Page] ! ExecutorMessages.Execute[Page](abandonedTask, locationStub)
+
+      expectMsgPF(1 second) {
+        case ExecutorMessages.Failure(task, _: DeadlineExceededException) => task == abandonedTask
+      } must beTrue
+    }
+
+    "abort a call once it's deadline passes" in {
+
+      val server = new ServerSocket(0)
+      val timeouts = new TimeoutWheel(system.scheduler)(system.dispatcher)
+      app.timeouts returns timeouts
+
+      try {
+        val location = s"http://localhost:${server.getLocalPort}/odata.svc/Pages"
+        val (request, handler) = url(location) OK dispatch.as.Bytes
+        val deadline = System.nanoTime + 100000000L
+        val call = mockExecutor[Page].webservice.send(Http, request, handler, location, deadline)
+
+        Try(Await.result(call, 2 seconds)) must beFailedTry.withThrowable[DeadlineExceededException]
+      } finally {
+        timeouts.stop()
+        server.close()
+      }
+    }
+
+    "retry a call on another replica when the replica called is unavailable" in {
+
+      val unavailable = new ServerSocket(0)
+      val available = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+      available.createContext("/", new HttpHandler {
+        override def handle(exchange: HttpExchange): Unit = {
+          val body = "content".getBytes("UTF-8")
+          exchange.sendResponseHeaders(200, body.length)
+          exchange.getResponseBody.write(body)
+          exchange.close()
+        }
+      })
+      available.start()
+      unavailable.close()
+
+      val timeouts = new TimeoutWheel(system.scheduler)(system.dispatcher)
+      val route = new Route("default", Seq(), Seq(
+        s"http://localhost:${unavailable.getLocalPort}/odata.svc",
+        s"http://localhost:${available.getAddress.getPort}/odata.svc"
+      ), 16, Settings(), timeouts)(system.dispatcher)
+
+      app.routes returns new Routes(route, Seq())
+      val breakers =
+        new CircuitBreakers("executor-spec", NoLogging)(name => new CircuitBreaker(name, 5, 0.5, 20, 10000L, 2))
+
+      app.circuitBreakers returns breakers
+
+      try {
+        val webservice = mockExecutor[Page].webservice
+        val calls = (1 to 4) map (_ => webservice.callReplica(route, "/Pages", Long.MaxValue, 1, Set()))
+        val bodies = calls.toList map (call => new String(Await.result(call, 2 seconds), "UTF-8"))
+
+        bodies must be equalTo List.fill(4)("content")
+      } finally {
+        route.close()
+        breakers.close()
+        timeouts.stop()
+        available.stop(0)
+      }
+    }
   }
 
   step(shutdown())
@@ -15,18 +15,19 @@
  */
 package org.talares.api.actors
 
-import akka.actor.ActorSystem
-import akka.testkit.TestKit
+import akka.actor.{ActorSystem, Props}
+import akka.testkit.{TestActorRef, TestKit, TestProbe}
 import com.typesafe.config.ConfigFactory
 import org.specs2.mock.Mockito
 import org.specs2.mutable.SpecificationLike
 import org.specs2.time.NoTimeConversions
-import org.talares.api.Talares
-import org.talares.api.actors.messages.{ExecutorMessages, FetcherMessages}
+import org.talares.api.{Settings, Talares}
+import org.talares.api.actors.messages.{ActorClient, ExecutorMessages, FetcherMessages}
 import org.talares.api.actors.mock.MockFetcher
 import org.talares.api.datatypes.JsonReadable
 import org.talares.api.datatypes.items._
 import org.talares.api.datatypes.items.stubs.ItemStubs
+import org.talares.api.exceptions.{DeadlineExceededException, RequestRejectedException}
 import org.talares.api.queries._
 
 import scala.concurrent.duration._
@@ -42,6 +43,7 @@ with Mockito
 with SpecificationLike {
 
   implicit val app = mock[Talares]
+  app.settings returns Settings()
 
   val webserviceLocationStub = "http://www.example.com/cd_webservice/odata.svc"
   val mockRequest = mock[FetcherMessages.Task[Page]]
@@ -176,6 +178,122 @@ with SpecificationLike {
 
       receiveOne(1 second) must beAnInstanceOf[FetcherMessages.Failure[Page]]
     }
+
+    "drop a task whose client no longer waits" in {
+
+      val task = FetcherMessages.FetchByID[Page](
+        ActorClient(testActor, System.nanoTime - 1), webserviceLocationStub, "PublicationId" -> 1, "ItemId" -> 2
+      )
+
+      mockFetcherRef[Page] ! task
+
+      expectMsgPF(1 second) {
+        case FetcherMessages.Failure(failedTask, _: DeadlineExceededException) => failedTask == task
+      } must beTrue
+    }
+
+    "fetch a task whose client no longer waits while a client joined does" in {
+
+      val task = FetcherMessages.FetchByID[Page](
+        ActorClient(testActor, System.nanoTime - 1), webserviceLocationStub, "PublicationId" -> 1, "ItemId" -> 2
+      )
+      task.join(ActorClient(testActor))
+
+      mockFetcherRef[Page] ! task
+
+      expectMsgPF(1 second) {
+        case FetcherMessages.SingleResult(fetchedTask, _) => fetchedTask == task
+      } must beTrue
+    }
+
+    "hold back calls beyond the maximum in flight" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val executorProbe = TestProbe()
+      val fetcherRef = TestActorRef[Fetcher[Page]](Props(new Fetcher[Page](app) {
+        override lazy val executor = executorProbe.ref
+        override val maxInFlight = 2
+      }), testActor, "bulkhead-fetcher")
+
+      val tasks = (1 to 3) map { id =>
+        FetcherMessages.FetchByID[Page](testActor, webserviceLocationStub, "ItemId" -> id)
+      }
+
+      tasks foreach (fetcherRef ! _)
+
+      val executed = executorProbe.receiveN(2, 1 second)
+      executorProbe.expectNoMsg(200 millis)
+
+      fetcherRef ! ExecutorMessages.Failure(tasks.head, new Exception)
+
+      executed ++ executorProbe.receiveN(1, 1 second) must be equalTo (tasks map fetcherRef.underlyingActor.createTask)
+    }
+
+    "reject calls arriving when it's queue is at capacity" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val executorProbe = TestProbe()
+      val fetcherRef = TestActorRef[Fetcher[Page]](Props(new Fetcher[Page](app) {
+        override lazy val executor = executorProbe.ref
+        override val maxInFlight = 1
+        override val capacity = 1
+      }), testActor, "overloaded-fetcher")
+
+      val tasks = (1 to 3) map { id =>
+        FetcherMessages.FetchByID[Page](testActor, webserviceLocationStub, "ItemId" -> id)
+      }
+
+      tasks foreach (fetcherRef ! _)
+
+      fishForMessage(1 second) {
+        case FetcherMessages.Failure(failedTask, _: RequestRejectedException) => failedTask == tasks(2)
+        case _ => false
+      } must beAnInstanceOf[FetcherMessages.Failure[_]]
+    }
+
+    "start waiting interactive calls before background ones" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val executorProbe = TestProbe()
+      val fetcherRef = TestActorRef[Fetcher[Page]](Props(new Fetcher[Page](app) {
+        override lazy val executor = executorProbe.ref
+        override val maxInFlight = 1
+      }), testActor, "lane-fetcher")
+
+      def task(id: Int) = FetcherMessages.FetchByID[Page](testActor, webserviceLocationStub, "ItemId" -> id)
+
+      fetcherRef ! task(1)
+      fetcherRef ! FetcherMessages.Refresh(task(2), None)
+      fetcherRef ! task(3)
+
+      executorProbe.receiveN(1, 1 second)
+      fetcherRef ! ExecutorMessages.Failure(task(1), new Exception)
+
+      executorProbe.receiveOne(1 second) must be equalTo fetcherRef.underlyingActor.createTask(task(3))
+    }
+
+    "keep background calls within their share of the maximum in flight" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val executorProbe = TestProbe()
+      val fetcherRef = TestActorRef[Fetcher[Page]](Props(new Fetcher[Page](app) {
+        override lazy val executor = executorProbe.ref
+        override val maxInFlight = 4
+      }), testActor, "background-fetcher")
+
+      def task(id: Int) = FetcherMessages.FetchByID[Page](testActor, webserviceLocationStub, "ItemId" -> id)
+
+      (1 to 2) foreach (id => fetcherRef ! FetcherMessages.Refresh(task(id), None))
+      fetcherRef ! task(3)
+
+      executorProbe.receiveN(2, 1 second) collect {
+        case message: ExecutorMessages.Revalidate[_] => message
+      } must haveSize(1)
+    }
   }
 
   step(shutdown())
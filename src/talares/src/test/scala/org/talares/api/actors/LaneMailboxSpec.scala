@@ -0,0 +1,138 @@
+package org.talares.api.actors
+
+import akka.actor.{ActorSystem, Props}
+import akka.dispatch.Envelope
+import com.typesafe.config.ConfigFactory
+import org.specs2.mutable.Specification
+import org.talares.api.{OverloadPolicy, Priority, Settings}
+import org.talares.api.actors.messages.{ActorClient, FetcherMessages, MediatorMessages}
+import org.talares.api.datatypes.items.Page
+import org.talares.api.exceptions.RequestRejectedException
+
+import scala.concurrent.{Future, Promise}
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class LaneMailboxSpec extends Specification {
+
+  sequential
+
+  val system = ActorSystem("lane-mailbox-spec")
+
+  implicit val jsonReadable = Page.PageJsonReadable
+
+  def task(id: Int, priority: Priority) =
+    FetcherMessages.FetchByID[Page](ActorClient(system.deadLetters, priority = priority), "", "ItemId" -> id)
+
+  def submit(id: Int, priority: Priority): (MediatorMessages.Submit, Future[Any]) = {
+    val promise = Promise[Any]()
+    val client =
+      new PromiseClient[Any](promise, { case value => value }, _ => new Exception, Long.MaxValue, 0L, priority)
+    (MediatorMessages.Submit(MediatorMessages.URIRequest[Page](s"uri-$id"), client), promise.future)
+  }
+
+  def enqueue(queue: LaneMailbox.LaneQueue, message: Any): Unit =
+    queue.enqueue(system.deadLetters, Envelope(message, system.deadLetters, system))
+
+  def rejected(future: Future[Any]): Boolean = future.value exists (_.failed.toOption exists {
+    case _: RequestRejectedException => true
+    case _ => false
+  })
+
+  def drain(queue: LaneMailbox.LaneQueue): List[Any] =
+    Iterator.continually(queue.dequeue()).takeWhile(_ != null).map(_.message).toList
+
+  "LaneMailbox" should {
+
+    "take messages from the highest lane first, in the order they arrived within a lane" in {
+
+      val queue = new LaneMailbox.LaneQueue
+      val messages = Seq(
+        task(1, Priority.Background),
+        task(2, Priority.Interactive),
+        FetcherMessages.Refresh(task(3, Priority.Interactive), None),
+        task(4, Priority.Prefetch),
+        task(5, Priority.Interactive)
+      )
+
+      messages foreach (message => queue.enqueue(system.deadLetters, Envelope(message, system.deadLetters, system)))
+
+      queue.numberOfMessages must be equalTo 5
+      drain(queue) must be equalTo List(messages(1), messages(4), messages(3), messages(0), messages(2))
+      queue.hasMessages must beFalse
+    }
+
+    "put messages in the lane of their client" in {
+
+      val client = ActorClient(system.deadLetters, priority = Priority.Prefetch)
+
+      LaneMailbox.priority(MediatorMessages.Submit(MediatorMessages.URIRequest[Page]("uri"), client)) must
+        be equalTo Priority.Prefetch
+      LaneMailbox.priority(FetcherMessages.Failure(task(1, Priority.Background), new Exception)) must
+        be equalTo Priority.Background
+      LaneMailbox.priority(MediatorMessages.Invalidate(null)) must be equalTo Priority.Interactive
+    }
+
+    "reject requests arriving when it is at capacity" in {
+
+      val queue = new LaneMailbox.LaneQueue(2, OverloadPolicy.RejectNew)
+      val submits = (1 to 3) map (id => submit(id, Priority.Interactive))
+
+      submits foreach (submit => enqueue(queue, submit._1))
+      enqueue(queue, MediatorMessages.Invalidate(null))
+
+      (submits map (submit => rejected(submit._2))).toList must be equalTo List(false, false, true)
+      queue.numberOfMessages must be equalTo 3
+    }
+
+    "reject the oldest request of the lowest lane to make room" in {
+
+      val queue = new LaneMailbox.LaneQueue(2, OverloadPolicy.DropOldest)
+      val background = submit(1, Priority.Background)
+      val interactive = (2 to 3) map (id => submit(id, Priority.Interactive))
+      val prefetch = submit(4, Priority.Prefetch)
+
+      (background +: interactive :+ prefetch) foreach (submit => enqueue(queue, submit._1))
+
+      rejected(background._2) must beTrue
+      rejected(prefetch._2) must beTrue
+      drain(queue) must be equalTo (interactive map (_._1)).toList
+    }
+
+    "hand requests arriving when it is at capacity over to be served stale" in {
+
+      val queue = new LaneMailbox.LaneQueue(1, OverloadPolicy.ServeStale)
+      val submits = (1 to 3) map (id => submit(id, Priority.Interactive))
+
+      submits foreach (submit => enqueue(queue, submit._1))
+
+      val shed = MediatorMessages.Shed(submits(1)._1.request, submits(1)._1.client)
+
+      rejected(submits(2)._2) must beTrue
+      drain(queue) must be equalTo List(shed, submits(0)._1)
+    }
+
+    "be bounded by the settings of the instance it's owner belongs to" in {
+
+      val config = ConfigFactory.parseString("talares.overload.mediatorcapacity=1")
+      LaneMailbox.register("spec-mediator", Settings(config.withFallback(ConfigFactory.load())))
+
+      val owner = system.actorOf(Props.empty, "spec-mediator")
+      val mailbox = new LaneMailbox(system.settings, ConfigFactory.empty)
+
+      try {
+        val queue = mailbox.create(Some(owner), Some(system)).asInstanceOf[LaneMailbox.LaneQueue]
+        val submits = (1 to 2) map (id => submit(id, Priority.Interactive))
+
+        submits foreach (submit => enqueue(queue, submit._1))
+
+        rejected(submits(1)._2) must beTrue
+        mailbox.capacity must be equalTo system.settings.config.getInt("talares.overload.mediatorcapacity")
+      } finally LaneMailbox.unregister("spec-mediator")
+    }
+  }
+
+  step(system.shutdown())
+}
@@ -15,21 +15,28 @@
  */
 package org.talares.api.actors
 
-import akka.actor.ActorSystem
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import akka.actor.{ActorSystem, Props, Status}
 import akka.testkit.{ImplicitSender, TestKit}
 import com.typesafe.config.ConfigFactory
 import org.specs2.mock.Mockito
 import org.specs2.mutable.SpecificationLike
 import org.specs2.time.NoTimeConversions
-import org.talares.api.Talares
-import org.talares.api.actors.messages.MediatorMessages
+import org.talares.api.{Settings, Talares}
+import org.talares.api.actors.messages.{FetcherMessages, MediatorMessages}
 import org.talares.api.actors.mock.MockMediator
+import org.talares.api.cache.{AsyncRefreshAheadCache, ItemChanges, PublicationGenerations}
+import org.talares.api.cache.actors.messages.CachingActorMessages
 import org.talares.api.cache.mock.MockCaches
 import org.talares.api.datatypes.items.Page
 import org.talares.api.datatypes.items.stubs.ItemStubs
+import org.talares.api.exceptions.RequestRejectedException
 import org.talares.api.queries._
 
 import scala.concurrent.duration._
+import scala.concurrent.{Await, Promise}
+import scala.util.Try
 
 /**
  * @author Dennis Vis
@@ -43,6 +50,9 @@ with Mockito
 with SpecificationLike {
 
   val app = mock[Talares]
+  app.generations returns new PublicationGenerations
+  app.changes returns new ItemChanges
+  app.settings returns Settings()
   val cache = mockSimpleCache
 
   val webserviceLocationStub = "http://www.example.com/cd_webservice/odata.svc"
@@ -101,6 +111,112 @@ with SpecificationLike {
 
       receiveOne(1 second) must be equalTo expected
     }
+
+    "complete the promise of a submitted request directly" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val promise = Promise[Any]()
+      val client = new PromiseClient[Any](promise, { case value => value }, _ => new Exception, Long.MaxValue, 0L)
+      val request = MediatorMessages.URIRequest[Page](webserviceLocationStub + "/Pages(PublicationId=1,ItemId=2)")
+
+      mockMediatorRef ! MediatorMessages.Submit(request, client)
+
+      expectNoMsg(100 millis)
+      Await.result(promise.future, 1 second) must be equalTo ItemStubs.pageStub.as[Page]
+    }
+
+    "answer a shed request from the cache only" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      def shed(request: MediatorMessages.Request[Page]) = {
+        val promise = Promise[Any]()
+        val client = new PromiseClient[Any](promise, { case value => value }, _ => new Exception, Long.MaxValue, 0L)
+        mockMediatorRef ! MediatorMessages.Shed(request, client)
+        Try(Await.result(promise.future, 1 second))
+      }
+
+      val cached = MediatorMessages.URIRequest[Page](webserviceLocationStub + "/Pages(PublicationId=1,ItemId=2)")
+      val uncached = MediatorMessages.URIRequest[Page](webserviceLocationStub + "/Pages(PublicationId=1,ItemId=4)")
+
+      mockMediatorRef ! cached
+      receiveOne(1 second)
+
+      (shed(cached) must beSuccessfulTry.withValue(ItemStubs.pageStub.as[Page])) and
+        (shed(uncached) must beFailedTry.withThrowable[RequestRejectedException])
+    }
+
+    "assign a request to a shard by the cache key of it's task" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val query = Query / "Pages" %("PublicationId" -> 1, "ItemId" -> 2)
+      val request = MediatorMessages.QueryRequest[Page](webserviceLocationStub, query)
+      val task = FetcherMessages.FetchByQuery[Page](testActor, webserviceLocationStub, query)
+
+      Mediator.shardKey(MediatorMessages.Submit(request, testActor)) must be equalTo task.cacheKey
+    }
+
+    "process requests when sharded" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val shardedMediatorRef = system.actorOf(Mediator.sharded(Props(new MockMediator(app, cache)), 4))
+      val requests = (1 to 8) map (id => MediatorMessages.IDRequest[Page](webserviceLocationStub, "ItemId" -> id))
+
+      requests foreach (shardedMediatorRef ! _)
+
+      receiveN(8, 2 seconds).distinct.toList must be equalTo List(MediatorMessages.Response(ItemStubs.pageStub.as[Page]))
+    }
+
+    "store a background refresh without replying to the client" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val refreshingMediatorRef = MockMediator.mockMediatorRef(app, AsyncRefreshAheadCache(mockAsyncCache))
+      val task = FetcherMessages.FetchByURI[Page](testActor, webserviceLocationStub + "/Pages(PublicationId=1,ItemId=3)")
+
+      refreshingMediatorRef ! CachingActorMessages.Refresh(task, None)
+
+      expectNoMsg(500 millis)
+      mockCache.get(task.cacheKey) must beSome
+    }
+
+    "refresh an item for a client which was answered already" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val updatingMediatorRef = MockMediator.mockMediatorRef(app, mockAsyncAutoUpdateCache)
+      val answered = new PromiseClient[Any](Promise.successful("value"), { case value => value }, _ => new Exception,
+        Long.MaxValue, 0L)
+      val task = FetcherMessages.FetchByURI[Page](answered, webserviceLocationStub + "/Pages(PublicationId=1,ItemId=5)")
+
+      updatingMediatorRef ! CachingActorMessages.Refresh(task, None)
+
+      expectNoMsg(500 millis)
+      (task.abandoned must beTrue) and (mockCache.get(task.cacheKey) must beSome)
+    }
+
+    "flush the cache only once the tasks passed to the fetchers have completed" in {
+
+      implicit val jsonReadable = Page.PageJsonReadable
+
+      val flushingMediatorRef = MockMediator.mockMediatorRef(app, cache)
+      val uri = webserviceLocationStub + "/Pages(PublicationId=1,ItemId=6)"
+      val task = FetcherMessages.FetchByURI[Page](testActor, uri)
+      val flushed = Promise[Unit]()
+
+      flushingMediatorRef.underlyingActor.fetching = 1
+      flushingMediatorRef ! MediatorMessages.Flush(new ConcurrentLinkedQueue(java.util.Arrays.asList(flushed)))
+
+      flushed.isCompleted must beFalse
+
+      flushingMediatorRef ! FetcherMessages.Failure(task, new Exception("failed"))
+
+      expectMsgType[Status.Failure]
+      Await.result(flushed.future, 1 second) must be equalTo (())
+    }
   }
 
   step(shutdown())
@@ -0,0 +1,100 @@
+package org.talares.api.actors
+
+import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
+import org.talares.api.exceptions.CircuitOpenException
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future, Promise}
+import scala.util.Try
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class ReplicaBalancerSpec extends Specification with NoTimeConversions {
+
+  val first = "http://cd1.example.com/cd_webservice/odata.svc"
+  val second = "http://cd2.example.com/cd_webservice/odata.svc"
+
+  def balancer(ejectTime: Long = 60000L): ReplicaBalancer =
+    new ReplicaBalancer(Seq(first, second), 0.5, 3.0, 3, ejectTime)
+
+  def call(aBalancer: ReplicaBalancer, replica: ReplicaBalancer.Replica, outcome: Future[String]): Try[String] =
+    Try(Await.result(aBalancer(replica)(outcome), 1 second))
+
+  val failed = Future.failed[String](new Exception)
+
+  "ReplicaBalancer" should {
+
+    "find the path of locations addressing a replica" in {
+
+      val aBalancer = balancer()
+
+      aBalancer.path(second + "/Pages(PublicationId=1,ItemId=2)") must beSome("/Pages(PublicationId=1,ItemId=2)")
+      aBalancer.path("http://elsewhere.example.com/odata.svc/Pages") must beNone
+    }
+
+    "send calls to the replica with the fewest calls outstanding" in {
+
+      val aBalancer = balancer()
+      val Seq(firstReplica, secondReplica) = aBalancer.replicas
+      val pending = Promise[String]()
+
+      aBalancer(firstReplica)(pending.future)
+
+      try {
+        (1 to 10) map (_ => aBalancer.choose()) must contain(be(secondReplica)).forall
+      } finally {
+        pending.success("value")
+      }
+    }
+
+    "choose a replica not tried yet" in {
+
+      val aBalancer = balancer()
+      val Seq(firstReplica, secondReplica) = aBalancer.replicas
+
+      (1 to 10) map (_ => aBalancer.choose(Set(firstReplica))) must contain(be(secondReplica)).forall
+    }
+
+    "eject a failing replica and readmit it after the eject time" in {
+
+      val aBalancer = balancer(ejectTime = 100L)
+      val Seq(firstReplica, secondReplica) = aBalancer.replicas
+
+      (1 to 10) foreach (_ => call(aBalancer, firstReplica, failed))
+
+      firstReplica.ejected must beTrue
+      (1 to 10) map (_ => aBalancer.choose()) must contain(be(secondReplica)).forall
+
+      Thread.sleep(150)
+      aBalancer.choose()
+      firstReplica.ejected must beFalse
+    }
+
+    "never eject the last replica in rotation" in {
+
+      val aBalancer = balancer()
+      val Seq(firstReplica, secondReplica) = aBalancer.replicas
+
+      (1 to 10) foreach (_ => call(aBalancer, firstReplica, failed))
+      (1 to 10) foreach (_ => call(aBalancer, secondReplica, failed))
+
+      firstReplica.ejected must beTrue
+      secondReplica.ejected must beFalse
+    }
+
+    "not hold client errors and open circuits against a replica" in {
+
+      val aBalancer = balancer()
+      val firstReplica = aBalancer.replicas.head
+
+      (1 to 10) foreach (_ => call(aBalancer, firstReplica, Future.failed(dispatch.StatusCode(404))))
+      (1 to 10) foreach (_ => call(aBalancer, firstReplica, Future.failed(new CircuitOpenException(first, first))))
+
+      firstReplica.ejected must beFalse
+    }
+  }
+}
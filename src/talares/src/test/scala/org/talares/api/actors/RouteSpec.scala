@@ -0,0 +1,63 @@
+package org.talares.api.actors
+
+import org.specs2.mutable.Specification
+import org.talares.api.Settings
+import org.talares.api.actors.messages.MediatorMessages.{IDRequest, QueryRequest, SearchRequest, URIRequest}
+import org.talares.api.datatypes.items.{Page, Publication}
+import org.talares.api.queries._
+
+import scala.concurrent.ExecutionContext.Implicits.global
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class RouteSpec extends Specification {
+
+  val defaultLocation = "http://www.example.com/cd_webservice/odata.svc"
+  val emeaLocation = "http://emea.example.com/cd_webservice/odata.svc"
+
+  def route(name: String, publications: Seq[(Int, Int)], location: String): Route =
+    new Route(name, publications, Seq(location), 16, Settings(), null)
+
+  val emea = route("emea", Seq((1, 1), (10, 19)), emeaLocation)
+  val routes = new Routes(route("default", Seq(), defaultLocation), Seq(emea))
+
+  "Routes" should {
+
+    "find the publication a request concerns" in {
+
+      Routes.publicationId(IDRequest[Page](defaultLocation, "PublicationId" -> 3, "ItemId" -> 4)) must beSome(3)
+      Routes.publicationId(IDRequest[Publication](defaultLocation, "Id" -> 5)) must beSome(5)
+      Routes.publicationId(SearchRequest[Page](defaultLocation, "PublicationId" -> "7")) must beSome(7)
+      Routes.publicationId(QueryRequest[Page](defaultLocation, Query("Pages", Seq("PublicationId" -> "9"))()())) must
+        beSome(9)
+      Routes.publicationId(URIRequest[Page](defaultLocation + "/Pages")) must beNone
+    }
+
+    "find the publication a query filters on only when every item matched is of that publication" in {
+
+      Routes.queried(Query / "Pages" $ ("PublicationId" ==| 3)) must beSome(3)
+      Routes.queried(Query / "Pages" $ (("PublicationId" ==| 3) && ("ItemId" ==| 4))) must beSome(3)
+      Routes.queried(Query / "Pages" $ (("PublicationId" ==| 3) || ("ItemId" ==| 4))) must beNone
+      Routes.queried(Query / "Pages" $ ("PublicationId" !=| 3)) must beNone
+      Routes.queried(Query / "Publications" % ("Id" -> 1) / "Pages" % ("PublicationId" -> 5)) must beSome(5)
+    }
+
+    "route a publication to the first route serving it" in {
+
+      routes.forPublication(1) must be(emea)
+      routes.forPublication(15) must be(emea)
+      routes.forPublication(2) must be(routes.default)
+    }
+
+    "resolve the route a location addresses" in {
+
+      val path = "/Pages(PublicationId=1,ItemId=2)"
+
+      routes.resolve(emeaLocation + path) must beSome((emea, path))
+      routes(defaultLocation + "/Pages") must be(routes.default)
+      routes("http://elsewhere.example.com/odata.svc/Pages") must be(routes.default)
+    }
+  }
+}
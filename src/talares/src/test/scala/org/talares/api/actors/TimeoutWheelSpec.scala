@@ -0,0 +1,114 @@
+package org.talares.api.actors
+
+import akka.actor.ActorSystem
+import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
+import org.talares.api.exceptions.TalaresException
+
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future, Promise}
+import scala.util.Try
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class TimeoutWheelSpec extends Specification with NoTimeConversions {
+
+  sequential
+
+  val system = ActorSystem("timeout-wheel-spec")
+
+  import system.dispatcher
+
+  def client(promise: Promise[Any], timeout: FiniteDuration): PromiseClient[Any] =
+    new PromiseClient[Any](promise, { case value: String => value }, _ => new IllegalArgumentException,
+      System.nanoTime + timeout.toNanos, timeout.toMillis)
+
+  "TimeoutWheel" should {
+
+    "expire a request which is not answered before it's deadline" in {
+
+      val wheel = new TimeoutWheel(system.scheduler, 10 millis, 8)
+      val promise = Promise[Any]()
+
+      wheel.register(client(promise, 50 millis))
+
+      Try(Await.result(promise.future, 1 second)) must beFailedTry.withThrowable[TalaresException]
+      wheel.stop()
+      ok
+    }
+
+    "expire a request due beyond one revolution of the wheel only at it's deadline" in {
+
+      val wheel = new TimeoutWheel(system.scheduler, 10 millis, 4)
+      val promise = Promise[Any]()
+      val start = System.nanoTime
+
+      wheel.register(client(promise, 200 millis))
+
+      Try(Await.result(promise.future, 1 second)) must beFailedTry
+      (System.nanoTime - start).nanos must be_>=(200 millis)
+      wheel.stop()
+      ok
+    }
+
+    "expire requests registered while their bucket is swept on time" in {
+
+      val wheel = new TimeoutWheel(system.scheduler, 10 millis, 512)
+      val registrations = Seq.fill(4)(Future {
+        (1 to 2000) map { i =>
+          val promise = Promise[Any]()
+          wheel.register(client(promise, (i % 20).millis))
+          promise.future map (_ => false) recover {
+            case _: TalaresException => true
+          }
+        }
+      })
+
+      val expired = Future.sequence(registrations) flatMap (futures => Future.sequence(futures.flatten))
+
+      try Await.result(expired, 2 seconds) must not contain false finally wheel.stop()
+    }
+
+    "expire a request whose deadline is postponed only at it's new deadline" in {
+
+      val wheel = new TimeoutWheel(system.scheduler, 10 millis, 8)
+      val expired = Promise[Long]()
+      val start = System.nanoTime
+
+      wheel.register(new TimeoutWheel.Expirable(start + 30000000L) {
+        override def deadline: Long = start + 200000000L
+        override def isCompleted: Boolean = expired.isCompleted
+        override def expire(): Unit = expired.success(System.nanoTime)
+      })
+
+      try Await.result(expired.future, 1 second) - start must be_>=(200000000L) finally wheel.stop()
+    }
+
+    "leave a request which is answered in time alone" in {
+
+      val wheel = new TimeoutWheel(system.scheduler, 10 millis, 8)
+      val promise = Promise[Any]()
+      val aClient = client(promise, 50 millis)
+
+      wheel.register(aClient)
+      aClient.respond("value")
+
+      Thread.sleep(100)
+      wheel.stop()
+      Await.result(promise.future, 1 second) must be equalTo "value"
+    }
+
+    "fail a request answered with an unexpected value" in {
+
+      val promise = Promise[Any]()
+
+      client(promise, 1 second).respond(1)
+
+      Try(Await.result(promise.future, 1 second)) must beFailedTry.withThrowable[IllegalArgumentException]
+    }
+  }
+
+  step(system.shutdown())
+}
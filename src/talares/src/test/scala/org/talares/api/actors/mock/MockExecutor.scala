@@ -23,7 +23,7 @@ import org.talares.api.Talares
 import org.talares.api.actors.Executor
 import org.talares.api.datatypes.items.stubs.ItemStubs._
 import org.talares.api.exceptions.ServiceErrorException
-import play.api.libs.json.JsValue
+import play.api.libs.json.{JsArray, JsValue, Json}
 
 import scala.concurrent.Future
 import scala.reflect.ClassTag
@@ -39,6 +39,12 @@ class MockExecutor[T](app: Talares, shouldFail: Boolean = false) extends Executo
     else success(location)
   }
 
+  override def fetchContent(location: String, deadline: => Long): Future[Either[Throwable, Array[Byte]]] =
+    callService(location) map (_.right map {
+      case results: JsArray => Json.stringify(Json.obj("d" -> Json.obj("results" -> results))).getBytes("UTF-8")
+      case result => Json.stringify(Json.obj("d" -> result)).getBytes("UTF-8")
+    })
+
   private def success(location: String): Future[Either[Throwable, JsValue]] = Future.successful {
 
     val filter = location.contains("$filter")
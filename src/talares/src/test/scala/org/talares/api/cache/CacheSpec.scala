@@ -1,13 +1,22 @@
 package org.talares.api.cache
 
+import org.joda.time.DateTime
 import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
 import org.talares.api.cache.mock.MockCaches
+import org.talares.api.datatypes.items.Page
+import org.talares.api.datatypes.items.stubs.ItemStubs
+import org.talares.api.exceptions.CacheTimeoutException
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.{Await, Promise}
+import scala.concurrent.duration._
 
 /**
  * @author Dennis Vis
  * @since 0.1.0
  */
-class CacheSpec extends Specification with MockCaches {
+class CacheSpec extends Specification with NoTimeConversions with MockCaches {
 
   val key = "keyStub"
   val value = "valueStub"
@@ -31,5 +40,103 @@ class CacheSpec extends Specification with MockCaches {
       mockAutoUpdateCache.put(key, value)
       mockAutoUpdateCache.get(key) must be equalTo Some(value)
     }
+
+    "get and put with async cache" in {
+      Await.result(mockAsyncCache.put(key, value), 1 second)
+      Await.result(mockAsyncCache.get(key), 1 second) must be equalTo Some(value)
+    }
+
+    "get all and put all with async cache" in {
+      Await.result(mockAsyncCache.putAll(Map(key -> value)), 1 second)
+      Await.result(mockAsyncCache.getAll(Seq(key, "otherKeyStub")), 1 second) must be equalTo Map(key -> value)
+    }
+
+    "invalidate with async cache" in {
+      Await.result(mockAsyncCache.put(key, CacheItem(value)), 1 second)
+      Await.result(mockAsyncCache.invalidate(key), 1 second)
+      Await.result(mockAsyncCache.get(key), 1 second) must not be equalTo(Some(CacheItem(value)))
+    }
+
+    "fail a synchronous get or put on an async cache which does not complete in time" in {
+      val hanging = new AsyncCache {
+        override def get(key: Any) = Promise[Option[Any]]().future
+        override def getAll(keys: Seq[Any]) = Promise[Map[Any, Any]]().future
+        override def put(key: Any, value: Any) = Promise[Unit]().future
+        override def putAll(entries: Map[Any, Any]) = Promise[Unit]().future
+        override def invalidate(key: Any) = Promise[Unit]().future
+      }
+
+      AsyncCache.awaitGet(hanging, 100 millis)(key) must throwA[CacheTimeoutException]
+      AsyncCache.awaitPut(hanging, 100 millis)(key, value) must throwA[CacheTimeoutException]
+    }
+  }
+
+  "PublicationGenerations" should {
+
+    val page = CacheItem(Seq(ItemStubs.pageStub.as[Page]))
+
+    "stamp items with their publication" in {
+      new PublicationGenerations().stamp(page).publicationId must be equalTo Some(1)
+    }
+
+    "leave values without publication as is" in {
+      new PublicationGenerations().stamp(CacheItem(value)) must be equalTo CacheItem(value)
+    }
+
+    "make stamped items stale when bumped" in {
+      val generations = new PublicationGenerations
+      val stamped = generations.stamp(page)
+      generations.bump(2)
+      val currentBeforeBump = generations.isCurrent(stamped)
+      generations.bump(1)
+      (currentBeforeBump, generations.isCurrent(stamped), generations.isCurrent(generations.stamp(page))) must be equalTo
+        ((true, false, true))
+    }
+
+    "make items fetched before a bump stale when stored after it" in {
+      val generations = new PublicationGenerations
+      val issued = PublicationGenerations.now
+      generations.bump(1)
+      val stamped = generations.stamp(page, issued)
+      (generations.isCurrent(stamped), generations.isCurrent(generations.stamp(page))) must be equalTo ((false, true))
+    }
+  }
+
+  "ContentHash" should {
+
+    "compute the 64-bit xxHash" in {
+      Seq("", "abc", "Nobody inspects the spammish repetition") map (input => ContentHash(input.getBytes("UTF-8"))) must
+        be equalTo Seq(0xEF46DB3751D8E999L, 0x44BC2CF5AD770999L, 0xFBCEA83C8A378BF1L)
+    }
+  }
+
+  "ItemChange" should {
+
+    val page = ItemStubs.pageStub.as[Page]
+    val republished = page.copy(lastPublishDate = Some(new DateTime(0L)))
+    val other = page.copy(metadata = page.metadata.copy(uri = page.metadata.uri.replace("123", "124")))
+
+    "report changed items" in {
+      ItemChange.between(page, republished) must be equalTo Seq(ItemChange(ItemKey(page), page, republished))
+    }
+
+    "not report unchanged items" in {
+      ItemChange.between(Seq(page, other), Seq(other, page)) must be empty
+    }
+
+    "match items by their key" in {
+      ItemChange.between(Seq(page, other), Seq(republished)) must be equalTo
+        Seq(ItemChange(ItemKey(page), page, republished))
+    }
+
+    "be published to subscribed listeners" in {
+      val changes = new ItemChanges
+      val received = Promise[ItemChange]()
+      changes.subscribe(_ => throw new IllegalStateException)
+      changes.subscribe(change => received.success(change))
+      val change = ItemChange(ItemKey(page), page, republished)
+      Await.ready(changes.publish(change), 1 second)
+      Await.result(received.future, 1 second) must be equalTo change
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package org.talares.api.cache
+
+import org.specs2.mutable.Specification
+import org.talares.api.datatypes.items.stubs.ItemStubs._
+import org.talares.api.datatypes.items.{Component, ComponentPresentation, Page}
+import play.api.libs.json.Json
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class DependencyIndexSpec extends Specification {
+
+  val page = Json.fromJson[Page](pageStub).get
+  val componentPresentation = Json.fromJson[ComponentPresentation](componentPresentationStub).get
+  val component = Json.fromJson[Component](componentStub).get
+
+  val pageKey = 1
+  val componentPresentationsKey = page.componentPresentations.uri.hashCode
+  val componentKey = 3
+
+  def index: DependencyIndex = {
+    val index = new DependencyIndex(initialCapacity = 4)
+    index.record(pageKey, page)
+    index.record(componentPresentationsKey, Seq(componentPresentation))
+    index.record(componentKey, component)
+    index
+  }
+
+  "ItemKey" should {
+
+    "ignore the order of ID's" in {
+      ItemKey("Pages", "PublicationId" -> 1, "ItemId" -> 123) must be equalTo ItemKey("Pages", "ItemId" -> 123, "PublicationId" -> 1)
+    }
+
+    "be composed from an item" in {
+      ItemKey(page) must be equalTo ItemKey("Pages", "PublicationId" -> 1, "ItemId" -> 123)
+    }
+
+    "name a single unnamed ID" in {
+      ItemKey.fromURI("http://127.0.0.1:8080/cd_webservice/odata.svc/Publications(1)") must be equalTo
+        ItemKey("Publications", "Id" -> 1)
+    }
+  }
+
+  "DependencyIndex" should {
+
+    "evict transitive dependents" in {
+      index.remove(ItemKey(component)) must containTheSameElementsAs(Seq(componentKey, componentPresentationsKey, pageKey))
+    }
+
+    "evict dependents of referenced items" in {
+      index.remove(ItemKey("Templates", "PublicationId" -> 1, "ItemId" -> 123)) must
+        containTheSameElementsAs(Seq(componentPresentationsKey, pageKey))
+    }
+
+    "not evict dependencies" in {
+      index.remove(ItemKey(page)) must be equalTo Seq(pageKey)
+    }
+
+    "forget removed edges" in {
+      val anIndex = index
+      anIndex.remove(ItemKey(component))
+      anIndex.remove(ItemKey(component)) must beEmpty
+    }
+
+    "not confuse an item with a cache key of the same hash code" in {
+      val anIndex = new DependencyIndex(initialCapacity = 4)
+      anIndex.record(ItemKey(page).hashCode, component)
+      anIndex.record(pageKey, page)
+
+      anIndex.remove(ItemKey(page)) must be equalTo Seq(pageKey)
+    }
+
+    "drop the entries recorded longest ago beyond it's maximum" in {
+      val anIndex = new DependencyIndex(maxEntries = 2, initialCapacity = 4)
+      anIndex.record(pageKey, page) must beEmpty
+      anIndex.record(componentPresentationsKey, Seq(componentPresentation)) must beEmpty
+      anIndex.record(pageKey, page) must beEmpty
+
+      anIndex.record(componentKey, component) must be equalTo Seq(componentPresentationsKey)
+      anIndex.remove(ItemKey(component)) must containTheSameElementsAs(Seq(componentKey, pageKey))
+    }
+
+    "collect nodes no tracked entry depends on" in {
+      val anIndex = new DependencyIndex(initialCapacity = 4)
+      (1 to 1000) foreach { key =>
+        anIndex.record(key, component)
+        anIndex.remove(key)
+      }
+
+      anIndex.nodes must be lessThan 200
+      anIndex.record(pageKey, page)
+      anIndex.remove(ItemKey("Templates", "PublicationId" -> 1, "ItemId" -> 123)) must be equalTo Seq(pageKey)
+    }
+  }
+}
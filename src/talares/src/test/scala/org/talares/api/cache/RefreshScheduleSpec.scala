@@ -0,0 +1,77 @@
+package org.talares.api.cache
+
+import akka.actor.ActorRef
+import org.joda.time.DateTime
+import org.specs2.mutable.Specification
+import org.talares.api.actors.messages.FetcherMessages
+import org.talares.api.datatypes.items.Page
+import org.talares.api.datatypes.items.stubs.ItemStubs._
+import play.api.libs.json.Json
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class RefreshScheduleSpec extends Specification {
+
+  implicit val jsonReadable = Page.PageJsonReadable
+
+  val page = Json.fromJson[Page](pageStub).get
+  val changedPage = page.copy(lastPublishDate = Some(new DateTime(0L)))
+
+  val task = FetcherMessages.FetchByURI[Page](ActorRef.noSender, "Pages(PublicationId=1,ItemId=123)")
+
+  def schedule(expiry: Long = 0L): RefreshSchedule = {
+    val schedule = new RefreshSchedule(1000L, 250L, 4000L, 10000L, expiry, 100L, 500L)
+    schedule.accessed(task, page, 0L)
+    schedule
+  }
+
+  "RefreshSchedule" should {
+
+    "refresh hot entries once their interval has passed" in {
+      val aSchedule = schedule()
+      (aSchedule.due(999L), aSchedule.due(1000L)) must be equalTo ((Nil, Seq(task)))
+    }
+
+    "not refresh an entry twice while the refresh is in progress" in {
+      val aSchedule = schedule()
+      aSchedule.due(1000L)
+      aSchedule.due(1100L) must be equalTo Nil
+    }
+
+    "back off when an item has not changed" in {
+      val aSchedule = schedule()
+      aSchedule.due(1000L)
+      (aSchedule.stored(task.cacheKey, page, 1200L), aSchedule.interval("Page")) must be equalTo ((Some(false), 2000L))
+    }
+
+    "tighten when an item has changed" in {
+      val aSchedule = schedule()
+      aSchedule.due(1000L)
+      aSchedule.stored(task.cacheKey, changedPage, 1200L)
+      aSchedule.due(1700L)
+      aSchedule.stored(task.cacheKey, page, 1800L)
+      aSchedule.interval("Page") must be equalTo 250L
+    }
+
+    "renew an entry refreshed with an identical response" in {
+      val aSchedule = schedule()
+      aSchedule.due(1000L)
+      aSchedule.stored(task.cacheKey, page, 1200L, Some(42L))
+      aSchedule.due(3200L)
+      aSchedule.renewed(task.cacheKey, 3300L)
+      (aSchedule.contentHash(task.cacheKey), aSchedule.interval("Page"), aSchedule.due(7299L)) must be equalTo
+        ((Some(42L), 4000L, Nil))
+    }
+
+    "refresh entries before they expire" in {
+      schedule(expiry = 600L).due(500L) must be equalTo Seq(task)
+    }
+
+    "forget entries which are no longer hot" in {
+      val aSchedule = schedule()
+      (aSchedule.due(10001L), aSchedule.size) must be equalTo ((Nil, 0))
+    }
+  }
+}
@@ -1,6 +1,6 @@
 package org.talares.api.cache.mock
 
-import org.talares.api.cache.{AutoUpdateCache, NoCache, SimpleCache}
+import org.talares.api.cache._
 
 import scala.collection.mutable
 
@@ -20,4 +20,8 @@ trait MockCaches {
   val mockNoCache = NoCache()
   val mockSimpleCache = SimpleCache(get, put)
   val mockAutoUpdateCache = AutoUpdateCache(get, put)
+
+  val mockAsyncCache = AsyncCache(get, put)
+  val mockAsyncSimpleCache = AsyncSimpleCache(mockAsyncCache)
+  val mockAsyncAutoUpdateCache = AsyncAutoUpdateCache(mockAsyncCache)
 }
\ No newline at end of file
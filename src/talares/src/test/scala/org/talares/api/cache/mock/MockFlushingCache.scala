@@ -0,0 +1,37 @@
+package org.talares.api.cache.mock
+
+import org.talares.api.cache.FlushingCache
+
+import scala.collection.concurrent.TrieMap
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.Future
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class MockFlushingCache extends FlushingCache {
+
+  val entries = TrieMap[Any, Any]()
+
+  val heldBack = TrieMap[Any, Any]()
+
+  override def flush(): Future[Unit] = Future {
+    heldBack.keys foreach (key => heldBack.remove(key) foreach (entries.put(key, _)))
+  }
+
+  override def get(key: Any): Future[Option[Any]] = Future.successful(entries.get(key))
+
+  override def getAll(keys: Seq[Any]): Future[Map[Any, Any]] =
+    Future.successful(keys.flatMap(key => entries.get(key) map (key -> _)).toMap)
+
+  override def put(key: Any, value: Any): Future[Unit] = Future {
+    Thread.sleep(100)
+    heldBack.put(key, value)
+  }
+
+  override def putAll(entries: Map[Any, Any]): Future[Unit] =
+    Future.sequence(entries.toSeq map (put _).tupled) map (_ => ())
+
+  override def invalidate(key: Any): Future[Unit] = Future.successful(entries.remove(key))
+}
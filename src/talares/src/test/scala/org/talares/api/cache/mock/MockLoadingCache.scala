@@ -0,0 +1,43 @@
+package org.talares.api.cache.mock
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.talares.api.cache.LoadingCache
+
+import scala.collection.concurrent.TrieMap
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.{Future, Promise}
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class MockLoadingCache extends LoadingCache {
+
+  val entries = TrieMap[Any, Future[Any]]()
+
+  val loads = new AtomicInteger()
+
+  override def get(key: Any, loader: () => Future[Any]): Future[Any] = {
+    val promise = Promise[Any]()
+    entries.putIfAbsent(key, promise.future) getOrElse {
+      loads.incrementAndGet()
+      promise.completeWith(loader())
+      promise.future
+    }
+  }
+
+  override def get(key: Any): Future[Option[Any]] =
+    entries.get(key).fold(Future.successful[Option[Any]](None))(_ map (value => Some(value)))
+
+  override def getAll(keys: Seq[Any]): Future[Map[Any, Any]] =
+    Future.sequence(keys map (key => get(key) map (key -> _))) map (_.collect {
+      case (key, Some(value)) => key -> value
+    }.toMap)
+
+  override def put(key: Any, value: Any): Future[Unit] = Future.successful(entries.put(key, Future.successful(value)))
+
+  override def putAll(entries: Map[Any, Any]): Future[Unit] = Future.successful(entries foreach (put _).tupled)
+
+  override def invalidate(key: Any): Future[Unit] = Future.successful(entries.remove(key))
+}
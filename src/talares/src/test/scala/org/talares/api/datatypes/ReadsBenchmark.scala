@@ -0,0 +1,83 @@
+package org.talares.api.datatypes
+
+import java.lang.management.ManagementFactory
+
+import org.talares.api.datatypes.items.stubs.ItemStubs._
+import org.talares.api.datatypes.items.{Keyword, Page, Publication}
+import play.api.libs.json.{JsArray, JsValue, Json}
+
+/**
+ * Compares reading items by their Reads, from the JsValue tree of the Json, with reading them in a single pass by
+ * their [[StreamReads]], for a single item and for a response holding many. Reports the environment it runs in, and the
+ * time and the heap allocated, by the current thread, per read.
+ *
+ * Run from the test classpath, optionally passing the amount of reads per round:
+ * {{{
+ *   org.talares.api.datatypes.ReadsBenchmark 20000
+ * }}}
+ *
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+object ReadsBenchmark {
+
+  def main(args: Array[String]): Unit = {
+
+    val count = args.headOption.fold(20000)(_.toInt)
+
+    def round[T](name: String, json: JsValue)(implicit jsonReadable: JsonReadable[T]): Unit = {
+
+      val content = Json.stringify(json).getBytes("UTF-8")
+      val streamReads = StreamReads.of(jsonReadable)
+
+      def measure(label: String, read: Array[Byte] => Any): Unit = {
+
+        val allocatedBefore = allocated
+        val start = System.nanoTime
+
+        var i = 0
+        while (i < count) {
+          read(content)
+          i += 1
+        }
+
+        val nanos = System.nanoTime - start
+        val bytes = allocated - allocatedBefore
+
+        val perRead = f"${nanos.toDouble / count}%9.0f ns/read ${bytes.toDouble / count}%9.0f bytes/read"
+
+        println(f"$name%-12s $label%-7s $perRead")
+      }
+
+      implicit val reads = jsonReadable.reads
+
+      json match {
+        case _: JsArray =>
+          measure("reads", content => Json.parse(content).as[Seq[T]])
+          measure("stream", content => StreamReads.parse(content)(StreamReads.seq(streamReads)))
+        case _ =>
+          measure("reads", content => Json.parse(content).as[T])
+          measure("stream", content => StreamReads.parse(content)(streamReads))
+      }
+    }
+
+    val pages = Json.toJson(Seq.fill(100)(pageStub))
+
+    println(s"Java ${System.getProperty("java.version")} (${System.getProperty("java.vm.name")}) on " +
+      s"${System.getProperty("os.name")} ${System.getProperty("os.arch")}, " +
+      s"${Runtime.getRuntime.availableProcessors} processors, $count reads per round")
+
+    (1 to 5) foreach { iteration =>
+      println(s"Round $iteration")
+      round[Page]("Page", pageStub)
+      round[Publication]("Publication", publicationStub)
+      round[Keyword]("Keyword", keywordStub)
+      round[Page]("100 Pages", pages)
+    }
+  }
+
+  private def allocated: Long = ManagementFactory.getThreadMXBean match {
+    case threads: com.sun.management.ThreadMXBean => threads.getThreadAllocatedBytes(Thread.currentThread.getId)
+    case _ => 0L
+  }
+}
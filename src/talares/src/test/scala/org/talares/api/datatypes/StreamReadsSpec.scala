@@ -0,0 +1,77 @@
+package org.talares.api.datatypes
+
+import org.specs2.mutable.Specification
+import org.talares.api.datatypes.items._
+import org.talares.api.datatypes.items.stubs.ItemStubs._
+import play.api.libs.json._
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class StreamReadsSpec extends Specification {
+
+  def streamed[T](json: JsValue)(implicit jsonReadable: JsonReadable[T]): T =
+    StreamReads.parse(Json.stringify(json))(StreamReads.of(jsonReadable))
+
+  "StreamReads" should {
+
+    "read every item as its Reads does" in {
+      streamed[Binary](binaryStub) must be equalTo binaryStub.as[Binary]
+      streamed[BinaryContent](binaryContentStub) must be equalTo binaryContentStub.as[BinaryContent]
+      streamed[BinaryVariant](binaryVariantStub) must be equalTo binaryVariantStub.as[BinaryVariant]
+      streamed[Component](componentStub) must be equalTo componentStub.as[Component]
+      streamed[ComponentPresentation](componentPresentationStub) must be equalTo
+        componentPresentationStub.as[ComponentPresentation]
+      streamed[CustomMeta](customMetaStub) must be equalTo customMetaStub.as[CustomMeta]
+      streamed[Keyword](keywordStub) must be equalTo keywordStub.as[Keyword]
+      streamed[Metadata](metadataStub) must be equalTo metadataStub.as[Metadata]
+      streamed[Page](pageStub) must be equalTo pageStub.as[Page]
+      streamed[PageContent](pageContentStub) must be equalTo pageContentStub.as[PageContent]
+      streamed[Publication](publicationStub) must be equalTo publicationStub.as[Publication]
+      streamed[Schema](schemaStub) must be equalTo schemaStub.as[Schema]
+      streamed[StructureGroup](structureGroupStub) must be equalTo structureGroupStub.as[StructureGroup]
+      streamed[Template](templateStub) must be equalTo templateStub.as[Template]
+    }
+
+    "read an array of items" in {
+      StreamReads.parse(Json.stringify(pagesStub))(StreamReads.seq(Page.streamReads)) must be equalTo
+        pagesStub.as[Seq[Page]]
+    }
+
+    "read a null or absent optional field as None" in {
+      val withoutAuthor = pageStub.as[JsObject] - "Author"
+
+      streamed[Page](pageStub).author must beNone
+      streamed[Page](withoutAuthor).author must beNone
+    }
+
+    "skip fields which are not read" in {
+      streamed[Page](pageStub.as[JsObject] + ("Unknown" -> Json.obj("nested" -> Json.arr(1, 2)))) must be equalTo
+        pageStub.as[Page]
+    }
+
+    "fail on an absent required field with it's path" in {
+      streamed[Page](pageStub.as[JsObject] - "ItemId") must throwA[JsResultException].like {
+        case JsResultException(errors) => errors.map(_._1) must be equalTo Seq(JsPath \ "ItemId")
+      }
+    }
+
+    "fail on a field of the wrong type with it's path" in {
+      val wrongType = pageStub.as[JsObject] + ("PublicationId" -> JsString("1"))
+
+      streamed[Page](wrongType) must throwA[JsResultException].like {
+        case JsResultException(errors) => errors.map(_._1) must be equalTo Seq(JsPath \ "PublicationId")
+      }
+    }
+
+    "read a type without a dedicated reader by it's Reads" in {
+      val jsonReadable = new JsonReadable[Page] {
+        override implicit val reads: Reads[Page] = Page.reads
+      }
+
+      StreamReads.of(jsonReadable) must not be Page.streamReads
+      streamed[Page](pageStub)(jsonReadable) must be equalTo pageStub.as[Page]
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package org.talares.api.direct
+
+import java.net.InetSocketAddress
+import java.util.concurrent.atomic.AtomicInteger
+
+import com.sun.net.httpserver.{HttpExchange, HttpHandler, HttpServer}
+import com.typesafe.config.ConfigFactory
+import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
+import org.talares.api.actors.messages.{Client, MediatorMessages}
+import org.talares.api.cache.{Cache, NoCache, SimpleCache}
+import org.talares.api.datatypes.items.Page
+import org.talares.api.datatypes.items.stubs.ItemStubs
+import org.talares.api.exceptions.{RequestRejectedException, ServiceErrorException}
+import org.talares.api.{Engine, Settings, Talares}
+import play.api.libs.json.Json
+
+import scala.collection.concurrent.TrieMap
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future}
+import scala.util.Try
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class DirectEngineSpec extends Specification with NoTimeConversions {
+
+  implicit val jsonReadable = Page.PageJsonReadable
+
+  /**
+   * Serves a page for every request, after the given delay, except for item 3, which fails.
+   */
+  class Webservice(delay: Long = 0L) {
+
+    val calls = new AtomicInteger()
+
+    private val server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+    server.createContext("/", new HttpHandler {
+      override def handle(exchange: HttpExchange): Unit = {
+        calls.incrementAndGet()
+        Thread.sleep(delay)
+        val failed = exchange.getRequestURI.toString.contains("ItemId=3")
+        val body = Json.stringify(Json.obj("d" -> ItemStubs.pageStub)).getBytes("UTF-8")
+        exchange.sendResponseHeaders(if (failed) 500 else 200, body.length)
+        exchange.getResponseBody.write(body)
+        exchange.close()
+      }
+    })
+    server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool())
+    server.start()
+
+    val location = s"http://localhost:${server.getAddress.getPort}/odata.svc"
+
+    def stop(): Unit = server.stop(0)
+  }
+
+  def withApp[A](webservice: Webservice, cache: Cache = NoCache(), settings: Settings = Settings())
+                (test: Talares => A): A = {
+    val app = new Talares(cache, settings) {
+      override lazy val engine: Engine = new DirectEngine(this)
+    }
+    try test(app) finally {
+      app.terminate()
+      webservice.stop()
+    }
+  }
+
+  def getPage(app: Talares, location: String, itemId: Int): Future[Page] =
+    app.submit(MediatorMessages.IDRequest[Page](location, "PublicationId" -> 1, "ItemId" -> itemId), location) {
+      case page: Page => page
+    }
+
+  "A DirectEngine" should {
+
+    "fetch and parse an item" in {
+
+      val webservice = new Webservice()
+
+      withApp(webservice) { app =>
+        Await.result(getPage(app, webservice.location, 2), 5 seconds) must be equalTo ItemStubs.pageStub.as[Page]
+      }
+    }
+
+    "serve a repeated request from the cache" in {
+
+      val webservice = new Webservice()
+      val entries = TrieMap[Any, Any]()
+
+      withApp(webservice, SimpleCache(entries.get, entries.put)) { app =>
+        Await.result(getPage(app, webservice.location, 2), 5 seconds)
+        Await.result(getPage(app, webservice.location, 2), 5 seconds)
+
+        webservice.calls.get must be equalTo 1
+      }
+    }
+
+    "share a call between concurrent requests for the same location" in {
+
+      val webservice = new Webservice(delay = 200L)
+
+      withApp(webservice) { app =>
+        val pages = Seq(getPage(app, webservice.location, 2), getPage(app, webservice.location, 2))
+        Await.result(Future.sequence(pages)(implicitly, app.executionContext), 5 seconds)
+
+        webservice.calls.get must be equalTo 1
+      }
+    }
+
+    "fail a request the webservice fails" in {
+
+      val webservice = new Webservice()
+
+      withApp(webservice) { app =>
+        Try(Await.result(getPage(app, webservice.location, 3), 5 seconds)) must
+          beFailedTry.withThrowable[ServiceErrorException]
+      }
+    }
+
+    "reject requests beyond it's capacity until a request in progress completes" in {
+
+      val webservice = new Webservice(delay = 200L)
+      val settings = Settings(ConfigFactory.parseString("talares.direct.capacity=1").withFallback(ConfigFactory.load()))
+
+      withApp(webservice, settings = settings) { app =>
+        val first = getPage(app, webservice.location, 1)
+
+        Try(Await.result(getPage(app, webservice.location, 2), 5 seconds)) must
+          beFailedTry.withThrowable[RequestRejectedException]
+
+        Await.result(first, 5 seconds)
+        Await.result(getPage(app, webservice.location, 2), 5 seconds) must be equalTo ItemStubs.pageStub.as[Page]
+      }
+    }
+
+    "await the requests in progress before flushing" in {
+
+      val webservice = new Webservice(delay = 200L)
+      val entries = TrieMap[Any, Any]()
+      val client = new Client {
+        override def respond(value: Any): Unit = ()
+        override def fail(throwable: Throwable): Unit = ()
+        override def deadline: Long = Long.MaxValue
+      }
+
+      withApp(webservice, SimpleCache(entries.get, entries.put)) { app =>
+        app.engine.submit(MediatorMessages.IDRequest[Page](webservice.location, "ItemId" -> 2), client)
+        Await.result(app.engine.flush(), 5 seconds)
+
+        entries must haveSize(1)
+      }
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package org.talares.api.invalidation
+
+import java.io.File
+import java.net.{HttpURLConnection, InetSocketAddress, URL}
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, StandardCopyOption}
+import java.util.concurrent.{LinkedBlockingQueue, TimeUnit}
+
+import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
+import org.talares.api.cache.ItemKey
+import org.talares.api.mock.MockTalares
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class InvalidationSpec extends Specification with NoTimeConversions {
+
+  sequential
+
+  "InvalidationEvent" should {
+
+    "parse a line" in {
+      InvalidationEvent.parse("Page, 1, 123") must be equalTo Some(InvalidationEvent("Page", 1, 123))
+    }
+
+    "reject an unknown item type" in {
+      InvalidationEvent.parse("Unknown,1,123") must beNone
+    }
+
+    "compose the key of an item" in {
+      InvalidationEvent("components", 1, 123).itemKey must be equalTo
+        Some(ItemKey("Components", "PublicationId" -> 1, "ItemId" -> 123))
+    }
+
+    "concern a whole publication" in {
+      InvalidationEvent("Publication", 1, 0).itemKey must beNone
+    }
+  }
+
+  "HttpInvalidationSource" should {
+
+    "accept events as query parameters" in {
+
+      val events = new LinkedBlockingQueue[InvalidationEvent]()
+      val source = new HttpInvalidationSource(new InetSocketAddress("127.0.0.1", 0), "/invalidate", "secret")
+      source.start(event => events.put(event))
+
+      try {
+        val url = new URL(s"http://127.0.0.1:${source.port}/invalidate?type=Page&publicationId=1&itemId=123")
+        val connection = url.openConnection().asInstanceOf[HttpURLConnection]
+        connection.setRequestProperty("Authorization", "Bearer secret")
+        (connection.getResponseCode, events.poll(5, TimeUnit.SECONDS)) must be equalTo
+          ((202, InvalidationEvent("Page", 1, 123)))
+      } finally {
+        source.stop()
+      }
+    }
+
+    "reject requests without events" in {
+
+      val source = new HttpInvalidationSource(new InetSocketAddress("127.0.0.1", 0), "/invalidate", "secret")
+      source.start(_ => ())
+
+      try {
+        val url = new URL(s"http://127.0.0.1:${source.port}/invalidate?type=Unknown&publicationId=1&itemId=123")
+        val connection = url.openConnection().asInstanceOf[HttpURLConnection]
+        connection.setRequestProperty("Authorization", "Bearer secret")
+        connection.getResponseCode must be equalTo 400
+      } finally {
+        source.stop()
+      }
+    }
+
+    "reject requests without the token" in {
+
+      val events = new LinkedBlockingQueue[InvalidationEvent]()
+      val source = new HttpInvalidationSource(new InetSocketAddress("127.0.0.1", 0), "/invalidate", "secret")
+      source.start(event => events.put(event))
+
+      try {
+        val url = new URL(s"http://127.0.0.1:${source.port}/invalidate?type=Page&publicationId=1&itemId=123")
+        val connection = url.openConnection().asInstanceOf[HttpURLConnection]
+        connection.setRequestProperty("Authorization", "Bearer guess")
+        (connection.getResponseCode, events.poll(100, TimeUnit.MILLISECONDS)) must be equalTo ((401, null))
+      } finally {
+        source.stop()
+      }
+    }
+  }
+
+  "DirectoryInvalidationSource" should {
+
+    "read events from files moved into the directory" in {
+
+      val talares = MockTalares()
+      val directory = Files.createTempDirectory("talares-invalidation").toFile
+      val events = new LinkedBlockingQueue[InvalidationEvent]()
+      val source = new DirectoryInvalidationSource(talares, directory)
+      source.start(event => events.put(event))
+
+      try {
+        val file = File.createTempFile("events", ".txt")
+        Files.write(file.toPath, "Component,1,123\nPublication,2,0\n".getBytes(StandardCharsets.UTF_8))
+        Files.move(file.toPath, new File(directory, file.getName).toPath, StandardCopyOption.ATOMIC_MOVE)
+
+        Seq(events.poll(10, TimeUnit.SECONDS), events.poll(10, TimeUnit.SECONDS)) must be equalTo
+          Seq(InvalidationEvent("Component", 1, 123), InvalidationEvent("Publication", 2, 0))
+      } finally {
+        source.stop()
+        talares.terminate()
+      }
+    }
+
+    "keep files the listener failed on" in {
+
+      val talares = MockTalares()
+      val directory = Files.createTempDirectory("talares-invalidation").toFile
+      val source = new DirectoryInvalidationSource(talares, directory)
+      source.start(_ => throw new IllegalStateException("listener failed"))
+
+      try {
+        val file = File.createTempFile("events", ".txt")
+        Files.write(file.toPath, "Component,1,123\n".getBytes(StandardCharsets.UTF_8))
+        Files.move(file.toPath, new File(directory, file.getName).toPath, StandardCopyOption.ATOMIC_MOVE)
+
+        val failed = new File(new File(directory, ".failed"), file.getName)
+        val deadline = System.currentTimeMillis + 10000
+        while (!failed.exists && System.currentTimeMillis < deadline) Thread.sleep(50)
+
+        failed.exists must beTrue
+      } finally {
+        source.stop()
+        talares.terminate()
+      }
+    }
+  }
+
+  "DeltaSyncSource" should {
+
+    "report changed items of every collection" in {
+
+      val talares = MockTalares()
+      val events = new LinkedBlockingQueue[InvalidationEvent]()
+      val source = new DeltaSyncSource(talares, Seq(1), File.createTempFile("watermarks", ".properties"))
+
+      try {
+        Await.result(source.poll(event => events.put(event)), 10 seconds)
+        events.toArray.toSet must be equalTo
+          Set(InvalidationEvent("Page", 1, 123), InvalidationEvent("Component", 1, 123), InvalidationEvent("Template", 1, 123))
+      } finally {
+        talares.terminate()
+      }
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package org.talares.api.mirror
+
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import akka.actor.Props
+import dispatch.StatusCode
+import org.specs2.mutable.Specification
+import org.specs2.time.NoTimeConversions
+import org.talares.api.Talares
+import org.talares.api.actors.mock.MockMediator
+import org.talares.api.actors.{Route, Routes}
+import org.talares.api.cache.ItemKey
+import org.talares.api.datatypes.items.Page
+import org.talares.api.datatypes.items.stubs.ItemStubs._
+import org.talares.api.invalidation.InvalidationEvent
+import org.talares.api.mock.MockTalares
+import play.api.libs.json.{JsArray, JsValue}
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future}
+
+/**
+ * @author Dennis Vis
+ * @since 0.1.1
+ */
+class MirrorSpec extends Specification with NoTimeConversions {
+
+  sequential
+
+  class StubMirror(app: Talares, directory: File) extends Mirror(app, directory, Seq(1)) {
+
+    override protected def callService(location: String): Future[JsValue] =
+      if (location.contains("/Pages(")) Future.failed(StatusCode(404))
+      else if (!location.contains("$skip=0")) Future.failed(StatusCode(503))
+      else Future.successful {
+        location.split("odata.svc/")(1).takeWhile(_ != '?') match {
+          case "Pages" => JsArray(Seq(pageStub))
+          case "Components" => JsArray(Seq(componentStub))
+          case _ => JsArray()
+        }
+      }
+  }
+
+  val pageKey = ItemKey("Pages", "PublicationId" -> 1, "ItemId" -> 123)
+
+  "A Mirror" should {
+
+    val talares = MockTalares()
+    val directory = Files.createTempDirectory("talares-mirror").toFile
+    val mirror = new StubMirror(talares, directory)
+
+    "hold crawled items" in {
+      Await.result(mirror.crawl(), 10 seconds).size must be equalTo 2
+      mirror.get(pageKey) must beSome
+    }
+
+    "look up pages by URL" in {
+      mirror.getPage("/path/file.doc") must beSome
+    }
+
+    "restore the last snapshot" in {
+      new StubMirror(talares, directory).snapshot.map(_.size) must be equalTo Some(2)
+    }
+
+    "keep serving items which fail to be refetched" in {
+      Await.ready(mirror.refresh(InvalidationEvent("Component", 1, 123)), 10 seconds)
+      mirror.get(ItemKey("Components", "PublicationId" -> 1, "ItemId" -> 123)) must beSome
+    }
+
+    "stop serving items the webservice no longer holds" in {
+      Await.result(mirror.refresh(InvalidationEvent("Page", 1, 123)), 10 seconds)
+      mirror.get(pageKey) must beNone
+    }
+
+    "crawl each publication from the route serving it" in {
+
+      val emeaLocation = "http://emea.example.com/cd_webservice/odata.svc"
+      val routed = new MockTalares() {
+        override lazy val routes = new Routes(
+          new Route("default", Seq(), Seq(settings.webserviceLocation), 16, settings, timeouts)(executionContext),
+          Seq(new Route("emea", Seq((1, 1)), Seq(emeaLocation), 16, settings, timeouts)(executionContext))
+        )
+      }
+      val locations = new ConcurrentLinkedQueue[String]()
+      val mirror = new StubMirror(routed, Files.createTempDirectory("talares-mirror").toFile) {
+        override protected def callService(location: String): Future[JsValue] = {
+          locations.add(location)
+          super.callService(location)
+        }
+      }
+
+      try {
+        Await.result(mirror.crawl(), 10 seconds)
+        locations.asScala must not be empty
+        locations.asScala must contain((_: String) must startWith(emeaLocation)).forall
+      } finally {
+        routed.terminate()
+      }
+    }
+
+    "discard a crawl once any of it's collections fails" in {
+
+      val failing = Files.createTempDirectory("talares-mirror").toFile
+      val mirror = new StubMirror(talares, failing) {
+        override protected def callService(location: String): Future[JsValue] =
+          if (location.contains("/Keywords?")) Future.failed(StatusCode(503)) else super.callService(location)
+      }
+
+      Await.ready(mirror.crawl(), 10 seconds).value.get must beAFailedTry
+      mirror.snapshot must beNone
+      failing.listFiles().toSeq must beEmpty
+    }
+
+    step(talares.terminate())
+  }
+
+  "Talares" should {
+
+    "serve requests from a mirror" in {
+
+      val talares = new MockTalares() {
+        override def mediatorProps: Props = Props(new MockMediator(this, cache, shouldFail = true))
+      }
+      val mirror = new StubMirror(talares, Files.createTempDirectory("talares-mirror").toFile)
+
+      try {
+        Await.result(mirror.crawl(), 10 seconds)
+        talares.serveFrom(mirror)
+        Await.result(talares.getPage(1, 123), 10 seconds) must be equalTo pageStub.as[Page]
+      } finally {
+        talares.terminate()
+      }
+    }
+  }
+}
@@ -15,8 +15,8 @@
  */
 package org.talares.api.mock
 
-import akka.actor.Props
-import org.talares.api.Talares
+import akka.actor.{ActorSystem, Props}
+import org.talares.api.{Settings, Talares}
 import org.talares.api.actors.mock.MockMediator
 import org.talares.api.cache.{Cache, NoCache}
 
@@ -24,12 +24,16 @@ import org.talares.api.cache.{Cache, NoCache}
  * @author Dennis Vis
  * @since 0.1.0
  */
-class MockTalares(override val cache: Cache = NoCache()) extends Talares(cache) {
+class MockTalares(override val cache: Cache, host: Option[ActorSystem]) extends Talares(cache, Settings(), host) {
 
-  override lazy val mediator = system.actorOf(Props(new MockMediator(this, cache)), "mock-mediator")
+  def this(cache: Cache = NoCache()) = this(cache, None)
+
+  override def mediatorProps: Props = Props(new MockMediator(this, cache))
 }
 
 object MockTalares {
 
   def apply(cache: Cache = NoCache()): MockTalares = new MockTalares(cache)
+
+  def apply(cache: Cache, system: ActorSystem): MockTalares = new MockTalares(cache, Some(system))
 }
\ No newline at end of file
@@ -15,6 +15,7 @@
  */
 package org.talares.api.queries
 
+import org.joda.time.{DateTime, DateTimeZone}
 import org.specs2.mutable.Specification
 
 /**
@@ -42,5 +43,13 @@ class QuerySpec extends Specification {
       val q = Query / "Keywords" %("Id" -> 1, "PublicationId" -> 1, "TaxonomyId" -> 123) $ ("Depth" >| 1)
       q.value must beEqualTo(query)
     }
+
+    "create query 4" in {
+      val query = """/Pages?$filter=LastPublishDate%20gt%20datetime'2014-12-01T10:30:00.250'""" +
+        """&$orderby=LastPublishDate&$top=100&$skip=200"""
+      val since = new DateTime(2014, 12, 1, 11, 30, 0, 250, DateTimeZone.forOffsetHours(1))
+      val q = Query / "Pages" $ ("LastPublishDate" >| since) $ (OrderBy("LastPublishDate"), Top(100), Skip(200))
+      q.value must beEqualTo(query)
+    }
   }
-}
\ No newline at end of file
+}